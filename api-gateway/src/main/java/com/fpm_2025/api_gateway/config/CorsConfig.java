@@ -17,6 +17,8 @@ public CorsWebFilter corsWebFilter() {
         corsConfig.setAllowedOriginPatterns(Arrays.asList("*", "http://localhost:*"));
         corsConfig.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         corsConfig.setAllowedHeaders(Arrays.asList("*"));
+        // Cho client web đọc ETag để gửi lại If-None-Match (conditional GET của reporting-service)
+        corsConfig.setExposedHeaders(Arrays.asList("ETag", "Cache-Control"));
         corsConfig.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
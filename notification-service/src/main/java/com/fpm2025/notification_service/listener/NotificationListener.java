@@ -8,6 +8,7 @@
 import org.springframework.amqp.rabbit.annotation.QueueBinding;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
@@ -52,7 +53,12 @@ public void handleNotificationMessage(String message) {
     // =========================================================================
 
     @KafkaListener(topics = "transaction.created", groupId = "notification-service")
-    public void handleTransactionCreated(@Payload Map<String, Object> event) {
+    public void handleTransactionCreated(@Payload Map<String, Object> event,
+                                         @Header(name = "x-import-id", required = false) byte[] importId) {
+        // Giao dịch từ bulk import: transaction-service đã gửi một notification tổng, không push từng dòng
+        if (importId != null) {
+            return;
+        }
         try {
             Long userId = getLong(event, "userId");
             if (userId == null) return;
@@ -0,0 +1,87 @@
+package com.fpm_2025.reportingservice.config;
+
+import com.fpm_2025.reportingservice.service.cache.CacheInvalidationBus;
+import com.fpm_2025.reportingservice.service.cache.TwoLevelCacheManager;
+import com.fpm_2025.reportingservice.service.cache.WarmUpTtl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Cấu hình cache cho reporting-service: L1 Caffeine (trên heap) trước L2 Redis.
+ *
+ * Key cache có version theo user ({@code UserCacheVersions}) — entry của version cũ không bao giờ
+ * bị xóa chủ động, nên mọi cache bắt buộc có TTL để chúng tự hết hạn. Entry do lượt làm nóng ghi
+ * dùng TTL riêng ({@link WarmUpTtl}).
+ * L1 của các instance được giữ đồng bộ qua Redis pub/sub ({@link CacheInvalidationBus}).
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final List<String> USER_CACHES = List.of(
+        "monthly-statistics",
+        "spending-breakdown",
+        "income-expense-trend",
+        "dashboard-summary",
+        "spending-by-category",
+        "monthly-trends",
+        "statistics",
+        "dashboard",
+        "budget-comparison"
+    );
+
+    @Value("${reporting.cache.ttl:PT30M}")
+    private Duration ttl;
+
+    @Bean
+    @Primary
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory,
+                                     ResourceLoader resourceLoader,
+                                     CacheInvalidationBus invalidationBus,
+                                     MeterRegistry meterRegistry,
+                                     Environment environment) {
+        // Giữ serializer JDK như auto-config của Spring Boot (classloader của devtools restart)
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(
+                new JdkSerializationRedisSerializer(resourceLoader.getClassLoader())))
+            .entryTtl(ttl);
+
+        RedisCacheManager.RedisCacheManagerBuilder builder = RedisCacheManager.builder(connectionFactory)
+            .cacheDefaults(defaults);
+        for (String name : USER_CACHES) {
+            builder.withCacheConfiguration(name, defaults.entryTtl(WarmUpTtl.orDefault(
+                environment.getProperty("reporting.cache." + name + ".ttl", Duration.class, ttl))));
+        }
+        RedisCacheManager redisCacheManager = builder.build();
+        redisCacheManager.afterPropertiesSet();
+
+        TwoLevelCacheManager cacheManager =
+            new TwoLevelCacheManager(redisCacheManager, invalidationBus, meterRegistry, environment);
+        USER_CACHES.forEach(cacheManager::getCache);
+        return cacheManager;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory, CacheInvalidationBus invalidationBus) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(invalidationBus, new ChannelTopic(invalidationBus.getChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,37 @@
+package com.fpm_2025.reportingservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor riêng cho export report — tách khỏi thread HTTP và executor @Async mặc định.
+ *
+ * <p>Số export chạy đồng thời do {@code ExportJobScheduler} giới hạn
+ * ({@code reporting.export.max-concurrent}); executor chỉ quyết định loại thread:
+ * virtual thread (mặc định — export chủ yếu chờ gRPC/IO) hoặc pool cố định.
+ */
+@Slf4j
+@Configuration
+public class ExportExecutorConfig {
+
+    @Value("${reporting.export.virtual-threads:true}")
+    private boolean virtualThreads;
+
+    @Value("${reporting.export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Bean(name = "exportExecutor", destroyMethod = "shutdown")
+    public ExecutorService exportExecutor() {
+        if (virtualThreads) {
+            log.info("Export executor: virtual threads (max {} concurrent exports)", maxConcurrent);
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("export-", 0).factory());
+        }
+        log.info("Export executor: fixed pool of {} threads", maxConcurrent);
+        return Executors.newFixedThreadPool(maxConcurrent, Thread.ofPlatform().name("export-", 0).factory());
+    }
+}
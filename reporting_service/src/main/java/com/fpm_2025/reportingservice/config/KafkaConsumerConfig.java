@@ -0,0 +1,93 @@
+package com.fpm_2025.reportingservice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.listener.RetryListener;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka Consumer Configuration cho reporting-service.
+ *
+ * <p>{@code transactionBatchListenerContainerFactory} — batch listener cho các topic transaction.*:
+ * nhận cả poll một lần, offset chỉ commit (MANUAL ack) sau khi delta đã ghi xuống DB.
+ * Nếu flush lỗi, cả batch được thử lại — applied_transactions đảm bảo không cộng trùng.
+ * Record không parse được đã bị consumer bỏ qua, nên lỗi tới error handler là lỗi ghi (DB down, deadlock...):
+ * thử lại không giới hạn với backoff mũ ({@code reporting.kafka.transaction-batch.retry.*}), không bao giờ
+ * bỏ qua batch và commit offset — DB down bao lâu thì partition dừng bấy lâu, không mất delta.
+ * Trong lúc chờ, container pause consumer nên vẫn giữ partition (không rebalance).
+ *
+ * <p>ConsumerFactory không khai báo thành bean để không thay thế factory mặc định
+ * của Spring Boot cho các listener khác.
+ */
+@Slf4j
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${reporting.kafka.transaction-batch.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${reporting.kafka.transaction-batch.concurrency:3}")
+    private int concurrency;
+
+    @Value("${reporting.kafka.transaction-batch.retry.initial-interval:PT1S}")
+    private Duration retryInitialInterval;
+
+    @Value("${reporting.kafka.transaction-batch.retry.max-interval:PT1M}")
+    private Duration retryMaxInterval;
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> transactionBatchListenerContainerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "reporting-group");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props));
+        factory.setBatchListener(true);
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // Flush lỗi → thử lại cả batch mãi mãi (1s, 2s, 4s... tối đa max-interval); recoverer không bao giờ chạy
+        ExponentialBackOff backOff = new ExponentialBackOff(retryInitialInterval.toMillis(), 2.0);
+        backOff.setMaxInterval(retryMaxInterval.toMillis());
+        backOff.setMaxElapsedTime(Long.MAX_VALUE);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(backOff);
+        errorHandler.setRetryListeners(new RetryListener() {
+            @Override
+            public void failedDelivery(ConsumerRecord<?, ?> record, Exception ex, int attempt) {
+                log.warn("Kafka: Write failed for {}-{}@{} (attempt {}), retrying",
+                        record.topic(), record.partition(), record.offset(), attempt, ex);
+            }
+
+            @Override
+            public void failedDelivery(ConsumerRecords<?, ?> records, Exception ex, int attempt) {
+                log.warn("Kafka: Summary batch of {} records failed (attempt {}), retrying",
+                        records.count(), attempt, ex);
+            }
+        });
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+}
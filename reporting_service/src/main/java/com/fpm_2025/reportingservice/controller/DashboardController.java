@@ -3,12 +3,17 @@
 import com.fpm_2025.reportingservice.dto.request.DashboardRequest;
 import com.fpm_2025.reportingservice.dto.response.DashboardResponse;
 import com.fpm_2025.reportingservice.service.DashboardService;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.time.YearMonth;
 
 @RestController
@@ -18,26 +23,74 @@ public class DashboardController {
     private static final Logger logger = LoggerFactory.getLogger(DashboardController.class);
 
     private final DashboardService dashboardService;
+    private final UserCacheVersions userCacheVersions;
 
-    public DashboardController(DashboardService dashboardService) {
+    public DashboardController(DashboardService dashboardService, UserCacheVersions userCacheVersions) {
         this.dashboardService = dashboardService;
+        this.userCacheVersions = userCacheVersions;
     }
 
+    /**
+     * Conditional GET: ETag dựng từ version dữ liệu của user (bump bởi event transaction/budget)
+     * và ngày hiện tại; If-None-Match khớp → 304, không tính/serialize dashboard.
+     *
+     * Dashboard thiếu nguồn (unavailableSources khác rỗng) không mang ETag và trả {@code no-store}: nếu không,
+     * client giữ bản thiếu dữ liệu và nhận 304 cho tới khi version đổi dù nguồn đã hồi phục. Vì vậy chỉ
+     * bản đầy đủ mới có ETag để client gửi lại. Không dùng {@link WebRequest#checkNotModified(String)} vì nó
+     * ghi header ETag vào response ngay cả khi không khớp.
+     */
     @GetMapping
-    @Cacheable(value = "dashboard", key = "#userId + '-' + #yearMonth")
     public ResponseEntity<DashboardResponse> getDashboard(
             @RequestHeader("X-User-Id") Long userId,
-            @RequestParam(required = false) String yearMonth) {
-
-        logger.info("Getting dashboard for user: {}, month: {}", userId, yearMonth);
+            @RequestParam(required = false) String yearMonth,
+            WebRequest webRequest) {
 
         if (yearMonth == null || yearMonth.isBlank()) {
             yearMonth = YearMonth.now().toString();
         }
 
+        String etag = userCacheVersions.etag(userId, "dashboard", yearMonth, LocalDate.now());
+        if (matchesIfNoneMatch(webRequest.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
+        }
+
+        logger.info("Getting dashboard for user: {}, month: {}", userId, yearMonth);
+
         DashboardRequest request = new DashboardRequest(userId, yearMonth);
         DashboardResponse response = dashboardService.getDashboard(request);
 
-        return ResponseEntity.ok(response);
+        if (response.hasUnavailableSources()) {
+            logger.warn("Dashboard for user {} is partial, unavailable: {}", userId, response.getUnavailableSources());
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(response);
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(response);
+    }
+
+    /** So sánh If-None-Match (danh sách, weak/strong, {@code *}) với ETag hiện tại theo kiểu weak comparison. */
+    static boolean matchesIfNoneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
-}
\ No newline at end of file
+}
@@ -2,24 +2,36 @@
 
 import com.fpm_2025.reportingservice.dto.response.BaseResponse;
 import com.fpm_2025.reportingservice.security.UserPrincipal;
+import com.fpm_2025.reportingservice.domain.RollupPoint;
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
+import com.fpm_2025.reportingservice.domain.valueobject.CubeDimension;
 import com.fpm_2025.reportingservice.domain.valueobject.ExportFormat;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import com.fpm_2025.reportingservice.domain.valueobject.RollupLevel;
 import com.fpm_2025.reportingservice.dto.request.ReportRequest;
 import com.fpm_2025.reportingservice.dto.response.ReportResponse;
 import com.fpm_2025.reportingservice.service.ReportingService;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import com.fpm_2025.reportingservice.service.cube.CubeQuery;
+import com.fpm_2025.reportingservice.service.rollup.SpendingRollupService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
 
 @Slf4j
 @RestController
@@ -28,6 +40,9 @@
 public class ReportController {
 
     private final ReportingService reportingService;
+    private final SpendingRollupService spendingRollupService;
+    private final UserCacheVersions userCacheVersions;
+    private final ReportDownloads reportDownloads;
 
     @GetMapping("/monthly")
     @PreAuthorize("isAuthenticated()")
@@ -49,11 +64,13 @@ public BaseResponse<ReportResponse> getMonthlyReport(
         return BaseResponse.success(response);
     }
 
+    // Report được dùng lại khi dữ liệu của user chưa đổi; download hỗ trợ Range để resume
     @GetMapping("/export/pdf")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Resource> exportPdf(
             @AuthenticationPrincipal UserPrincipal user,
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") LocalDate month) {
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") LocalDate month,
+            ServletWebRequest webRequest) {
         
         log.info("Exporting PDF report for user: {}, month: {}", user.getId(), month);
         
@@ -65,25 +82,20 @@ public ResponseEntity<Resource> exportPdf(
                 .build();
         
         ReportResponse res = reportingService.generateMonthlyReport(request);
-        byte[] pdfData = reportingService.downloadReport(res.getFileUrl());
-        
-        ByteArrayResource resource = new ByteArrayResource(pdfData);
         
         String filename = String.format("report_%s_%s.pdf", 
                 user.getId(), 
                 month.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM")));
         
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .body(resource);
+        return reportDownloads.serve(res.getFileUrl(), MediaType.APPLICATION_PDF, filename, webRequest);
     }
 
     @GetMapping("/export/excel")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<Resource> exportExcel(
             @AuthenticationPrincipal UserPrincipal user,
-            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") LocalDate month) {
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") LocalDate month,
+            ServletWebRequest webRequest) {
         
         log.info("Exporting Excel report for user: {}, month: {}", user.getId(), month);
         
@@ -95,55 +107,119 @@ public ResponseEntity<Resource> exportExcel(
                 .build();
         
         ReportResponse res = reportingService.generateMonthlyReport(request);
-        byte[] excelData = reportingService.downloadReport(res.getFileUrl());
-        
-        ByteArrayResource resource = new ByteArrayResource(excelData);
         
         String filename = String.format("report_%s_%s.xlsx", 
                 user.getId(), 
                 month.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM")));
         
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .body(resource);
+        return reportDownloads.serve(res.getFileUrl(),
+                MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+                filename, webRequest);
     }
 
     // =========================================================================
     // GET /api/v1/reports/spending-by-category
     // Biểu đồ tròn (Pie Chart): chi tiêu theo danh mục trong tháng
+    // Conditional GET: If-None-Match khớp ETag (version dữ liệu của user) → 304
     // =========================================================================
     @GetMapping("/spending-by-category")
     @PreAuthorize("isAuthenticated()")
-    public BaseResponse<?> getSpendingByCategory(
+    public ResponseEntity<BaseResponse<?>> getSpendingByCategory(
             @AuthenticationPrincipal UserPrincipal user,
             @RequestParam(required = false) String yearMonth,
-            @RequestParam(required = false, defaultValue = "EXPENSE") String type) {
+            @RequestParam(required = false, defaultValue = "EXPENSE") String type,
+            WebRequest webRequest) {
 
         String month = (yearMonth != null && !yearMonth.isBlank())
                 ? yearMonth
-                : java.time.YearMonth.now().toString();
+                : YearMonth.now().toString();
+
+        String etag = userCacheVersions.etag(user.getId(), "spending-by-category", month, type.toUpperCase());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
         log.info("spending-by-category: userId={}, month={}, type={}", user.getId(), month, type);
 
         var chartData = reportingService.getSpendingByCategory(user.getId(), month, type);
-        return BaseResponse.success(chartData);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(BaseResponse.success(chartData));
     }
 
     // =========================================================================
     // GET /api/v1/reports/trends
     // Biểu đồ đường: So sánh income vs expense theo N tháng gần nhất (default 6)
+    // Conditional GET như spending-by-category; ETag gồm tháng hiện tại vì cửa sổ trượt theo tháng
     // =========================================================================
     @GetMapping("/trends")
     @PreAuthorize("isAuthenticated()")
-    public BaseResponse<?> getTrends(
+    public ResponseEntity<BaseResponse<?>> getTrends(
             @AuthenticationPrincipal UserPrincipal user,
-            @RequestParam(required = false, defaultValue = "6") int months) {
+            @RequestParam(required = false, defaultValue = "6") int months,
+            WebRequest webRequest) {
+
+        String etag = userCacheVersions.etag(user.getId(), "trends", YearMonth.now(), months);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
         log.info("trends: userId={}, months={}", user.getId(), months);
 
         var trendData = reportingService.getMonthlyTrends(user.getId(), months);
-        return BaseResponse.success(trendData);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(BaseResponse.success(trendData));
+    }
+
+    // =========================================================================
+    // GET /api/v1/reports/series
+    // Chuỗi thu/chi theo khoảng ngày tùy ý; granularity DAY/WEEK/MONTH/YEAR,
+    // bỏ trống để tự chọn theo độ dài khoảng
+    // =========================================================================
+    @GetMapping("/series")
+    @PreAuthorize("isAuthenticated()")
+    public BaseResponse<List<RollupPoint>> getSeries(
+            @AuthenticationPrincipal UserPrincipal user,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) RollupLevel granularity,
+            @RequestParam(required = false) Long categoryId) {
+
+        log.info("series: userId={}, from={}, to={}, granularity={}", user.getId(), from, to, granularity);
+
+        return BaseResponse.success(spendingRollupService.series(user.getId(), from, to, granularity, categoryId));
+    }
+
+    // =========================================================================
+    // GET /api/v1/reports/slice
+    // Lát cắt tùy ý: lọc theo ngày/danh mục/ví/loại, group-by tối đa một chiều
+    // thời gian (DAY/WEEK/MONTH/YEAR) cùng CATEGORY/WALLET/TYPE
+    // =========================================================================
+    @GetMapping("/slice")
+    @PreAuthorize("isAuthenticated()")
+    public BaseResponse<List<TransactionAggregate>> getSlice(
+            @AuthenticationPrincipal UserPrincipal user,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) List<CubeDimension> groupBy,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) List<Long> categoryId,
+            @RequestParam(required = false) List<Long> walletId) {
+
+        log.info("slice: userId={}, from={}, to={}, groupBy={}", user.getId(), from, to, groupBy);
+
+        CubeQuery query = CubeQuery.builder()
+                .from(from)
+                .to(to)
+                .type(type)
+                .dimensions(groupBy != null ? groupBy : List.of())
+                .categoryIds(categoryId != null ? categoryId : List.of())
+                .walletIds(walletId != null ? walletId : List.of())
+                .build();
+        return BaseResponse.success(reportingService.slice(user.getId(), query));
     }
 
     // =========================================================================
@@ -192,23 +268,23 @@ public BaseResponse<com.fpm_2025.reportingservice.domain.model.ExportJob> getExp
      @PreAuthorize("isAuthenticated()")
      public ResponseEntity<Resource> downloadExportResult(
              @AuthenticationPrincipal UserPrincipal user,
-             @PathVariable Long jobId) {
+             @PathVariable Long jobId,
+             ServletWebRequest webRequest) {
          
          com.fpm_2025.reportingservice.domain.model.ExportJob job = reportingService.getExportJobStatus(jobId, user.getId());
          
+         if (job.getStatus() == ExportStatus.EXPIRED) {
+             return ResponseEntity.status(HttpStatus.GONE).build();
+         }
          if (!"DONE".equals(job.getStatus().name())) {
              return ResponseEntity.badRequest().build();
          }
-         
-         byte[] data = reportingService.downloadReport(job.getFileUrl());
-         ByteArrayResource resource = new ByteArrayResource(data);
+         reportingService.recordExportDownload(jobId);
          
          String contentType = job.getFormat() == ExportFormat.PDF ? "application/pdf" : "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
          
-         return ResponseEntity.ok()
-                 .contentType(MediaType.parseMediaType(contentType))
-                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + job.getFileName() + "\"")
-                 .body(resource);
+         return reportDownloads.serve(job.getFileUrl(), MediaType.parseMediaType(contentType),
+                 job.getFileName(), webRequest);
      }
 
     @GetMapping("/insights")
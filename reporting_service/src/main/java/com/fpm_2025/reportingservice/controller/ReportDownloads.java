@@ -0,0 +1,136 @@
+package com.fpm_2025.reportingservice.controller;
+
+import com.fpm_2025.reportingservice.service.storage.ReportStorage;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dựng response download cho file report trong {@link ReportStorage}, không đọc file vào heap.
+ *
+ * - ETag là tên file (tên chứa version/timestamp nên nội dung dưới một tên không đổi):
+ *   If-None-Match khớp → 304.
+ * - Luôn có Content-Length và {@code Accept-Ranges: bytes}. Range được Spring MVC phục vụ từ Resource
+ *   (206/416, kể cả multipart/byteranges); If-Range không khớp ETag → trả toàn bộ file.
+ * - File local từ {@code report.download.sendfile-min-bytes} trở lên được giao cho Tomcat sendfile
+ *   ({@code FileChannel.transferTo}) — byte đi thẳng từ page cache ra socket, không qua buffer Java.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReportDownloads {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final ReportStorage reportStorage;
+
+    @Value("${report.download.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
+    public ResponseEntity<Resource> serve(String fileUrl, MediaType contentType, String downloadName,
+                                          ServletWebRequest webRequest) {
+        String etag = "\"" + ReportStorage.fileName(fileUrl) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        Resource resource = reportStorage.open(fileUrl);
+        long length;
+        try {
+            length = resource.contentLength();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setContentDisposition(ContentDisposition.attachment()
+            .filename(downloadName, StandardCharsets.UTF_8).build());
+        headers.setETag(etag);
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        HttpServletRequest request = webRequest.getRequest();
+        String range = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        boolean rangeApplies = range != null && (ifRange == null || ifRange.equals(etag));
+
+        Optional<Path> localFile = reportStorage.localFile(fileUrl);
+        if (localFile.isPresent() && length >= sendfileMinBytes
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            ResponseEntity<Resource> sendfile = sendfile(request, localFile.get(), length,
+                rangeApplies ? range : null, headers);
+            if (sendfile != null) {
+                return sendfile;
+            }
+        }
+
+        headers.setContentLength(length);
+        if (range != null && !rangeApplies) {
+            // Spring tự áp Range cho Resource; If-Range lệch thì phải trả nguyên file nên bọc InputStreamResource
+            try {
+                return ResponseEntity.ok().headers(headers).body(new InputStreamResource(resource.getInputStream()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return ResponseEntity.ok().headers(headers).body(resource);
+    }
+
+    /**
+     * Toàn bộ file hoặc một range đơn qua sendfile; null nếu range không dùng được sendfile
+     * (nhiều range, sai cú pháp, vượt kích thước) để Spring xử lý (multipart/byteranges, 416).
+     */
+    private ResponseEntity<Resource> sendfile(HttpServletRequest request, Path file, long length,
+                                              String range, HttpHeaders headers) {
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (range != null) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (ranges.size() != 1) {
+                return null;
+            }
+            start = ranges.get(0).getRangeStart(length);
+            end = ranges.get(0).getRangeEnd(length);
+            if (start > end || start >= length) {
+                return null;
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        headers.setContentLength(end - start + 1);
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.toAbsolutePath().toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, end + 1);
+        log.debug("Sending {} bytes {}-{} of {} via sendfile", end - start + 1, start, end, file.getFileName());
+        return ResponseEntity.status(status).headers(headers).build();
+    }
+}
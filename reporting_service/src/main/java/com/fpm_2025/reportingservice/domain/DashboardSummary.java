@@ -1,17 +1,21 @@
 package com.fpm_2025.reportingservice.domain;
 
+import com.fpm_2025.reportingservice.service.cache.PartialResult;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class DashboardSummary {
+public class DashboardSummary implements PartialResult, Serializable {
     private BigDecimal totalBalance;
     private BigDecimal currentMonthIncome;
     private BigDecimal currentMonthExpense;
@@ -20,4 +24,15 @@ public class DashboardSummary {
     private BigDecimal expenseChangePercent;
     private Integer transactionCount;
     private String topSpendingCategory;
+    private Integer activeBudgetCount;
+    private Integer overBudgetCount;
+
+    /** Nguồn dữ liệu lỗi/timeout khi compose — rỗng nghĩa là dữ liệu đầy đủ. */
+    @Builder.Default
+    private List<String> unavailableSources = new ArrayList<>();
+
+    @Override
+    public boolean hasUnavailableSources() {
+        return unavailableSources != null && !unavailableSources.isEmpty();
+    }
 }
@@ -5,6 +5,7 @@
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
@@ -12,7 +13,7 @@
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class MonthlyStatistics {
+public class MonthlyStatistics implements Serializable {
     private Long userId;
     private String month;
     private BigDecimal totalIncome;
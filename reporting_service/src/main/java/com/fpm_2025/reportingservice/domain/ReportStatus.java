@@ -1,5 +1,7 @@
 package com.fpm_2025.reportingservice.domain;
 
 public enum ReportStatus {
-    PENDING, PROCESSING, COMPLETED, FAILED
+    PENDING, PROCESSING, COMPLETED, FAILED,
+    /** File đã bị dọn (quota/hết hạn); report tháng được render lại khi yêu cầu lần sau. */
+    EXPIRED
 }
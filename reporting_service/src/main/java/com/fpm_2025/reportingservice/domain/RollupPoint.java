@@ -0,0 +1,27 @@
+package com.fpm_2025.reportingservice.domain;
+
+import com.fpm_2025.reportingservice.domain.valueobject.RollupLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Một điểm của chuỗi thu/chi theo thời gian (một bucket của spending_rollups).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupPoint {
+    private LocalDate bucketStart;
+    private LocalDate bucketEnd;
+    private RollupLevel level;
+    private BigDecimal income;
+    private BigDecimal expense;
+    private BigDecimal net;
+    private long transactionCount;
+}
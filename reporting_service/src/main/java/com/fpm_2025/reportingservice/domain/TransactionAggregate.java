@@ -0,0 +1,36 @@
+package com.fpm_2025.reportingservice.domain;
+
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Một bucket tổng hợp từ AggregateTransactions RPC. Các chiều không group-by là null.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAggregate {
+    private String month;
+    private LocalDate day;
+    private Long categoryId;
+    private String type;
+    private Long walletId;
+    private long totalMinor; // đơn vị nhỏ nhất, xem MoneyUnits
+    private long count;
+
+    public BigDecimal getTotal() {
+        return MoneyUnits.fromMinor(totalMinor);
+    }
+
+    /** Tên hiển thị khi chỉ có categoryId (transaction-service không biết tên danh mục). */
+    public static String categoryLabel(Long categoryId) {
+        return categoryId == null || categoryId == 0L ? "Uncategorized" : "Category #" + categoryId;
+    }
+}
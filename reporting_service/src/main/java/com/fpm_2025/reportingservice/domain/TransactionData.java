@@ -1,5 +1,6 @@
 package com.fpm_2025.reportingservice.domain;
 
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,9 +18,15 @@ public class TransactionData {
     private Long userId;
     private Long walletId;
     private String walletName;
+    private Long categoryId;
     private String categoryName;
     private String type; // INCOME, EXPENSE, TRANSFER
-    private BigDecimal amount;
+    private long amountMinor; // đơn vị nhỏ nhất, xem MoneyUnits
     private String note;
     private LocalDateTime transactionDate;
+
+    /** Số tiền dạng BigDecimal — chỉ dùng ở biên (export, response), hot path dùng {@link #amountMinor}. */
+    public BigDecimal getAmount() {
+        return MoneyUnits.fromMinor(amountMinor);
+    }
 }
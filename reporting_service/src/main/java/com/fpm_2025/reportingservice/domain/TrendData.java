@@ -5,13 +5,14 @@
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class TrendData {
+public class TrendData implements Serializable {
     private String month;
     private BigDecimal income;
     private BigDecimal expense;
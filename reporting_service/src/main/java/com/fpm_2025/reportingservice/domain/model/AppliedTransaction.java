@@ -0,0 +1,74 @@
+package com.fpm_2025.reportingservice.domain.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Sổ ghi nhận phần đóng góp của từng giao dịch vào monthly/category summaries.
+ *
+ * - Idempotent: event trùng transactionId với cùng giá trị sẽ bị bỏ qua.
+ * - Updated/deleted event cần giá trị cũ để trừ ra — lấy từ đây vì payload deleted chỉ có id.
+ * - deleted = true là tombstone: event created/updated tới muộn sau khi xoá không được cộng lại.
+ */
+@Entity
+@Table(name = "applied_transactions", indexes = {
+    @Index(name = "idx_applied_tx_user_month", columnList = "user_id, year_month")
+},
+uniqueConstraints = {
+    @UniqueConstraint(name = "uk_applied_tx_transaction", columnNames = {"transaction_id"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppliedTransaction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "year_month", length = 7)
+    private String yearMonth;
+
+    /** Ngày giao dịch — cần để trừ đúng bucket DAY của spending_rollups khi update/delete. */
+    @Column(name = "transaction_day")
+    private LocalDate transactionDay;
+
+    @Column(name = "category_id")
+    private Long categoryId;
+
+    @Column(name = "type", length = 20)
+    private String type;
+
+    @Column(name = "amount", precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Builder.Default
+    @Column(name = "deleted", nullable = false)
+    private Boolean deleted = false;
+
+    @Column(name = "source_updated_at")
+    private LocalDateTime sourceUpdatedAt;
+
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onApply() {
+        appliedAt = LocalDateTime.now();
+    }
+}
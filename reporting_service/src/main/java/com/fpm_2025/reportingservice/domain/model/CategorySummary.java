@@ -14,7 +14,7 @@
     @Index(name = "idx_cat_summary_user_month", columnList = "user_id, year_month")
 },
 uniqueConstraints = {
-    @UniqueConstraint(name = "uk_cat_summary", columnNames = {"user_id", "year_month", "category_id"})
+    @UniqueConstraint(name = "uk_cat_summary", columnNames = {"user_id", "year_month", "category_id", "type"})
 })
 @Data
 @Builder
@@ -8,12 +8,21 @@
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "export_jobs", indexes = {
     @Index(name = "idx_export_user_id", columnList = "user_id"),
-    @Index(name = "idx_export_status", columnList = "status")
+    @Index(name = "idx_export_status", columnList = "status"),
+    @Index(name = "idx_export_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_export_status_priority", columnList = "status, priority, created_at"),
+    @Index(name = "idx_export_batch_status", columnList = "batch_key, status"),
+    @Index(name = "idx_export_status_accessed", columnList = "status, last_accessed_at")
+},
+uniqueConstraints = {
+    @UniqueConstraint(name = "uk_export_user_batch", columnNames = {"user_id", "batch_key"}),
+    @UniqueConstraint(name = "uk_export_user_dedup", columnNames = {"user_id", "dedup_key"})
 })
 @Data
 @Builder
@@ -21,6 +30,11 @@
 @AllArgsConstructor
 public class ExportJob {
     
+    /** Export do người dùng yêu cầu — luôn được dispatch trước job batch. */
+    public static final int PRIORITY_ONLINE = 0;
+    /** Sao kê hàng tháng do {@code MonthlyStatementRunner} tạo. */
+    public static final int PRIORITY_STATEMENT = -10;
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,6 +49,12 @@ public class ExportJob {
     @Column(name = "period", nullable = false, length = 7)
     private String period;
     
+    @Column(name = "start_date")
+    private LocalDate startDate;
+    
+    @Column(name = "end_date")
+    private LocalDate endDate;
+    
     @Builder.Default
     @Enumerated(EnumType.STRING)
     @Column(name = "status", nullable = false, length = 20)
@@ -52,18 +72,62 @@ public class ExportJob {
     @Column(name = "error_msg", length = 500)
     private String errorMsg;
     
+    @Builder.Default
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+    
+    @Builder.Default
+    @Column(name = "priority", nullable = false)
+    private Integer priority = PRIORITY_ONLINE;
+    
+    /** Khóa idempotent của job batch (vd. {@code statement:2025-09}); null với export online. */
+    @Column(name = "batch_key", length = 32)
+    private String batchKey;
+    
+    /**
+     * Khóa gộp export online (format + khoảng ngày) khi job còn PENDING/PROCESSING; về null khi job kết thúc.
+     * Unique (user_id, dedup_key) nên hai request trùng đồng thời chỉ tạo được một job.
+     */
+    @Column(name = "dedup_key", length = 40)
+    private String dedupKey;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    /** Lease của worker đang chạy: gia hạn định kỳ, quá hạn thì job được đưa về hàng đợi. */
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+    
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
     
+    /** Lần cuối file kết quả được tải — thứ tự LRU khi vượt quota storage. */
+    @Column(name = "last_accessed_at")
+    private LocalDateTime lastAccessedAt;
+    
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         if (status == null) {
             status = ExportStatus.PENDING;
         }
+        if (attempts == null) {
+            attempts = 0;
+        }
+        if (priority == null) {
+            priority = PRIORITY_ONLINE;
+        }
+    }
+    
+    public static String dedupKey(ExportFormat format, LocalDate startDate, LocalDate endDate) {
+        return format.name() + ":" + startDate + ":" + endDate;
+    }
+    
+    public boolean isBatch() {
+        return priority != null && priority < PRIORITY_ONLINE;
     }
     
     public void markAsProcessing() {
@@ -75,12 +139,15 @@ public void markAsDone(String fileName, String fileUrl, Long fileSize) {
         this.fileName = fileName;
         this.fileUrl = fileUrl;
         this.fileSize = fileSize;
+        this.dedupKey = null;
         this.completedAt = LocalDateTime.now();
+        this.lastAccessedAt = this.completedAt;
     }
     
     public void markAsFailed(String errorMsg) {
         this.status = ExportStatus.FAILED;
-        this.errorMsg = errorMsg;
+        this.errorMsg = errorMsg != null && errorMsg.length() > 500 ? errorMsg.substring(0, 500) : errorMsg;
+        this.dedupKey = null;
         this.completedAt = LocalDateTime.now();
     }
 }
\ No newline at end of file
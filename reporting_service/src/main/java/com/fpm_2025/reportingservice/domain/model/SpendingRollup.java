@@ -0,0 +1,72 @@
+package com.fpm_2025.reportingservice.domain.model;
+
+import com.fpm_2025.reportingservice.domain.valueobject.RollupLevel;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Bucket tổng thu/chi theo thời gian: (user, level, bucket_start, category, type).
+ *
+ * - DAY: cập nhật theo delta từ event transaction.* (cùng transaction với summaries).
+ * - WEEK / MONTH: compaction từ DAY; YEAR: compaction từ MONTH ({@code RollupCompactor}).
+ * - compacted = false đánh dấu dòng DAY đã đổi mà bucket cấp trên chưa được tính lại.
+ *
+ * Ghi bằng JDBC ({@code INSERT ... ON DUPLICATE KEY UPDATE}); entity chỉ để Hibernate quản lý schema.
+ */
+@Entity
+@Table(name = "spending_rollups", indexes = {
+    @Index(name = "idx_rollup_user_level_bucket", columnList = "user_id, level, bucket_start"),
+    @Index(name = "idx_rollup_dirty", columnList = "level, compacted")
+},
+uniqueConstraints = {
+    @UniqueConstraint(name = "uk_rollup_bucket",
+        columnNames = {"user_id", "level", "bucket_start", "category_id", "type"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpendingRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "level", nullable = false, length = 10)
+    private RollupLevel level;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDate bucketStart;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    @Column(name = "type", nullable = false, length = 20)
+    private String type;
+
+    @Builder.Default
+    @Column(name = "total_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(name = "transaction_count", nullable = false)
+    private Integer transactionCount = 0;
+
+    @Builder.Default
+    @Column(name = "compacted", nullable = false)
+    private Boolean compacted = false;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
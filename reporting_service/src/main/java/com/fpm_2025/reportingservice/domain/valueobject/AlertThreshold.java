@@ -28,4 +28,24 @@ public String getAlertLevel(BigDecimal usagePercentage) {
         }
         return "NORMAL";
     }
+
+    /**
+     * Ngưỡng (phần trăm) cao nhất bị vượt khi mức dùng tăng từ {@code oldUsed} lên {@code newUsed}
+     * (cùng đơn vị với {@code limit}). Chỉ tính lần vượt lên: old &lt; ngưỡng ≤ new.
+     *
+     * @return 100 / 95 / 80, hoặc null nếu không vượt ngưỡng nào
+     */
+    public Integer highestCrossing(long oldUsed, long newUsed, long limit) {
+        if (limit <= 0 || newUsed <= oldUsed) {
+            return null;
+        }
+        for (BigDecimal level : new BigDecimal[] {overBudgetLevel, criticalLevel, warningLevel}) {
+            // old * 100 < level * limit <= new * 100, tính bằng long để không tạo BigDecimal mỗi event
+            long bound = level.longValue() * limit;
+            if (oldUsed * 100 < bound && bound <= newUsed * 100) {
+                return level.intValue();
+            }
+        }
+        return null;
+    }
 }
\ No newline at end of file
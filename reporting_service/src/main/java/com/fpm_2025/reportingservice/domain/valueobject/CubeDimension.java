@@ -0,0 +1,25 @@
+package com.fpm_2025.reportingservice.domain.valueobject;
+
+/**
+ * Chiều group-by của analytics cube. Tối đa một chiều thời gian (DAY/WEEK/MONTH/YEAR) mỗi truy vấn.
+ */
+public enum CubeDimension {
+    DAY(RollupLevel.DAY),
+    WEEK(RollupLevel.WEEK),
+    MONTH(RollupLevel.MONTH),
+    YEAR(RollupLevel.YEAR),
+    CATEGORY(null),
+    WALLET(null),
+    TYPE(null);
+
+    private final RollupLevel timeLevel;
+
+    CubeDimension(RollupLevel timeLevel) {
+        this.timeLevel = timeLevel;
+    }
+
+    /** Cấp bucket thời gian, null nếu không phải chiều thời gian. */
+    public RollupLevel timeLevel() {
+        return timeLevel;
+    }
+}
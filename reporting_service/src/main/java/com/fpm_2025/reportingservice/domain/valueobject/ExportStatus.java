@@ -4,5 +4,7 @@ public enum ExportStatus {
     PENDING,
     PROCESSING,
     DONE,
-    FAILED
+    FAILED,
+    /** File kết quả đã bị dọn theo quota/retention — cần gửi lại export. */
+    EXPIRED
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.fpm_2025.reportingservice.domain.valueobject;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Cấp độ bucket của spending_rollups. DAY được cập nhật trực tiếp từ event,
+ * WEEK (bắt đầu thứ Hai) và MONTH được compaction từ DAY, YEAR từ MONTH.
+ */
+public enum RollupLevel {
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR;
+
+    /** Ngày bắt đầu của bucket chứa {@code day}. */
+    public LocalDate bucketStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+            case YEAR -> day.withDayOfYear(1);
+        };
+    }
+
+    public LocalDate next(LocalDate bucketStart) {
+        return switch (this) {
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+            case MONTH -> bucketStart.plusMonths(1);
+            case YEAR -> bucketStart.plusYears(1);
+        };
+    }
+
+    public LocalDate bucketEnd(LocalDate bucketStart) {
+        return next(bucketStart).minusDays(1);
+    }
+
+    /**
+     * Cấp thô nhất vẫn cho đủ điểm cho biểu đồ: ≤ 62 ngày theo ngày, ≤ 26 tuần theo tuần,
+     * ≤ 36 tháng theo tháng, còn lại theo năm.
+     */
+    public static RollupLevel forRange(LocalDate from, LocalDate to) {
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days <= 62) {
+            return DAY;
+        }
+        if (days <= 26 * 7) {
+            return WEEK;
+        }
+        if (ChronoUnit.MONTHS.between(from.withDayOfMonth(1), to.withDayOfMonth(1)) < 36) {
+            return MONTH;
+        }
+        return YEAR;
+    }
+}
@@ -0,0 +1,35 @@
+package com.fpm_2025.reportingservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Payload của các topic transaction.created / transaction.updated / transaction.deleted.
+ *
+ * transaction-service publish TransactionResponse cho created/updated và
+ * {transactionId, userId} cho deleted — DTO này đọc được cả hai dạng.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TransactionEventDto {
+    @JsonAlias("transactionId")
+    private Long id;
+    private Long userId;
+    private Long walletId;
+    private Long categoryId;
+    private BigDecimal amount;
+    private String currency;
+    private String type; // INCOME, EXPENSE
+    private LocalDateTime transactionDate;
+    private LocalDateTime updatedAt;
+}
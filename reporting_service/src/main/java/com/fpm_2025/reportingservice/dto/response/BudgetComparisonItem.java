@@ -5,6 +5,7 @@
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 
 /**
@@ -15,7 +16,7 @@
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class BudgetComparisonItem {
+public class BudgetComparisonItem implements Serializable {
     private Long categoryId;
     private String categoryName;
     private BigDecimal budgetLimit;     // Ngân sách đặt ra (0 nếu không đặt)
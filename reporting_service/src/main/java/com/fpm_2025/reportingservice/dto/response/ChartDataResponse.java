@@ -5,13 +5,14 @@
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.util.List;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class ChartDataResponse {
+public class ChartDataResponse implements Serializable {
     
     private String chartType; // PIE, LINE, BAR
     private List<String> labels;
@@ -21,7 +22,7 @@ public class ChartDataResponse {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class Dataset {
+    public static class Dataset implements Serializable {
         private String label;
         private List<Object> data; // Can be Number or String
         private List<String> backgroundColor;
@@ -1,30 +1,42 @@
 package com.fpm_2025.reportingservice.dto.response;
 
+import com.fpm_2025.reportingservice.service.cache.PartialResult;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class DashboardResponse {
+public class DashboardResponse implements PartialResult, Serializable {
     
     private Long userId;
     private String yearMonth;
     private Summary summary;
     private List<CategoryBreakdown> categoryBreakdowns;
     private List<BudgetStatus> budgetStatuses;
+
+    /** Nguồn dữ liệu lỗi/timeout khi compose — rỗng nghĩa là dữ liệu đầy đủ. */
+    @Builder.Default
+    private List<String> unavailableSources = new ArrayList<>();
+
+    @Override
+    public boolean hasUnavailableSources() {
+        return unavailableSources != null && !unavailableSources.isEmpty();
+    }
     
     @Data
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class Summary {
+    public static class Summary implements Serializable {
         private BigDecimal totalIncome;
         private BigDecimal totalExpense;
         private BigDecimal netIncome;
@@ -37,7 +49,7 @@ public static class Summary {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class CategoryBreakdown {
+    public static class CategoryBreakdown implements Serializable {
         private Long categoryId;
         private String categoryName;
         private String type;
@@ -50,7 +62,7 @@ public static class CategoryBreakdown {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
-    public static class BudgetStatus {
+    public static class BudgetStatus implements Serializable {
         private Long categoryId;
         private String categoryName;
         private BigDecimal amountLimit;
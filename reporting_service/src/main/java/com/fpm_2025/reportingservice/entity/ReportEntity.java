@@ -9,7 +9,9 @@
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reports")
+@Table(name = "reports", indexes = {
+    @Index(name = "idx_reports_status_accessed", columnList = "status, last_accessed_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -46,4 +48,8 @@ public class ReportEntity {
     @CreatedDate
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
+    
+    /** Lần cuối file được tải/dùng lại — thứ tự LRU khi vượt quota storage. */
+    @Column(name = "last_accessed_at")
+    private LocalDateTime lastAccessedAt;
 }
@@ -4,7 +4,9 @@
 import lombok.*;
 
 @Entity
-@Table(name = "transaction_summaries")
+@Table(name = "transaction_summaries", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_transaction_summary_user_period", columnNames = {"user_id", "period"})
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -1,85 +1,102 @@
 package com.fpm_2025.reportingservice.event.consumer;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fpm2025.domain.event.TransactionCreatedEvent;
-import com.fpm_2025.reportingservice.entity.TransactionSummaryEntity;
-import com.fpm_2025.reportingservice.repository.TransactionSummaryRepository;
-
+import com.fpm_2025.reportingservice.dto.TransactionEventDto;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.BatchResult;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.EventType;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.TransactionEvent;
+import com.fpm_2025.reportingservice.service.budget.BudgetTracker;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import com.fpm_2025.reportingservice.service.cube.AnalyticsCubeService;
+
+/**
+ * Batch consumer cho transaction.created / updated / deleted.
+ *
+ * Cả poll được parse, gộp delta và ghi trong một transaction; offset chỉ được commit
+ * sau khi ghi thành công. Record không parse được bị bỏ qua (log) để không chặn cả partition.
+ * Chỉ cache của các user có summaries thay đổi bị vô hiệu (bump version).
+ * Delta chi tiêu theo danh mục được chuyển cho {@link BudgetTracker}, và event được patch vào
+ * {@link AnalyticsCubeService}, sau khi commit.
+ */
 @Service
 public class TransactionEventConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(TransactionEventConsumer.class);
 
     private final ObjectMapper objectMapper;
-    private final TransactionSummaryRepository summaryRepository;
-    private final org.springframework.cache.CacheManager cacheManager;
-
-    public TransactionEventConsumer(ObjectMapper objectMapper, TransactionSummaryRepository summaryRepository,
-                                    org.springframework.cache.CacheManager cacheManager) {
+    private final SummaryAggregationEngine aggregationEngine;
+    private final UserCacheVersions userCacheVersions;
+    private final BudgetTracker budgetTracker;
+    private final AnalyticsCubeService analyticsCube;
+
+    public TransactionEventConsumer(ObjectMapper objectMapper, SummaryAggregationEngine aggregationEngine,
+                                    UserCacheVersions userCacheVersions, BudgetTracker budgetTracker,
+                                    AnalyticsCubeService analyticsCube) {
         this.objectMapper = objectMapper;
-        this.summaryRepository = summaryRepository;
-        this.cacheManager = cacheManager;
-    }
-
-    private void clearDashboardCache() {
-        if (cacheManager != null && cacheManager.getCache("dashboard") != null) {
-            cacheManager.getCache("dashboard").clear();
-            log.info("Reporting Dashboard cache cleared due to transaction event");
-        }
+        this.aggregationEngine = aggregationEngine;
+        this.userCacheVersions = userCacheVersions;
+        this.budgetTracker = budgetTracker;
+        this.analyticsCube = analyticsCube;
     }
 
-    @KafkaListener(topics = "transaction.created", groupId = "reporting-group")
-    public void consumeTransactionCreated(TransactionCreatedEvent event) {
-        try {
-            log.info("Kafka: Received transaction.created event for userId={}", event.getUserId());
-
-            // Convert Instant to LocalDateTime for period formatting
-            LocalDateTime date = LocalDateTime.ofInstant(event.getTimestamp(), ZoneId.systemDefault());
-            String period = date.format(DateTimeFormatter.ofPattern("yyyy-MM"));
-
-            TransactionSummaryEntity summary = summaryRepository.findByUserIdAndPeriod(event.getUserId(), period)
-                    .orElse(TransactionSummaryEntity.builder()
-                            .userId(event.getUserId())
-                            .period(period)
-                            .totalIncome(BigDecimal.ZERO)
-                            .totalExpense(BigDecimal.ZERO)
-                            .build());
-
-            if ("INCOME".equalsIgnoreCase(event.getType())) {
-                summary.setTotalIncome(summary.getTotalIncome().add(event.getAmount()));
-            } else if ("EXPENSE".equalsIgnoreCase(event.getType())) {
-                summary.setTotalExpense(summary.getTotalExpense().add(event.getAmount()));
+    @KafkaListener(topics = {"transaction.created", "transaction.updated", "transaction.deleted"},
+                   groupId = "reporting-group",
+                   containerFactory = "transactionBatchListenerContainerFactory")
+    public void consumeTransactionEvents(List<ConsumerRecord<String, String>> records, Acknowledgment ack) {
+        List<TransactionEvent> events = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, String> record : records) {
+            EventType eventType = toEventType(record.topic());
+            try {
+                events.add(new TransactionEvent(eventType,
+                        objectMapper.readValue(record.value(), TransactionEventDto.class)));
+            } catch (Exception e) {
+                log.error("Kafka: Skipping unreadable record at {}-{}@{}",
+                        record.topic(), record.partition(), record.offset(), e);
             }
+        }
 
-            summaryRepository.save(summary);
-            log.info("Kafka: Updated reporting summary for userId={} period={}", event.getUserId(), period);
+        // Lỗi ghi DB sẽ ném ra ngoài → không ack → error handler poll lại cả batch
+        BatchResult result = aggregationEngine.applyBatch(events);
+        ack.acknowledge();
 
-            clearDashboardCache();
+        Set<Long> affectedUsers = result.affectedUserIds();
+        log.info("Kafka: Applied {} transaction events ({} records), {} users affected",
+                events.size(), records.size(), affectedUsers.size());
+        // applyBatch đã commit — bump ngay, một round-trip cho cả batch
+        userCacheVersions.bumpAll(affectedUsers);
 
+        try {
+            budgetTracker.onExpenseDeltas(result.expenseDeltas());
         } catch (Exception e) {
-            log.error("Kafka: Failed to process transaction.created event", e);
+            // Batch đã commit/ack — key lỗi không được giữ lại, lần sau tracker nạp lại từ category_summaries
+            log.error("Kafka: Budget tracking failed for {} expense deltas", result.expenseDeltas().size(), e);
         }
-    }
 
-    @KafkaListener(topics = "transaction.updated", groupId = "reporting-group")
-    public void consumeTransactionUpdated(String message) {
-        log.info("Kafka: Received transaction.updated event, clearing cache...");
-        clearDashboardCache();
+        try {
+            analyticsCube.onEvents(events);
+        } catch (Exception e) {
+            // Cube lệch version sẽ được dựng lại ở truy vấn kế tiếp
+            log.error("Kafka: Analytics cube patch failed for {} events", events.size(), e);
+        }
     }
 
-    @KafkaListener(topics = "transaction.deleted", groupId = "reporting-group")
-    public void consumeTransactionDeleted(String message) {
-        log.info("Kafka: Received transaction.deleted event, clearing cache...");
-        clearDashboardCache();
+    private EventType toEventType(String topic) {
+        return switch (topic) {
+            case "transaction.updated" -> EventType.UPDATED;
+            case "transaction.deleted" -> EventType.DELETED;
+            default -> EventType.CREATED;
+        };
     }
 }
@@ -29,6 +29,15 @@ List<Budget> findActiveBudgetsByYearMonth(
         @Param("yearMonth") String yearMonth
     );
     
+    @Query("SELECT b FROM Budget b WHERE b.userId = :userId " +
+           "AND b.yearMonth BETWEEN :startMonth AND :endMonth " +
+           "AND b.isActive = true")
+    List<Budget> findActiveBudgetsByYearMonthBetween(
+        @Param("userId") Long userId,
+        @Param("startMonth") String startMonth,
+        @Param("endMonth") String endMonth
+    );
+    
     @Query("SELECT b FROM Budget b WHERE b.userId = :userId " +
            "AND b.period = :period " +
            "AND b.isActive = true " +
@@ -12,8 +12,8 @@
 @Repository
 public interface CategorySummaryRepository extends JpaRepository<CategorySummary, Long> {
     
-    Optional<CategorySummary> findByUserIdAndCategoryIdAndYearMonth(
-        Long userId, Long categoryId, String yearMonth
+    Optional<CategorySummary> findByUserIdAndCategoryIdAndYearMonthAndType(
+        Long userId, Long categoryId, String yearMonth, CategorySummary.CategorySummaryType type
     );
     
     List<CategorySummary> findByUserIdAndYearMonth(Long userId, String yearMonth);
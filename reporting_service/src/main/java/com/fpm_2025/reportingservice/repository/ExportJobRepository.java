@@ -2,13 +2,19 @@
 
 import com.fpm_2025.reportingservice.domain.model.ExportJob;
 import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ExportJobRepository extends JpaRepository<ExportJob, Long> {
@@ -25,7 +31,103 @@ List<ExportJob> findByUserIdAndStatus(
         @Param("status") ExportStatus status
     );
     
-    @Query("SELECT ej FROM ExportJob ej WHERE ej.status = 'DONE' " +
-           "AND ej.completedAt < :beforeDate")
-    List<ExportJob> findOldCompletedJobs(@Param("beforeDate") LocalDateTime beforeDate);
+    /** Job đã kết thúc (DONE/FAILED/EXPIRED) trước {@code beforeDate}, cũ nhất trước — dọn theo lô. */
+    @Query("SELECT ej FROM ExportJob ej WHERE ej.status IN ('DONE', 'FAILED', 'EXPIRED') " +
+           "AND ej.completedAt < :beforeDate ORDER BY ej.completedAt ASC, ej.id ASC")
+    List<ExportJob> findOldCompletedJobs(@Param("beforeDate") LocalDateTime beforeDate, Pageable pageable);
+    
+    // ==================== Artifact lifecycle ====================
+    
+    @Query("SELECT COALESCE(SUM(ej.fileSize), 0) FROM ExportJob ej WHERE ej.status = 'DONE'")
+    long sumStoredBytes();
+    
+    /** Ứng viên eviction: file kết quả ít được tải nhất trước. */
+    List<ExportJob> findByStatusOrderByLastAccessedAtAscIdAsc(ExportStatus status, Pageable pageable);
+    
+    @Query("SELECT ej.fileUrl FROM ExportJob ej WHERE ej.status = 'DONE' AND ej.fileUrl IN :fileUrls")
+    List<String> findLiveFileUrls(@Param("fileUrls") Collection<String> fileUrls);
+    
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob ej SET ej.status = 'EXPIRED' WHERE ej.id IN :ids AND ej.status = 'DONE'")
+    int markExpired(@Param("ids") Collection<Long> ids);
+    
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob ej SET ej.lastAccessedAt = :now WHERE ej.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    // ==================== Export queue ====================
+    
+    long countByStatus(ExportStatus status);
+    
+    /** Hàng đợi ưu tiên: export online (priority 0) trước job batch, trong cùng mức theo FIFO. */
+    List<ExportJob> findByStatusOrderByPriorityDescCreatedAtAscIdAsc(ExportStatus status, Pageable pageable);
+    
+    long countByBatchKeyAndStatusIn(String batchKey, Collection<ExportStatus> statuses);
+    
+    long countByBatchKeyAndStatus(String batchKey, ExportStatus status);
+    
+    /** Khoảng thời gian chạy thực tế của một batch: [min startedAt, max completedAt] của job DONE. */
+    @Query("SELECT MIN(ej.startedAt), MAX(ej.completedAt) FROM ExportJob ej " +
+           "WHERE ej.batchKey = :batchKey AND ej.status = 'DONE'")
+    List<Object[]> findBatchWindow(@Param("batchKey") String batchKey);
+    
+    /** Số job đang chạy theo user — dùng cho giới hạn concurrency per-user trên mọi instance. */
+    @Query("SELECT ej.userId, COUNT(ej) FROM ExportJob ej WHERE ej.status = 'PROCESSING' " +
+           "GROUP BY ej.userId")
+    List<Object[]> countProcessingByUser();
+    
+    /** Job còn đang chờ/chạy giữ khóa gộp {@code dedupKey} của user (khóa về null khi job kết thúc). */
+    Optional<ExportJob> findByUserIdAndDedupKey(Long userId, String dedupKey);
+    
+    /**
+     * Tạo export online PENDING nếu user chưa có job mở cùng {@code dedupKey}; unique (user_id, dedup_key)
+     * quyết định nên hai request đồng thời chỉ một câu insert được dòng (trả về 1), câu còn lại trả về 0.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO export_jobs " +
+                   "(user_id, format, period, start_date, end_date, status, attempts, priority, dedup_key, created_at) " +
+                   "VALUES (:userId, :format, :period, :startDate, :endDate, 'PENDING', 0, 0, :dedupKey, :now)",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("format") String format, @Param("period") String period,
+                       @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+                       @Param("dedupKey") String dedupKey, @Param("now") LocalDateTime now);
+    
+    /**
+     * Claim job bằng conditional update: chỉ một instance/dispatcher thắng (trả về 1).
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob ej SET ej.status = 'PROCESSING', ej.startedAt = :now, ej.heartbeatAt = :now, " +
+           "ej.attempts = COALESCE(ej.attempts, 0) + 1 " +
+           "WHERE ej.id = :id AND ej.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    /** Gia hạn lease của các job instance này đang chạy. */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob ej SET ej.heartbeatAt = :now WHERE ej.id IN :ids AND ej.status = 'PROCESSING'")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+    
+    /** Đưa job PROCESSING hết lease (worker chết giữa chừng) về lại hàng đợi. */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob ej SET ej.status = 'PENDING', ej.startedAt = NULL, ej.heartbeatAt = NULL " +
+           "WHERE ej.status = 'PROCESSING' " +
+           "AND COALESCE(ej.heartbeatAt, ej.startedAt, ej.createdAt) < :cutoff " +
+           "AND COALESCE(ej.attempts, 0) < :maxAttempts")
+    int requeueStale(@Param("cutoff") LocalDateTime cutoff, @Param("maxAttempts") int maxAttempts);
+    
+    /** Job hết lease đã hết số lần thử → FAILED để không lặp vô hạn; nhả khóa gộp cho request sau. */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ExportJob ej SET ej.status = 'FAILED', ej.errorMsg = :errorMsg, ej.completedAt = :now, " +
+           "ej.dedupKey = NULL " +
+           "WHERE ej.status = 'PROCESSING' " +
+           "AND COALESCE(ej.heartbeatAt, ej.startedAt, ej.createdAt) < :cutoff " +
+           "AND COALESCE(ej.attempts, 0) >= :maxAttempts")
+    int failExhausted(@Param("cutoff") LocalDateTime cutoff, @Param("maxAttempts") int maxAttempts,
+                      @Param("errorMsg") String errorMsg, @Param("now") LocalDateTime now);
 }
\ No newline at end of file
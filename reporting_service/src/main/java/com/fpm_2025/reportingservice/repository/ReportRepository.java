@@ -1,9 +1,17 @@
 package com.fpm_2025.reportingservice.repository;
 
+import com.fpm_2025.reportingservice.domain.ReportStatus;
 import com.fpm_2025.reportingservice.entity.ReportEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,4 +19,32 @@
 public interface ReportRepository extends JpaRepository<ReportEntity, Long> {
     List<ReportEntity> findByUserIdOrderByCreatedAtDesc(Long userId);
     Optional<ReportEntity> findByIdAndUserId(Long id, Long userId);
+    Optional<ReportEntity> findFirstByUserIdAndFileNameAndStatusOrderByIdDesc(
+        Long userId, String fileName, ReportStatus status);
+
+    // ==================== Artifact lifecycle ====================
+
+    @Query("SELECT COALESCE(SUM(r.fileSize), 0) FROM ReportEntity r WHERE r.status = 'COMPLETED'")
+    long sumStoredBytes();
+
+    /** Ứng viên eviction: report ít được dùng nhất trước. */
+    List<ReportEntity> findByStatusOrderByLastAccessedAtAscIdAsc(ReportStatus status, Pageable pageable);
+
+    /** Report không được dùng từ trước {@code beforeDate}, cũ nhất trước — dọn theo lô. */
+    @Query("SELECT r FROM ReportEntity r WHERE COALESCE(r.lastAccessedAt, r.createdAt) < :beforeDate " +
+           "ORDER BY r.id ASC")
+    List<ReportEntity> findUnusedSince(@Param("beforeDate") LocalDateTime beforeDate, Pageable pageable);
+
+    @Query("SELECT r.fileUrl FROM ReportEntity r WHERE r.status = 'COMPLETED' AND r.fileUrl IN :fileUrls")
+    List<String> findLiveFileUrls(@Param("fileUrls") Collection<String> fileUrls);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ReportEntity r SET r.status = 'EXPIRED' WHERE r.id IN :ids AND r.status = 'COMPLETED'")
+    int markExpired(@Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ReportEntity r SET r.lastAccessedAt = :now WHERE r.id = :id")
+    int touch(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
@@ -2,18 +2,25 @@
 
 import com.fpm_2025.reportingservice.domain.model.Budget;
 import com.fpm_2025.reportingservice.domain.model.BudgetAlert;
+import com.fpm_2025.reportingservice.domain.valueobject.BudgetPeriod;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
 import com.fpm_2025.reportingservice.dto.request.BudgetRequest;
 import com.fpm_2025.reportingservice.dto.response.BudgetStatusResponse;
 import com.fpm_2025.reportingservice.exception.ResourceNotFoundException;
 import com.fpm_2025.reportingservice.repository.BudgetAlertRepository;
 import com.fpm_2025.reportingservice.repository.BudgetRepository;
+import com.fpm_2025.reportingservice.service.budget.BudgetTracker;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import com.fpm_2025.reportingservice.service.rollup.SpendingRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -24,9 +31,9 @@ public class BudgetService {
     
     private final BudgetRepository budgetRepository;
     private final BudgetAlertRepository budgetAlertRepository;
-    private final org.springframework.kafka.core.KafkaTemplate<String, Object> kafkaTemplate;
-
-    private static final String TOPIC_BUDGET_ALERTS = "budget.alerts";
+    private final BudgetTracker budgetTracker;
+    private final UserCacheVersions userCacheVersions;
+    private final SpendingRollupService spendingRollupService;
     
     @Transactional
     public Budget createBudget(Long userId, BudgetRequest request) {
@@ -43,6 +50,8 @@ public Budget createBudget(Long userId, BudgetRequest request) {
             .amountUsed(BigDecimal.ZERO)
             .build();
         
+        userCacheVersions.bump(userId);
+        budgetTracker.invalidate(userId, budget.getCategoryId(), budget.getYearMonth());
         return budgetRepository.save(budget);
     }
     
@@ -62,6 +71,8 @@ public Budget updateBudget(Long userId, Long budgetId, BudgetRequest request) {
             budget.setPeriod(request.getPeriod());
         }
         
+        userCacheVersions.bump(userId);
+        budgetTracker.invalidate(userId, budget.getCategoryId(), budget.getYearMonth());
         return budgetRepository.save(budget);
     }
     
@@ -76,81 +87,23 @@ public void deleteBudget(Long userId, Long budgetId) {
         
         budget.setIsActive(false);
         budgetRepository.save(budget);
+        userCacheVersions.bump(userId);
+        budgetTracker.invalidate(userId, budget.getCategoryId(), budget.getYearMonth());
     }
     
-    @Transactional
+    /**
+     * Cộng một khoản vào mức dùng của budget. Chi tiêu từ giao dịch đi qua {@link BudgetTracker}
+     * (Kafka consumer) — method này chỉ dành cho điều chỉnh thủ công.
+     * amount_used được tracker ghi theo lô; cảnh báo chỉ phát khi vượt ngưỡng.
+     */
     public void updateBudgetSpending(Long budgetId, BigDecimal amount) {
         Budget budget = budgetRepository.findById(budgetId)
             .orElseThrow(() -> new ResourceNotFoundException("Budget not found"));
-        
-        BigDecimal oldUsed = budget.getAmountUsed();
-        budget.setAmountUsed(oldUsed.add(amount));
-        
-        Budget savedBudget = budgetRepository.save(budget);
-        
-        // Check if alert should be triggered
-        checkAndCreateAlert(savedBudget);
+        budgetTracker.adjust(budget, MoneyUnits.toMinor(amount));
     }
     
-    @Transactional
     public void recalculateBudgetSpending(Budget budget, BigDecimal totalSpent) {
-        budget.setAmountUsed(totalSpent);
-        budgetRepository.save(budget);
-        checkAndCreateAlert(budget);
-    }
-    
-    private void checkAndCreateAlert(Budget budget) {
-        BigDecimal usagePercentage = budget.getUsagePercentage();
-        
-        // Check thresholds: 80% and 100%
-        int thresholdPercent;
-        if (budget.isOverBudget()) {
-            thresholdPercent = 100;
-        } else if (usagePercentage.compareTo(BigDecimal.valueOf(80)) >= 0) {
-            thresholdPercent = 80;
-        } else {
-            return; // No alert needed
-        }
-        
-        // Check if similar alert was sent recently (within 24 hours)
-        boolean recentAlertExists = budgetAlertRepository.existsRecentAlert(
-            budget.getId(),
-            thresholdPercent,
-            LocalDateTime.now().minusHours(24)
-        );
-        
-        if (recentAlertExists) {
-            return;
-        }
-        
-        BudgetAlert alert = BudgetAlert.builder()
-            .budgetId(budget.getId())
-            .userId(budget.getUserId())
-            .categoryName(budget.getCategoryName())
-            .thresholdPercent(thresholdPercent)
-            .amountLimit(budget.getAmountLimit())
-            .amountUsed(budget.getAmountUsed())
-            .isRead(false)
-            .build();
-        
-        budgetAlertRepository.save(alert);
-        
-        // Publish to Kafka for notification-service
-        com.fpm_2025.reportingservice.dto.BudgetAlertEvent event = com.fpm_2025.reportingservice.dto.BudgetAlertEvent.builder()
-            .userId(budget.getUserId())
-            .budgetId(budget.getId())
-            .categoryName(budget.getCategoryName())
-            .thresholdPercent(thresholdPercent)
-            .amountLimit(budget.getAmountLimit())
-            .amountUsed(budget.getAmountUsed())
-            .triggeredAt(LocalDateTime.now())
-            .build();
-            
-        kafkaTemplate.send(TOPIC_BUDGET_ALERTS, String.valueOf(budget.getUserId()), event);
-        
-        log.warn("Budget alert created and published: category={}, threshold={}%, used={}/{}", 
-            budget.getCategoryName(), thresholdPercent, 
-            budget.getAmountUsed(), budget.getAmountLimit());
+        budgetTracker.reset(budget, MoneyUnits.toMinor(totalSpent));
     }
     
     public List<Budget> getActiveBudgets(Long userId) {
@@ -170,6 +123,9 @@ public Budget getBudgetById(Long userId, Long budgetId) {
     
     public BudgetStatusResponse getBudgetStatus(Long userId, Long budgetId) {
         Budget budget = getBudgetById(userId, budgetId);
+        if (budget.getPeriod() == BudgetPeriod.WEEKLY) {
+            budget = currentWeekView(budget);
+        }
         
         // Determine status
         String status = determineStatus(budget);
@@ -203,6 +159,27 @@ public BudgetStatusResponse getBudgetStatus(Long userId, Long budgetId) {
             .build();
     }
     
+    /**
+     * Bản sao (không managed) của budget WEEKLY với amountUsed là chi tiêu tuần hiện tại,
+     * đọc từ spending_rollups.
+     */
+    private Budget currentWeekView(Budget budget) {
+        LocalDate weekStart = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        long usedMinor = spendingRollupService.expenseMinor(
+            budget.getUserId(), budget.getCategoryId(), weekStart, weekStart.plusDays(6));
+        return Budget.builder()
+            .id(budget.getId())
+            .userId(budget.getUserId())
+            .categoryId(budget.getCategoryId())
+            .categoryName(budget.getCategoryName())
+            .amountLimit(budget.getAmountLimit())
+            .amountUsed(MoneyUnits.fromMinor(usedMinor))
+            .period(budget.getPeriod())
+            .yearMonth(budget.getYearMonth())
+            .isActive(budget.getIsActive())
+            .build();
+    }
+
     private String determineStatus(Budget budget) {
         if (!budget.getIsActive()) {
             return "INACTIVE";
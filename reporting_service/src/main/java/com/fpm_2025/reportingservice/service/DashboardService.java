@@ -8,12 +8,16 @@
 import com.fpm_2025.reportingservice.repository.BudgetRepository;
 import com.fpm_2025.reportingservice.repository.CategorySummaryRepository;
 import com.fpm_2025.reportingservice.repository.MonthlySummaryRepository;
+import com.fpm_2025.reportingservice.service.dashboard.DashboardComposer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -24,16 +28,37 @@ public class DashboardService {
     private final MonthlySummaryRepository monthlySummaryRepository;
     private final CategorySummaryRepository categorySummaryRepository;
     private final BudgetRepository budgetRepository;
+    private final DashboardComposer dashboardComposer;
 
-    @org.springframework.cache.annotation.Cacheable(value = "dashboard")
+    @Value("${reporting.dashboard.timeout.summaries:PT1S}")
+    private Duration summariesTimeout;
+
+    /**
+     * Ba nguồn (monthly summary, category breakdown, budgets) được đọc song song;
+     * nguồn lỗi/timeout trả về rỗng và được liệt kê trong unavailableSources (khi đó không cache).
+     */
+    @org.springframework.cache.annotation.Cacheable(value = "dashboard",
+            key = "@userCacheVersions.key(#request.userId, #request.yearMonth)", sync = true)
     public DashboardResponse getDashboard(DashboardRequest request) {
         log.info("Getting dashboard for user: {}, month: {}", request.getUserId(), request.getYearMonth());
 
+        Long userId = request.getUserId();
         String yearMonth = request.getYearMonth();
 
+        DashboardComposer.Composition composition = dashboardComposer.begin();
+        CompletableFuture<Optional<MonthlySummary>> summaryFuture = composition.fetch("monthlySummary",
+                () -> monthlySummaryRepository.findByUserIdAndYearMonth(userId, yearMonth),
+                summariesTimeout, Optional.empty());
+        CompletableFuture<List<CategorySummary>> categoriesFuture = composition.fetch("categories",
+                () -> categorySummaryRepository.findByUserIdAndYearMonth(userId, yearMonth),
+                summariesTimeout, List.of());
+        CompletableFuture<List<Budget>> budgetsFuture = composition.fetch("budgets",
+                () -> budgetRepository.findActiveBudgetsByYearMonth(userId, yearMonth),
+                summariesTimeout, List.of());
+        CompletableFuture.allOf(summaryFuture, categoriesFuture, budgetsFuture).join();
+
         // Get monthly summary
-        Optional<MonthlySummary> summaryOpt = monthlySummaryRepository
-                .findByUserIdAndYearMonth(request.getUserId(), yearMonth);
+        Optional<MonthlySummary> summaryOpt = summaryFuture.join();
 
         // Build summary
         DashboardResponse.Summary summary;
@@ -52,8 +77,7 @@ public DashboardResponse getDashboard(DashboardRequest request) {
         }
 
         // Get category breakdown
-        List<CategorySummary> categorySummaries = categorySummaryRepository
-                .findByUserIdAndYearMonth(request.getUserId(), yearMonth);
+        List<CategorySummary> categorySummaries = categoriesFuture.join();
 
         List<DashboardResponse.CategoryBreakdown> categoryBreakdowns = categorySummaries.stream()
                 .map(cs -> DashboardResponse.CategoryBreakdown.builder()
@@ -67,8 +91,7 @@ public DashboardResponse getDashboard(DashboardRequest request) {
                 .collect(Collectors.toList());
 
         // Get budget statuses
-        List<Budget> budgets = budgetRepository
-                .findActiveBudgetsByYearMonth(request.getUserId(), yearMonth);
+        List<Budget> budgets = budgetsFuture.join();
 
         List<DashboardResponse.BudgetStatus> budgetStatuses = budgets.stream()
                 .map(this::toBudgetStatus)
@@ -80,6 +103,7 @@ public DashboardResponse getDashboard(DashboardRequest request) {
                 .summary(summary)
                 .categoryBreakdowns(categoryBreakdowns)
                 .budgetStatuses(budgetStatuses)
+                .unavailableSources(composition.unavailableSources())
                 .build();
     }
 
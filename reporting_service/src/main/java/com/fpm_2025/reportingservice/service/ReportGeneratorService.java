@@ -9,18 +9,18 @@
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.text.NumberFormat;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Consumer;
 
 /**
  * Report Generator Service
@@ -29,50 +29,74 @@
  * - PDF: Professional layout with charts
  * - Excel: Detailed data with formulas
  * - CSV: Raw data for external processing
+ *
+ * Report được ghi thẳng ra OutputStream ({@code ReportStorage} cung cấp), từng dòng một:
+ * Excel dùng SXSSF (chỉ giữ cửa sổ {@code report.excel.row-window} dòng trên heap),
+ * PDF flush bảng giao dịch theo từng khối, CSV ghi trực tiếp qua CSVPrinter.
+ * Heap không phụ thuộc số giao dịch.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReportGeneratorService {
 
-    @Value("${report.storage.path:/tmp/reports}")
-    private String storagePath;
-
     private static final NumberFormat CURRENCY_FORMAT = 
         NumberFormat.getCurrencyInstance(new Locale("vi", "VN"));
 
     private static final DateTimeFormatter DATE_FORMAT = 
         DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
+    @Value("${report.excel.row-window:100}")
+    private int excelRowWindow;
+
+    @Value("${report.pdf.flush-rows:200}")
+    private int pdfFlushRows;
+
+    /**
+     * Nguồn giao dịch có thể duyệt lại (mỗi lần gọi forEach là một lượt đọc mới),
+     * ví dụ một gRPC stream từ transaction-service.
+     */
+    @FunctionalInterface
+    public interface TransactionRowSource {
+        void forEach(Consumer<TransactionData> sink);
+
+        static TransactionRowSource of(List<TransactionData> transactions) {
+            return transactions::forEach;
+        }
+    }
+
     /**
-     * Generate report based on format
+     * Render report ra {@code out}. Stream không bị đóng — caller quản lý vòng đời.
      */
-    public byte[] generate(
-            List<TransactionData> transactions,
+    public void generate(
+            TransactionRowSource transactions,
             MonthlyStatistics stats,
             List<WalletData> wallets,
-            ReportFormat format) {
+            ReportFormat format,
+            OutputStream out) {
         
         log.info("Generating {} report with {} transactions", 
-            format, transactions.size());
+            format, stats.getTransactionCount());
 
-        return switch (format) {
-            case PDF -> generatePDF(transactions, stats, wallets);
-            case EXCEL -> generateExcel(transactions, stats, wallets);
-            case CSV -> generateCSV(transactions);
-        };
+        switch (format) {
+            case PDF -> generatePDF(transactions, stats, wallets, out);
+            case EXCEL -> generateExcel(transactions, stats, wallets, out);
+            case CSV -> generateCSV(transactions, out);
+        }
     }
 
     // ==================== PDF Generation ====================
 
-    private byte[] generatePDF(
-            List<TransactionData> transactions,
+    private void generatePDF(
+            TransactionRowSource transactions,
             MonthlyStatistics stats,
-            List<WalletData> wallets) {
+            List<WalletData> wallets,
+            OutputStream out) {
         
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        try {
             Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, baos);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             document.open();
 
             // Title
@@ -107,7 +131,6 @@ private byte[] generatePDF(
             document.add(footer);
 
             document.close();
-            return baos.toByteArray();
 
         } catch (Exception e) {
             log.error("Failed to generate PDF report", e);
@@ -168,9 +191,13 @@ private void addWalletsSection(Document document, List<WalletData> wallets)
         document.add(table);
     }
 
+    /**
+     * Bảng giao dịch được đánh dấu chưa hoàn chỉnh (setComplete(false)) và add vào document
+     * sau mỗi {@code pdfFlushRows} dòng — iText ghi các dòng đã layout ra stream và giải phóng chúng.
+     */
     private void addTransactionsTable(
             Document document, 
-            List<TransactionData> transactions) 
+            TransactionRowSource transactions) 
             throws DocumentException {
         
         Font sectionFont = FontFactory.getFont(
@@ -182,32 +209,48 @@ private void addTransactionsTable(
         PdfPTable table = new PdfPTable(5);
         table.setWidthPercentage(100);
         table.setWidths(new float[]{2, 2, 1, 1, 2});
+        table.setComplete(false);
+        table.setHeaderRows(1);
 
         // Header
         addTableHeader(table, "Ngày", "Danh mục", "Loại", "Số tiền", "Ghi chú");
 
+        BaseColor expenseColor = new BaseColor(255, 230, 230);
+        BaseColor incomeColor = new BaseColor(230, 255, 230);
+        int[] pending = {0};
+
         // Data
-        for (TransactionData tx : transactions) {
-            addTableCell(table, tx.getTransactionDate().format(DATE_FORMAT));
+        transactions.forEach(tx -> {
+            addTableCell(table, formatDate(tx));
             addTableCell(table, tx.getCategoryName());
             addTableCell(table, tx.getType());
             
             PdfPCell amountCell = new PdfPCell(new Phrase(
                 formatCurrency(tx.getAmount())));
             amountCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            if ("EXPENSE".equals(tx.getType())) {
-                amountCell.setBackgroundColor(new BaseColor(255, 230, 230));
-            } else {
-                amountCell.setBackgroundColor(new BaseColor(230, 255, 230));
-            }
+            amountCell.setBackgroundColor("EXPENSE".equals(tx.getType()) ? expenseColor : incomeColor);
             table.addCell(amountCell);
             
             addTableCell(table, tx.getNote() != null ? tx.getNote() : "");
-        }
 
+            if (++pending[0] >= pdfFlushRows) {
+                addToDocument(document, table);
+                pending[0] = 0;
+            }
+        });
+
+        table.setComplete(true);
         document.add(table);
     }
 
+    private void addToDocument(Document document, Element element) {
+        try {
+            document.add(element);
+        } catch (DocumentException e) {
+            throw new IllegalStateException("Failed to flush PDF table", e);
+        }
+    }
+
     private void addSummaryRow(PdfPTable table, String label, String value) {
         PdfPCell labelCell = new PdfPCell(new Phrase(label));
         labelCell.setBorder(Rectangle.NO_BORDER);
@@ -242,13 +285,16 @@ private void addTableCell(PdfPTable table, String text) {
 
     // ==================== Excel Generation ====================
 
-    private byte[] generateExcel(
-            List<TransactionData> transactions,
+    private void generateExcel(
+            TransactionRowSource transactions,
             MonthlyStatistics stats,
-            List<WalletData> wallets) {
+            List<WalletData> wallets,
+            OutputStream out) {
         
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        // SXSSF: dòng ngoài cửa sổ được flush ra file tạm (nén), heap chỉ giữ excelRowWindow dòng/sheet
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelRowWindow);
+        workbook.setCompressTempFiles(true);
+        try {
 
             // Summary Sheet
             Sheet summarySheet = workbook.createSheet("Tổng quan");
@@ -262,12 +308,13 @@ private byte[] generateExcel(
             Sheet txSheet = workbook.createSheet("Giao dịch");
             createTransactionsSheet(txSheet, transactions, workbook);
 
-            workbook.write(baos);
-            return baos.toByteArray();
+            workbook.write(out);
 
         } catch (Exception e) {
             log.error("Failed to generate Excel report", e);
             throw new RuntimeException("Excel generation failed", e);
+        } finally {
+            workbook.dispose();
         }
     }
 
@@ -298,9 +345,8 @@ private void createSummarySheet(
         addExcelRow(sheet, rowNum++, headerStyle, dataStyle, 
             "Số giao dịch", stats.getTransactionCount());
 
-        // Auto-size columns
-        sheet.autoSizeColumn(0);
-        sheet.autoSizeColumn(1);
+        // Fixed widths — autoSizeColumn chỉ thấy các dòng còn trong cửa sổ SXSSF
+        setColumnWidths(sheet, 30, 22);
     }
 
     private void createWalletsSheet(
@@ -328,15 +374,12 @@ private void createWalletsSheet(
             row.createCell(2).setCellValue(wallet.getBalance().doubleValue());
         }
 
-        // Auto-size columns
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
-        }
+        setColumnWidths(sheet, 28, 16, 20);
     }
 
     private void createTransactionsSheet(
             Sheet sheet, 
-            List<TransactionData> transactions, 
+            TransactionRowSource transactions, 
             Workbook workbook) {
         
         CellStyle headerStyle = createHeaderStyle(workbook);
@@ -351,22 +394,25 @@ private void createTransactionsSheet(
         }
 
         // Data
-        int rowNum = 1;
-        for (TransactionData tx : transactions) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(
-                tx.getTransactionDate().format(DATE_FORMAT));
+        int[] rowNum = {1};
+        transactions.forEach(tx -> {
+            Row row = sheet.createRow(rowNum[0]++);
+            row.createCell(0).setCellValue(formatDate(tx));
             row.createCell(1).setCellValue(tx.getWalletName());
             row.createCell(2).setCellValue(tx.getCategoryName());
             row.createCell(3).setCellValue(tx.getType());
             row.createCell(4).setCellValue(tx.getAmount().doubleValue());
             row.createCell(5).setCellValue(
                 tx.getNote() != null ? tx.getNote() : "");
-        }
+        });
 
-        // Auto-size columns
-        for (int i = 0; i < headers.length; i++) {
-            sheet.autoSizeColumn(i);
+        setColumnWidths(sheet, 18, 20, 24, 10, 16, 40);
+    }
+
+    /** Độ rộng cột tính theo số ký tự. */
+    private void setColumnWidths(Sheet sheet, int... widthsInChars) {
+        for (int i = 0; i < widthsInChars.length; i++) {
+            sheet.setColumnWidth(i, widthsInChars[i] * 256);
         }
     }
 
@@ -406,25 +452,29 @@ private void addExcelRow(
 
     // ==================== CSV Generation ====================
 
-    private byte[] generateCSV(List<TransactionData> transactions) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             Writer writer = new OutputStreamWriter(baos);
-             CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
-                .withHeader("Ngày", "Ví", "Danh mục", "Loại", "Số tiền", "Ghi chú"))) {
-
-            for (TransactionData tx : transactions) {
-                csvPrinter.printRecord(
-                    tx.getTransactionDate().format(DATE_FORMAT),
-                    tx.getWalletName(),
-                    tx.getCategoryName(),
-                    tx.getType(),
-                    tx.getAmount().toString(),
-                    tx.getNote() != null ? tx.getNote() : ""
-                );
-            }
+    private void generateCSV(TransactionRowSource transactions, OutputStream out) {
+        try {
+            // Không đóng writer/printer: sẽ đóng luôn stream của caller
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
+                .withHeader("Ngày", "Ví", "Danh mục", "Loại", "Số tiền", "Ghi chú"));
+
+            transactions.forEach(tx -> {
+                try {
+                    csvPrinter.printRecord(
+                        formatDate(tx),
+                        tx.getWalletName(),
+                        tx.getCategoryName(),
+                        tx.getType(),
+                        tx.getAmount().toString(),
+                        tx.getNote() != null ? tx.getNote() : ""
+                    );
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
 
             csvPrinter.flush();
-            return baos.toByteArray();
 
         } catch (Exception e) {
             log.error("Failed to generate CSV report", e);
@@ -432,34 +482,14 @@ private byte[] generateCSV(List<TransactionData> transactions) {
         }
     }
 
-    // ==================== Storage ====================
-
-    public String uploadToStorage(byte[] data, String fileName) {
-        try {
-            Files.createDirectories(Paths.get(storagePath));
-            String filePath = storagePath + "/" + fileName;
-            Files.write(Paths.get(filePath), data);
-            return "/reports/" + fileName; // URL for download
-        } catch (IOException e) {
-            log.error("Failed to upload report to storage", e);
-            throw new RuntimeException("Storage upload failed", e);
-        }
-    }
-
-    public byte[] downloadFromStorage(String fileUrl) {
-        try {
-            String fileName = fileUrl.substring(fileUrl.lastIndexOf("/") + 1);
-            String filePath = storagePath + "/" + fileName;
-            return Files.readAllBytes(Paths.get(filePath));
-        } catch (IOException e) {
-            log.error("Failed to download report from storage", e);
-            throw new RuntimeException("Storage download failed", e);
-        }
-    }
-
     // ==================== Utilities ====================
 
     private String formatCurrency(BigDecimal amount) {
-        return CURRENCY_FORMAT.format(amount);
+        // NumberFormat không thread-safe — clone để các export chạy song song không giẫm lên nhau
+        return ((NumberFormat) CURRENCY_FORMAT.clone()).format(amount);
+    }
+
+    private String formatDate(TransactionData tx) {
+        return tx.getTransactionDate() != null ? tx.getTransactionDate().format(DATE_FORMAT) : "";
     }
 }
\ No newline at end of file
@@ -1,31 +1,51 @@
 package com.fpm_2025.reportingservice.service;
 
+import com.fpm2025.grpc.protocol.AggregationDimension;
 import com.fpm_2025.reportingservice.domain.*;
 import com.fpm_2025.reportingservice.domain.model.Budget;
 import com.fpm_2025.reportingservice.domain.model.CategorySummary;
+import com.fpm_2025.reportingservice.domain.model.ExportJob;
+import com.fpm_2025.reportingservice.domain.model.MonthlySummary;
 import com.fpm_2025.reportingservice.entity.ReportEntity;
 import com.fpm_2025.reportingservice.entity.TransactionSummaryEntity;
 import com.fpm_2025.reportingservice.repository.BudgetRepository;
 import com.fpm_2025.reportingservice.repository.CategorySummaryRepository;
+import com.fpm_2025.reportingservice.repository.ExportJobRepository;
+import com.fpm_2025.reportingservice.repository.MonthlySummaryRepository;
 import com.fpm_2025.reportingservice.repository.ReportRepository;
 import com.fpm_2025.reportingservice.repository.TransactionSummaryRepository;
 import com.fpm_2025.reportingservice.dto.response.BudgetComparisonItem;
 import com.fpm_2025.reportingservice.dto.response.ChartDataResponse;
+import com.fpm_2025.reportingservice.service.aggregation.MinorUnitTotals;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import com.fpm_2025.reportingservice.service.aggregation.MonthlyStatisticsAccumulator;
+import com.fpm_2025.reportingservice.service.cube.AnalyticsCubeService;
+import com.fpm_2025.reportingservice.service.cube.CubeQuery;
+import com.fpm_2025.reportingservice.service.export.ExportJobScheduler;
+import com.fpm_2025.reportingservice.service.export.ExportJobSubmittedEvent;
+import com.fpm_2025.reportingservice.service.storage.ReportStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.fpm_2025.reportingservice.dto.request.ReportRequest;
 import com.fpm_2025.reportingservice.dto.response.ReportResponse;
+import com.fpm_2025.reportingservice.domain.valueobject.CubeDimension;
 import com.fpm_2025.reportingservice.domain.valueobject.ExportFormat;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 import com.fpm_2025.reportingservice.exception.ResourceNotFoundException;
@@ -49,11 +69,16 @@ public class ReportingService {
     private final TransactionSummaryRepository summaryRepository;
     private final ReportRepository reportRepository;
     private final ReportGeneratorService reportGenerator;
+    private final ReportStorage reportStorage;
+    private final UserCacheVersions userCacheVersions;
     private final TransactionGrpcClient transactionClient;
     private final WalletGrpcClient walletClient;
     private final CategorySummaryRepository categorySummaryRepository;
+    private final MonthlySummaryRepository monthlySummaryRepository;
     private final BudgetRepository budgetRepository;
-    private final com.fpm_2025.reportingservice.repository.ExportJobRepository exportJobRepository;
+    private final ExportJobRepository exportJobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AnalyticsCubeService analyticsCube;
 
     /**
      * Generate monthly report for user
@@ -82,50 +107,41 @@ public ReportResponse generateMonthlyReport(ReportRequest request) {
             LocalDateTime.now().withHour(23).withMinute(59);
             
         String period = startDate.getYear() + "-" + String.format("%02d", startDate.getMonthValue());
+        String fileName = versionedFileName(userId, startDate, endDate, format);
+
+        // Dữ liệu của user chưa đổi kể từ lần render trước → trả lại file cũ, không render lại
+        Optional<ReportEntity> existing = reportRepository
+            .findFirstByUserIdAndFileNameAndStatusOrderByIdDesc(userId, fileName, ReportStatus.COMPLETED);
+        if (existing.isPresent() && reportStorage.exists(existing.get().getFileUrl())) {
+            log.info("Reusing report {} for user {} (data unchanged)", existing.get().getId(), userId);
+            existing.get().setLastAccessedAt(LocalDateTime.now());
+            return mapToResponse(existing.get());
+        }
 
-        List<TransactionData> transactions = transactionClient
-            .getTransactionsByDateRange(userId, startDate, endDate);
-
-        // 2️⃣ Get wallet information
-        List<WalletData> wallets = walletClient.getUserWallets(userId);
-
-        // 3️⃣ Calculate statistics
-        MonthlyStatistics stats = calculateMonthlyStatistics(
-            transactions, wallets, startDate, endDate);
-
-        // 4️⃣ Generate report file
-        byte[] reportData = reportGenerator.generate(
-            transactions, stats, wallets, format);
+        // 2️⃣ Render report thẳng vào storage (local / S3)
+        ReportStorage.StoredReport stored = renderToStorage(
+            userId, startDate, endDate, format, fileName, null);
 
-        // 5️⃣ Save report metadata
+        // 3️⃣ Save report metadata
         ReportEntity report = ReportEntity.builder()
             .userId(userId)
             .type(format.name())
             .period(period)
-            .fileName(generateFileName(userId, period, format))
-            .fileSize((long) reportData.length)
+            .fileName(fileName)
+            .fileUrl(stored.fileUrl())
+            .fileSize(stored.fileSize())
             .status(ReportStatus.COMPLETED)
+            .lastAccessedAt(LocalDateTime.now())
             .build();
 
         ReportEntity savedReport = reportRepository.save(report);
 
-        // 6️⃣ Upload to storage (S3, MinIO, etc.)
-        String fileUrl = reportGenerator.uploadToStorage(
-            reportData, savedReport.getFileName());
-
-        savedReport.setFileUrl(fileUrl);
-        reportRepository.save(savedReport);
-
         log.info("Report generated successfully: reportId={}", 
             savedReport.getId());
 
         return mapToResponse(savedReport);
     }
 
-    public byte[] downloadReport(String fileUrl) {
-        return reportGenerator.downloadFromStorage(fileUrl);
-    }
-
     /**
      * Get user's report history
      */
@@ -143,7 +159,8 @@ public List<ReportResponse> getUserReports(Long userId) {
     /**
      * Download report by ID
      */
-    public byte[] downloadReport(Long reportId, Long userId) {
+    @Transactional
+    public Resource downloadReport(Long reportId, Long userId) {
         log.info("Downloading report: {} for user: {}", reportId, userId);
 
         ReportEntity report = reportRepository
@@ -151,14 +168,16 @@ public byte[] downloadReport(Long reportId, Long userId) {
             .orElseThrow(() -> new ResourceNotFoundException(
                 "Report not found with id: " + reportId));
 
-        return reportGenerator.downloadFromStorage(report.getFileUrl());
+        Resource resource = reportStorage.open(report.getFileUrl());
+        reportRepository.touch(reportId, LocalDateTime.now());
+        return resource;
     }
 
     /**
      * Get monthly statistics (cached in Redis)
      */
     @Cacheable(value = "monthly-statistics", 
-               key = "#userId + '-' + #yearMonth")
+               key = "@userCacheVersions.key(#userId, #yearMonth)", sync = true)
     public MonthlyStatistics getMonthlyStatistics(
             Long userId, 
             String yearMonth) {
@@ -170,20 +189,24 @@ public MonthlyStatistics getMonthlyStatistics(
         LocalDateTime startDate = ym.atDay(1).atStartOfDay();
         LocalDateTime endDate = ym.atEndOfMonth().atTime(23, 59, 59);
 
-        List<TransactionData> transactions = transactionClient
-            .getTransactionsByDateRange(userId, startDate, endDate);
+        // Ưu tiên MonthlySummary (SummaryAggregationEngine cập nhật từ Kafka event)
+        Optional<MonthlySummary> summary = monthlySummaryRepository.findByUserIdAndYearMonth(userId, yearMonth);
+        if (summary.isPresent()) {
+            return toMonthlyStatistics(summary.get(), startDate, endDate);
+        }
 
-        List<WalletData> wallets = walletClient.getUserWallets(userId);
+        // Fallback: tính từ gRPC stream
+        MonthlyStatisticsAccumulator accumulator = new MonthlyStatisticsAccumulator();
+        transactionClient.streamTransactionsByDateRange(userId, startDate, endDate, accumulator);
 
-        return calculateMonthlyStatistics(
-            transactions, wallets, startDate, endDate);
+        return accumulator.toStatistics(startDate, endDate);
     }
 
     /**
      * Get spending breakdown by category (cached)
      */
     @Cacheable(value = "spending-breakdown", 
-               key = "#userId + '-' + #yearMonth")
+               key = "@userCacheVersions.key(#userId, #yearMonth)", sync = true)
     public Map<String, BigDecimal> getSpendingBreakdown(
             Long userId, 
             String yearMonth) {
@@ -195,183 +218,143 @@ public Map<String, BigDecimal> getSpendingBreakdown(
         LocalDateTime startDate = ym.atDay(1).atStartOfDay();
         LocalDateTime endDate = ym.atEndOfMonth().atTime(23, 59, 59);
 
-        List<TransactionData> transactions = transactionClient
-            .getTransactionsByDateRange(userId, startDate, endDate);
-
-        return transactions.stream()
-            .filter(t -> "EXPENSE".equals(t.getType()))
-            .collect(Collectors.groupingBy(
-                TransactionData::getCategoryName,
-                Collectors.reducing(
-                    BigDecimal.ZERO,
-                    TransactionData::getAmount,
-                    BigDecimal::add
-                )
-            ));
+        MinorUnitTotals<String> breakdown = new MinorUnitTotals<>();
+        Optional<List<TransactionAggregate>> buckets = analyticsCube.slice(userId, CubeQuery.builder()
+                .from(ym.atDay(1)).to(ym.atEndOfMonth()).type("EXPENSE")
+                .groupBy(CubeDimension.CATEGORY)
+                .build())
+            .or(() -> transactionClient.aggregateTransactions(
+                userId, startDate, endDate, "EXPENSE", List.of(AggregationDimension.CATEGORY)));
+        if (buckets.isPresent()) {
+            buckets.get().forEach(b -> breakdown.add(
+                TransactionAggregate.categoryLabel(b.getCategoryId()), b.getTotalMinor()));
+        } else {
+            transactionClient.streamTransactionsByDateRange(userId, startDate, endDate, t -> {
+                if ("EXPENSE".equals(t.getType())) {
+                    breakdown.add(TransactionAggregate.categoryLabel(t.getCategoryId()), t.getAmountMinor());
+                }
+            });
+        }
+        return new HashMap<>(breakdown.toAmounts());
     }
 
     /**
      * Get income vs expense trend (last 6 months)
      */
-    @Cacheable(value = "income-expense-trend", key = "#userId")
+    @Cacheable(value = "income-expense-trend", key = "@userCacheVersions.key(#userId)", sync = true)
     public List<TrendData> getIncomeExpenseTrend(Long userId) {
         log.info("Calculating income/expense trend for user: {}", userId);
 
         LocalDate now = LocalDate.now();
 
-        // 1️⃣ Fetch all transactions for the 6-month period in a single call
+        // 1️⃣ Stream all transactions for the 6-month period in a single call
         YearMonth startYm = YearMonth.from(now.minusMonths(5));
         LocalDateTime startDateRange = startYm.atDay(1).atStartOfDay();
         LocalDateTime endDateRange = YearMonth.from(now).atEndOfMonth().atTime(23, 59, 59);
 
-        List<TransactionData> allTransactions = transactionClient
-            .getTransactionsByDateRange(userId, startDateRange, endDateRange);
-
-        // 2️⃣ Group transactions by YearMonth
-        Map<YearMonth, List<TransactionData>> transactionsByMonth = allTransactions.stream()
-            .collect(Collectors.groupingBy(t -> YearMonth.from(t.getTransactionDate())));
+        // 2️⃣ Income/expense by YearMonth — GROUP BY trên transaction-service, fallback fold từ stream
+        MinorUnitTotals<YearMonth> incomeByMonth = new MinorUnitTotals<>();
+        MinorUnitTotals<YearMonth> expenseByMonth = new MinorUnitTotals<>();
+        Optional<List<TransactionAggregate>> buckets = analyticsCube.slice(userId, CubeQuery.builder()
+                .from(startYm.atDay(1)).to(YearMonth.from(now).atEndOfMonth())
+                .groupBy(CubeDimension.MONTH).groupBy(CubeDimension.TYPE)
+                .build())
+            .or(() -> transactionClient.aggregateTransactions(
+                userId, startDateRange, endDateRange, null,
+                List.of(AggregationDimension.MONTH, AggregationDimension.TYPE)));
+        if (buckets.isPresent()) {
+            for (TransactionAggregate b : buckets.get()) {
+                YearMonth ym = YearMonth.parse(b.getMonth());
+                if ("INCOME".equals(b.getType())) {
+                    incomeByMonth.add(ym, b.getTotalMinor());
+                } else if ("EXPENSE".equals(b.getType())) {
+                    expenseByMonth.add(ym, b.getTotalMinor());
+                }
+            }
+        } else {
+            transactionClient.streamTransactionsByDateRange(userId, startDateRange, endDateRange, t -> {
+                if (t.getTransactionDate() == null) return;
+                YearMonth ym = YearMonth.from(t.getTransactionDate());
+                if ("INCOME".equals(t.getType())) {
+                    incomeByMonth.add(ym, t.getAmountMinor());
+                } else if ("EXPENSE".equals(t.getType())) {
+                    expenseByMonth.add(ym, t.getAmountMinor());
+                }
+            });
+        }
 
         List<TrendData> trend = new java.util.ArrayList<>();
 
-        // 3️⃣ Calculate income/expense for each month
+        // 3️⃣ Build income/expense for each month
         for (int i = 5; i >= 0; i--) {
             YearMonth ym = YearMonth.from(now.minusMonths(i));
-            List<TransactionData> transactions = transactionsByMonth
-                .getOrDefault(ym, new java.util.ArrayList<>());
-
-            BigDecimal income = transactions.stream()
-                .filter(t -> "INCOME".equals(t.getType()))
-                .map(TransactionData::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal expense = transactions.stream()
-                .filter(t -> "EXPENSE".equals(t.getType()))
-                .map(TransactionData::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            long income = incomeByMonth.get(ym);
+            long expense = expenseByMonth.get(ym);
 
             trend.add(TrendData.builder()
                 .month(ym.toString())
-                .income(income)
-                .expense(expense)
-                .net(income.subtract(expense))
+                .income(MoneyUnits.fromMinor(income))
+                .expense(MoneyUnits.fromMinor(expense))
+                .net(MoneyUnits.fromMinor(income - expense))
                 .build());
         }
 
         return trend;
     }
 
-    /**
-     * Get dashboard summary
-     */
-    @Cacheable(value = "dashboard-summary", key = "#userId")
-    public DashboardSummary getDashboardSummary(Long userId) {
-        log.info("Calculating dashboard summary for user: {}", userId);
-
-        // Current month stats
-        String currentMonth = YearMonth.now().toString();
-        MonthlyStatistics currentStats = getMonthlyStatistics(
-            userId, currentMonth);
-
-        // Previous month stats for comparison
-        String previousMonth = YearMonth.now().minusMonths(1).toString();
-        MonthlyStatistics previousStats = getMonthlyStatistics(
-            userId, previousMonth);
-
-        // Get wallets total balance
-        List<WalletData> wallets = walletClient.getUserWallets(userId);
-        BigDecimal totalBalance = wallets.stream()
-            .map(WalletData::getBalance)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Calculate changes
-        BigDecimal incomeChange = calculatePercentageChange(
-            previousStats.getTotalIncome(), 
-            currentStats.getTotalIncome());
-
-        BigDecimal expenseChange = calculatePercentageChange(
-            previousStats.getTotalExpense(), 
-            currentStats.getTotalExpense());
-
-        return DashboardSummary.builder()
-            .totalBalance(totalBalance)
-            .currentMonthIncome(currentStats.getTotalIncome())
-            .currentMonthExpense(currentStats.getTotalExpense())
-            .currentMonthNet(currentStats.getNetIncome())
-            .incomeChangePercent(incomeChange)
-            .expenseChangePercent(expenseChange)
-            .transactionCount(currentStats.getTransactionCount())
-            .topSpendingCategory(currentStats.getTopExpenseCategory())
-            .build();
-    }
-
     // ==================== Private Methods ====================
 
-    private MonthlyStatistics calculateMonthlyStatistics(
-            List<TransactionData> transactions,
-            List<WalletData> wallets,
+    private MonthlyStatistics toMonthlyStatistics(
+            MonthlySummary summary,
             LocalDateTime startDate,
             LocalDateTime endDate) {
 
-        BigDecimal totalIncome = transactions.stream()
-            .filter(t -> "INCOME".equals(t.getType()))
-            .map(TransactionData::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalExpense = transactions.stream()
-            .filter(t -> "EXPENSE".equals(t.getType()))
-            .map(TransactionData::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // Find top expense category
-        String topExpenseCategory = transactions.stream()
-            .filter(t -> "EXPENSE".equals(t.getType()))
-            .collect(Collectors.groupingBy(
-                TransactionData::getCategoryName,
-                Collectors.reducing(
-                    BigDecimal.ZERO,
-                    TransactionData::getAmount,
-                    BigDecimal::add
-                )
-            ))
-            .entrySet().stream()
-            .max(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse("N/A");
-
-        // Calculate daily average
-        long days = java.time.temporal.ChronoUnit.DAYS.between(
-            startDate.toLocalDate(), 
-            endDate.toLocalDate()
-        ) + 1;
-
-        BigDecimal avgDailyExpense = totalExpense
-            .divide(BigDecimal.valueOf(days), 2, java.math.RoundingMode.HALF_UP);
-
         return MonthlyStatistics.builder()
-            .userId(transactions.isEmpty() ? null : transactions.get(0).getUserId())
-            .month(YearMonth.from(startDate).toString())
-            .totalIncome(totalIncome)
-            .totalExpense(totalExpense)
-            .netIncome(totalIncome.subtract(totalExpense))
-            .transactionCount(transactions.size())
-            .avgDailyExpense(avgDailyExpense)
-            .topExpenseCategory(topExpenseCategory)
+            .userId(summary.getUserId())
+            .month(summary.getYearMonth())
+            .totalIncome(summary.getTotalIncome())
+            .totalExpense(summary.getTotalExpense())
+            .netIncome(summary.getNetIncome())
+            .transactionCount(summary.getTransactionCount())
+            .avgDailyExpense(summary.getAvgDailyExpense() != null
+                ? summary.getAvgDailyExpense() : BigDecimal.ZERO)
+            .topExpenseCategory(summary.getTopExpenseCategory() != null
+                ? summary.getTopExpenseCategory() : "N/A")
             .startDate(startDate)
             .endDate(endDate)
             .build();
     }
 
-    private BigDecimal calculatePercentageChange(
-            BigDecimal oldValue, 
-            BigDecimal newValue) {
-        
-        if (oldValue.compareTo(BigDecimal.ZERO) == 0) {
-            return BigDecimal.ZERO;
+    /**
+     * Render report thẳng vào storage, không giữ danh sách giao dịch trên heap.
+     * Giao dịch được stream hai lượt từ transaction-service: lượt đầu fold statistics
+     * (phần tổng quan đứng trước bảng giao dịch), lượt sau ghi từng dòng ra file.
+     * CSV không có phần tổng quan nên chỉ stream một lượt; nếu caller có sẵn {@code prefetched}
+     * (vd. từ monthly_summaries) thì cũng bỏ lượt đầu.
+     */
+    private ReportStorage.StoredReport renderToStorage(
+            Long userId, LocalDateTime startDate, LocalDateTime endDate,
+            ReportFormat format, String fileName, MonthlyStatistics prefetched) {
+
+        boolean needsSummary = format != ReportFormat.CSV;
+
+        MonthlyStatistics stats;
+        if (prefetched != null) {
+            stats = prefetched;
+        } else {
+            MonthlyStatisticsAccumulator accumulator = new MonthlyStatisticsAccumulator();
+            if (needsSummary) {
+                transactionClient.streamTransactionsByDateRange(userId, startDate, endDate, accumulator);
+            }
+            stats = accumulator.toStatistics(startDate, endDate);
         }
+        List<WalletData> wallets = needsSummary ? walletClient.getUserWallets(userId) : List.of();
+
+        ReportGeneratorService.TransactionRowSource rows =
+            sink -> transactionClient.streamTransactionsByDateRange(userId, startDate, endDate, sink);
 
-        return newValue.subtract(oldValue)
-            .divide(oldValue, 4, java.math.RoundingMode.HALF_UP)
-            .multiply(BigDecimal.valueOf(100));
+        return reportStorage.write(fileName,
+            out -> reportGenerator.generate(rows, stats, wallets, format, out));
     }
 
     private String generateFileName(
@@ -387,6 +370,25 @@ private String generateFileName(
         );
     }
 
+    /**
+     * Tên file xác định theo khoảng ngày và version dữ liệu của user ({@link UserCacheVersions}):
+     * cùng tên nghĩa là cùng nội dung, nên file đã render được dùng lại và download có thể resume.
+     */
+    private String versionedFileName(
+            Long userId,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            ReportFormat format) {
+
+        return String.format("report_%s_%s_%s_v%d.%s",
+            userId,
+            startDate.toLocalDate().format(DateTimeFormatter.BASIC_ISO_DATE),
+            endDate.toLocalDate().format(DateTimeFormatter.BASIC_ISO_DATE),
+            userCacheVersions.current(userId),
+            format.name().toLowerCase()
+        );
+    }
+
     private ReportResponse mapToResponse(ReportEntity entity) {
         return ReportResponse.builder()
             .id(entity.getId())
@@ -410,7 +412,7 @@ private ReportResponse mapToResponse(ReportEntity entity) {
      * Ưu tiên dữ liệu từ CategorySummary (DB caching từ Kafka event).
      * Fallback: gọi gRPC sang transaction-service nếu chưa có data.
      */
-    @Cacheable(value = "spending-by-category", key = "#userId + '-' + #yearMonth + '-' + #type")
+    @Cacheable(value = "spending-by-category", key = "@userCacheVersions.key(#userId, #yearMonth, #type)", sync = true)
     public ChartDataResponse getSpendingByCategory(Long userId, String yearMonth, String type) {
         log.info("getSpendingByCategory: userId={}, month={}, type={}", userId, yearMonth, type);
 
@@ -439,17 +441,29 @@ public ChartDataResponse getSpendingByCategory(Long userId, String yearMonth, St
             LocalDateTime start = ym.atDay(1).atStartOfDay();
             LocalDateTime end   = ym.atEndOfMonth().atTime(23, 59, 59);
 
-            List<TransactionData> txns = transactionClient.getTransactionsByDateRange(userId, start, end);
             final String filterType = type.toUpperCase();
 
-            Map<String, BigDecimal> grouped = txns.stream()
-                    .filter(t -> filterType.equals(t.getType()))
-                    .collect(Collectors.groupingBy(
-                            TransactionData::getCategoryName,
-                            Collectors.reducing(BigDecimal.ZERO, TransactionData::getAmount, BigDecimal::add)));
+            MinorUnitTotals<String> grouped = new MinorUnitTotals<>();
+            Optional<List<TransactionAggregate>> buckets = analyticsCube.slice(userId, CubeQuery.builder()
+                            .from(ym.atDay(1)).to(ym.atEndOfMonth()).type(filterType)
+                            .groupBy(CubeDimension.CATEGORY)
+                            .build())
+                    .or(() -> transactionClient.aggregateTransactions(
+                            userId, start, end, filterType, List.of(AggregationDimension.CATEGORY)));
+            if (buckets.isPresent()) {
+                buckets.get().forEach(b -> grouped.add(
+                        TransactionAggregate.categoryLabel(b.getCategoryId()), b.getTotalMinor()));
+            } else {
+                transactionClient.streamTransactionsByDateRange(userId, start, end, t -> {
+                    if (filterType.equals(t.getType())) {
+                        grouped.add(TransactionAggregate.categoryLabel(t.getCategoryId()), t.getAmountMinor());
+                    }
+                });
+            }
 
-            labels  = new ArrayList<>(grouped.keySet());
-            amounts = new ArrayList<>(grouped.values());
+            Map<String, BigDecimal> totals = grouped.toAmounts();
+            labels  = new ArrayList<>(totals.keySet());
+            amounts = new ArrayList<>(totals.values());
         }
 
         // Build Pie Chart colors
@@ -482,7 +496,7 @@ public ChartDataResponse getSpendingByCategory(Long userId, String yearMonth, St
      * So sánh income vs expense theo từng tháng trong N tháng gần nhất.
      * Return dạng Line Chart.
      */
-    @Cacheable(value = "monthly-trends", key = "#userId + '-' + #months")
+    @Cacheable(value = "monthly-trends", key = "@userCacheVersions.key(#userId, #months)", sync = true)
     public ChartDataResponse getMonthlyTrends(Long userId, int months) {
         log.info("getMonthlyTrends: userId={}, months={}", userId, months);
         if (months <= 0 || months > 24) months = 6;
@@ -507,20 +521,55 @@ public ChartDataResponse getMonthlyTrends(Long userId, int months) {
             expenseMap.put(m, BigDecimal.ZERO);
         }
 
-        // Fallback: gọi gRPC nếu chưa có summary trong DB
-        LocalDateTime gRpcStart = startYm.atDay(1).atStartOfDay();
-        LocalDateTime gRpcEnd   = endYm.atEndOfMonth().atTime(23, 59, 59);
-        List<TransactionData> allTxns = transactionClient.getTransactionsByDateRange(userId, gRpcStart, gRpcEnd);
-
-        for (TransactionData txn : allTxns) {
-            if (txn.getTransactionDate() == null) continue;
-            String m = YearMonth.from(txn.getTransactionDate()).toString();
-            if (!incomeMap.containsKey(m)) continue;
-            if ("INCOME".equals(txn.getType())) {
-                incomeMap.merge(m, txn.getAmount(), BigDecimal::add);
+        List<MonthlySummary> summaries = monthlySummaryRepository
+                .findByUserIdAndYearMonthBetween(userId, startMonth, endMonth);
+
+        if (!summaries.isEmpty()) {
+            for (MonthlySummary ms : summaries) {
+                if (!incomeMap.containsKey(ms.getYearMonth())) continue;
+                incomeMap.put(ms.getYearMonth(), ms.getTotalIncome());
+                expenseMap.put(ms.getYearMonth(), ms.getTotalExpense());
+            }
+        } else {
+            // Fallback: gọi gRPC nếu chưa có summary trong DB — cộng dồn bằng long, đổi BigDecimal ở cuối
+            LocalDateTime gRpcStart = startYm.atDay(1).atStartOfDay();
+            LocalDateTime gRpcEnd   = endYm.atEndOfMonth().atTime(23, 59, 59);
+            MinorUnitTotals<String> incomeTotals  = new MinorUnitTotals<>();
+            MinorUnitTotals<String> expenseTotals = new MinorUnitTotals<>();
+            monthLabels.forEach(m -> {
+                incomeTotals.init(m);
+                expenseTotals.init(m);
+            });
+            Optional<List<TransactionAggregate>> buckets = analyticsCube.slice(userId, CubeQuery.builder()
+                            .from(startYm.atDay(1)).to(endYm.atEndOfMonth())
+                            .groupBy(CubeDimension.MONTH).groupBy(CubeDimension.TYPE)
+                            .build())
+                    .or(() -> transactionClient.aggregateTransactions(
+                            userId, gRpcStart, gRpcEnd, null,
+                            List.of(AggregationDimension.MONTH, AggregationDimension.TYPE)));
+            if (buckets.isPresent()) {
+                for (TransactionAggregate b : buckets.get()) {
+                    if (!incomeTotals.contains(b.getMonth())) continue;
+                    if ("INCOME".equals(b.getType())) {
+                        incomeTotals.add(b.getMonth(), b.getTotalMinor());
+                    } else if ("EXPENSE".equals(b.getType())) {
+                        expenseTotals.add(b.getMonth(), b.getTotalMinor());
+                    }
+                }
             } else {
-                expenseMap.merge(m, txn.getAmount(), BigDecimal::add);
+                transactionClient.streamTransactionsByDateRange(userId, gRpcStart, gRpcEnd, txn -> {
+                    if (txn.getTransactionDate() == null) return;
+                    String m = YearMonth.from(txn.getTransactionDate()).toString();
+                    if (!incomeTotals.contains(m)) return;
+                    if ("INCOME".equals(txn.getType())) {
+                        incomeTotals.add(m, txn.getAmountMinor());
+                    } else {
+                        expenseTotals.add(m, txn.getAmountMinor());
+                    }
+                });
             }
+            incomeMap.putAll(incomeTotals.toAmounts());
+            expenseMap.putAll(expenseTotals.toAmounts());
         }
 
         List<Object> incomeData  = new ArrayList<>(incomeMap.values());
@@ -547,6 +596,42 @@ public ChartDataResponse getMonthlyTrends(Long userId, int months) {
                 .build();
     }
 
+    // =========================================================================
+    // GET /api/v1/reports/slice
+    // =========================================================================
+
+    /**
+     * Lát cắt tùy ý (lọc + group-by) trên analytics cube của user.
+     * Fallback sang AggregateTransactions RPC khi cube không phục vụ được và truy vấn diễn đạt được
+     * bằng RPC (không lọc theo danh mục/ví, chiều thời gian chỉ DAY/MONTH).
+     */
+    public List<TransactionAggregate> slice(Long userId, CubeQuery query) {
+        Optional<List<TransactionAggregate>> cells = analyticsCube.slice(userId, query);
+        if (cells.isPresent()) {
+            return cells.get();
+        }
+        if (query.getFrom() == null || query.getTo() == null
+                || !query.getCategoryIds().isEmpty() || !query.getWalletIds().isEmpty()) {
+            return List.of();
+        }
+        List<AggregationDimension> dimensions = new ArrayList<>();
+        for (CubeDimension dimension : query.getDimensions()) {
+            switch (dimension) {
+                case DAY -> dimensions.add(AggregationDimension.DAY);
+                case MONTH -> dimensions.add(AggregationDimension.MONTH);
+                case CATEGORY -> dimensions.add(AggregationDimension.CATEGORY);
+                case WALLET -> dimensions.add(AggregationDimension.WALLET);
+                case TYPE -> dimensions.add(AggregationDimension.TYPE);
+                default -> {
+                    return List.of();
+                }
+            }
+        }
+        return transactionClient.aggregateTransactions(userId,
+                query.getFrom().atStartOfDay(), query.getTo().atTime(23, 59, 59),
+                query.getType(), dimensions).orElse(List.of());
+    }
+
     // =========================================================================
     // GET /api/v1/reports/budget-comparison
     // =========================================================================
@@ -554,7 +639,9 @@ public ChartDataResponse getMonthlyTrends(Long userId, int months) {
     /**
      * So sánh ngân sách đặt ra vs chi tiêu thực tế theo danh mục.
      * Kết hợp dữ liệu từ Budget entity và CategorySummary.
+     * Cache theo version của user — thay đổi budget/giao dịch đều bump version.
      */
+    @Cacheable(value = "budget-comparison", key = "@userCacheVersions.key(#userId, #yearMonth)", sync = true)
     public List<BudgetComparisonItem> getBudgetComparison(Long userId, String yearMonth) {
         log.info("getBudgetComparison: userId={}, month={}", userId, yearMonth);
 
@@ -625,76 +712,83 @@ public List<BudgetComparisonItem> getBudgetComparison(Long userId, String yearMo
     }
 
     /**
-     * Submit an asynchronous export job
+     * Submit an asynchronous export job.
+     *
+     * Job chỉ được lưu PENDING — {@link ExportJobScheduler} claim và chạy trên export executor,
+     * không bao giờ trên thread của request. Request trùng (user, format, khoảng ngày) khi job cũ
+     * còn PENDING/PROCESSING được gộp vào job đó — kể cả khi đến đồng thời: job được tạo bằng
+     * {@code INSERT IGNORE} trên unique (user_id, dedup_key) thay vì kiểm tra rồi mới insert.
      */
-    @org.springframework.transaction.annotation.Transactional
-    public Long submitExportJob(Long userId, com.fpm_2025.reportingservice.dto.request.ReportRequest request) {
+    @Transactional
+    public Long submitExportJob(Long userId, ReportRequest request) {
         log.info("Submitting async export job for user: {}, format: {}", 
             userId, request.getFormat());
-        
-        com.fpm_2025.reportingservice.domain.model.ExportJob job = com.fpm_2025.reportingservice.domain.model.ExportJob.builder()
-            .userId(userId)
-            .format(request.getFormat())
-            .period(request.getStartDate().getYear() + "-" + String.format("%02d", request.getStartDate().getMonthValue()))
-            .status(com.fpm_2025.reportingservice.domain.valueobject.ExportStatus.PENDING)
-            .build();
-            
-        com.fpm_2025.reportingservice.domain.model.ExportJob savedJob = exportJobRepository.save(job);
-        
-        // Trigger async processing
-        processExportJobAsync(savedJob.getId(), request);
-        
-        return savedJob.getId();
+
+        String dedupKey = ExportJob.dedupKey(request.getFormat(), request.getStartDate(), request.getEndDate());
+        String period = request.getStartDate().getYear() + "-" + String.format("%02d", request.getStartDate().getMonthValue());
+        int inserted = exportJobRepository.insertIfAbsent(userId, request.getFormat().name(), period,
+            request.getStartDate(), request.getEndDate(), dedupKey, LocalDateTime.now());
+        // Không đọc trước khi insert: với REPEATABLE READ, snapshot tạo trước insert sẽ không thấy job
+        // vừa commit của request trùng. Insert bị bỏ qua (0) thì job đang mở là của request trước.
+        ExportJob job = exportJobRepository.findByUserIdAndDedupKey(userId, dedupKey)
+            .orElseThrow(() -> new IllegalStateException("Export job " + dedupKey + " vanished after submit"));
+        if (inserted == 1) {
+            eventPublisher.publishEvent(new ExportJobSubmittedEvent(job.getId()));
+        } else {
+            log.info("Export request deduplicated onto job {}", job.getId());
+        }
+        return job.getId();
     }
 
     /**
-     * Process export job asynchronously
+     * Chạy một export job đã được scheduler claim (status PROCESSING).
+     *
+     * Không mở transaction bao quanh: render có thể mất vài phút và không cần giữ connection DB.
      */
-    @org.springframework.scheduling.annotation.Async
-    @org.springframework.transaction.annotation.Transactional
-    public void processExportJobAsync(Long jobId, com.fpm_2025.reportingservice.dto.request.ReportRequest request) {
-        log.info("Processing export job {} asynchronously", jobId);
-        
-        com.fpm_2025.reportingservice.domain.model.ExportJob job = exportJobRepository.findById(jobId)
-            .orElseThrow(() -> new RuntimeException("Job not found: " + jobId));
-            
-        try {
-            job.markAsProcessing();
-            exportJobRepository.save(job);
-
-            // Reuse logic from generateMonthlyReport
-            Long userId = request.getUserId();
-            com.fpm_2025.reportingservice.domain.valueobject.ExportFormat format = request.getFormat();
-            java.time.LocalDateTime startDate = request.getStartDate().atStartOfDay();
-            java.time.LocalDateTime endDate = request.getEndDate().atTime(23, 59, 59);
-
-            List<com.fpm_2025.reportingservice.domain.TransactionData> transactions = transactionClient
-                .getTransactionsByDateRange(userId, startDate, endDate);
-            List<com.fpm_2025.reportingservice.domain.WalletData> wallets = walletClient.getUserWallets(userId);
-            com.fpm_2025.reportingservice.domain.MonthlyStatistics stats = calculateMonthlyStatistics(transactions, wallets, startDate, endDate);
-
-            byte[] reportData = reportGenerator.generate(transactions, stats, wallets, 
-                com.fpm_2025.reportingservice.domain.ReportFormat.valueOf(format.name()));
-
-            String fileName = generateFileName(userId, job.getPeriod(), 
-                com.fpm_2025.reportingservice.domain.ReportFormat.valueOf(format.name()));
-            String fileUrl = reportGenerator.uploadToStorage(reportData, fileName);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ExportStatus processExportJob(Long jobId) {
+        ExportJob job = exportJobRepository.findById(jobId)
+            .orElseThrow(() -> new ResourceNotFoundException("Job not found: " + jobId));
+        if (job.getStatus() != ExportStatus.PROCESSING) {
+            log.warn("Export job {} is {}, expected PROCESSING — skipping", jobId, job.getStatus());
+            return job.getStatus();
+        }
 
-            job.markAsDone(fileName, fileUrl, (long) reportData.length);
-            exportJobRepository.save(job);
-            
+        log.info("Processing export job {} (attempt {})", jobId, job.getAttempts());
+        try {
+            ReportFormat reportFormat = ReportFormat.valueOf(job.getFormat().name());
+            // Job cũ (trước khi có start/end date) chỉ có period
+            YearMonth month = YearMonth.parse(job.getPeriod());
+            LocalDateTime startDate = (job.getStartDate() != null ? job.getStartDate() : month.atDay(1))
+                .atStartOfDay();
+            LocalDateTime endDate = (job.getEndDate() != null ? job.getEndDate() : month.atEndOfMonth())
+                .atTime(23, 59, 59);
+
+            // Sao kê tháng đã khép lại: tổng quan lấy từ monthly_summaries, không stream lượt thống kê
+            MonthlyStatistics prefetched = job.isBatch()
+                ? monthlySummaryRepository.findByUserIdAndYearMonth(job.getUserId(), job.getPeriod())
+                    .map(s -> toMonthlyStatistics(s, startDate, endDate))
+                    .orElse(null)
+                : null;
+
+            String fileName = generateFileName(job.getUserId(), job.getPeriod(), reportFormat);
+            ReportStorage.StoredReport stored = renderToStorage(
+                job.getUserId(), startDate, endDate, reportFormat, fileName, prefetched);
+
+            job.markAsDone(fileName, stored.fileUrl(), stored.fileSize());
             log.info("Export job {} completed successfully", jobId);
             
         } catch (Exception e) {
             log.error("Export job {} failed", jobId, e);
             job.markAsFailed(e.getMessage());
-            exportJobRepository.save(job);
         }
+        exportJobRepository.save(job);
+        return job.getStatus();
     }
 
-    public com.fpm_2025.reportingservice.domain.model.ExportJob getExportJobStatus(Long jobId, Long userId) {
-        com.fpm_2025.reportingservice.domain.model.ExportJob job = exportJobRepository.findById(jobId)
-            .orElseThrow(() -> new com.fpm_2025.reportingservice.exception.ResourceNotFoundException("Job not found: " + jobId));
+    public ExportJob getExportJobStatus(Long jobId, Long userId) {
+        ExportJob job = exportJobRepository.findById(jobId)
+            .orElseThrow(() -> new ResourceNotFoundException("Job not found: " + jobId));
             
         if (!job.getUserId().equals(userId)) {
             throw new SecurityException("Unauthorized access to export job");
@@ -702,4 +796,12 @@ public com.fpm_2025.reportingservice.domain.model.ExportJob getExportJobStatus(L
         
         return job;
     }
+
+    /**
+     * Ghi nhận lượt tải kết quả export — last_accessed_at là thứ tự LRU khi dọn storage theo quota.
+     */
+    @Transactional
+    public void recordExportDownload(Long jobId) {
+        exportJobRepository.touch(jobId, LocalDateTime.now());
+    }
 }
\ No newline at end of file
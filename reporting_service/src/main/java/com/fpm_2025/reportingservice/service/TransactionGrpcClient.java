@@ -1,15 +1,24 @@
 package com.fpm_2025.reportingservice.service;
 
 import com.fpm2025.grpc.protocol.*;
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
 import com.fpm_2025.reportingservice.domain.TransactionData;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import lombok.extern.slf4j.Slf4j;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * gRPC Client kết nối tới transaction-service.
@@ -47,19 +56,7 @@ public List<TransactionData> getTransactionsByDateRange(
 
             List<TransactionData> result = new ArrayList<>();
             for (TransactionResponse t : response.getTransactionsList()) {
-                result.add(TransactionData.builder()
-                        .id(t.getId())
-                        .userId(t.getUserId())
-                        .walletId(t.getWalletId())
-                        .walletName("")   // không có trong proto — có thể bổ sung sau
-                        .categoryName(t.getCategoryName())
-                        .type(t.getType())
-                        .amount(java.math.BigDecimal.valueOf(t.getAmount().getAmount()))
-                        .note(t.getNote())
-                        .transactionDate(t.getTransactionDate().isEmpty()
-                                ? null
-                                : LocalDateTime.parse(t.getTransactionDate(), ISO_FORMATTER))
-                        .build());
+                result.add(toTransactionData(t));
             }
 
             log.info("[gRPC] Received {} transactions from transaction-service", result.size());
@@ -72,6 +69,111 @@ public List<TransactionData> getTransactionsByDateRange(
         }
     }
 
+    /**
+     * Đọc giao dịch theo khoảng thời gian qua server-streaming RPC và đẩy từng bản ghi vào {@code sink}
+     * ngay khi chunk tới — không giữ toàn bộ danh sách, bộ nhớ chỉ phụ thuộc kích thước chunk.
+     *
+     * Nếu transaction-service chưa hỗ trợ streaming (UNIMPLEMENTED) thì fallback về unary RPC.
+     * Lỗi trước khi nhận được bản ghi nào: log và trả 0 (giống hành vi cũ — report rỗng thay vì fail).
+     * Lỗi giữa chừng: ném exception để caller không lưu/cached một kết quả thiếu dữ liệu.
+     * Nếu {@code sink} ném exception, stream bị huỷ để server dừng đọc DB.
+     *
+     * @return số giao dịch đã đẩy vào sink
+     */
+    public long streamTransactionsByDateRange(
+            Long userId, LocalDateTime startDate, LocalDateTime endDate, Consumer<TransactionData> sink) {
+
+        log.info("[gRPC] streamTransactionsByDateRange: userId={} [{} → {}]", userId, startDate, endDate);
+
+        DateRangeRequest request = DateRangeRequest.newBuilder()
+                .setUserId(userId)
+                .setStartDate(startDate.format(ISO_FORMATTER))
+                .setEndDate(endDate.format(ISO_FORMATTER))
+                .build();
+
+        long[] received = {0};
+        Context.CancellableContext context = Context.current().withCancellation();
+        try {
+            context.run(() -> {
+                Iterator<TransactionsResponse> chunks = stub.streamTransactionsByDateRange(request);
+                while (chunks.hasNext()) {
+                    for (TransactionResponse t : chunks.next().getTransactionsList()) {
+                        sink.accept(toTransactionData(t));
+                        received[0]++;
+                    }
+                }
+            });
+            log.info("[gRPC] Streamed {} transactions from transaction-service", received[0]);
+            return received[0];
+
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.UNIMPLEMENTED && received[0] == 0) {
+                log.warn("[gRPC] Streaming not supported by transaction-service, falling back to unary call");
+                List<TransactionData> all = getTransactionsByDateRange(userId, startDate, endDate);
+                all.forEach(sink);
+                return all.size();
+            }
+            if (received[0] == 0) {
+                log.error("[gRPC] Failed to stream transactions via gRPC: {}", e.getMessage());
+                return 0;
+            }
+            throw new IllegalStateException(
+                    "Transaction stream interrupted after " + received[0] + " records: " + e.getMessage(), e);
+        } finally {
+            context.cancel(null);
+        }
+    }
+
+    /**
+     * Tổng hợp giao dịch ngay trên transaction-service (SQL GROUP BY) — payload O(số bucket).
+     *
+     * @param type    lọc INCOME/EXPENSE, null = tất cả
+     * @param groupBy các chiều group-by (MONTH, DAY, CATEGORY, TYPE, WALLET)
+     * @return empty nếu server chưa hỗ trợ hoặc lỗi — caller fallback về stream giao dịch
+     */
+    public Optional<List<TransactionAggregate>> aggregateTransactions(
+            Long userId, LocalDateTime startDate, LocalDateTime endDate,
+            String type, List<AggregationDimension> groupBy) {
+
+        log.info("[gRPC] aggregateTransactions: userId={} [{} → {}] type={} groupBy={}",
+                userId, startDate, endDate, type, groupBy);
+        try {
+            AggregateTransactionsRequest.Builder req = AggregateTransactionsRequest.newBuilder()
+                    .setUserId(userId)
+                    .setStartDate(startDate.format(ISO_FORMATTER))
+                    .setEndDate(endDate.format(ISO_FORMATTER))
+                    .addAllGroupBy(groupBy);
+            if (type != null) {
+                req.setType(type);
+            }
+
+            AggregateTransactionsResponse response = stub.aggregateTransactions(req.build());
+
+            List<TransactionAggregate> result = new ArrayList<>(response.getBucketsCount());
+            for (AggregateBucket b : response.getBucketsList()) {
+                result.add(TransactionAggregate.builder()
+                        .month(b.getMonth().isEmpty() ? null : b.getMonth())
+                        .day(b.getDay().isEmpty() ? null : LocalDate.parse(b.getDay()))
+                        .categoryId(groupBy.contains(AggregationDimension.CATEGORY) ? b.getCategoryId() : null)
+                        .type(b.getType().isEmpty() ? null : b.getType())
+                        .walletId(groupBy.contains(AggregationDimension.WALLET) ? b.getWalletId() : null)
+                        .totalMinor(MoneyUnits.minorFromProto(b.getTotal()))
+                        .count(b.getCount())
+                        .build());
+            }
+            log.info("[gRPC] Received {} aggregate buckets from transaction-service", result.size());
+            return Optional.of(result);
+
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.UNIMPLEMENTED) {
+                log.warn("[gRPC] AggregateTransactions not supported by transaction-service, falling back to stream");
+            } else {
+                log.error("[gRPC] aggregateTransactions failed: {}", e.getMessage());
+            }
+            return Optional.empty();
+        }
+    }
+
     /**
      * Lấy giao dịch theo walletId (paged).
      */
@@ -88,18 +190,7 @@ public List<TransactionData> getTransactionsByWallet(Long walletId, int page, in
 
             List<TransactionData> result = new ArrayList<>();
             for (TransactionResponse t : response.getTransactionsList()) {
-                result.add(TransactionData.builder()
-                        .id(t.getId())
-                        .userId(t.getUserId())
-                        .walletId(t.getWalletId())
-                        .categoryName(t.getCategoryName())
-                        .type(t.getType())
-                        .amount(java.math.BigDecimal.valueOf(t.getAmount().getAmount()))
-                        .note(t.getNote())
-                        .transactionDate(t.getTransactionDate().isEmpty()
-                                ? null
-                                : LocalDateTime.parse(t.getTransactionDate(), ISO_FORMATTER))
-                        .build());
+                result.add(toTransactionData(t));
             }
             return result;
         } catch (Exception e) {
@@ -123,10 +214,27 @@ public java.math.BigDecimal getTotalSpending(Long userId, LocalDateTime startDat
                     .build();
 
             SpendingResponse response = stub.getTotalSpending(req);
-            return java.math.BigDecimal.valueOf(response.getTotalAmount().getAmount());
+            return MoneyUnits.fromMinor(MoneyUnits.minorFromProto(response.getTotalAmount()));
         } catch (Exception e) {
             log.error("[gRPC] getTotalSpending failed: {}", e.getMessage());
             return java.math.BigDecimal.ZERO;
         }
     }
+
+    private TransactionData toTransactionData(TransactionResponse t) {
+        return TransactionData.builder()
+                .id(t.getId())
+                .userId(t.getUserId())
+                .walletId(t.getWalletId())
+                .walletName("")   // không có trong proto — có thể bổ sung sau
+                .categoryId(t.getCategoryId())
+                .categoryName(t.getCategoryName())
+                .type(t.getType())
+                .amountMinor(MoneyUnits.minorFromProto(t.getAmount()))
+                .note(t.getNote())
+                .transactionDate(t.getTransactionDate().isEmpty()
+                        ? null
+                        : LocalDateTime.parse(t.getTransactionDate(), ISO_FORMATTER))
+                .build();
+    }
 }
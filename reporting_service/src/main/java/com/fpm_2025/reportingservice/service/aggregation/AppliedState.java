@@ -0,0 +1,70 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.dto.TransactionEventDto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Objects;
+
+/**
+ * Trạng thái một dòng applied_transactions: phần giao dịch đã đóng góp vào summaries.
+ * {@code type == null} nghĩa là không đóng góp gì (tombstone hoặc TRANSFER).
+ * {@code day == null} với dòng ghi trước khi có spending_rollups — phần đó chưa từng vào rollup ngày.
+ */
+record AppliedState(Long transactionId, Long userId, String yearMonth, LocalDate day, Long categoryId,
+                    CategorySummaryType type, BigDecimal amount, boolean deleted,
+                    LocalDateTime sourceUpdatedAt) {
+
+    /**
+     * @return null nếu event thiếu dữ liệu để tính đóng góp
+     */
+    static AppliedState fromEvent(TransactionEventDto event) {
+        if (event.getUserId() == null || event.getAmount() == null
+                || event.getTransactionDate() == null || event.getType() == null) {
+            return null;
+        }
+        CategorySummaryType type;
+        try {
+            type = CategorySummaryType.valueOf(event.getType().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            type = null; // TRANSFER... không tính vào thu/chi
+        }
+        return new AppliedState(
+            event.getId(),
+            event.getUserId(),
+            YearMonth.from(event.getTransactionDate()).toString(),
+            event.getTransactionDate().toLocalDate(),
+            event.getCategoryId() != null ? event.getCategoryId() : 0L,
+            type,
+            event.getAmount(),
+            false,
+            event.getUpdatedAt());
+    }
+
+    static AppliedState tombstone(Long transactionId, Long userId) {
+        return new AppliedState(transactionId, userId != null ? userId : 0L,
+            null, null, null, null, null, true, null);
+    }
+
+    AppliedState asDeleted() {
+        return new AppliedState(transactionId, userId, yearMonth, day, categoryId, type, amount, true, sourceUpdatedAt);
+    }
+
+    boolean contributes() {
+        return !deleted && type != null;
+    }
+
+    boolean sameContributionAs(AppliedState other) {
+        return contributes() == other.contributes()
+            && (!contributes()
+                || (Objects.equals(userId, other.userId)
+                    && Objects.equals(yearMonth, other.yearMonth)
+                    && Objects.equals(day, other.day)
+                    && Objects.equals(categoryId, other.categoryId)
+                    && type == other.type
+                    && amount.compareTo(other.amount) == 0));
+    }
+}
@@ -0,0 +1,66 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tổng tiền theo key, cộng dồn bằng {@code long} (đơn vị nhỏ nhất, xem {@link MoneyUnits}).
+ *
+ * Mỗi key giữ một ô {@code long[1]} cộng tại chỗ — không tạo BigDecimal/Long mới cho mỗi giao dịch
+ * như {@code Map.merge(key, amount, BigDecimal::add)}. Giữ thứ tự chèn key.
+ * Không thread-safe.
+ */
+public class MinorUnitTotals<K> {
+
+    private final Map<K, long[]> totals = new LinkedHashMap<>();
+
+    /** Khai báo trước key (giá trị 0) để giữ thứ tự hiển thị, ví dụ danh sách tháng. */
+    public void init(K key) {
+        totals.putIfAbsent(key, new long[1]);
+    }
+
+    public void add(K key, long minor) {
+        totals.computeIfAbsent(key, k -> new long[1])[0] += minor;
+    }
+
+    public boolean contains(K key) {
+        return totals.containsKey(key);
+    }
+
+    public long get(K key) {
+        long[] cell = totals.get(key);
+        return cell != null ? cell[0] : 0L;
+    }
+
+    public BigDecimal getAmount(K key) {
+        return MoneyUnits.fromMinor(get(key));
+    }
+
+    public Set<K> keys() {
+        return totals.keySet();
+    }
+
+    /** Key có tổng lớn nhất, null nếu rỗng. */
+    public K maxKey() {
+        K best = null;
+        long bestValue = Long.MIN_VALUE;
+        for (Map.Entry<K, long[]> e : totals.entrySet()) {
+            if (e.getValue()[0] > bestValue) {
+                bestValue = e.getValue()[0];
+                best = e.getKey();
+            }
+        }
+        return best;
+    }
+
+    /** Chuyển sang BigDecimal ở biên API. */
+    public Map<K, BigDecimal> toAmounts() {
+        Map<K, BigDecimal> result = new LinkedHashMap<>(totals.size() * 2);
+        totals.forEach((k, v) -> result.put(k, MoneyUnits.fromMinor(v[0])));
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.domain.MonthlyStatistics;
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
+import com.fpm_2025.reportingservice.domain.TransactionData;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+
+/**
+ * Gom số liệu {@link MonthlyStatistics} theo kiểu fold: nhận từng giao dịch một,
+ * chỉ giữ tổng và map chi tiêu theo danh mục (kích thước ~ số danh mục, không ~ số giao dịch).
+ * Tiền cộng dồn bằng {@code long} (đơn vị nhỏ nhất), chỉ đổi sang BigDecimal trong {@link #toStatistics}.
+ *
+ * Dùng làm sink cho {@code TransactionGrpcClient.streamTransactionsByDateRange}.
+ * Không thread-safe — mỗi lần tính tạo một instance mới.
+ */
+public class MonthlyStatisticsAccumulator implements Consumer<TransactionData> {
+
+    private final MinorUnitTotals<String> expenseByCategory = new MinorUnitTotals<>();
+    private long totalIncome;
+    private long totalExpense;
+    private int transactionCount;
+    private Long userId;
+
+    @Override
+    public void accept(TransactionData t) {
+        if (userId == null) {
+            userId = t.getUserId();
+        }
+        transactionCount++;
+
+        if ("INCOME".equals(t.getType())) {
+            totalIncome += t.getAmountMinor();
+        } else if ("EXPENSE".equals(t.getType())) {
+            totalExpense += t.getAmountMinor();
+            expenseByCategory.add(TransactionAggregate.categoryLabel(t.getCategoryId()), t.getAmountMinor());
+        }
+    }
+
+    public MonthlyStatistics toStatistics(LocalDateTime startDate, LocalDateTime endDate) {
+        String topExpenseCategory = expenseByCategory.keys().isEmpty() ? "N/A" : expenseByCategory.maxKey();
+
+        long days = ChronoUnit.DAYS.between(startDate.toLocalDate(), endDate.toLocalDate()) + 1;
+
+        BigDecimal expense = MoneyUnits.fromMinor(totalExpense);
+        BigDecimal avgDailyExpense = expense
+            .divide(BigDecimal.valueOf(days), 2, RoundingMode.HALF_UP);
+
+        return MonthlyStatistics.builder()
+            .userId(userId)
+            .month(YearMonth.from(startDate).toString())
+            .totalIncome(MoneyUnits.fromMinor(totalIncome))
+            .totalExpense(expense)
+            .netIncome(MoneyUnits.fromMinor(totalIncome - totalExpense))
+            .transactionCount(transactionCount)
+            .avgDailyExpense(avgDailyExpense)
+            .topExpenseCategory(topExpenseCategory)
+            .startDate(startDate)
+            .endDate(endDate)
+            .build();
+    }
+}
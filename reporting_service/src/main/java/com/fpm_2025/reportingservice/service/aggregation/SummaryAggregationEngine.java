@@ -0,0 +1,156 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.dto.TransactionEventDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Duy trì monthly_summaries, category_summaries và transaction_summaries bằng delta có dấu
+ * từ các event transaction.created / updated / deleted.
+ *
+ * Mỗi giao dịch có một dòng applied_transactions ghi lại phần đã cộng vào summaries:
+ * - created/updated: trừ phần cũ (nếu có), cộng phần mới — event lặp lại với cùng giá trị là no-op.
+ * - deleted: trừ phần cũ và đánh dấu tombstone.
+ *
+ * Cả batch được giải quyết trong bộ nhớ (một query đọc ledger), delta gộp theo
+ * (userId, yearMonth) / (userId, yearMonth, categoryId) rồi ghi một lần bởi {@link SummaryBatchWriter}.
+ * Các trường dẫn xuất (avg daily expense, top category, percentage) được tính lại
+ * từ category_summaries của các tháng bị ảnh hưởng — O(số danh mục), không phụ thuộc số giao dịch.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SummaryAggregationEngine {
+
+    public enum EventType { CREATED, UPDATED, DELETED }
+
+    public record TransactionEvent(EventType type, TransactionEventDto payload) {}
+
+    /** Thay đổi chi tiêu (đơn vị nhỏ nhất, có dấu) của một danh mục trong tháng sau một batch. */
+    public record ExpenseDelta(Long userId, String yearMonth, Long categoryId, long amountMinor) {}
+
+    /**
+     * Kết quả một batch: user có summaries thay đổi và delta chi tiêu theo danh mục đã gộp.
+     */
+    public record BatchResult(Set<Long> affectedUserIds, List<ExpenseDelta> expenseDeltas) {
+
+        static final BatchResult EMPTY = new BatchResult(Set.of(), List.of());
+
+        public boolean isEmpty() {
+            return affectedUserIds.isEmpty();
+        }
+    }
+
+    private final SummaryBatchWriter batchWriter;
+
+    /**
+     * Áp dụng một event vào các bảng summary.
+     *
+     * @return true nếu summaries thay đổi (caller cần invalidate cache), false nếu event bị bỏ qua
+     */
+    @Transactional
+    public boolean apply(EventType eventType, TransactionEventDto event) {
+        return !applyBatch(List.of(new TransactionEvent(eventType, event))).isEmpty();
+    }
+
+    /**
+     * Áp dụng cả batch event theo đúng thứ tự nhận được.
+     *
+     * @return user có summaries thay đổi và delta chi tiêu (rỗng nếu mọi event đều bị bỏ qua)
+     */
+    @Transactional
+    public BatchResult applyBatch(List<TransactionEvent> events) {
+        Set<Long> transactionIds = new LinkedHashSet<>();
+        for (TransactionEvent e : events) {
+            if (e.payload().getId() != null) {
+                transactionIds.add(e.payload().getId());
+            }
+        }
+        if (transactionIds.isEmpty()) {
+            return BatchResult.EMPTY;
+        }
+
+        Map<Long, AppliedState> ledger = batchWriter.loadApplied(transactionIds);
+        Map<Long, AppliedState> changed = new LinkedHashMap<>();
+        SummaryDeltas deltas = new SummaryDeltas();
+
+        for (TransactionEvent e : events) {
+            TransactionEventDto payload = e.payload();
+            if (payload.getId() == null) {
+                log.warn("Aggregation: skipping {} event without transaction id", e.type());
+                continue;
+            }
+            AppliedState next = resolve(e.type(), payload, ledger.get(payload.getId()), deltas);
+            if (next != null) {
+                ledger.put(payload.getId(), next);
+                changed.put(payload.getId(), next);
+            }
+        }
+
+        if (changed.isEmpty()) {
+            return BatchResult.EMPTY;
+        }
+        batchWriter.flush(changed.values(), deltas);
+        return new BatchResult(deltas.affectedUserIds(), deltas.expenseDeltas());
+    }
+
+    /**
+     * Tính trạng thái ledger mới cho một event và ghi delta tương ứng vào {@code deltas}.
+     *
+     * @return trạng thái mới, hoặc null nếu event không làm thay đổi gì
+     */
+    private AppliedState resolve(EventType eventType, TransactionEventDto event,
+                                 AppliedState current, SummaryDeltas deltas) {
+        if (eventType == EventType.DELETED) {
+            if (current == null) {
+                // Chưa thấy created — ghi tombstone để event created tới muộn không được cộng vào
+                return AppliedState.tombstone(event.getId(), event.getUserId());
+            }
+            if (current.deleted()) {
+                return null;
+            }
+            if (current.contributes()) {
+                deltas.add(current, -1);
+            }
+            return current.asDeleted();
+        }
+
+        AppliedState incoming = AppliedState.fromEvent(event);
+        if (incoming == null) {
+            log.warn("Aggregation: skipping {} event for transaction {} — missing type/amount/date",
+                eventType, event.getId());
+            return null;
+        }
+
+        if (current != null) {
+            if (current.deleted()) {
+                log.debug("Aggregation: transaction {} already deleted, ignoring {}", event.getId(), eventType);
+                return null;
+            }
+            if (current.sourceUpdatedAt() != null && incoming.sourceUpdatedAt() != null
+                    && incoming.sourceUpdatedAt().isBefore(current.sourceUpdatedAt())) {
+                log.debug("Aggregation: out-of-order {} for transaction {}, ignoring", eventType, event.getId());
+                return null;
+            }
+            if (incoming.sameContributionAs(current)) {
+                return null;
+            }
+            if (current.contributes()) {
+                deltas.add(current, -1);
+            }
+        }
+
+        if (incoming.contributes()) {
+            deltas.add(incoming, 1);
+        }
+        return incoming;
+    }
+}
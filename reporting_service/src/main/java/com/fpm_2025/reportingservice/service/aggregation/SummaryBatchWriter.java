@@ -0,0 +1,245 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryDeltas.CategoryDelta;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryDeltas.CategoryKey;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryDeltas.DayKey;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryDeltas.MonthDelta;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryDeltas.MonthKey;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ghi delta đã gộp xuống các bảng summary bằng JDBC batch + {@code INSERT ... ON DUPLICATE KEY UPDATE}.
+ *
+ * Mỗi key chỉ tốn một câu lệnh trong batch thay vì SELECT + UPDATE cho từng event.
+ * Các cột dẫn xuất (net, avg daily, top category, percentage) được tính lại bằng UPDATE riêng
+ * sau khi các cột tổng đã cập nhật, để không phụ thuộc thứ tự đánh giá assignment của MySQL.
+ * Bucket DAY của spending_rollups được cộng delta và đánh dấu {@code compacted = FALSE} để
+ * {@code RollupCompactor} tính lại WEEK/MONTH/YEAR.
+ */
+@Component
+@RequiredArgsConstructor
+public class SummaryBatchWriter {
+
+    private static final int IN_CLAUSE_CHUNK = 500;
+
+    private static final String SELECT_APPLIED = """
+        SELECT transaction_id, user_id, `year_month`, transaction_day, category_id, type, amount, deleted,
+               source_updated_at
+        FROM applied_transactions
+        WHERE transaction_id IN (%s)
+        """;
+
+    private static final String UPSERT_APPLIED = """
+        INSERT INTO applied_transactions
+            (transaction_id, user_id, `year_month`, transaction_day, category_id, type, amount, deleted,
+             source_updated_at, applied_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        ON DUPLICATE KEY UPDATE
+            user_id           = VALUES(user_id),
+            `year_month`      = VALUES(`year_month`),
+            transaction_day   = VALUES(transaction_day),
+            category_id       = VALUES(category_id),
+            type              = VALUES(type),
+            amount            = VALUES(amount),
+            deleted           = VALUES(deleted),
+            source_updated_at = VALUES(source_updated_at),
+            applied_at        = CURRENT_TIMESTAMP
+        """;
+
+    private static final String UPSERT_MONTHLY = """
+        INSERT INTO monthly_summaries
+            (user_id, `year_month`, total_income, total_expense, net_income, transaction_count, created_at, updated_at)
+        VALUES (?, ?, ?, ?, 0, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON DUPLICATE KEY UPDATE
+            total_income      = total_income + VALUES(total_income),
+            total_expense     = total_expense + VALUES(total_expense),
+            transaction_count = transaction_count + VALUES(transaction_count)
+        """;
+
+    // Khóa trùng: uk_cat_summary (user_id, year_month, category_id, type)
+    private static final String UPSERT_CATEGORY = """
+        INSERT INTO category_summaries
+            (user_id, `year_month`, category_id, category_name, type, total_amount, transaction_count, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON DUPLICATE KEY UPDATE
+            total_amount      = total_amount + VALUES(total_amount),
+            transaction_count = transaction_count + VALUES(transaction_count),
+            updated_at        = CURRENT_TIMESTAMP
+        """;
+
+    private static final String UPSERT_DAY_ROLLUP = """
+        INSERT INTO spending_rollups
+            (user_id, level, bucket_start, category_id, type, total_amount, transaction_count, compacted, updated_at)
+        VALUES (?, 'DAY', ?, ?, ?, ?, ?, FALSE, CURRENT_TIMESTAMP)
+        ON DUPLICATE KEY UPDATE
+            total_amount      = total_amount + VALUES(total_amount),
+            transaction_count = transaction_count + VALUES(transaction_count),
+            compacted         = FALSE,
+            updated_at        = CURRENT_TIMESTAMP
+        """;
+
+    private static final String DELETE_EMPTY_CATEGORIES = """
+        DELETE FROM category_summaries
+        WHERE user_id = ? AND `year_month` = ? AND transaction_count <= 0
+        """;
+
+    private static final String UPSERT_PERIOD_TOTALS = """
+        INSERT INTO transaction_summaries (user_id, period, total_income, total_expense)
+        VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            total_income  = total_income + VALUES(total_income),
+            total_expense = total_expense + VALUES(total_expense)
+        """;
+
+    private static final String REFRESH_MONTHLY_DERIVED = """
+        UPDATE monthly_summaries
+        SET net_income           = total_income - total_expense,
+            transaction_count    = CASE WHEN transaction_count < 0 THEN 0 ELSE transaction_count END,
+            avg_daily_expense    = ROUND(total_expense / ?, 2),
+            top_expense_category = (
+                SELECT cs.category_name FROM category_summaries cs
+                WHERE cs.user_id = ? AND cs.`year_month` = ? AND cs.type = 'EXPENSE'
+                ORDER BY cs.total_amount DESC
+                LIMIT 1),
+            updated_at           = CURRENT_TIMESTAMP
+        WHERE user_id = ? AND `year_month` = ?
+        """;
+
+    private static final String REFRESH_CATEGORY_PERCENTAGES = """
+        UPDATE category_summaries
+        SET percentage = (
+            SELECT CASE
+                       WHEN category_summaries.type = 'EXPENSE' AND m.total_expense > 0
+                           THEN ROUND(category_summaries.total_amount * 100 / m.total_expense, 2)
+                       WHEN category_summaries.type = 'INCOME' AND m.total_income > 0
+                           THEN ROUND(category_summaries.total_amount * 100 / m.total_income, 2)
+                       ELSE 0
+                   END
+            FROM monthly_summaries m
+            WHERE m.user_id = category_summaries.user_id
+              AND m.`year_month` = category_summaries.`year_month`)
+        WHERE user_id = ? AND `year_month` = ?
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Đọc trạng thái applied_transactions cho các transaction id trong batch (một query / 500 id).
+     */
+    public Map<Long, AppliedState> loadApplied(Collection<Long> transactionIds) {
+        Map<Long, AppliedState> result = new HashMap<>();
+        List<Long> ids = new ArrayList<>(transactionIds);
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK, ids.size()));
+            String placeholders = chunk.stream().map(id -> "?").collect(Collectors.joining(", "));
+            jdbcTemplate.query(String.format(SELECT_APPLIED, placeholders), rs -> {
+                String type = rs.getString("type");
+                Timestamp updatedAt = rs.getTimestamp("source_updated_at");
+                Date day = rs.getDate("transaction_day");
+                long categoryId = rs.getLong("category_id");
+                AppliedState state = new AppliedState(
+                    rs.getLong("transaction_id"),
+                    rs.getLong("user_id"),
+                    rs.getString("year_month"),
+                    day != null ? day.toLocalDate() : null,
+                    rs.wasNull() ? null : categoryId,
+                    type != null ? CategorySummaryType.valueOf(type) : null,
+                    rs.getBigDecimal("amount"),
+                    rs.getBoolean("deleted"),
+                    updatedAt != null ? updatedAt.toLocalDateTime() : null);
+                result.put(state.transactionId(), state);
+            }, chunk.toArray());
+        }
+        return result;
+    }
+
+    /**
+     * Ghi toàn bộ delta của batch. Caller chịu trách nhiệm mở transaction.
+     */
+    public void flush(Collection<AppliedState> appliedStates, SummaryDeltas deltas) {
+        if (!deltas.isEmpty()) {
+            upsertMonthly(deltas.months());
+            upsertCategories(deltas.categories());
+            upsertPeriodTotals(deltas.months());
+            upsertDayRollups(deltas.days());
+            refreshDerived(deltas.months().keySet());
+        }
+        upsertApplied(appliedStates);
+    }
+
+    private void upsertMonthly(Map<MonthKey, MonthDelta> months) {
+        List<Object[]> args = new ArrayList<>(months.size());
+        months.forEach((key, d) -> args.add(new Object[] {
+            key.userId(), key.yearMonth(), d.income, d.expense, d.count }));
+        jdbcTemplate.batchUpdate(UPSERT_MONTHLY, args);
+    }
+
+    private void upsertCategories(Map<CategoryKey, CategoryDelta> categories) {
+        List<Object[]> args = new ArrayList<>(categories.size());
+        categories.forEach((key, d) -> args.add(new Object[] {
+            key.userId(), key.yearMonth(), key.categoryId(), TransactionAggregate.categoryLabel(key.categoryId()),
+            key.type().name(), d.amount, d.count }));
+        jdbcTemplate.batchUpdate(UPSERT_CATEGORY, args);
+    }
+
+    private void upsertPeriodTotals(Map<MonthKey, MonthDelta> months) {
+        List<Object[]> args = new ArrayList<>(months.size());
+        months.forEach((key, d) -> args.add(new Object[] {
+            key.userId(), key.yearMonth(), d.income, d.expense }));
+        jdbcTemplate.batchUpdate(UPSERT_PERIOD_TOTALS, args);
+    }
+
+    private void upsertDayRollups(Map<DayKey, CategoryDelta> days) {
+        List<Object[]> args = new ArrayList<>(days.size());
+        days.forEach((key, d) -> {
+            if (d.count != 0 || d.amount.signum() != 0) {
+                args.add(new Object[] {
+                    key.userId(), Date.valueOf(key.day()), key.categoryId(), key.type().name(), d.amount, d.count });
+            }
+        });
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_DAY_ROLLUP, args);
+        }
+    }
+
+    private void refreshDerived(Set<MonthKey> months) {
+        List<Object[]> monthArgs = new ArrayList<>(months.size());
+        List<Object[]> categoryArgs = new ArrayList<>(months.size());
+        for (MonthKey key : months) {
+            int days = YearMonth.parse(key.yearMonth()).lengthOfMonth();
+            monthArgs.add(new Object[] {
+                days, key.userId(), key.yearMonth(), key.userId(), key.yearMonth() });
+            categoryArgs.add(new Object[] { key.userId(), key.yearMonth() });
+        }
+        jdbcTemplate.batchUpdate(DELETE_EMPTY_CATEGORIES, categoryArgs);
+        jdbcTemplate.batchUpdate(REFRESH_MONTHLY_DERIVED, monthArgs);
+        jdbcTemplate.batchUpdate(REFRESH_CATEGORY_PERCENTAGES, categoryArgs);
+    }
+
+    private void upsertApplied(Collection<AppliedState> states) {
+        List<Object[]> args = new ArrayList<>(states.size());
+        for (AppliedState s : states) {
+            args.add(new Object[] {
+                s.transactionId(), s.userId(), s.yearMonth(), s.day() != null ? Date.valueOf(s.day()) : null,
+                s.categoryId(),
+                s.type() != null ? s.type().name() : null, s.amount(), s.deleted(),
+                s.sourceUpdatedAt() != null ? Timestamp.valueOf(s.sourceUpdatedAt()) : null });
+        }
+        jdbcTemplate.batchUpdate(UPSERT_APPLIED, args);
+    }
+}
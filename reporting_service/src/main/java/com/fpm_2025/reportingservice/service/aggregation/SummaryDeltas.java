@@ -0,0 +1,116 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.ExpenseDelta;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta đã gộp (coalesce) của một batch event: mỗi (userId, yearMonth), mỗi
+ * (userId, yearMonth, categoryId, type) và mỗi (userId, day, categoryId, type) chỉ còn một dòng,
+ * dù batch có bao nhiêu giao dịch.
+ *
+ * type nằm trong khóa danh mục vì giao dịch không danh mục đều có categoryId = 0 — INCOME và EXPENSE
+ * cùng tháng phải là hai dòng riêng.
+ */
+class SummaryDeltas {
+
+    record MonthKey(Long userId, String yearMonth) {}
+
+    record CategoryKey(Long userId, String yearMonth, Long categoryId, CategorySummaryType type) {}
+
+    record DayKey(Long userId, LocalDate day, Long categoryId, CategorySummaryType type) {}
+
+    static final class MonthDelta {
+        BigDecimal income = BigDecimal.ZERO;
+        BigDecimal expense = BigDecimal.ZERO;
+        int count;
+    }
+
+    static final class CategoryDelta {
+        final CategorySummaryType type;
+        BigDecimal amount = BigDecimal.ZERO;
+        int count;
+
+        CategoryDelta(CategorySummaryType type) {
+            this.type = type;
+        }
+    }
+
+    private final Map<MonthKey, MonthDelta> months = new LinkedHashMap<>();
+    private final Map<CategoryKey, CategoryDelta> categories = new LinkedHashMap<>();
+    private final Map<DayKey, CategoryDelta> days = new LinkedHashMap<>();
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) phần đóng góp của một giao dịch.
+     */
+    void add(AppliedState contribution, int sign) {
+        BigDecimal delta = sign > 0 ? contribution.amount() : contribution.amount().negate();
+
+        MonthDelta month = months.computeIfAbsent(
+            new MonthKey(contribution.userId(), contribution.yearMonth()), k -> new MonthDelta());
+        if (contribution.type() == CategorySummaryType.INCOME) {
+            month.income = month.income.add(delta);
+        } else {
+            month.expense = month.expense.add(delta);
+        }
+        month.count += sign;
+
+        CategoryDelta category = categories.computeIfAbsent(
+            new CategoryKey(contribution.userId(), contribution.yearMonth(), contribution.categoryId(),
+                contribution.type()),
+            k -> new CategoryDelta(contribution.type()));
+        category.amount = category.amount.add(delta);
+        category.count += sign;
+
+        if (contribution.day() != null) {
+            CategoryDelta day = days.computeIfAbsent(
+                new DayKey(contribution.userId(), contribution.day(), contribution.categoryId(), contribution.type()),
+                k -> new CategoryDelta(contribution.type()));
+            day.amount = day.amount.add(delta);
+            day.count += sign;
+        }
+    }
+
+    boolean isEmpty() {
+        return months.isEmpty();
+    }
+
+    Map<MonthKey, MonthDelta> months() {
+        return months;
+    }
+
+    Map<CategoryKey, CategoryDelta> categories() {
+        return categories;
+    }
+
+    Map<DayKey, CategoryDelta> days() {
+        return days;
+    }
+
+    /** Delta chi tiêu khác 0 theo (userId, yearMonth, categoryId) — đầu vào cho budget tracker. */
+    List<ExpenseDelta> expenseDeltas() {
+        List<ExpenseDelta> result = new ArrayList<>();
+        categories.forEach((key, delta) -> {
+            if (key.type() == CategorySummaryType.EXPENSE && delta.amount.signum() != 0) {
+                result.add(new ExpenseDelta(key.userId(), key.yearMonth(), key.categoryId(),
+                    MoneyUnits.toMinor(delta.amount)));
+            }
+        });
+        return result;
+    }
+
+    Set<Long> affectedUserIds() {
+        Set<Long> userIds = new HashSet<>();
+        months.keySet().forEach(k -> userIds.add(k.userId()));
+        return userIds;
+    }
+}
@@ -0,0 +1,330 @@
+package com.fpm_2025.reportingservice.service.budget;
+
+import com.fpm_2025.reportingservice.domain.model.Budget;
+import com.fpm_2025.reportingservice.domain.model.BudgetAlert;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.domain.valueobject.AlertThreshold;
+import com.fpm_2025.reportingservice.domain.valueobject.BudgetPeriod;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import com.fpm_2025.reportingservice.dto.BudgetAlertEvent;
+import com.fpm_2025.reportingservice.repository.BudgetAlertRepository;
+import com.fpm_2025.reportingservice.repository.BudgetRepository;
+import com.fpm_2025.reportingservice.repository.CategorySummaryRepository;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.ExpenseDelta;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Theo dõi mức dùng ngân sách trong bộ nhớ, cập nhật từ delta chi tiêu của các event transaction.*.
+ *
+ * - Mỗi (userId, categoryId, yearMonth) có budget MONTHLY đang active giữ một {@link TrackedBudget}
+ *   với mức dùng hiện tại (long, đơn vị nhỏ nhất). Lần đầu gặp key, mức dùng được nạp từ
+ *   category_summaries — bảng này commit cùng ledger nên không mất gì khi instance chết giữa hai lần flush.
+ * - Cảnh báo chỉ phát sinh khi mức dùng <em>vượt lên</em> một ngưỡng của {@link AlertThreshold}
+ *   (so sánh giá trị trước và sau); chỉ khi đó mới ghi budget_alerts và publish {@code budget.alerts}.
+ * - {@code amount_used} được ghi xuống DB theo lô mỗi {@code reporting.budget.tracker.flush-interval-ms}.
+ *
+ * Key không có budget được nhớ (negative entry) để event tiếp theo không query lại.
+ */
+@Slf4j
+@Service
+public class BudgetTracker {
+
+    private static final String TOPIC_BUDGET_ALERTS = "budget.alerts";
+
+    private static final String UPDATE_AMOUNT_USED =
+        "UPDATE budgets SET amount_used = ?, updated_at = ? WHERE id = ?";
+
+    record BudgetKey(Long userId, Long categoryId, String yearMonth) {}
+
+    static final class TrackedBudget {
+        final Long budgetId;
+        final String categoryName;
+        final long limitMinor;
+        long usedMinor;
+        long persistedMinor;
+        long touchedAt;
+
+        TrackedBudget(Long budgetId, String categoryName, long limitMinor, long usedMinor, long persistedMinor) {
+            this.budgetId = budgetId;
+            this.categoryName = categoryName;
+            this.limitMinor = limitMinor;
+            this.usedMinor = usedMinor;
+            this.persistedMinor = persistedMinor;
+            this.touchedAt = System.currentTimeMillis();
+        }
+
+        boolean exists() {
+            return budgetId != null;
+        }
+
+        boolean dirty() {
+            return exists() && usedMinor != persistedMinor;
+        }
+    }
+
+    private record Crossing(BudgetKey key, Long budgetId, String categoryName,
+                            long limitMinor, long usedMinor, int thresholdPercent) {}
+
+    private record PendingWrite(BudgetKey key, Long budgetId, long usedMinor) {}
+
+    private final BudgetRepository budgetRepository;
+    private final BudgetAlertRepository budgetAlertRepository;
+    private final CategorySummaryRepository categorySummaryRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCacheVersions userCacheVersions;
+
+    private final AlertThreshold threshold = AlertThreshold.defaultThreshold();
+    private final Map<BudgetKey, TrackedBudget> tracked = new ConcurrentHashMap<>();
+
+    @Value("${reporting.budget.tracker.idle-ttl:PT30M}")
+    private Duration idleTtl;
+
+    public BudgetTracker(BudgetRepository budgetRepository,
+                         BudgetAlertRepository budgetAlertRepository,
+                         CategorySummaryRepository categorySummaryRepository,
+                         KafkaTemplate<String, Object> kafkaTemplate,
+                         JdbcTemplate jdbcTemplate,
+                         UserCacheVersions userCacheVersions) {
+        this.budgetRepository = budgetRepository;
+        this.budgetAlertRepository = budgetAlertRepository;
+        this.categorySummaryRepository = categorySummaryRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userCacheVersions = userCacheVersions;
+    }
+
+    /**
+     * Áp dụng delta chi tiêu của một batch đã commit vào category_summaries.
+     */
+    public void onExpenseDeltas(Collection<ExpenseDelta> deltas) {
+        List<Crossing> crossings = new ArrayList<>();
+        for (ExpenseDelta delta : deltas) {
+            BudgetKey key = new BudgetKey(delta.userId(), delta.categoryId(), delta.yearMonth());
+            long[] usage = new long[2]; // {trước, sau}
+            TrackedBudget entry = tracked.compute(key, (k, current) -> {
+                if (current == null) {
+                    // category_summaries đã gồm delta của batch này
+                    TrackedBudget loaded = load(k);
+                    usage[0] = loaded.usedMinor - delta.amountMinor();
+                    usage[1] = loaded.usedMinor;
+                    return loaded;
+                }
+                synchronized (current) {
+                    usage[0] = current.usedMinor;
+                    current.usedMinor += delta.amountMinor();
+                    usage[1] = current.usedMinor;
+                    current.touchedAt = System.currentTimeMillis();
+                }
+                return current;
+            });
+            collectCrossing(key, entry, usage[0], usage[1], crossings);
+        }
+        crossings.forEach(this::publishAlert);
+    }
+
+    /**
+     * Cộng thêm một khoản vào mức dùng của budget (điều chỉnh thủ công).
+     */
+    public void adjust(Budget budget, long deltaMinor) {
+        update(budget, current -> current + deltaMinor);
+    }
+
+    /**
+     * Đặt lại mức dùng tuyệt đối (tính lại từ nguồn khác). Vẫn chỉ cảnh báo nếu vượt ngưỡng.
+     */
+    public void reset(Budget budget, long usedMinor) {
+        update(budget, current -> usedMinor);
+    }
+
+    /**
+     * Bỏ trạng thái của key (budget vừa tạo/sửa/xóa). Nếu đang trong transaction thì chờ commit —
+     * tránh nạp lại bản chưa commit hoặc nhớ "không có budget" cho budget sắp được tạo.
+     */
+    public void invalidate(Long userId, Long categoryId, String yearMonth) {
+        BudgetKey key = new BudgetKey(userId, categoryId, yearMonth);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        } else {
+            evict(key);
+        }
+    }
+
+    /**
+     * Ghi {@code amount_used} của các budget có thay đổi xuống DB trong một JDBC batch,
+     * đồng thời dọn các entry lâu không dùng.
+     */
+    @Scheduled(fixedDelayString = "${reporting.budget.tracker.flush-interval-ms:5000}")
+    public void flush() {
+        List<PendingWrite> writes = new ArrayList<>();
+        long idleBefore = System.currentTimeMillis() - idleTtl.toMillis();
+        String oldestKeptMonth = YearMonth.now().minusMonths(1).toString();
+
+        tracked.forEach((key, entry) -> {
+            synchronized (entry) {
+                if (entry.dirty()) {
+                    writes.add(new PendingWrite(key, entry.budgetId, entry.usedMinor));
+                }
+            }
+        });
+        if (!writes.isEmpty()) {
+            write(writes);
+        }
+
+        tracked.entrySet().removeIf(e -> {
+            TrackedBudget entry = e.getValue();
+            synchronized (entry) {
+                return !entry.dirty()
+                    && (entry.touchedAt < idleBefore || e.getKey().yearMonth().compareTo(oldestKeptMonth) < 0);
+            }
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    // ==================== Private Methods ====================
+
+    private interface UsageUpdate {
+        long apply(long current);
+    }
+
+    private void update(Budget budget, UsageUpdate update) {
+        BudgetKey key = new BudgetKey(budget.getUserId(), budget.getCategoryId(), budget.getYearMonth());
+        long[] usage = new long[2]; // {trước, sau}
+        TrackedBudget entry = tracked.compute(key, (k, current) -> {
+            TrackedBudget target = current != null ? current : load(k);
+            synchronized (target) {
+                usage[0] = target.usedMinor;
+                target.usedMinor = update.apply(target.usedMinor);
+                usage[1] = target.usedMinor;
+                target.touchedAt = System.currentTimeMillis();
+            }
+            return target;
+        });
+        List<Crossing> crossings = new ArrayList<>(1);
+        collectCrossing(key, entry, usage[0], usage[1], crossings);
+        crossings.forEach(this::publishAlert);
+    }
+
+    private TrackedBudget load(BudgetKey key) {
+        Budget budget = budgetRepository
+            .findByUserIdAndCategoryIdAndYearMonth(key.userId(), key.categoryId(), key.yearMonth())
+            .filter(b -> Boolean.TRUE.equals(b.getIsActive()) && b.getPeriod() == BudgetPeriod.MONTHLY)
+            .orElse(null);
+        if (budget == null) {
+            return new TrackedBudget(null, null, 0L, 0L, 0L);
+        }
+        long used = categorySummaryRepository
+            .findByUserIdAndCategoryIdAndYearMonthAndType(
+                key.userId(), key.categoryId(), key.yearMonth(), CategorySummaryType.EXPENSE)
+            .map(cs -> MoneyUnits.toMinor(cs.getTotalAmount()))
+            .orElse(0L);
+        return new TrackedBudget(budget.getId(), budget.getCategoryName(),
+            MoneyUnits.toMinor(budget.getAmountLimit()), used, MoneyUnits.toMinor(budget.getAmountUsed()));
+    }
+
+    private void collectCrossing(BudgetKey key, TrackedBudget entry, long previous, long used, List<Crossing> out) {
+        if (!entry.exists()) {
+            return;
+        }
+        Integer crossed = threshold.highestCrossing(previous, used, entry.limitMinor);
+        if (crossed != null) {
+            out.add(new Crossing(key, entry.budgetId, entry.categoryName, entry.limitMinor, used, crossed));
+        }
+    }
+
+    private void publishAlert(Crossing crossing) {
+        try {
+            BudgetAlert alert = BudgetAlert.builder()
+                .budgetId(crossing.budgetId())
+                .userId(crossing.key().userId())
+                .categoryName(crossing.categoryName())
+                .thresholdPercent(crossing.thresholdPercent())
+                .amountLimit(MoneyUnits.fromMinor(crossing.limitMinor()))
+                .amountUsed(MoneyUnits.fromMinor(crossing.usedMinor()))
+                .isRead(false)
+                .build();
+            budgetAlertRepository.save(alert);
+
+            BudgetAlertEvent event = BudgetAlertEvent.builder()
+                .userId(crossing.key().userId())
+                .budgetId(crossing.budgetId())
+                .categoryName(crossing.categoryName())
+                .thresholdPercent(crossing.thresholdPercent())
+                .amountLimit(alert.getAmountLimit())
+                .amountUsed(alert.getAmountUsed())
+                .triggeredAt(LocalDateTime.now())
+                .build();
+            kafkaTemplate.send(TOPIC_BUDGET_ALERTS, String.valueOf(crossing.key().userId()), event);
+
+            log.warn("Budget alert: budgetId={}, category={}, crossed {}%, used={}/{}",
+                crossing.budgetId(), crossing.categoryName(), crossing.thresholdPercent(),
+                alert.getAmountUsed(), alert.getAmountLimit());
+        } catch (Exception e) {
+            log.error("Failed to publish budget alert for budgetId={}", crossing.budgetId(), e);
+        }
+    }
+
+    private void write(List<PendingWrite> writes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(writes.size());
+        for (PendingWrite w : writes) {
+            args.add(new Object[] {MoneyUnits.fromMinor(w.usedMinor()), now, w.budgetId()});
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_AMOUNT_USED, args);
+        } catch (Exception e) {
+            log.error("Budget tracker flush failed for {} budgets, will retry", writes.size(), e);
+            return;
+        }
+
+        Set<Long> userIds = new HashSet<>();
+        for (PendingWrite w : writes) {
+            userIds.add(w.key().userId());
+            TrackedBudget entry = tracked.get(w.key());
+            if (entry != null && w.budgetId().equals(entry.budgetId)) {
+                synchronized (entry) {
+                    entry.persistedMinor = w.usedMinor();
+                }
+            }
+        }
+        userCacheVersions.bumpAll(userIds);
+        log.debug("Budget tracker flushed {} budgets", writes.size());
+    }
+
+    private void evict(BudgetKey key) {
+        TrackedBudget removed = tracked.remove(key);
+        if (removed != null && removed.dirty()) {
+            write(List.of(new PendingWrite(key, removed.budgetId, removed.usedMinor)));
+        }
+    }
+}
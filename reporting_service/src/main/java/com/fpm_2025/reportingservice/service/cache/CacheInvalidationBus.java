@@ -0,0 +1,76 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Kênh Redis pub/sub giữ L1 (Caffeine) của các instance đồng bộ với nhau.
+ *
+ * Message: {@code <instanceId>|<type>|<payload>} — message do chính instance này gửi bị bỏ qua.
+ * Pub/sub không đảm bảo giao nhận (mất khi reconnect), nên L1 luôn có TTL ngắn làm lưới an toàn.
+ */
+@Slf4j
+@Component
+public class CacheInvalidationBus implements MessageListener {
+
+    public static final String TYPE_USER_VERSION = "v";
+    public static final String TYPE_EVICT = "e";
+    public static final String TYPE_CLEAR = "c";
+
+    @FunctionalInterface
+    public interface Listener {
+        void onInvalidation(String type, String payload);
+    }
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final StringRedisTemplate redisTemplate;
+    private final String channel;
+
+    public CacheInvalidationBus(StringRedisTemplate redisTemplate,
+                                @Value("${reporting.cache.invalidation-channel:reporting:cache-invalidation}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.channel = channel;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void publish(String type, String payload) {
+        try {
+            redisTemplate.convertAndSend(channel, instanceId + "|" + type + "|" + payload);
+        } catch (Exception e) {
+            // Instance khác sẽ tự hết hạn L1 theo TTL
+            log.warn("Cache invalidation publish failed ({} {}): {}", type, payload, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || instanceId.equals(parts[0])) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onInvalidation(parts[1], parts[2]);
+            } catch (Exception e) {
+                log.warn("Cache invalidation listener failed for {} {}", parts[1], parts[2], e);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import com.fpm_2025.reportingservice.dto.request.DashboardRequest;
+import com.fpm_2025.reportingservice.service.DashboardService;
+import com.fpm_2025.reportingservice.service.ReportingService;
+import com.fpm_2025.reportingservice.service.dashboard.DashboardComposer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Làm nóng cache cho user đang hoạt động quanh thời điểm sang tháng, để lần mở dashboard đầu tiên
+ * của tháng mới không rơi vào đường cold (gRPC stream sang transaction-service).
+ *
+ * User hoạt động: có dòng monthly_summaries của hai tháng liền trước tháng đích được cập nhật trong
+ * {@code reporting.warmup.active-within}; duyệt theo user_id (keyset) từng trang.
+ *
+ * Hai lượt, giờ thấp điểm:
+ * - Trước khi sang tháng ({@code reporting.warmup.pre-rollover-cron}, mặc định 22:30 ngày cuối tháng):
+ *   các key có tháng tường minh của tháng tới — dashboard, thống kê tháng, chi tiêu theo danh mục,
+ *   so sánh ngân sách.
+ * - Ngay sau khi sang tháng ({@code reporting.warmup.post-rollover-cron}, mặc định 00:05 ngày 1):
+ *   các key phụ thuộc {@code YearMonth.now()} (dashboard summary, trends) không tính trước được,
+ *   cùng các key tháng ở trên (đã nóng thì chỉ là cache hit).
+ *
+ * TTL thường của cache ({@code reporting.cache.ttl}, mặc định 30 phút) hết trước giờ cao điểm buổi sáng, nên
+ * entry L2 do hai lượt này ghi dùng {@code reporting.warmup.entry-ttl} (mặc định 14 giờ, {@link WarmUpTtl}) —
+ * phải phủ từ lúc chạy lượt tới hết giờ cao điểm. L1 chỉ sống {@code reporting.cache.l1-ttl}; request đầu
+ * tiên trên mỗi instance là L2 hit rồi nạp lại L1. Entry vẫn bị bỏ qua ngay khi user phát sinh thay đổi
+ * (version của user tăng). Key đã có sẵn trong L2 từ request thường chỉ là cache hit và giữ TTL cũ.
+ *
+ * Giới hạn {@code reporting.warmup.users-per-second} và dừng khi chạy quá {@code reporting.warmup.max-duration}
+ * để không lấn sang giờ cao điểm. Chạy trên thread riêng, không giữ thread của scheduler.
+ * Metrics: reporting.cache.warmup.users (tag result), reporting.cache.warmup.duration (tag phase).
+ */
+@Slf4j
+@Component
+public class CacheWarmUpJob {
+
+    private static final String ACTIVE_USERS = """
+        SELECT DISTINCT user_id FROM monthly_summaries
+        WHERE `year_month` IN (?, ?) AND updated_at >= ? AND user_id > ?
+        ORDER BY user_id
+        LIMIT ?
+        """;
+
+    /** Số tháng mặc định của biểu đồ trends ({@code GET /api/v1/reports/trends}). */
+    private static final int DEFAULT_TREND_MONTHS = 6;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReportingService reportingService;
+    private final DashboardService dashboardService;
+    private final DashboardComposer dashboardComposer;
+    private final MeterRegistry meterRegistry;
+    private final Counter warmed;
+    private final Counter failed;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("cache-warmup").daemon(true).factory());
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${reporting.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reporting.warmup.active-within:P30D}")
+    private Duration activeWithin;
+
+    @Value("${reporting.warmup.users-per-second:20}")
+    private double usersPerSecond;
+
+    @Value("${reporting.warmup.page-size:500}")
+    private int pageSize;
+
+    @Value("${reporting.warmup.max-duration:PT3H}")
+    private Duration maxDuration;
+
+    @Value("${reporting.warmup.entry-ttl:PT14H}")
+    private Duration entryTtl;
+
+    public CacheWarmUpJob(JdbcTemplate jdbcTemplate,
+                          ReportingService reportingService,
+                          DashboardService dashboardService,
+                          DashboardComposer dashboardComposer,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.reportingService = reportingService;
+        this.dashboardService = dashboardService;
+        this.dashboardComposer = dashboardComposer;
+        this.meterRegistry = meterRegistry;
+        this.warmed = Counter.builder("reporting.cache.warmup.users").tag("result", "ok").register(meterRegistry);
+        this.failed = Counter.builder("reporting.cache.warmup.users").tag("result", "failed").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+    }
+
+    @Scheduled(cron = "${reporting.warmup.pre-rollover-cron:0 30 22 L * *}")
+    public void beforeRollover() {
+        YearMonth next = YearMonth.now().plusMonths(1);
+        submit("pre-rollover", next, false);
+    }
+
+    @Scheduled(cron = "${reporting.warmup.post-rollover-cron:0 5 0 1 * *}")
+    public void afterRollover() {
+        submit("post-rollover", YearMonth.now(), true);
+    }
+
+    private void submit(String phase, YearMonth target, boolean includeRolling) {
+        if (!enabled) {
+            return;
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Cache warm-up {} skipped: previous run still in progress", phase);
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                run(phase, target, includeRolling);
+            } catch (Exception e) {
+                log.error("Cache warm-up {} failed", phase, e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    void run(String phase, YearMonth target, boolean includeRolling) throws InterruptedException {
+        // Tháng đích chưa có dữ liệu: user hoạt động là user có summary ở hai tháng liền trước nó
+        YearMonth lastMonth = target.minusMonths(1);
+        Timestamp activeSince = Timestamp.valueOf(LocalDateTime.now().minus(activeWithin));
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(usersPerSecond, 0.001));
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        long startedAt = System.nanoTime();
+        long nextSlot = startedAt;
+        long afterUserId = 0L;
+        int users = 0;
+
+        log.info("Cache warm-up {} for {}: users active since {}", phase, target, activeSince);
+        outer:
+        while (true) {
+            List<Long> page = jdbcTemplate.queryForList(ACTIVE_USERS, Long.class,
+                lastMonth.toString(), lastMonth.minusMonths(1).toString(), activeSince, afterUserId, pageSize);
+            for (Long userId : page) {
+                if (System.nanoTime() - deadline > 0) {
+                    log.warn("Cache warm-up {} stopped after {}: {} users warmed", phase, maxDuration, users);
+                    break outer;
+                }
+                long wait = nextSlot - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                nextSlot = Math.max(nextSlot, System.nanoTime()) + intervalNanos;
+
+                WarmUpTtl.apply(entryTtl, () -> warm(userId, target, includeRolling));
+                afterUserId = userId;
+                users++;
+            }
+            if (page.size() < pageSize) {
+                break;
+            }
+        }
+
+        long elapsed = System.nanoTime() - startedAt;
+        Timer.builder("reporting.cache.warmup.duration").tag("phase", phase)
+            .register(meterRegistry).record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("Cache warm-up {} for {} finished: {} users in {} s", phase, target, users,
+            TimeUnit.NANOSECONDS.toSeconds(elapsed));
+    }
+
+    /**
+     * Gọi qua proxy các phương thức {@code @Cacheable}: key đã nóng chỉ là cache hit,
+     * key còn thiếu được tính và ghi vào L1/L2 như một request thật (L2 với TTL của lượt làm nóng).
+     */
+    private void warm(Long userId, YearMonth month, boolean includeRolling) {
+        String yearMonth = month.toString();
+        try {
+            reportingService.getMonthlyStatistics(userId, yearMonth);
+            dashboardService.getDashboard(DashboardRequest.builder().userId(userId).yearMonth(yearMonth).build());
+            reportingService.getSpendingByCategory(userId, yearMonth, "EXPENSE");
+            reportingService.getBudgetComparison(userId, yearMonth);
+            if (includeRolling) {
+                dashboardComposer.getDashboardSummary(userId);
+                reportingService.getMonthlyTrends(userId, DEFAULT_TREND_MONTHS);
+            }
+            warmed.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.debug("Cache warm-up failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+/**
+ * Kết quả được compose từ nhiều nguồn, có thể thiếu nguồn khi lỗi/timeout.
+ * {@link TwoLevelCache} không ghi cache kết quả thiếu — tương đương {@code unless} của
+ * {@code @Cacheable}, vốn không dùng được cùng {@code sync = true}.
+ */
+public interface PartialResult {
+
+    boolean hasUnavailableSources();
+}
@@ -0,0 +1,247 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Cache hai tầng: L1 Caffeine trên heap, L2 Redis dùng chung giữa các instance.
+ *
+ * - get: L1 → L2 (hit thì nạp lại L1) → loader.
+ * - put: ghi L2 rồi L1. Không broadcast: key có version theo user nên cùng key luôn cùng nội dung.
+ * - evict/clear: xóa cả hai tầng và broadcast để instance khác xóa L1.
+ *
+ * {@code @Cacheable(sync = true)} đi qua {@link #get(Object, Callable)}, có thêm:
+ * - Single-flight: các miss đồng thời cho cùng key trong instance chờ chung một lần load
+ *   (registry {@link CompletableFuture} theo key) thay vì cùng gọi sang transaction-service.
+ * - Stale-while-revalidate ({@code reporting.cache.<name>.stale-while-revalidate}, mặc định tắt):
+ *   entry L1 quá TTL nhưng còn trong cửa sổ stale được trả ngay, đồng thời một lần load nền làm mới.
+ *   Loader chạy trên thread khác nên phương thức được cache không được dựa vào thread-local của request.
+ * - Kết quả {@link PartialResult} chưa đầy đủ được trả cho mọi caller đang chờ nhưng không được ghi cache.
+ *
+ * Key phải là String (key từ {@link UserCacheVersions#key}) để gửi được qua pub/sub.
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    /** Giá trị L1 kèm mốc hết "tươi"; Caffeine giữ entry thêm cửa sổ stale sau mốc này. */
+    record L1Entry(Object storeValue, long freshUntilNanos) {
+        boolean isFresh() {
+            return System.nanoTime() - freshUntilNanos < 0;
+        }
+    }
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, L1Entry> l1;
+    private final Cache l2;
+    private final CacheInvalidationBus invalidationBus;
+    private final long l1TtlNanos;
+    private final boolean staleWhileRevalidate;
+    private final Executor refreshExecutor;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter staleHits;
+    private final Counter loads;
+    private final Counter coalesced;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<Object, L1Entry> l1,
+                         Duration l1Ttl,
+                         Duration staleWindow,
+                         Cache l2,
+                         CacheInvalidationBus invalidationBus,
+                         Executor refreshExecutor,
+                         MeterRegistry meterRegistry) {
+        super(true);
+        this.name = name;
+        this.l1 = l1;
+        this.l1TtlNanos = l1Ttl.toNanos();
+        this.staleWhileRevalidate = !staleWindow.isZero() && !staleWindow.isNegative();
+        this.l2 = l2;
+        this.invalidationBus = invalidationBus;
+        this.refreshExecutor = refreshExecutor;
+        this.l1Hits = counter(meterRegistry, "l1", "hit");
+        this.l1Misses = counter(meterRegistry, "l1", "miss");
+        this.l2Hits = counter(meterRegistry, "l2", "hit");
+        this.l2Misses = counter(meterRegistry, "l2", "miss");
+        this.staleHits = counter(meterRegistry, "l1", "stale");
+        this.loads = loadCounter(meterRegistry, "leader");
+        this.coalesced = loadCounter(meterRegistry, "coalesced");
+    }
+
+    private Counter counter(MeterRegistry registry, String tier, String result) {
+        return Counter.builder("reporting.cache.requests")
+            .tag("cache", name)
+            .tag("tier", tier)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private Counter loadCounter(MeterRegistry registry, String role) {
+        return Counter.builder("reporting.cache.loads")
+            .tag("cache", name)
+            .tag("role", role)
+            .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return l1;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        L1Entry entry = l1.getIfPresent(key);
+        if (entry != null && entry.isFresh()) {
+            l1Hits.increment();
+            return entry.storeValue();
+        }
+        l1Misses.increment();
+        return lookupL2(key);
+    }
+
+    private Object lookupL2(Object key) {
+        ValueWrapper wrapper = l2.get(key);
+        if (wrapper == null) {
+            l2Misses.increment();
+            return null;
+        }
+        l2Hits.increment();
+        Object storeValue = toStoreValue(wrapper.get());
+        putL1(key, storeValue);
+        return storeValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        L1Entry entry = l1.getIfPresent(key);
+        if (entry != null && entry.isFresh()) {
+            l1Hits.increment();
+            return (T) fromStoreValue(entry.storeValue());
+        }
+        if (entry != null && staleWhileRevalidate) {
+            staleHits.increment();
+            refreshAsync(key, valueLoader);
+            return (T) fromStoreValue(entry.storeValue());
+        }
+        l1Misses.increment();
+        return (T) fromStoreValue(load(key, valueLoader));
+    }
+
+    /**
+     * L2 → loader, chỉ một lần cho mỗi key đang load; caller đến sau chờ kết quả của lần đó.
+     *
+     * @return store value (null được biểu diễn bằng NullValue)
+     */
+    private Object load(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+
+        loads.increment();
+        try {
+            Object storeValue = lookupL2(key);
+            if (storeValue == null) {
+                Object value;
+                try {
+                    value = valueLoader.call();
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                storeValue = toStoreValue(value);
+                if (value instanceof PartialResult partial && partial.hasUnavailableSources()) {
+                    log.debug("Cache '{}': partial result for key {} not cached", name, key);
+                } else {
+                    l2.put(key, value);
+                    putL1(key, storeValue);
+                }
+            }
+            mine.complete(storeValue);
+            return storeValue;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e instanceof ValueRetrievalException && e.getCause() != null ? e.getCause() : e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private void refreshAsync(Object key, Callable<?> valueLoader) {
+        if (inFlight.containsKey(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(key, valueLoader);
+                } catch (RuntimeException e) {
+                    log.warn("Cache '{}': background refresh of {} failed: {}", name, key, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Hàng đợi refresh đầy — entry stale vẫn được phục vụ, lần truy cập sau thử lại
+            log.debug("Cache '{}': refresh of {} rejected", name, key);
+        }
+    }
+
+    private void putL1(Object key, Object storeValue) {
+        l1.put(key, new L1Entry(storeValue, System.nanoTime() + l1TtlNanos));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        l2.put(key, value);
+        putL1(key, toStoreValue(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        l2.evict(key);
+        l1.invalidate(key);
+        invalidationBus.publish(CacheInvalidationBus.TYPE_EVICT, name + "|" + key);
+    }
+
+    @Override
+    public void clear() {
+        l2.clear();
+        l1.invalidateAll();
+        invalidationBus.publish(CacheInvalidationBus.TYPE_CLEAR, name);
+    }
+
+    /** Xóa L1 theo message từ instance khác (L2 đã được instance gửi xóa). */
+    void evictLocal(String key) {
+        l1.invalidate(key);
+    }
+
+    void clearLocal() {
+        l1.invalidateAll();
+    }
+}
@@ -0,0 +1,108 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.env.Environment;
+import org.springframework.data.redis.cache.RedisCacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CacheManager ghép L1 Caffeine trước L2 Redis cho từng cache.
+ *
+ * Cấu hình theo cache (mặc định lấy từ {@code reporting.cache.*}):
+ * {@code reporting.cache.<name>.l1-max-size}, {@code reporting.cache.<name>.l1-ttl},
+ * {@code reporting.cache.<name>.stale-while-revalidate}.
+ * TTL của L2 nằm trong cấu hình RedisCacheManager ({@code reporting.cache.<name>.ttl}).
+ * Refresh nền (stale-while-revalidate) của mọi cache dùng chung một pool nhỏ
+ * ({@code reporting.cache.refresh-threads}); pool đầy thì bỏ qua lượt refresh.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final RedisCacheManager redisCacheManager;
+    private final CacheInvalidationBus invalidationBus;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refreshExecutor;
+
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager,
+                                CacheInvalidationBus invalidationBus,
+                                MeterRegistry meterRegistry,
+                                Environment environment) {
+        this.redisCacheManager = redisCacheManager;
+        this.invalidationBus = invalidationBus;
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        int refreshThreads = environment.getProperty("reporting.cache.refresh-threads", Integer.class, 4);
+        this.refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1_000),
+            Thread.ofPlatform().name("cache-refresh-", 0).daemon(true).factory(),
+            new ThreadPoolExecutor.AbortPolicy());
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+        invalidationBus.addListener(this::onInvalidation);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        long maxSize = environment.getProperty("reporting.cache." + name + ".l1-max-size", Long.class,
+            environment.getProperty("reporting.cache.l1-max-size", Long.class, 1_000L));
+        Duration ttl = environment.getProperty("reporting.cache." + name + ".l1-ttl", Duration.class,
+            environment.getProperty("reporting.cache.l1-ttl", Duration.class, Duration.ofMinutes(1)));
+        Duration staleWindow = environment.getProperty("reporting.cache." + name + ".stale-while-revalidate",
+            Duration.class, environment.getProperty("reporting.cache.stale-while-revalidate", Duration.class,
+                Duration.ZERO));
+
+        // Entry quá TTL còn được giữ thêm cửa sổ stale; TwoLevelCache tự phân biệt tươi/stale
+        com.github.benmanes.caffeine.cache.Cache<Object, TwoLevelCache.L1Entry> l1 = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl.plus(staleWindow))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, name, "tier", "l1");
+
+        log.info("Cache '{}': L1 max {} entries / {} TTL (+{} stale), L2 Redis", name, maxSize, ttl, staleWindow);
+        return new TwoLevelCache(name, l1, ttl, staleWindow, redisCacheManager.getCache(name),
+            invalidationBus, refreshExecutor, meterRegistry);
+    }
+
+    private void onInvalidation(String type, String payload) {
+        switch (type) {
+            case CacheInvalidationBus.TYPE_EVICT -> {
+                String[] parts = payload.split("\\|", 2);
+                TwoLevelCache cache = caches.get(parts[0]);
+                if (cache != null && parts.length == 2) {
+                    cache.evictLocal(parts[1]);
+                }
+            }
+            case CacheInvalidationBus.TYPE_CLEAR -> {
+                TwoLevelCache cache = caches.get(payload);
+                if (cache != null) {
+                    cache.clearLocal();
+                }
+            }
+            default -> { }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Version stamp theo user cho mọi cache của reporting-service.
+ *
+ * Key cache được tạo qua {@link #key(Long, Object...)} và chứa version hiện tại của user
+ * ({@code userId:v<version>:...}). Khi dữ liệu của user thay đổi chỉ cần {@link #bump(Long)}:
+ * các entry cũ không còn được tra tới và tự hết hạn theo TTL, cache của user khác không bị đụng.
+ *
+ * Version lưu trong Redis ({@code INCR}) nên mọi instance thấy cùng một giá trị. Mỗi instance giữ
+ * bản sao version trên heap để cache hit ở L1 không cần round-trip Redis; bump được broadcast qua
+ * {@link CacheInvalidationBus}, TTL {@code reporting.cache.version-ttl} chặn trên độ trễ nếu mất message.
+ *
+ * Dùng trong SpEL: {@code key = "@userCacheVersions.key(#userId, #yearMonth)"}.
+ * Cũng là nguồn ETag cho conditional GET ({@link #etag(Long, Object...)}).
+ */
+@Slf4j
+@Component("userCacheVersions")
+public class UserCacheVersions {
+
+    private static final String VERSION_KEY_PREFIX = "reporting:cache-version:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final CacheInvalidationBus invalidationBus;
+    private final Cache<Long, Long> localVersions;
+
+    public UserCacheVersions(StringRedisTemplate redisTemplate,
+                             CacheInvalidationBus invalidationBus,
+                             @Value("${reporting.cache.version-ttl:PT5S}") Duration versionTtl) {
+        this.redisTemplate = redisTemplate;
+        this.invalidationBus = invalidationBus;
+        this.localVersions = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(versionTtl)
+            .build();
+        invalidationBus.addListener(this::onInvalidation);
+    }
+
+    public long current(Long userId) {
+        return localVersions.get(userId, this::fetch);
+    }
+
+    /**
+     * Cache key có version: {@code <userId>:v<version>[:part...]}.
+     */
+    public String key(Long userId, Object... parts) {
+        StringBuilder sb = new StringBuilder()
+            .append(userId).append(":v").append(current(userId));
+        for (Object part : parts) {
+            sb.append(':').append(part);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Strong ETag cho response chỉ phụ thuộc dữ liệu của user và {@code parts}: đổi khi version bị bump.
+     * Tính được mà không cần dựng response — request có {@code If-None-Match} khớp trả 304 ngay.
+     */
+    public String etag(Long userId, Object... parts) {
+        return '"' + key(userId, parts) + '"';
+    }
+
+    /**
+     * Vô hiệu toàn bộ cache của user. Nếu đang trong transaction thì chờ commit xong mới bump —
+     * tránh request song song kịp nạp lại cache bằng dữ liệu chưa commit dưới version mới.
+     */
+    public void bump(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpAll(List.of(userId));
+                }
+            });
+        } else {
+            bumpAll(List.of(userId));
+        }
+    }
+
+    /**
+     * Bump nhiều user trong một round-trip (pipeline). Gọi sau khi dữ liệu đã commit.
+     */
+    public void bumpAll(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Long userId : userIds) {
+                connection.stringCommands().incr((VERSION_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        localVersions.invalidateAll(userIds);
+        invalidationBus.publish(CacheInvalidationBus.TYPE_USER_VERSION,
+            userIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        log.debug("Cache versions bumped for {} users", userIds.size());
+    }
+
+    private long fetch(Long userId) {
+        String value = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + userId);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    private void onInvalidation(String type, String payload) {
+        if (!CacheInvalidationBus.TYPE_USER_VERSION.equals(type)) {
+            return;
+        }
+        for (String id : payload.split(",")) {
+            localVersions.invalidate(Long.valueOf(id));
+        }
+    }
+}
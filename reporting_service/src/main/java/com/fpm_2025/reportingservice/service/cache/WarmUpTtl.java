@@ -0,0 +1,39 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+
+/**
+ * TTL của entry L2 (Redis) ghi trong lượt làm nóng cache.
+ *
+ * Entry ghi từ request thường dùng TTL của cache ({@code reporting.cache.<name>.ttl}); entry được tính
+ * và ghi trong {@link #apply} — trên thread của {@link CacheWarmUpJob} — dùng TTL của lượt làm nóng, đủ dài để
+ * còn tới giờ cao điểm. Key có version theo user nên TTL dài không làm trả dữ liệu cũ, chỉ giữ entry
+ * lâu hơn trong Redis.
+ */
+public final class WarmUpTtl {
+
+    private static final ThreadLocal<Duration> CURRENT = new ThreadLocal<>();
+
+    private WarmUpTtl() {
+    }
+
+    /** Chạy {@code task}; mọi entry L2 nó ghi trên thread hiện tại có TTL {@code ttl}. */
+    static void apply(Duration ttl, Runnable task) {
+        CURRENT.set(ttl);
+        try {
+            task.run();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /** TTL cho RedisCacheConfiguration: TTL của lượt làm nóng nếu đang trong {@link #apply}, ngược lại {@code ttl}. */
+    public static RedisCacheWriter.TtlFunction orDefault(Duration ttl) {
+        return (key, value) -> {
+            Duration warmUp = CURRENT.get();
+            return warmUp != null ? warmUp : ttl;
+        };
+    }
+}
@@ -0,0 +1,161 @@
+package com.fpm_2025.reportingservice.service.cube;
+
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import com.fpm_2025.reportingservice.dto.TransactionEventDto;
+import com.fpm_2025.reportingservice.service.TransactionGrpcClient;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.EventType;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.TransactionEvent;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Analytics cube theo user trong bộ nhớ — mọi lát cắt (danh mục × tháng, ví × tuần, ...) là một lượt
+ * quét mảng nguyên thủy thay vì một round-trip DB/gRPC.
+ *
+ * - Dựng lười khi truy vấn đầu tiên: stream giao dịch {@code reporting.cube.window-months} tháng gần nhất
+ *   (tới {@code reporting.cube.future-days} ngày sau hôm nay) từ transaction-service.
+ * - Giữ trong Caffeine, LRU theo dung lượng ước lượng ({@code reporting.cube.max-bytes}) và hết hạn khi
+ *   không dùng ({@code reporting.cube.idle-ttl}).
+ * - Patch từ event transaction.* sau khi batch đã commit; cube ghi lại version cache của user
+ *   ({@link UserCacheVersions}). Version đổi mà cube không được patch (event xử lý ở instance khác,
+ *   budget thay đổi...) → dựng lại ở lần truy vấn kế tiếp.
+ *
+ * Truy vấn ngoài cửa sổ, hoặc khi không dựng được cube (gRPC lỗi / user chưa có giao dịch),
+ * trả {@code Optional.empty()} để caller fallback về đường cũ.
+ */
+@Slf4j
+@Service
+public class AnalyticsCubeService {
+
+    private final TransactionGrpcClient transactionClient;
+    private final UserCacheVersions userCacheVersions;
+    private final Cache<Long, UserCube> cubes;
+
+    @Value("${reporting.cube.window-months:24}")
+    private int windowMonths;
+
+    @Value("${reporting.cube.future-days:366}")
+    private int futureDays;
+
+    public AnalyticsCubeService(TransactionGrpcClient transactionClient,
+                                UserCacheVersions userCacheVersions,
+                                @Value("${reporting.cube.max-bytes:268435456}") long maxBytes,
+                                @Value("${reporting.cube.idle-ttl:PT1H}") Duration idleTtl) {
+        this.transactionClient = transactionClient;
+        this.userCacheVersions = userCacheVersions;
+        this.cubes = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Long userId, UserCube cube) -> cube.estimatedBytes())
+            .expireAfterAccess(idleTtl)
+            .build();
+    }
+
+    public Optional<List<TransactionAggregate>> slice(Long userId, CubeQuery query) {
+        LocalDate from = query.getFrom() != null ? query.getFrom() : windowStart();
+        LocalDate to = query.getTo() != null ? query.getTo() : LocalDate.now();
+        if (!from.isAfter(to) && !from.isBefore(windowStart())) {
+            UserCube cube = cube(userId);
+            if (cube != null && cube.covers(from, to)) {
+                return Optional.of(cube.slice(query));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Patch các cube đang nạp từ một batch event đã commit. Gọi sau {@link UserCacheVersions#bumpAll}
+     * để version mới nhất được ghi vào cube.
+     */
+    public void onEvents(List<TransactionEvent> events) {
+        Set<Long> patched = new HashSet<>();
+        for (TransactionEvent event : events) {
+            TransactionEventDto e = event.payload();
+            if (e.getId() == null || e.getUserId() == null) {
+                continue;
+            }
+            UserCube cube = cubes.getIfPresent(e.getUserId());
+            if (cube == null) {
+                continue;
+            }
+            if (event.type() == EventType.DELETED) {
+                // Xóa là trạng thái cuối — event cũ đến sau không được thêm lại
+                cube.remove(e.getId(), Long.MAX_VALUE);
+            } else if (e.getTransactionDate() != null && e.getAmount() != null) {
+                cube.upsert(e.getId(), e.getTransactionDate().toLocalDate(),
+                    e.getCategoryId() != null ? e.getCategoryId() : 0L,
+                    e.getWalletId() != null ? e.getWalletId() : 0L,
+                    e.getType(), MoneyUnits.toMinor(e.getAmount()),
+                    e.getUpdatedAt() != null ? e.getUpdatedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE);
+            }
+            patched.add(e.getUserId());
+        }
+        for (Long userId : patched) {
+            UserCube cube = cubes.getIfPresent(userId);
+            if (cube != null) {
+                cube.setVersion(userCacheVersions.current(userId));
+                // Ghi lại để Caffeine tính lại weight sau khi mảng có thể đã lớn lên
+                cubes.put(userId, cube);
+            }
+        }
+    }
+
+    private UserCube cube(Long userId) {
+        long version = userCacheVersions.current(userId);
+        UserCube cube = cubes.getIfPresent(userId);
+        if (cube != null && cube.getVersion() == version) {
+            return cube;
+        }
+        cube = build(userId, version);
+        if (cube != null) {
+            cubes.put(userId, cube);
+        } else {
+            cubes.invalidate(userId);
+        }
+        return cube;
+    }
+
+    private UserCube build(Long userId, long version) {
+        LocalDate from = windowStart();
+        LocalDate to = LocalDate.now().plusDays(futureDays);
+        UserCube cube = new UserCube(userId, from, to, version);
+        long loaded;
+        try {
+            loaded = transactionClient.streamTransactionsByDateRange(
+                userId, from.atStartOfDay(), to.atTime(23, 59, 59), t -> {
+                    if (t.getId() != null && t.getTransactionDate() != null) {
+                        cube.append(t.getId(), t.getTransactionDate().toLocalDate(),
+                            t.getCategoryId() != null ? t.getCategoryId() : 0L,
+                            t.getWalletId() != null ? t.getWalletId() : 0L,
+                            t.getType(), t.getAmountMinor());
+                    }
+                });
+        } catch (Exception e) {
+            log.warn("Cube build failed for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+        // 0 bản ghi: không phân biệt được user chưa có giao dịch với lỗi gRPC — không cache
+        if (loaded == 0) {
+            return null;
+        }
+        log.debug("Built analytics cube for user {}: {} transactions, ~{} bytes",
+            userId, cube.size(), cube.estimatedBytes());
+        return cube;
+    }
+
+    private LocalDate windowStart() {
+        return LocalDate.now().minusMonths(windowMonths - 1L).withDayOfMonth(1);
+    }
+}
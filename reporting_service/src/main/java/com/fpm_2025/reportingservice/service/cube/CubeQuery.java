@@ -0,0 +1,28 @@
+package com.fpm_2025.reportingservice.service.cube;
+
+import com.fpm_2025.reportingservice.domain.valueobject.CubeDimension;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lát cắt trên analytics cube: bộ lọc (khoảng ngày, danh mục, ví, loại) + các chiều group-by.
+ * Bộ lọc để trống nghĩa là không lọc theo chiều đó.
+ */
+@Value
+@Builder
+public class CubeQuery {
+    LocalDate from;
+    LocalDate to;
+    @Singular
+    Set<Long> categoryIds;
+    @Singular
+    Set<Long> walletIds;
+    String type; // INCOME, EXPENSE, TRANSFER; null = tất cả
+    @Singular("groupBy")
+    List<CubeDimension> dimensions;
+}
@@ -0,0 +1,292 @@
+package com.fpm_2025.reportingservice.service.cube;
+
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
+import com.fpm_2025.reportingservice.domain.valueobject.CubeDimension;
+import com.fpm_2025.reportingservice.domain.valueobject.RollupLevel;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cube dạng cột của một user: mỗi giao dịch là một chỉ số trong các mảng nguyên thủy song song
+ * (transaction id, ngày, danh mục, ví, loại, số tiền đơn vị nhỏ nhất, updatedAt).
+ *
+ * - Phủ các ngày trong [fromDay, toDay] (epoch day); giao dịch ngoài cửa sổ không được giữ.
+ * - Giao dịch bị xóa giữ lại dòng với type {@link #TOMBSTONE} để event cũ đến trễ không thêm lại nó
+ *   (giống tombstone của applied_transactions); event có updatedAt cũ hơn dòng hiện tại bị bỏ qua.
+ * - Truy vấn quét tuyến tính các mảng — vài nghìn dòng mỗi user, không cấp phát theo dòng.
+ *
+ * Thread-safe: đọc song song, patch độc quyền (read-write lock).
+ */
+public class UserCube {
+
+    static final byte INCOME = 0;
+    static final byte EXPENSE = 1;
+    static final byte TRANSFER = 2;
+    static final byte TOMBSTONE = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+    /** Byte mỗi dòng: 5 long + int + byte, chưa tính overhead mảng/đối tượng. */
+    private static final int BYTES_PER_ROW = 5 * Long.BYTES + Integer.BYTES + 1;
+
+    private final Long userId;
+    private final int fromDay;
+    private final int toDay;
+
+    private long[] transactionIds = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_CAPACITY];
+    private long[] walletIds = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private long[] amounts = new long[INITIAL_CAPACITY];
+    private long[] updatedAts = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private volatile long version;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private record CellKey(int bucket, long categoryId, long walletId, byte type) {}
+
+    public UserCube(Long userId, LocalDate from, LocalDate to, long version) {
+        this.userId = userId;
+        this.fromDay = (int) from.toEpochDay();
+        this.toDay = (int) to.toEpochDay();
+        this.version = version;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean covers(LocalDate from, LocalDate to) {
+        return from.toEpochDay() >= fromDay && to.toEpochDay() <= toDay;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Ước lượng bộ nhớ heap — dùng làm weight cho LRU theo dung lượng. */
+    public int estimatedBytes() {
+        long bytes = 128L + (long) transactionIds.length * BYTES_PER_ROW;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    static byte typeCode(String type) {
+        if (type == null) {
+            return TOMBSTONE;
+        }
+        return switch (type.toUpperCase()) {
+            case "INCOME" -> INCOME;
+            case "EXPENSE" -> EXPENSE;
+            case "TRANSFER" -> TRANSFER;
+            default -> TOMBSTONE;
+        };
+    }
+
+    private static String typeName(byte code) {
+        return switch (code) {
+            case INCOME -> "INCOME";
+            case EXPENSE -> "EXPENSE";
+            case TRANSFER -> "TRANSFER";
+            default -> null;
+        };
+    }
+
+    /**
+     * Nạp một giao dịch khi dựng cube (id chưa có trong cube, không kiểm tra trùng).
+     */
+    void append(long transactionId, LocalDate day, long categoryId, long walletId, String type, long amountMinor) {
+        lock.writeLock().lock();
+        try {
+            int row = appendRow(transactionId);
+            days[row] = (int) day.toEpochDay();
+            categoryIds[row] = categoryId;
+            walletIds[row] = walletId;
+            types[row] = typeCode(type);
+            amounts[row] = amountMinor;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Thêm hoặc thay thế giao dịch. Ngày ngoài cửa sổ: chỉ gỡ dòng cũ (nếu có) bằng tombstone.
+     *
+     * @return false nếu event cũ hơn dòng hiện có và bị bỏ qua
+     */
+    public boolean upsert(long transactionId, LocalDate day, long categoryId, long walletId,
+                          String type, long amountMinor, long updatedAt) {
+        lock.writeLock().lock();
+        try {
+            int row = indexOf(transactionId);
+            if (row >= 0 && updatedAt < updatedAts[row]) {
+                return false;
+            }
+            if (row < 0) {
+                row = appendRow(transactionId);
+            }
+            long epochDay = day.toEpochDay();
+            boolean inWindow = epochDay >= fromDay && epochDay <= toDay;
+            days[row] = (int) epochDay;
+            categoryIds[row] = categoryId;
+            walletIds[row] = walletId;
+            types[row] = inWindow ? typeCode(type) : TOMBSTONE;
+            amounts[row] = amountMinor;
+            updatedAts[row] = updatedAt;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Đánh dấu giao dịch đã xóa (tombstone), kể cả khi cube chưa từng thấy nó.
+     */
+    public void remove(long transactionId, long updatedAt) {
+        lock.writeLock().lock();
+        try {
+            int row = indexOf(transactionId);
+            if (row < 0) {
+                row = appendRow(transactionId);
+            } else if (updatedAt < updatedAts[row]) {
+                return;
+            }
+            types[row] = TOMBSTONE;
+            amounts[row] = 0L;
+            updatedAts[row] = Math.max(updatedAt, updatedAts[row]);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lọc và group-by theo {@link CubeQuery}. Kết quả dùng {@link TransactionAggregate} — cùng dạng
+     * với AggregateTransactions RPC, các chiều không group-by là null. Chiều thời gian: {@code day}
+     * là ngày đầu bucket, {@code month} có giá trị khi group theo MONTH.
+     */
+    public List<TransactionAggregate> slice(CubeQuery query) {
+        RollupLevel timeLevel = null;
+        boolean byCategory = false;
+        boolean byWallet = false;
+        boolean byType = false;
+        for (CubeDimension dimension : query.getDimensions()) {
+            if (dimension.timeLevel() != null) {
+                if (timeLevel != null) {
+                    throw new IllegalArgumentException("At most one time dimension per query");
+                }
+                timeLevel = dimension.timeLevel();
+            }
+            byCategory |= dimension == CubeDimension.CATEGORY;
+            byWallet |= dimension == CubeDimension.WALLET;
+            byType |= dimension == CubeDimension.TYPE;
+        }
+
+        int from = query.getFrom() != null ? (int) Math.max(query.getFrom().toEpochDay(), fromDay) : fromDay;
+        int to = query.getTo() != null ? (int) Math.min(query.getTo().toEpochDay(), toDay) : toDay;
+        byte typeFilter = query.getType() != null ? typeCode(query.getType()) : TOMBSTONE;
+        if (query.getType() != null && typeFilter == TOMBSTONE) {
+            return List.of();
+        }
+        long[] categoryFilter = toSortedArray(query.getCategoryIds());
+        long[] walletFilter = toSortedArray(query.getWalletIds());
+
+        // Bucket của mỗi ngày trong khoảng, tính một lần cho cả lượt quét
+        int[] bucketOf = null;
+        if (timeLevel != null && to >= from) {
+            bucketOf = new int[to - from + 1];
+            for (int d = from; d <= to; d++) {
+                bucketOf[d - from] = (int) timeLevel.bucketStart(LocalDate.ofEpochDay(d)).toEpochDay();
+            }
+        }
+
+        Map<CellKey, long[]> cells = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < size; i++) {
+                byte type = types[i];
+                int day = days[i];
+                if (type == TOMBSTONE || day < from || day > to
+                        || (typeFilter != TOMBSTONE && type != typeFilter)
+                        || (categoryFilter != null && Arrays.binarySearch(categoryFilter, categoryIds[i]) < 0)
+                        || (walletFilter != null && Arrays.binarySearch(walletFilter, walletIds[i]) < 0)) {
+                    continue;
+                }
+                CellKey key = new CellKey(
+                    bucketOf != null ? bucketOf[day - from] : 0,
+                    byCategory ? categoryIds[i] : 0L,
+                    byWallet ? walletIds[i] : 0L,
+                    byType ? type : TOMBSTONE);
+                long[] cell = cells.computeIfAbsent(key, k -> new long[2]);
+                cell[0] += amounts[i];
+                cell[1]++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<TransactionAggregate> result = new ArrayList<>(cells.size());
+        for (Map.Entry<CellKey, long[]> entry : cells.entrySet()) {
+            CellKey key = entry.getKey();
+            LocalDate bucket = timeLevel != null ? LocalDate.ofEpochDay(key.bucket()) : null;
+            result.add(TransactionAggregate.builder()
+                .day(bucket)
+                .month(timeLevel == RollupLevel.MONTH ? bucket.toString().substring(0, 7) : null)
+                .categoryId(byCategory ? key.categoryId() : null)
+                .walletId(byWallet ? key.walletId() : null)
+                .type(byType ? typeName(key.type()) : null)
+                .totalMinor(entry.getValue()[0])
+                .count(entry.getValue()[1])
+                .build());
+        }
+        return result;
+    }
+
+    private int indexOf(long transactionId) {
+        for (int i = 0; i < size; i++) {
+            if (transactionIds[i] == transactionId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int appendRow(long transactionId) {
+        if (size == transactionIds.length) {
+            int capacity = size + (size >> 1);
+            transactionIds = Arrays.copyOf(transactionIds, capacity);
+            days = Arrays.copyOf(days, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            walletIds = Arrays.copyOf(walletIds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            updatedAts = Arrays.copyOf(updatedAts, capacity);
+        }
+        transactionIds[size] = transactionId;
+        updatedAts[size] = Long.MIN_VALUE;
+        return size++;
+    }
+
+    private static long[] toSortedArray(Set<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return null;
+        }
+        long[] sorted = ids.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,165 @@
+package com.fpm_2025.reportingservice.service.dashboard;
+
+import com.fpm_2025.reportingservice.domain.DashboardSummary;
+import com.fpm_2025.reportingservice.domain.MonthlyStatistics;
+import com.fpm_2025.reportingservice.domain.WalletData;
+import com.fpm_2025.reportingservice.domain.model.Budget;
+import com.fpm_2025.reportingservice.repository.BudgetRepository;
+import com.fpm_2025.reportingservice.service.ReportingService;
+import com.fpm_2025.reportingservice.service.WalletGrpcClient;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compose dữ liệu dashboard từ nhiều nguồn độc lập.
+ *
+ * Mỗi nguồn (wallets, tháng hiện tại, tháng trước, budgets) chỉ được fetch một lần, song song trên
+ * virtual thread, mỗi lời gọi có deadline riêng. Nguồn lỗi/timeout được thay bằng giá trị rỗng và
+ * ghi vào {@code unavailableSources} — dashboard vẫn trả về phần còn lại, latency ≈ nguồn chậm nhất.
+ * Kết quả thiếu nguồn không được cache.
+ */
+@Slf4j
+@Service
+public class DashboardComposer {
+
+    private final ReportingService reportingService;
+    private final WalletGrpcClient walletClient;
+    private final BudgetRepository budgetRepository;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("dashboard-", 0).factory());
+
+    @Value("${reporting.dashboard.timeout.wallets:PT1S}")
+    private Duration walletsTimeout;
+
+    @Value("${reporting.dashboard.timeout.statistics:PT2S}")
+    private Duration statisticsTimeout;
+
+    @Value("${reporting.dashboard.timeout.budgets:PT1S}")
+    private Duration budgetsTimeout;
+
+    public DashboardComposer(ReportingService reportingService,
+                             WalletGrpcClient walletClient,
+                             BudgetRepository budgetRepository) {
+        this.reportingService = reportingService;
+        this.walletClient = walletClient;
+        this.budgetRepository = budgetRepository;
+    }
+
+    /**
+     * Một lượt compose: theo dõi các nguồn không lấy được.
+     */
+    public final class Composition {
+
+        private final Set<String> unavailable = ConcurrentHashMap.newKeySet();
+
+        public <T> CompletableFuture<T> fetch(String source, Supplier<T> call, Duration deadline, T fallback) {
+            return CompletableFuture.supplyAsync(call, executor)
+                .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    log.warn("Dashboard source '{}' unavailable: {}", source, ex.toString());
+                    unavailable.add(source);
+                    return fallback;
+                });
+        }
+
+        public List<String> unavailableSources() {
+            return unavailable.stream().sorted().toList();
+        }
+    }
+
+    public Composition begin() {
+        return new Composition();
+    }
+
+    /**
+     * Get dashboard summary — gọi getMonthlyStatistics qua proxy nên dùng được cache.
+     */
+    @Cacheable(value = "dashboard-summary", key = "@userCacheVersions.key(#userId)", sync = true)
+    public DashboardSummary getDashboardSummary(Long userId) {
+        log.info("Composing dashboard summary for user: {}", userId);
+
+        String currentMonth = YearMonth.now().toString();
+        String previousMonth = YearMonth.now().minusMonths(1).toString();
+        MonthlyStatistics empty = emptyStatistics(userId);
+
+        Composition composition = begin();
+        CompletableFuture<List<WalletData>> wallets = composition.fetch("wallets",
+            () -> walletClient.getUserWallets(userId), walletsTimeout, List.of());
+        CompletableFuture<MonthlyStatistics> current = composition.fetch("currentMonth",
+            () -> reportingService.getMonthlyStatistics(userId, currentMonth), statisticsTimeout, empty);
+        CompletableFuture<MonthlyStatistics> previous = composition.fetch("previousMonth",
+            () -> reportingService.getMonthlyStatistics(userId, previousMonth), statisticsTimeout, empty);
+        CompletableFuture<List<Budget>> budgets = composition.fetch("budgets",
+            () -> budgetRepository.findActiveBudgetsByYearMonth(userId, currentMonth), budgetsTimeout, List.of());
+
+        CompletableFuture.allOf(wallets, current, previous, budgets).join();
+
+        MonthlyStatistics currentStats = current.join();
+        MonthlyStatistics previousStats = previous.join();
+        BigDecimal totalBalance = wallets.join().stream()
+            .map(WalletData::getBalance)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        List<Budget> activeBudgets = budgets.join();
+
+        return DashboardSummary.builder()
+            .totalBalance(totalBalance)
+            .currentMonthIncome(currentStats.getTotalIncome())
+            .currentMonthExpense(currentStats.getTotalExpense())
+            .currentMonthNet(currentStats.getNetIncome())
+            .incomeChangePercent(calculatePercentageChange(
+                previousStats.getTotalIncome(), currentStats.getTotalIncome()))
+            .expenseChangePercent(calculatePercentageChange(
+                previousStats.getTotalExpense(), currentStats.getTotalExpense()))
+            .transactionCount(currentStats.getTransactionCount())
+            .topSpendingCategory(currentStats.getTopExpenseCategory())
+            .activeBudgetCount(activeBudgets.size())
+            .overBudgetCount((int) activeBudgets.stream().filter(Budget::isOverBudget).count())
+            .unavailableSources(composition.unavailableSources())
+            .build();
+    }
+
+    private MonthlyStatistics emptyStatistics(Long userId) {
+        return MonthlyStatistics.builder()
+            .userId(userId)
+            .totalIncome(BigDecimal.ZERO)
+            .totalExpense(BigDecimal.ZERO)
+            .netIncome(BigDecimal.ZERO)
+            .transactionCount(0)
+            .build();
+    }
+
+    private BigDecimal calculatePercentageChange(
+            BigDecimal oldValue,
+            BigDecimal newValue) {
+
+        if (oldValue == null || newValue == null || oldValue.compareTo(BigDecimal.ZERO) == 0) {
+            return BigDecimal.ZERO;
+        }
+
+        return newValue.subtract(oldValue)
+            .divide(oldValue, 4, RoundingMode.HALF_UP)
+            .multiply(BigDecimal.valueOf(100));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
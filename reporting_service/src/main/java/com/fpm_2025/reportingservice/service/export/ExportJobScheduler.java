@@ -0,0 +1,276 @@
+package com.fpm_2025.reportingservice.service.export;
+
+import com.fpm_2025.reportingservice.domain.model.ExportJob;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import com.fpm_2025.reportingservice.repository.ExportJobRepository;
+import com.fpm_2025.reportingservice.service.ReportingService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scheduler cho export job, dùng bảng export_jobs làm hàng đợi bền vững.
+ *
+ * - Job mới được lưu PENDING; dispatcher claim bằng conditional update (PENDING → PROCESSING)
+ *   nên nhiều instance có thể cùng chạy mà không xử lý trùng, và job còn nguyên sau restart.
+ * - Giới hạn toàn cục ({@code max-concurrent}, theo instance) và theo user ({@code max-per-user},
+ *   đếm trên DB). Mỗi lượt dispatch chia slot round-robin theo user, nên một user
+ *   gửi nhiều export không chặn các user khác.
+ * - Job đang chạy giữ một lease (heartbeat_at) được gia hạn mỗi {@code heartbeat-interval-ms} khi worker
+ *   còn sống; job PROCESSING không được gia hạn quá {@code lease-timeout} (instance chết giữa chừng) được
+ *   đưa về PENDING, hết {@code max-attempts} lần thì FAILED. Export chạy lâu vẫn gia hạn đều nên không bị
+ *   claim lần hai.
+ * - Export online luôn được xét trước job batch (priority âm, vd. sao kê tháng); job batch chỉ được
+ *   tối đa {@code reporting.export.max-batch-concurrent} slot để không chiếm hết chỗ của export online.
+ *
+ * Metrics: reporting.export.queue.depth, reporting.export.in_flight,
+ * reporting.export.queue.wait, reporting.export.duration (tag format/outcome).
+ */
+@Slf4j
+@Component
+public class ExportJobScheduler {
+
+    private final ExportJobRepository exportJobRepository;
+    private final ReportingService reportingService;
+    private final ExecutorService exportExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /** Một thread duy nhất chạy dispatch khi được đánh thức (job mới / job xong). */
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+        Thread.ofPlatform().name("export-dispatcher").daemon(true).factory());
+
+    /** Id các job đang chạy trên instance này — được gia hạn lease bởi {@link #heartbeat()}. */
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger batchInFlight = new AtomicInteger();
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final Timer queueWait;
+
+    @Value("${reporting.export.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${reporting.export.max-per-user:1}")
+    private int maxPerUser;
+
+    @Value("${reporting.export.scan-size:200}")
+    private int scanSize;
+
+    @Value("${reporting.export.lease-timeout:PT2M}")
+    private Duration leaseTimeout;
+
+    @Value("${reporting.export.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${reporting.export.max-batch-concurrent:1}")
+    private int maxBatchConcurrent;
+
+    public ExportJobScheduler(ExportJobRepository exportJobRepository,
+                              ReportingService reportingService,
+                              @Qualifier("exportExecutor") ExecutorService exportExecutor,
+                              MeterRegistry meterRegistry) {
+        this.exportJobRepository = exportJobRepository;
+        this.reportingService = reportingService;
+        this.exportExecutor = exportExecutor;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("reporting.export.queue.depth", queueDepth, AtomicLong::get)
+            .description("PENDING export jobs")
+            .register(meterRegistry);
+        Gauge.builder("reporting.export.in_flight", inFlight, AtomicInteger::get)
+            .description("Export jobs running on this instance")
+            .register(meterRegistry);
+        this.queueWait = Timer.builder("reporting.export.queue.wait")
+            .description("Time from submit to start of processing")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onJobSubmitted(ExportJobSubmittedEvent event) {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${reporting.export.poll-interval-ms:2000}")
+    public void poll() {
+        dispatch();
+    }
+
+    /**
+     * Claim job PENDING cho các slot còn trống, round-robin theo user.
+     */
+    synchronized void dispatch() {
+        try {
+            queueDepth.set(exportJobRepository.countByStatus(ExportStatus.PENDING));
+            int free = maxConcurrent - inFlight.get();
+            if (free <= 0 || queueDepth.get() == 0) {
+                return;
+            }
+
+            List<ExportJob> pending = exportJobRepository.findByStatusOrderByPriorityDescCreatedAtAscIdAsc(
+                ExportStatus.PENDING, PageRequest.of(0, scanSize));
+
+            Map<Long, Long> running = new HashMap<>();
+            for (Object[] row : exportJobRepository.countProcessingByUser()) {
+                running.put((Long) row[0], (Long) row[1]);
+            }
+
+            // User theo thứ tự job cũ nhất của họ; mỗi vòng mỗi user được tối đa một slot
+            Map<Long, ArrayDeque<ExportJob>> byUser = new LinkedHashMap<>();
+            int batchSlots = maxBatchConcurrent - batchInFlight.get();
+            for (ExportJob job : pending) {
+                if (job.isBatch()) {
+                    if (batchSlots <= 0) {
+                        continue;
+                    }
+                    batchSlots--;
+                }
+                byUser.computeIfAbsent(job.getUserId(), k -> new ArrayDeque<>()).add(job);
+            }
+
+            while (free > 0 && !byUser.isEmpty()) {
+                Iterator<Map.Entry<Long, ArrayDeque<ExportJob>>> it = byUser.entrySet().iterator();
+                while (free > 0 && it.hasNext()) {
+                    Map.Entry<Long, ArrayDeque<ExportJob>> entry = it.next();
+                    Long userId = entry.getKey();
+                    if (running.getOrDefault(userId, 0L) >= maxPerUser) {
+                        it.remove();
+                        continue;
+                    }
+                    ExportJob job = entry.getValue().poll();
+                    if (entry.getValue().isEmpty()) {
+                        it.remove();
+                    }
+                    LocalDateTime now = LocalDateTime.now();
+                    if (exportJobRepository.claim(job.getId(), now) == 1) {
+                        running.merge(userId, 1L, Long::sum);
+                        queueDepth.decrementAndGet();
+                        free--;
+                        start(job, now);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Export dispatch failed", e);
+        }
+    }
+
+    private void start(ExportJob job, LocalDateTime startedAt) {
+        if (job.getCreatedAt() != null) {
+            queueWait.record(Duration.between(job.getCreatedAt(), startedAt));
+        }
+        inFlight.incrementAndGet();
+        if (job.isBatch()) {
+            batchInFlight.incrementAndGet();
+        }
+        runningJobs.add(job.getId());
+        try {
+            exportExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // Đang shutdown — job ở PROCESSING hết lease và được recoverStale() đưa về hàng đợi
+            runningJobs.remove(job.getId());
+            inFlight.decrementAndGet();
+            if (job.isBatch()) {
+                batchInFlight.decrementAndGet();
+            }
+            log.warn("Export executor rejected job {}", job.getId());
+        }
+    }
+
+    private void run(ExportJob job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            ExportStatus status = reportingService.processExportJob(job.getId());
+            outcome = status.name().toLowerCase();
+        } catch (Exception e) {
+            log.error("Export job {} crashed", job.getId(), e);
+        } finally {
+            sample.stop(Timer.builder("reporting.export.duration")
+                .tag("format", job.getFormat().name())
+                .tag("outcome", outcome)
+                .register(meterRegistry));
+            runningJobs.remove(job.getId());
+            inFlight.decrementAndGet();
+            if (job.isBatch()) {
+                batchInFlight.decrementAndGet();
+            }
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        try {
+            dispatcher.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            log.debug("Export dispatcher stopped, skipping wake-up");
+        }
+    }
+
+    /**
+     * Gia hạn lease của các job đang chạy trên instance này. {@code heartbeat-interval-ms} phải nhỏ hơn
+     * {@code lease-timeout} vài lần để một lần gia hạn chậm/lỗi không làm job bị thu hồi.
+     */
+    @Scheduled(fixedDelayString = "${reporting.export.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        if (runningJobs.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> ids = List.copyOf(runningJobs);
+            int renewed = exportJobRepository.heartbeat(ids, LocalDateTime.now());
+            if (renewed < ids.size()) {
+                log.warn("Export heartbeat renewed {} of {} running jobs", renewed, ids.size());
+            }
+        } catch (Exception e) {
+            log.error("Export heartbeat failed", e);
+        }
+    }
+
+    /**
+     * Thu hồi job PROCESSING hết lease — worker không còn gia hạn (instance chết/treo), không phụ thuộc
+     * thời gian job đã chạy.
+     */
+    @Scheduled(initialDelayString = "${reporting.export.recovery-initial-delay-ms:10000}",
+               fixedDelayString = "${reporting.export.recovery-interval-ms:60000}")
+    public void recoverStale() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(leaseTimeout);
+        int failed = exportJobRepository.failExhausted(cutoff, maxAttempts,
+            "Export abandoned after " + maxAttempts + " attempts", now);
+        int requeued = exportJobRepository.requeueStale(cutoff, maxAttempts);
+        if (failed > 0 || requeued > 0) {
+            log.warn("Export recovery: {} jobs with expired lease requeued, {} marked FAILED", requeued, failed);
+            wakeUp();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+    }
+}
@@ -0,0 +1,7 @@
+package com.fpm_2025.reportingservice.service.export;
+
+/**
+ * Phát ra khi có export job mới; scheduler nhận sau khi transaction commit để dispatch ngay
+ * thay vì chờ lượt poll kế tiếp.
+ */
+public record ExportJobSubmittedEvent(Long jobId) {}
@@ -0,0 +1,152 @@
+package com.fpm_2025.reportingservice.service.export;
+
+import com.fpm_2025.reportingservice.domain.model.ExportJob;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportFormat;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import com.fpm_2025.reportingservice.repository.ExportJobRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tạo sao kê PDF tháng trước cho mọi user có phát sinh giao dịch (có dòng monthly_summaries của tháng đó).
+ *
+ * Sao kê đi qua hàng đợi export_jobs như export online, nên dùng chung claim, retry và recovery
+ * của {@link ExportJobScheduler}; mỗi job chính là checkpoint của một user:
+ * - User được chia thành {@code reporting.statements.shards} shard theo {@code user_id % shards}.
+ *   Mỗi shard được enqueue bằng một câu {@code INSERT IGNORE ... SELECT} trên monthly_summaries;
+ *   unique key (user_id, batch_key) khiến enqueue idempotent — chạy lại sau crash chỉ thêm phần còn thiếu,
+ *   job đã DONE không bị tạo lại.
+ * - Backpressure: chỉ enqueue shard tiếp theo khi số job batch còn chờ dưới
+ *   {@code reporting.statements.max-pending}.
+ * - Job có priority {@link ExportJob#PRIORITY_STATEMENT}: dispatcher luôn ưu tiên export online và
+ *   giới hạn số job batch chạy đồng thời ({@code reporting.export.max-batch-concurrent}).
+ *
+ * Runner chạy trong {@code reporting.statements.catch-up-days} ngày đầu tháng; instance khởi động lại
+ * trong khoảng đó tiếp tục từ shard 0 mà không tạo job trùng.
+ * Throughput (users/s) được log khi batch hoàn tất và expose qua gauge {@code reporting.statements.users_per_second}.
+ */
+@Slf4j
+@Component
+public class MonthlyStatementRunner {
+
+    private static final String ENQUEUE_SHARD = """
+        INSERT IGNORE INTO export_jobs
+            (user_id, format, period, start_date, end_date, status, attempts, priority, batch_key, created_at)
+        SELECT ms.user_id, ?, ?, ?, ?, 'PENDING', 0, ?, ?, CURRENT_TIMESTAMP
+        FROM monthly_summaries ms
+        WHERE ms.`year_month` = ? AND MOD(ms.user_id, ?) = ?
+        """;
+
+    private static final List<ExportStatus> OPEN = List.of(ExportStatus.PENDING, ExportStatus.PROCESSING);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExportJobRepository exportJobRepository;
+    private final ExportJobScheduler exportJobScheduler;
+
+    /** Tháng đang chạy và shard kế tiếp cần enqueue (chỉ trong bộ nhớ — enqueue lại là no-op). */
+    private YearMonth currentMonth;
+    private int nextShard;
+    private boolean reported;
+    private final AtomicReference<Double> usersPerSecond = new AtomicReference<>(0.0);
+
+    @Value("${reporting.statements.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reporting.statements.shards:64}")
+    private int shards;
+
+    @Value("${reporting.statements.max-pending:500}")
+    private int maxPending;
+
+    @Value("${reporting.statements.catch-up-days:3}")
+    private int catchUpDays;
+
+    public MonthlyStatementRunner(JdbcTemplate jdbcTemplate,
+                                  ExportJobRepository exportJobRepository,
+                                  ExportJobScheduler exportJobScheduler,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.exportJobRepository = exportJobRepository;
+        this.exportJobScheduler = exportJobScheduler;
+        Gauge.builder("reporting.statements.users_per_second", usersPerSecond, AtomicReference::get)
+            .description("Throughput of the last completed monthly statement batch")
+            .register(meterRegistry);
+    }
+
+    public static String batchKey(YearMonth month) {
+        return "statement:" + month;
+    }
+
+    @Scheduled(initialDelayString = "${reporting.statements.initial-delay-ms:60000}",
+               fixedDelayString = "${reporting.statements.poll-interval-ms:60000}")
+    public void advance() {
+        if (!enabled || LocalDate.now().getDayOfMonth() > catchUpDays) {
+            return;
+        }
+        try {
+            run(YearMonth.now().minusMonths(1));
+        } catch (Exception e) {
+            log.error("Monthly statement run failed", e);
+        }
+    }
+
+    synchronized void run(YearMonth month) {
+        if (!month.equals(currentMonth)) {
+            currentMonth = month;
+            nextShard = 0;
+            reported = false;
+            log.info("Monthly statements for {}: enqueuing {} shards", month, shards);
+        }
+        String batchKey = batchKey(month);
+
+        while (nextShard < shards) {
+            long open = exportJobRepository.countByBatchKeyAndStatusIn(batchKey, OPEN);
+            if (open >= maxPending) {
+                log.debug("Monthly statements {}: {} jobs open, shard {} waits", month, open, nextShard);
+                return;
+            }
+            int inserted = jdbcTemplate.update(ENQUEUE_SHARD,
+                ExportFormat.PDF.name(), month.toString(),
+                Date.valueOf(month.atDay(1)), Date.valueOf(month.atEndOfMonth()),
+                ExportJob.PRIORITY_STATEMENT, batchKey,
+                month.toString(), shards, nextShard);
+            log.info("Monthly statements {}: shard {}/{} enqueued {} users", month, nextShard + 1, shards, inserted);
+            nextShard++;
+            if (inserted > 0) {
+                exportJobScheduler.poll();
+            }
+        }
+
+        if (!reported && exportJobRepository.countByBatchKeyAndStatusIn(batchKey, OPEN) == 0) {
+            report(month, batchKey);
+            reported = true;
+        }
+    }
+
+    private void report(YearMonth month, String batchKey) {
+        long done = exportJobRepository.countByBatchKeyAndStatus(batchKey, ExportStatus.DONE);
+        long failed = exportJobRepository.countByBatchKeyAndStatus(batchKey, ExportStatus.FAILED);
+        List<Object[]> window = exportJobRepository.findBatchWindow(batchKey);
+        double rate = 0.0;
+        if (!window.isEmpty() && window.get(0)[0] != null && window.get(0)[1] != null) {
+            Duration elapsed = Duration.between((LocalDateTime) window.get(0)[0], (LocalDateTime) window.get(0)[1]);
+            rate = elapsed.isZero() ? done : done * 1000.0 / Math.max(1, elapsed.toMillis());
+        }
+        usersPerSecond.set(rate);
+        log.info("Monthly statements {} finished: {} done, {} failed, {} users/s", month, done, failed,
+            String.format("%.2f", rate));
+    }
+}
@@ -0,0 +1,139 @@
+package com.fpm_2025.reportingservice.service.rollup;
+
+import com.fpm_2025.reportingservice.domain.valueobject.RollupLevel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Compaction spending_rollups: tính lại bucket WEEK / MONTH từ DAY và YEAR từ MONTH cho những ngày
+ * có dòng DAY {@code compacted = FALSE}.
+ *
+ * Mỗi vòng (một transaction):
+ * 1. Khóa tối đa {@code reporting.rollups.compaction-batch-size} dòng DAY bẩn bằng
+ *    {@code FOR UPDATE SKIP LOCKED} — nhiều instance chạy song song không tranh nhau cùng dòng.
+ * 2. Đánh dấu compacted và xóa dòng DAY đã về 0 (mọi giao dịch của ngày đó đã bị xóa).
+ * 3. Với mỗi bucket cấp trên bị ảnh hưởng: xóa các dòng cũ rồi {@code INSERT ... SELECT SUM(...)}
+ *    từ cấp ngay dưới — chi phí tỉ lệ với số ngày/tháng trong bucket, không với số giao dịch.
+ *
+ * Event ghi vào dòng DAY sau khi vòng này commit sẽ đặt lại compacted = FALSE và được xử lý ở vòng sau.
+ * Dòng DAY không bị xóa sau compaction: chúng là nguồn cho phần lẻ đầu/cuối của một khoảng truy vấn.
+ */
+@Slf4j
+@Component
+public class RollupCompactor {
+
+    private static final String SELECT_DIRTY_DAYS = """
+        SELECT id, user_id, bucket_start FROM spending_rollups
+        WHERE level = 'DAY' AND compacted = FALSE
+        ORDER BY id
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+        """;
+
+    private static final String MARK_COMPACTED =
+        "UPDATE spending_rollups SET compacted = TRUE WHERE id IN (%s)";
+
+    private static final String DELETE_EMPTY_DAYS =
+        "DELETE FROM spending_rollups WHERE id IN (%s) AND transaction_count <= 0 AND total_amount = 0";
+
+    private static final String DELETE_BUCKET =
+        "DELETE FROM spending_rollups WHERE user_id = ? AND level = ? AND bucket_start = ?";
+
+    private static final String REBUILD_BUCKET = """
+        INSERT INTO spending_rollups
+            (user_id, level, bucket_start, category_id, type, total_amount, transaction_count, compacted, updated_at)
+        SELECT user_id, ?, ?, category_id, type, SUM(total_amount), SUM(transaction_count), TRUE, CURRENT_TIMESTAMP
+        FROM spending_rollups
+        WHERE user_id = ? AND level = ? AND bucket_start BETWEEN ? AND ?
+        GROUP BY user_id, category_id, type
+        HAVING SUM(transaction_count) <> 0 OR SUM(total_amount) <> 0
+        """;
+
+    private record Bucket(Long userId, RollupLevel level, LocalDate start) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${reporting.rollups.compaction-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${reporting.rollups.compaction-max-rounds:20}")
+    private int maxRounds;
+
+    public RollupCompactor(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${reporting.rollups.compaction-interval-ms:30000}")
+    public void compact() {
+        try {
+            int rounds = 0;
+            Integer compacted;
+            do {
+                compacted = transactionTemplate.execute(status -> compactRound());
+                rounds++;
+            } while (compacted != null && compacted >= batchSize && rounds < maxRounds);
+        } catch (Exception e) {
+            log.error("Rollup compaction failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return số dòng DAY đã xử lý trong vòng
+     */
+    int compactRound() {
+        List<Long> ids = new ArrayList<>();
+        Set<Bucket> weeksAndMonths = new LinkedHashSet<>();
+        jdbcTemplate.query(SELECT_DIRTY_DAYS, rs -> {
+            ids.add(rs.getLong("id"));
+            Long userId = rs.getLong("user_id");
+            LocalDate day = rs.getDate("bucket_start").toLocalDate();
+            weeksAndMonths.add(new Bucket(userId, RollupLevel.WEEK, RollupLevel.WEEK.bucketStart(day)));
+            weeksAndMonths.add(new Bucket(userId, RollupLevel.MONTH, RollupLevel.MONTH.bucketStart(day)));
+        }, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        String placeholders = ids.stream().map(id -> "?").collect(Collectors.joining(", "));
+        jdbcTemplate.update(String.format(MARK_COMPACTED, placeholders), ids.toArray());
+        jdbcTemplate.update(String.format(DELETE_EMPTY_DAYS, placeholders), ids.toArray());
+
+        // WEEK/MONTH trước, YEAR sau vì YEAR đọc từ MONTH vừa tính lại
+        Set<Bucket> years = new LinkedHashSet<>();
+        for (Bucket bucket : weeksAndMonths) {
+            rebuild(bucket, RollupLevel.DAY);
+            if (bucket.level() == RollupLevel.MONTH) {
+                years.add(new Bucket(bucket.userId(), RollupLevel.YEAR, RollupLevel.YEAR.bucketStart(bucket.start())));
+            }
+        }
+        for (Bucket bucket : years) {
+            rebuild(bucket, RollupLevel.MONTH);
+        }
+
+        log.debug("Compacted {} day rollups into {} week/month and {} year buckets",
+            ids.size(), weeksAndMonths.size(), years.size());
+        return ids.size();
+    }
+
+    private void rebuild(Bucket bucket, RollupLevel source) {
+        Date start = Date.valueOf(bucket.start());
+        jdbcTemplate.update(DELETE_BUCKET, bucket.userId(), bucket.level().name(), start);
+        jdbcTemplate.update(REBUILD_BUCKET,
+            bucket.level().name(), start,
+            bucket.userId(), source.name(), start, Date.valueOf(bucket.level().bucketEnd(bucket.start())));
+    }
+}
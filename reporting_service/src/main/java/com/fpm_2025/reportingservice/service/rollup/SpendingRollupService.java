@@ -0,0 +1,156 @@
+package com.fpm_2025.reportingservice.service.rollup;
+
+import com.fpm_2025.reportingservice.domain.RollupPoint;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import com.fpm_2025.reportingservice.domain.valueobject.RollupLevel;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Đọc chuỗi thu/chi theo thời gian từ spending_rollups.
+ *
+ * Khoảng [from, to] được chia thành các bucket của cấp được chọn:
+ * - Bucket nằm trọn trong khoảng và đã compaction: đọc thẳng dòng của cấp đó.
+ * - Bucket lẻ ở đầu/cuối khoảng, hoặc chứa ngày chưa compaction: cộng từ các dòng DAY.
+ * Nhờ vậy số dòng đọc tỉ lệ với số bucket (cộng tối đa hai cạnh lẻ) thay vì số giao dịch,
+ * và kết quả không trễ so với event dù compactor chưa chạy.
+ */
+@Service
+@RequiredArgsConstructor
+public class SpendingRollupService {
+
+    private static final String SELECT_LEVEL = """
+        SELECT bucket_start, type, SUM(total_amount) AS total, SUM(transaction_count) AS cnt
+        FROM spending_rollups
+        WHERE user_id = ? AND level = ? AND bucket_start BETWEEN ? AND ?%s
+        GROUP BY bucket_start, type
+        """;
+
+    private static final String SELECT_DIRTY_DAYS = """
+        SELECT DISTINCT bucket_start FROM spending_rollups
+        WHERE user_id = ? AND level = 'DAY' AND bucket_start BETWEEN ? AND ? AND compacted = FALSE
+        """;
+
+    private static final String CATEGORY_FILTER = " AND category_id = ?";
+
+    private static final class Totals {
+        long income;
+        long expense;
+        long count;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param level      null để tự chọn theo độ dài khoảng ({@link RollupLevel#forRange})
+     * @param categoryId null để lấy mọi danh mục
+     */
+    public List<RollupPoint> series(Long userId, LocalDate from, LocalDate to, RollupLevel level, Long categoryId) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        RollupLevel effective = level != null ? level : RollupLevel.forRange(from, to);
+        Map<LocalDate, Totals> buckets = new TreeMap<>();
+        for (LocalDate b = effective.bucketStart(from); !b.isAfter(to); b = effective.next(b)) {
+            buckets.put(b, new Totals());
+        }
+
+        if (effective == RollupLevel.DAY) {
+            read(userId, RollupLevel.DAY, from, to, categoryId, effective, buckets);
+        } else {
+            // Bucket phải đọc từ DAY: lẻ ở hai cạnh hoặc có ngày chưa compaction
+            Set<LocalDate> fromDays = new HashSet<>();
+            for (LocalDate b : buckets.keySet()) {
+                if (b.isBefore(from) || effective.bucketEnd(b).isAfter(to)) {
+                    fromDays.add(b);
+                }
+            }
+            jdbcTemplate.query(SELECT_DIRTY_DAYS,
+                rs -> { fromDays.add(effective.bucketStart(rs.getDate("bucket_start").toLocalDate())); },
+                userId, Date.valueOf(from), Date.valueOf(to));
+
+            LocalDate firstFull = null;
+            LocalDate lastFull = null;
+            for (LocalDate b : buckets.keySet()) {
+                if (fromDays.contains(b)) {
+                    continue;
+                }
+                if (firstFull == null) {
+                    firstFull = b;
+                }
+                lastFull = b;
+            }
+            if (firstFull != null) {
+                Map<LocalDate, Totals> full = new TreeMap<>();
+                read(userId, effective, firstFull, lastFull, categoryId, effective, full);
+                full.forEach((b, t) -> {
+                    if (!fromDays.contains(b)) {
+                        buckets.put(b, t);
+                    }
+                });
+            }
+            for (LocalDate b : buckets.keySet()) {
+                if (fromDays.contains(b)) {
+                    LocalDate start = b.isBefore(from) ? from : b;
+                    LocalDate end = effective.bucketEnd(b).isAfter(to) ? to : effective.bucketEnd(b);
+                    read(userId, RollupLevel.DAY, start, end, categoryId, effective, buckets);
+                }
+            }
+        }
+
+        List<RollupPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach((b, t) -> points.add(RollupPoint.builder()
+            .bucketStart(b)
+            .bucketEnd(effective.bucketEnd(b))
+            .level(effective)
+            .income(MoneyUnits.fromMinor(t.income))
+            .expense(MoneyUnits.fromMinor(t.expense))
+            .net(MoneyUnits.fromMinor(t.income - t.expense))
+            .transactionCount(t.count)
+            .build()));
+        return points;
+    }
+
+    /**
+     * Tổng chi tiêu (đơn vị nhỏ nhất) của một danh mục trong [from, to].
+     */
+    public long expenseMinor(Long userId, Long categoryId, LocalDate from, LocalDate to) {
+        long total = 0L;
+        for (RollupPoint point : series(userId, from, to, RollupLevel.forRange(from, to), categoryId)) {
+            total += MoneyUnits.toMinor(point.getExpense());
+        }
+        return total;
+    }
+
+    /**
+     * Cộng các dòng của {@code source} trong [start, end] vào bucket tương ứng của {@code target}.
+     */
+    private void read(Long userId, RollupLevel source, LocalDate start, LocalDate end, Long categoryId,
+                      RollupLevel target, Map<LocalDate, Totals> buckets) {
+        List<Object> args = new ArrayList<>(List.of(userId, source.name(), Date.valueOf(start), Date.valueOf(end)));
+        if (categoryId != null) {
+            args.add(categoryId);
+        }
+        jdbcTemplate.query(String.format(SELECT_LEVEL, categoryId != null ? CATEGORY_FILTER : ""), rs -> {
+            LocalDate bucket = target.bucketStart(rs.getDate("bucket_start").toLocalDate());
+            Totals totals = buckets.computeIfAbsent(bucket, k -> new Totals());
+            long amount = MoneyUnits.toMinor(rs.getBigDecimal("total"));
+            if ("INCOME".equals(rs.getString("type"))) {
+                totals.income += amount;
+            } else {
+                totals.expense += amount;
+            }
+            totals.count += rs.getLong("cnt");
+        }, args.toArray());
+    }
+}
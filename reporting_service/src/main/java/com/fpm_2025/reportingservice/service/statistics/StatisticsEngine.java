@@ -0,0 +1,277 @@
+package com.fpm_2025.reportingservice.service.statistics;
+
+import com.fpm_2025.reportingservice.domain.model.Budget;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.domain.model.MonthlySummary;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Tính toàn bộ chỉ số của comprehensive statistics từ dữ liệu đã nạp sẵn.
+ *
+ * Mỗi nguồn (monthly_summaries, category_summaries, budgets) được duyệt đúng một lần, cộng dồn bằng
+ * {@code long} (đơn vị nhỏ nhất, xem {@link MoneyUnits}) và {@code double}; BigDecimal chỉ được tạo
+ * khi dựng kết quả. Chi phí O(số tháng + số dòng category + số budget), không phụ thuộc số chỉ số.
+ *
+ * Health score (0-100):
+ * - Savings rate (tối đa 40): ≥ 20% được 40 điểm, dưới đó 2 điểm mỗi %.
+ * - Expense consistency (tối đa 30): 30 × (1 − hệ số biến thiên chi tiêu theo tháng), tối thiểu 0.
+ * - Budget adherence (tối đa 30): trung bình mức tuân thủ các budget trong kỳ — trong hạn mức = 1,
+ *   vượt x% = 1 − x/100 (tối thiểu 0).
+ * Thành phần không đủ dữ liệu (dưới 2 tháng có chi tiêu, không có budget) được nửa số điểm.
+ *
+ * Không thread-safe — mỗi lần tính tạo một instance mới.
+ */
+public class StatisticsEngine {
+
+    private static final int SAVINGS_MAX = 40;
+    private static final int CONSISTENCY_MAX = 30;
+    private static final int ADHERENCE_MAX = 30;
+
+    private final int topN;
+
+    // Tháng — mảng song song, sắp xếp tăng dần theo yearMonth
+    private String[] months = new String[0];
+    private long[] monthIncome = new long[0];
+    private long[] monthExpense = new long[0];
+    private long totalIncome;
+    private long totalExpense;
+    private long totalTransactions;
+
+    // Danh mục chi tiêu gộp qua các tháng
+    private final Map<Long, CategoryTotals> categories = new HashMap<>();
+    private long categoryExpenseTotal;
+
+    // Budget
+    private int budgetCount;
+    private double adherenceSum;
+
+    private static final class CategoryTotals {
+        final Long categoryId;
+        String categoryName;
+        long amount;
+        int transactionCount;
+
+        CategoryTotals(Long categoryId) {
+            this.categoryId = categoryId;
+        }
+    }
+
+    public StatisticsEngine(int topN) {
+        this.topN = topN;
+    }
+
+    public StatisticsEngine monthlySummaries(List<MonthlySummary> summaries) {
+        MonthlySummary[] sorted = summaries.toArray(new MonthlySummary[0]);
+        Arrays.sort(sorted, Comparator.comparing(MonthlySummary::getYearMonth));
+
+        months = new String[sorted.length];
+        monthIncome = new long[sorted.length];
+        monthExpense = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            MonthlySummary s = sorted[i];
+            months[i] = s.getYearMonth();
+            monthIncome[i] = MoneyUnits.toMinor(s.getTotalIncome());
+            monthExpense[i] = MoneyUnits.toMinor(s.getTotalExpense());
+            totalIncome += monthIncome[i];
+            totalExpense += monthExpense[i];
+            totalTransactions += s.getTransactionCount() != null ? s.getTransactionCount() : 0;
+        }
+        return this;
+    }
+
+    public StatisticsEngine categorySummaries(List<CategorySummary> summaries) {
+        for (CategorySummary cs : summaries) {
+            if (cs.getType() != CategorySummaryType.EXPENSE) {
+                continue;
+            }
+            long amount = MoneyUnits.toMinor(cs.getTotalAmount());
+            CategoryTotals totals = categories.computeIfAbsent(cs.getCategoryId(), CategoryTotals::new);
+            totals.categoryName = cs.getCategoryName();
+            totals.amount += amount;
+            totals.transactionCount += cs.getTransactionCount() != null ? cs.getTransactionCount() : 0;
+            categoryExpenseTotal += amount;
+        }
+        return this;
+    }
+
+    public StatisticsEngine budgets(List<Budget> budgets) {
+        for (Budget b : budgets) {
+            long limit = MoneyUnits.toMinor(b.getAmountLimit());
+            if (limit <= 0) {
+                continue;
+            }
+            long used = MoneyUnits.toMinor(b.getAmountUsed());
+            budgetCount++;
+            adherenceSum += used <= limit ? 1.0 : Math.max(0.0, 1.0 - (double) (used - limit) / limit);
+        }
+        return this;
+    }
+
+    /**
+     * Kết quả theo đúng cấu trúc response của {@code /statistics}: basicStats, trends,
+     * categoryInsights, healthScore.
+     */
+    public Map<String, Object> result() {
+        Map<String, Object> stats = new HashMap<>();
+        double savingsRate = totalIncome == 0 ? 0.0 : (double) (totalIncome - totalExpense) * 100 / totalIncome;
+
+        stats.put("basicStats", basicStats(savingsRate));
+        stats.put("trends", trends());
+        stats.put("categoryInsights", categoryInsights());
+        stats.put("healthScore", healthScore(savingsRate));
+        return stats;
+    }
+
+    // ==================== Private Methods ====================
+
+    private Map<String, Object> basicStats(double savingsRate) {
+        Map<String, Object> basicStats = new HashMap<>();
+        basicStats.put("totalIncome", MoneyUnits.fromMinor(totalIncome));
+        basicStats.put("totalExpense", MoneyUnits.fromMinor(totalExpense));
+        basicStats.put("netIncome", MoneyUnits.fromMinor(totalIncome - totalExpense));
+        basicStats.put("savingsRate", percent(savingsRate));
+        basicStats.put("totalTransactions", (int) totalTransactions);
+        return basicStats;
+    }
+
+    private Map<String, Object> trends() {
+        if (months.length < 2) {
+            return Map.of("message", "Insufficient data for trend analysis");
+        }
+        int last = months.length - 1;
+        double incomeGrowth = growthRate(monthIncome[0], monthIncome[last]);
+        double expenseGrowth = growthRate(monthExpense[0], monthExpense[last]);
+
+        List<Map<String, Object>> monthlyData = new ArrayList<>(months.length);
+        for (int i = 0; i < months.length; i++) {
+            monthlyData.add(Map.of(
+                "month", months[i],
+                "income", MoneyUnits.fromMinor(monthIncome[i]),
+                "expense", MoneyUnits.fromMinor(monthExpense[i]),
+                "netIncome", MoneyUnits.fromMinor(monthIncome[i] - monthExpense[i])
+            ));
+        }
+
+        Map<String, Object> trends = new HashMap<>();
+        trends.put("incomeGrowthRate", percent(incomeGrowth));
+        trends.put("expenseGrowthRate", percent(expenseGrowth));
+        trends.put("incomeTrend", determineTrend(incomeGrowth));
+        trends.put("expenseTrend", determineTrend(expenseGrowth));
+        trends.put("monthlyData", monthlyData);
+        return trends;
+    }
+
+    private Map<String, Object> categoryInsights() {
+        // Một lượt qua các danh mục: Herfindahl (Σ share²) và top-N bằng min-heap kích thước N
+        double concentration = 0.0;
+        PriorityQueue<CategoryTotals> top = new PriorityQueue<>(
+            Math.max(1, topN + 1), Comparator.comparingLong(c -> c.amount));
+        for (CategoryTotals c : categories.values()) {
+            if (categoryExpenseTotal > 0) {
+                double share = (double) c.amount / categoryExpenseTotal;
+                concentration += share * share;
+            }
+            top.offer(c);
+            if (top.size() > topN) {
+                top.poll();
+            }
+        }
+
+        List<Map<String, Object>> topCategories = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            CategoryTotals c = top.poll();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("categoryId", c.categoryId);
+            map.put("categoryName", c.categoryName);
+            map.put("totalAmount", MoneyUnits.fromMinor(c.amount));
+            map.put("transactionCount", c.transactionCount);
+            map.put("percentage", categoryExpenseTotal > 0
+                ? percent((double) c.amount * 100 / categoryExpenseTotal) : BigDecimal.ZERO);
+            topCategories.add(0, map);
+        }
+
+        Map<String, Object> insights = new HashMap<>();
+        insights.put("topCategories", topCategories);
+        insights.put("categoryCount", categories.size());
+        insights.put("concentration", BigDecimal.valueOf(concentration).setScale(4, RoundingMode.HALF_UP));
+        insights.put("diversificationScore", percent((1.0 - concentration) * 100));
+        return insights;
+    }
+
+    private Map<String, Object> healthScore(double savingsRate) {
+        int savingsScore = savingsRate >= 20 ? SAVINGS_MAX : savingsRate > 0 ? (int) (savingsRate * 2) : 0;
+        int consistencyScore = consistencyScore();
+        int adherenceScore = budgetCount == 0
+            ? ADHERENCE_MAX / 2
+            : (int) Math.round(ADHERENCE_MAX * adherenceSum / budgetCount);
+        int score = savingsScore + consistencyScore + adherenceScore;
+
+        String rating;
+        if (score >= 80) rating = "EXCELLENT";
+        else if (score >= 60) rating = "GOOD";
+        else if (score >= 40) rating = "FAIR";
+        else rating = "NEEDS_IMPROVEMENT";
+
+        Map<String, Object> healthScore = new HashMap<>();
+        healthScore.put("score", score);
+        healthScore.put("rating", rating);
+        healthScore.put("savingsRateScore", savingsScore);
+        healthScore.put("expenseConsistencyScore", consistencyScore);
+        healthScore.put("budgetAdherenceScore", adherenceScore);
+        healthScore.put("budgetCount", budgetCount);
+        return healthScore;
+    }
+
+    /**
+     * 30 × (1 − CV) với CV = độ lệch chuẩn / trung bình chi tiêu các tháng có chi tiêu.
+     */
+    private int consistencyScore() {
+        int n = 0;
+        double mean = 0.0;
+        double m2 = 0.0;
+        for (long expense : monthExpense) {
+            if (expense <= 0) {
+                continue;
+            }
+            // Welford: trung bình và phương sai trong một lượt
+            n++;
+            double delta = expense - mean;
+            mean += delta / n;
+            m2 += delta * (expense - mean);
+        }
+        if (n < 2 || mean <= 0) {
+            return CONSISTENCY_MAX / 2;
+        }
+        double cv = Math.sqrt(m2 / n) / mean;
+        return (int) Math.round(CONSISTENCY_MAX * Math.max(0.0, 1.0 - cv));
+    }
+
+    private static double growthRate(long oldValue, long newValue) {
+        return oldValue == 0 ? 0.0 : (double) (newValue - oldValue) * 100 / oldValue;
+    }
+
+    private static String determineTrend(double growthRate) {
+        if (growthRate > 10) {
+            return "INCREASING";
+        } else if (growthRate < -10) {
+            return "DECREASING";
+        }
+        return "STABLE";
+    }
+
+    private static BigDecimal percent(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,121 @@
+package com.fpm_2025.reportingservice.service.storage;
+
+import com.fpm_2025.reportingservice.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Lưu report trên filesystem local ({@code report.storage.path}).
+ *
+ * Nội dung được ghi ra file {@code .part} rồi move atomic sang tên chính thức.
+ * Khi đọc trả {@link FileSystemResource} (FileChannel bên dưới, skip là seek) và expose đường dẫn file
+ * để controller gửi bằng sendfile.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "report.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalReportStorage implements ReportStorage {
+
+    private final Path root;
+
+    public LocalReportStorage(@Value("${report.storage.path:/tmp/reports}") String storagePath) {
+        this.root = Paths.get(storagePath).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public StoredReport write(String fileName, ReportWriter writer) {
+        Path target = resolve(fileName);
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            Files.createDirectories(root);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                writer.write(out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new StoredReport(URL_PREFIX + fileName, Files.size(target));
+        } catch (IOException e) {
+            log.error("Failed to write report {} to local storage", fileName, e);
+            throw new RuntimeException("Storage upload failed", e);
+        } finally {
+            try {
+                Files.deleteIfExists(partial);
+            } catch (IOException e) {
+                log.warn("Failed to remove partial report file {}", partial, e);
+            }
+        }
+    }
+
+    @Override
+    public Resource open(String fileUrl) {
+        Path file = resolve(ReportStorage.fileName(fileUrl));
+        if (!Files.isReadable(file)) {
+            log.error("Report file not found in storage: {}", file);
+            throw new ResourceNotFoundException("Report file not found: " + file.getFileName());
+        }
+        return new FileSystemResource(file);
+    }
+
+    @Override
+    public boolean exists(String fileUrl) {
+        return Files.isReadable(resolve(ReportStorage.fileName(fileUrl)));
+    }
+
+    @Override
+    public void delete(String fileUrl) {
+        Path file = resolve(ReportStorage.fileName(fileUrl));
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete report file {}", file, e);
+        }
+    }
+
+    @Override
+    public void scan(Consumer<StoredObject> visitor) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(root)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                try {
+                    visitor.accept(new StoredObject(URL_PREFIX + file.getFileName(),
+                        Files.size(file), Files.getLastModifiedTime(file).toInstant()));
+                } catch (IOException e) {
+                    // File vừa bị xóa/move giữa lúc liệt kê
+                    log.debug("Skipping report file {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to list report storage {}", root, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localFile(String fileUrl) {
+        Path file = resolve(ReportStorage.fileName(fileUrl));
+        return Files.isReadable(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    private Path resolve(String fileName) {
+        Path file = root.resolve(fileName).normalize();
+        if (!file.getParent().equals(root)) {
+            throw new IllegalArgumentException("Invalid report file name: " + fileName);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,249 @@
+package com.fpm_2025.reportingservice.service.storage;
+
+import com.fpm_2025.reportingservice.domain.ReportStatus;
+import com.fpm_2025.reportingservice.domain.model.ExportJob;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import com.fpm_2025.reportingservice.entity.ReportEntity;
+import com.fpm_2025.reportingservice.repository.ExportJobRepository;
+import com.fpm_2025.reportingservice.repository.ReportRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vòng đời file report trong {@link ReportStorage}: giữ tổng dung lượng dưới quota và dọn dữ liệu cũ.
+ *
+ * Mỗi lượt {@link #sweep()}:
+ * - Hết hạn: job export kết thúc quá {@code report.lifecycle.retention}, report tháng không được dùng
+ *   quá retention → xóa file rồi xóa dòng theo lô ({@code batch-size} dòng một câu DELETE).
+ * - Quota: tổng file_size của artifact còn sống vượt {@code report.lifecycle.max-bytes} → evict LRU
+ *   theo last_accessed_at tới {@code low-watermark} × quota. Report tháng (reports) bị evict trước
+ *   vì render lại được khi yêu cầu lần sau; kết quả export job (người dùng đang chờ tải) evict sau.
+ *   Dòng bị evict chuyển EXPIRED thay vì bị xóa, để client thấy file đã hết hạn (410) thay vì 404.
+ * - Mồ côi: file trong storage không còn dòng COMPLETED/DONE tham chiếu (render lỗi, dòng đã xóa,
+ *   {@code .part} sót lại) và cũ hơn {@code orphan-grace} → xóa.
+ *
+ * Các bước đều idempotent — nhiều instance cùng chạy chỉ làm thừa, không làm sai.
+ * Metric: reporting.artifacts.bytes (tổng dung lượng artifact còn sống sau lượt gần nhất).
+ */
+@Slf4j
+@Component
+public class ReportArtifactLifecycle {
+
+    private final ReportStorage reportStorage;
+    private final ReportRepository reportRepository;
+    private final ExportJobRepository exportJobRepository;
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    @Value("${report.lifecycle.enabled:true}")
+    private boolean enabled;
+
+    @Value("${report.lifecycle.retention:P30D}")
+    private Duration retention;
+
+    @Value("${report.lifecycle.max-bytes:10737418240}")
+    private long maxBytes;
+
+    @Value("${report.lifecycle.low-watermark:0.9}")
+    private double lowWatermark;
+
+    @Value("${report.lifecycle.batch-size:200}")
+    private int batchSize;
+
+    @Value("${report.lifecycle.max-batches:50}")
+    private int maxBatches;
+
+    @Value("${report.lifecycle.orphan-grace:PT6H}")
+    private Duration orphanGrace;
+
+    public ReportArtifactLifecycle(ReportStorage reportStorage,
+                                   ReportRepository reportRepository,
+                                   ExportJobRepository exportJobRepository,
+                                   MeterRegistry meterRegistry) {
+        this.reportStorage = reportStorage;
+        this.reportRepository = reportRepository;
+        this.exportJobRepository = exportJobRepository;
+        Gauge.builder("reporting.artifacts.bytes", storedBytes, AtomicLong::get)
+            .description("Total size of live report artifacts in storage")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${report.lifecycle.initial-delay-ms:120000}",
+               fixedDelayString = "${report.lifecycle.interval-ms:600000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            expireOld();
+            enforceQuota();
+            removeOrphans();
+        } catch (Exception e) {
+            log.error("Report artifact sweep failed", e);
+        }
+    }
+
+    // ==================== Retention ====================
+
+    void expireOld() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        int jobs = 0;
+        for (int round = 0; round < maxBatches; round++) {
+            List<ExportJob> batch = exportJobRepository.findOldCompletedJobs(cutoff, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (ExportJob job : batch) {
+                if (job.getStatus() == ExportStatus.DONE && job.getFileUrl() != null) {
+                    reportStorage.delete(job.getFileUrl());
+                }
+                ids.add(job.getId());
+            }
+            exportJobRepository.deleteAllByIdInBatch(ids);
+            jobs += ids.size();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        int reports = 0;
+        for (int round = 0; round < maxBatches; round++) {
+            List<ReportEntity> batch = reportRepository.findUnusedSince(cutoff, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(batch.size());
+            for (ReportEntity report : batch) {
+                if (report.getStatus() == ReportStatus.COMPLETED && report.getFileUrl() != null) {
+                    reportStorage.delete(report.getFileUrl());
+                }
+                ids.add(report.getId());
+            }
+            reportRepository.deleteAllByIdInBatch(ids);
+            reports += ids.size();
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (jobs > 0 || reports > 0) {
+            log.info("Expired {} export jobs and {} reports older than {}", jobs, reports, retention);
+        }
+    }
+
+    // ==================== Quota ====================
+
+    void enforceQuota() {
+        long total = reportRepository.sumStoredBytes() + exportJobRepository.sumStoredBytes();
+        if (total > maxBytes) {
+            long target = (long) (maxBytes * lowWatermark);
+            long before = total;
+            total = evictReports(total, target);
+            if (total > target) {
+                total = evictExportResults(total, target);
+            }
+            log.info("Report storage over quota: evicted {} bytes, {} of {} bytes in use",
+                before - total, total, maxBytes);
+        }
+        storedBytes.set(total);
+    }
+
+    /** Report tháng — render lại được, evict trước. */
+    private long evictReports(long total, long target) {
+        for (int round = 0; round < maxBatches && total > target; round++) {
+            List<ReportEntity> batch = reportRepository.findByStatusOrderByLastAccessedAtAscIdAsc(
+                ReportStatus.COMPLETED, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>();
+            for (ReportEntity report : batch) {
+                if (total <= target) {
+                    break;
+                }
+                if (report.getFileUrl() != null) {
+                    reportStorage.delete(report.getFileUrl());
+                }
+                total -= report.getFileSize() != null ? report.getFileSize() : 0L;
+                ids.add(report.getId());
+            }
+            reportRepository.markExpired(ids);
+        }
+        return total;
+    }
+
+    /** Kết quả export job — người dùng có thể chưa tải, chỉ evict khi report tháng không đủ. */
+    private long evictExportResults(long total, long target) {
+        for (int round = 0; round < maxBatches && total > target; round++) {
+            List<ExportJob> batch = exportJobRepository.findByStatusOrderByLastAccessedAtAscIdAsc(
+                ExportStatus.DONE, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>();
+            for (ExportJob job : batch) {
+                if (total <= target) {
+                    break;
+                }
+                if (job.getFileUrl() != null) {
+                    reportStorage.delete(job.getFileUrl());
+                }
+                total -= job.getFileSize() != null ? job.getFileSize() : 0L;
+                ids.add(job.getId());
+            }
+            exportJobRepository.markExpired(ids);
+        }
+        return total;
+    }
+
+    // ==================== Orphans ====================
+
+    void removeOrphans() {
+        Instant cutoff = Instant.now().minus(orphanGrace);
+        List<String> candidates = new ArrayList<>(batchSize);
+        int[] removed = {0};
+        reportStorage.scan(object -> {
+            if (object.lastModified() != null && object.lastModified().isBefore(cutoff)) {
+                candidates.add(object.fileUrl());
+                if (candidates.size() >= batchSize) {
+                    removed[0] += removeUnreferenced(candidates);
+                    candidates.clear();
+                }
+            }
+        });
+        if (!candidates.isEmpty()) {
+            removed[0] += removeUnreferenced(candidates);
+        }
+        if (removed[0] > 0) {
+            log.info("Removed {} orphaned report files", removed[0]);
+        }
+    }
+
+    private int removeUnreferenced(List<String> fileUrls) {
+        Set<String> live = new HashSet<>(reportRepository.findLiveFileUrls(fileUrls));
+        live.addAll(exportJobRepository.findLiveFileUrls(fileUrls));
+        int removed = 0;
+        for (String fileUrl : fileUrls) {
+            if (!live.contains(fileUrl)) {
+                reportStorage.delete(fileUrl);
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,77 @@
+package com.fpm_2025.reportingservice.service.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Nơi lưu file report đã render (PDF/Excel/CSV).
+ *
+ * File được định danh bằng {@code fileUrl} dạng {@code /reports/<fileName>} (giá trị lưu trong
+ * reports / export_jobs), nên đổi backend không cần migrate dữ liệu. Nội dung không bao giờ
+ * được đọc hết vào heap: ghi qua {@link ReportWriter}, đọc qua {@link Resource} stream.
+ *
+ * Backend chọn bằng {@code report.storage.type}: {@code local} (mặc định) hoặc {@code s3}.
+ */
+public interface ReportStorage {
+
+    String URL_PREFIX = "/reports/";
+
+    /**
+     * Ghi nội dung report vào stream do storage cung cấp.
+     */
+    @FunctionalInterface
+    interface ReportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    record StoredReport(String fileUrl, long fileSize) {}
+
+    /** Một file đang nằm trong storage (kể cả file không còn được DB tham chiếu). */
+    record StoredObject(String fileUrl, long size, Instant lastModified) {}
+
+    /**
+     * Ghi report; file dở dang (writer lỗi giữa chừng) không bao giờ xuất hiện dưới tên chính thức.
+     */
+    StoredReport write(String fileName, ReportWriter writer);
+
+    /**
+     * Mở report để stream ra response. Resource biết {@code contentLength()} và hỗ trợ đọc từ offset
+     * bất kỳ (skip trên InputStream không tải phần bị bỏ qua) để phục vụ HTTP Range.
+     *
+     * @throws com.fpm_2025.reportingservice.exception.ResourceNotFoundException nếu file không tồn tại
+     */
+    Resource open(String fileUrl);
+
+    boolean exists(String fileUrl);
+
+    /**
+     * Xóa file; không lỗi nếu file không còn.
+     */
+    void delete(String fileUrl);
+
+    /**
+     * Duyệt mọi file trong storage — dùng để dọn file mồ côi. Thứ tự không xác định.
+     */
+    void scan(Consumer<StoredObject> visitor);
+
+    /**
+     * File trên filesystem local, nếu có — cho phép gửi thẳng bằng sendfile/{@code FileChannel.transferTo}.
+     */
+    default Optional<Path> localFile(String fileUrl) {
+        return Optional.empty();
+    }
+
+    static String fileName(String fileUrl) {
+        String name = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        if (name.isEmpty() || name.startsWith(".")) {
+            throw new IllegalArgumentException("Invalid report file url: " + fileUrl);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,287 @@
+package com.fpm_2025.reportingservice.service.storage;
+
+import com.fpm_2025.reportingservice.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
+
+/**
+ * Lưu report trên object storage tương thích S3 (AWS S3, MinIO, ...).
+ *
+ * - Ghi: render ra file spool local rồi PutObject từ file — heap không phụ thuộc kích thước report,
+ *   object chỉ xuất hiện khi upload xong.
+ * - Đọc: HeadObject lấy kích thước; nội dung mở lười bằng GetObject có header {@code Range}
+ *   bắt đầu từ offset đã skip, nên download tiếp (HTTP Range) không kéo lại phần client đã có.
+ *
+ * Credentials lấy theo default provider chain của AWS SDK (env, profile, IAM role).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "report.storage.type", havingValue = "s3")
+public class S3ReportStorage implements ReportStorage {
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String prefix;
+    private final Path spoolDir;
+
+    public S3ReportStorage(@Value("${report.storage.s3.bucket}") String bucket,
+                           @Value("${report.storage.s3.prefix:reports/}") String prefix,
+                           @Value("${report.storage.s3.region:ap-southeast-1}") String region,
+                           @Value("${report.storage.s3.endpoint:}") String endpoint,
+                           @Value("${report.storage.s3.path-style:false}") boolean pathStyle,
+                           @Value("${report.storage.s3.spool-dir:${java.io.tmpdir}}") String spoolDir) {
+        var builder = S3Client.builder()
+            .region(Region.of(region))
+            .forcePathStyle(pathStyle);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.spoolDir = Paths.get(spoolDir);
+    }
+
+    @PreDestroy
+    void close() {
+        s3.close();
+    }
+
+    @Override
+    public StoredReport write(String fileName, ReportWriter writer) {
+        Path spool = null;
+        try {
+            Files.createDirectories(spoolDir);
+            spool = Files.createTempFile(spoolDir, "report-", ".part");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(spool))) {
+                writer.write(out);
+            }
+            long size = Files.size(spool);
+            s3.putObject(PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key(fileName))
+                    .contentLength(size)
+                    .build(),
+                RequestBody.fromFile(spool));
+            return new StoredReport(URL_PREFIX + fileName, size);
+        } catch (IOException | S3Exception e) {
+            log.error("Failed to upload report {} to s3://{}", fileName, bucket, e);
+            throw new RuntimeException("Storage upload failed", e);
+        } finally {
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException e) {
+                    log.warn("Failed to remove spooled report file {}", spool, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Resource open(String fileUrl) {
+        String key = key(ReportStorage.fileName(fileUrl));
+        HeadObjectResponse head = head(key);
+        if (head == null) {
+            log.error("Report object not found: s3://{}/{}", bucket, key);
+            throw new ResourceNotFoundException("Report file not found: " + ReportStorage.fileName(fileUrl));
+        }
+        return new S3ObjectResource(key, head);
+    }
+
+    @Override
+    public boolean exists(String fileUrl) {
+        return head(key(ReportStorage.fileName(fileUrl))) != null;
+    }
+
+    @Override
+    public void delete(String fileUrl) {
+        String key = key(ReportStorage.fileName(fileUrl));
+        try {
+            s3.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (S3Exception e) {
+            log.warn("Failed to delete report object s3://{}/{}: {}", bucket, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void scan(Consumer<StoredObject> visitor) {
+        s3.listObjectsV2Paginator(ListObjectsV2Request.builder().bucket(bucket).prefix(prefix).build())
+            .contents()
+            .forEach(object -> {
+                String fileName = object.key().substring(prefix.length());
+                if (!fileName.isEmpty() && fileName.indexOf('/') < 0) {
+                    visitor.accept(new StoredObject(URL_PREFIX + fileName, object.size(), object.lastModified()));
+                }
+            });
+    }
+
+    private HeadObjectResponse head(String key) {
+        try {
+            return s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (NoSuchKeyException e) {
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private String key(String fileName) {
+        return prefix + fileName;
+    }
+
+    /**
+     * Object S3 dưới dạng Resource; mỗi {@link #getInputStream()} là một GetObject mới, mở lười.
+     */
+    private final class S3ObjectResource extends AbstractResource {
+
+        private final String key;
+        private final HeadObjectResponse head;
+
+        S3ObjectResource(String key, HeadObjectResponse head) {
+            this.key = key;
+            this.head = head;
+        }
+
+        @Override
+        public String getDescription() {
+            return "s3://" + bucket + "/" + key;
+        }
+
+        @Override
+        public String getFilename() {
+            return key.substring(key.lastIndexOf('/') + 1);
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return head.contentLength();
+        }
+
+        @Override
+        public long lastModified() {
+            return head.lastModified() != null ? head.lastModified().toEpochMilli() : 0L;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new RangedObjectStream(key, head.contentLength());
+        }
+    }
+
+    /**
+     * skip() trước lần đọc đầu chỉ dời offset; lần đọc đầu mới gửi GetObject {@code Range: bytes=<offset>-}.
+     * Đóng khi chưa đọc hết thì abort kết nối thay vì tải nốt phần còn lại.
+     */
+    private final class RangedObjectStream extends InputStream {
+
+        private final String key;
+        private final long length;
+        private long position;
+        private ResponseInputStream<GetObjectResponse> delegate;
+
+        RangedObjectStream(String key, long length) {
+            this.key = key;
+            this.length = length;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (delegate != null) {
+                long skipped = delegate.skip(n);
+                position += skipped;
+                return skipped;
+            }
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!open()) {
+                return -1;
+            }
+            int b = delegate.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!open()) {
+                return -1;
+            }
+            int read = delegate.read(buffer, off, len);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                if (position < length) {
+                    delegate.abort();
+                }
+                delegate.close();
+            }
+        }
+
+        private boolean open() {
+            if (delegate == null) {
+                if (position >= length) {
+                    return false;
+                }
+                delegate = s3.getObject(GetObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .range("bytes=" + position + "-")
+                    .build());
+            }
+            return true;
+        }
+    }
+}
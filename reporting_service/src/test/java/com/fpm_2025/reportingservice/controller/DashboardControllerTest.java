@@ -0,0 +1,94 @@
+package com.fpm_2025.reportingservice.controller;
+
+import com.fpm_2025.reportingservice.dto.request.DashboardRequest;
+import com.fpm_2025.reportingservice.dto.response.DashboardResponse;
+import com.fpm_2025.reportingservice.service.DashboardService;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho conditional GET của {@link DashboardController}: chỉ dashboard đầy đủ mới mang ETag.
+ */
+@DisplayName("DashboardController — Unit Tests")
+class DashboardControllerTest {
+
+    private static final String ETAG = "\"dashboard:1:v3\"";
+
+    private final DashboardService dashboardService = mock(DashboardService.class);
+    private final UserCacheVersions userCacheVersions = mock(UserCacheVersions.class);
+    private final DashboardController controller = new DashboardController(dashboardService, userCacheVersions);
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/dashboard");
+    private final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+    @BeforeEach
+    void setUp() {
+        when(userCacheVersions.etag(eq(1L), any(Object[].class))).thenReturn(ETAG);
+    }
+
+    @Test
+    @DisplayName("Dashboard đầy đủ: có ETag, Cache-Control no-cache")
+    void completeDashboardHasEtag() {
+        when(dashboardService.getDashboard(any(DashboardRequest.class)))
+                .thenReturn(DashboardResponse.builder().userId(1L).build());
+
+        ResponseEntity<DashboardResponse> result = get();
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getHeaders().getETag()).isEqualTo(ETAG);
+        assertThat(result.getHeaders().getCacheControl()).contains("no-cache");
+    }
+
+    @Test
+    @DisplayName("Dashboard thiếu nguồn: không ETag (kể cả trên response servlet), Cache-Control no-store")
+    void partialDashboardIsNotCacheable() {
+        when(dashboardService.getDashboard(any(DashboardRequest.class)))
+                .thenReturn(DashboardResponse.builder().userId(1L).unavailableSources(List.of("budget")).build());
+
+        ResponseEntity<DashboardResponse> result = get();
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getHeaders().getETag()).isNull();
+        assertThat(result.getHeaders().getCacheControl()).isEqualTo("no-store");
+        assertThat(servletResponse.getHeader(HttpHeaders.ETAG)).isNull();
+    }
+
+    @Test
+    @DisplayName("If-None-Match khớp: 304, không tính dashboard")
+    void matchingEtagIsNotModified() {
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG);
+
+        ResponseEntity<DashboardResponse> result = get();
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(result.getHeaders().getETag()).isEqualTo(ETAG);
+        verifyNoInteractions(dashboardService);
+    }
+
+    @Test
+    @DisplayName("If-None-Match dạng danh sách, khớp một phần tử")
+    void ifNoneMatchList() {
+        assertThat(DashboardController.matchesIfNoneMatch("\"other\", " + ETAG, ETAG)).isTrue();
+        assertThat(DashboardController.matchesIfNoneMatch("*", ETAG)).isTrue();
+        assertThat(DashboardController.matchesIfNoneMatch("\"other\"", ETAG)).isFalse();
+        assertThat(DashboardController.matchesIfNoneMatch(null, ETAG)).isFalse();
+    }
+
+    private ResponseEntity<DashboardResponse> get() {
+        return controller.getDashboard(1L, "2026-10", new ServletWebRequest(request, servletResponse));
+    }
+}
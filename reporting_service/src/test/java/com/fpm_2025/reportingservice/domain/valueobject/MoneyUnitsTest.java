@@ -0,0 +1,50 @@
+package com.fpm_2025.reportingservice.domain.valueobject;
+
+import com.fpm2025.grpc.protocol.Money;
+import com.google.protobuf.Descriptors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * Unit tests cho {@link MoneyUnits}: quy đổi BigDecimal ↔ long và đọc {@code Money} từ sender mới lẫn cũ.
+ */
+@DisplayName("MoneyUnits — Unit Tests")
+class MoneyUnitsTest {
+
+    @Test
+    @DisplayName("toMinor làm tròn HALF_UP về scale 2, null là 0")
+    void toMinor() {
+        assertThat(MoneyUnits.toMinor(new BigDecimal("12.345"))).isEqualTo(1235L);
+        assertThat(MoneyUnits.toMinor(new BigDecimal("50000"))).isEqualTo(5_000_000L);
+        assertThat(MoneyUnits.toMinor(null)).isZero();
+    }
+
+    @Test
+    @DisplayName("fromMinor trả BigDecimal scale 2")
+    void fromMinor() {
+        assertThat(MoneyUnits.fromMinor(1235L)).isEqualTo(new BigDecimal("12.35"));
+    }
+
+    @Test
+    @DisplayName("Sender cũ chỉ set amount (double): quy đổi không kéo theo sai số nhị phân")
+    void legacyDouble() {
+        Money money = Money.newBuilder().setAmount(0.1 + 0.2).setCurrency("VND").build();
+
+        assertThat(MoneyUnits.minorFromProto(money)).isEqualTo(30L);
+    }
+
+    @Test
+    @DisplayName("Có amount_minor: ưu tiên amount_minor hơn amount")
+    void prefersAmountMinor() {
+        Descriptors.FieldDescriptor amountMinor = Money.getDescriptor().findFieldByName("amount_minor");
+        assumeThat(amountMinor).as("fpm-proto có Money.amount_minor").isNotNull();
+        Money money = Money.newBuilder().setAmount(1.0).setField(amountMinor, 123_456_789_012L).build();
+
+        assertThat(MoneyUnits.minorFromProto(money)).isEqualTo(123_456_789_012L);
+    }
+}
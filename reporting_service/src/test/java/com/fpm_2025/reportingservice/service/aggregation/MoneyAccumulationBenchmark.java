@@ -0,0 +1,121 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm2025.grpc.protocol.Money;
+import com.fpm_2025.reportingservice.domain.valueobject.MoneyUnits;
+import com.google.protobuf.Descriptors;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh cộng dồn tiền trong hot path thống kê (giao dịch/s và byte cấp phát/giao dịch):
+ * - bigDecimal:  cách cũ — {@code BigDecimal.valueOf(double)} cho mỗi giao dịch, cộng bằng BigDecimal,
+ *                gom danh mục bằng {@code Map.merge(..., BigDecimal::add)}
+ * - minorUnits:  đọc {@code amount_minor} (long), cộng bằng long, gom danh mục bằng {@link MinorUnitTotals};
+ *                BigDecimal chỉ tạo một lần ở cuối
+ *
+ * Xem {@code gc.alloc.rate.norm} trong kết quả (GCProfiler) để so sánh số byte cấp phát mỗi lần gọi.
+ *
+ * Số đo tham khảo (JDK 17.0.9, 1 vCPU, 1 fork, 3×2s warmup, 5×3s đo; đơn vị op = một giao dịch):
+ * <pre>
+ * bigDecimal   3 806 539 ± 49 362 ops/s        183.563 B/op
+ * minorUnits  76 761 847 ± 19 403 003 ops/s      0.148 B/op
+ * </pre>
+ * Số trên đo khi MoneyUnits đọc {@code amount_minor} bằng getter sinh từ proto; MoneyUnits hiện đọc qua
+ * descriptor (chạy được cả với fpm-proto chưa có trường này) nên minorUnits cấp phát thêm một {@code Long} mỗi
+ * giao dịch — đo lại khi đổi bản fpm-proto.
+ *
+ * Chạy: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.fpm_2025.reportingservice.service.aggregation.MoneyAccumulationBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+public class MoneyAccumulationBenchmark {
+
+    private static final int TRANSACTIONS = 10_000;
+    private static final String[] CATEGORIES = {
+        "Ăn uống", "Di chuyển", "Mua sắm", "Hóa đơn", "Giải trí", "Sức khỏe", "Giáo dục", "Khác"
+    };
+
+    private Money[] amounts;
+    private boolean[] income;
+    private String[] categories;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Descriptors.FieldDescriptor amountMinor = Money.getDescriptor().findFieldByName("amount_minor");
+        amounts = new Money[TRANSACTIONS];
+        income = new boolean[TRANSACTIONS];
+        categories = new String[TRANSACTIONS];
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long minor = random.nextLong(1_000L, 500_000_000L);
+            Money.Builder money = Money.newBuilder()
+                .setAmount(minor / 100d)
+                .setCurrency("VND");
+            if (amountMinor != null) {
+                money.setField(amountMinor, minor);
+            }
+            amounts[i] = money.build();
+            income[i] = random.nextInt(10) >= 8;
+            categories[i] = CATEGORIES[random.nextInt(CATEGORIES.length)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public void bigDecimal(Blackhole bh) {
+        BigDecimal totalIncome = BigDecimal.ZERO;
+        BigDecimal totalExpense = BigDecimal.ZERO;
+        Map<String, BigDecimal> byCategory = new HashMap<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            BigDecimal amount = BigDecimal.valueOf(amounts[i].getAmount());
+            if (income[i]) {
+                totalIncome = totalIncome.add(amount);
+            } else {
+                totalExpense = totalExpense.add(amount);
+                byCategory.merge(categories[i], amount, BigDecimal::add);
+            }
+        }
+        bh.consume(totalIncome.subtract(totalExpense));
+        bh.consume(byCategory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRANSACTIONS)
+    public void minorUnits(Blackhole bh) {
+        long totalIncome = 0L;
+        long totalExpense = 0L;
+        MinorUnitTotals<String> byCategory = new MinorUnitTotals<>();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            long amount = MoneyUnits.minorFromProto(amounts[i]);
+            if (income[i]) {
+                totalIncome += amount;
+            } else {
+                totalExpense += amount;
+                byCategory.add(categories[i], amount);
+            }
+        }
+        bh.consume(MoneyUnits.fromMinor(totalIncome - totalExpense));
+        bh.consume(byCategory.toAmounts());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(MoneyAccumulationBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
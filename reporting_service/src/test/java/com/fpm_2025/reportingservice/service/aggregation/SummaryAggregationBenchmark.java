@@ -0,0 +1,165 @@
+package com.fpm_2025.reportingservice.service.aggregation;
+
+import com.fpm_2025.reportingservice.dto.TransactionEventDto;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.EventType;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.TransactionEvent;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh throughput (event/s) giữa:
+ * - perRecord: mỗi event một transaction, đọc ledger + ghi summaries riêng (tương đương consumer cũ)
+ * - batched:   cả poll một transaction, delta gộp theo (userId, yearMonth) / category, JDBC batch upsert
+ *
+ * Chạy trên H2 in-memory (MODE=MySQL) nên chưa tính round-trip mạng tới MySQL thật —
+ * khoảng cách giữa hai cách trên môi trường thật còn lớn hơn.
+ *
+ * Chạy: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+public class SummaryAggregationBenchmark {
+
+    private static final int POLL_SIZE = 500;
+    private static final int USERS = 50;
+    private static final int CATEGORIES = 8;
+
+    private static final String[] SCHEMA = {
+        """
+        CREATE TABLE applied_transactions (
+            id BIGINT AUTO_INCREMENT PRIMARY KEY,
+            transaction_id BIGINT NOT NULL,
+            user_id BIGINT NOT NULL,
+            `year_month` VARCHAR(7),
+            category_id BIGINT,
+            type VARCHAR(20),
+            amount DECIMAL(15,2),
+            deleted BOOLEAN NOT NULL DEFAULT FALSE,
+            source_updated_at TIMESTAMP,
+            applied_at TIMESTAMP,
+            CONSTRAINT uk_applied_tx_transaction UNIQUE (transaction_id))
+        """,
+        """
+        CREATE TABLE monthly_summaries (
+            id BIGINT AUTO_INCREMENT PRIMARY KEY,
+            user_id BIGINT NOT NULL,
+            `year_month` VARCHAR(7) NOT NULL,
+            total_income DECIMAL(15,2) NOT NULL DEFAULT 0,
+            total_expense DECIMAL(15,2) NOT NULL DEFAULT 0,
+            net_income DECIMAL(15,2) NOT NULL DEFAULT 0,
+            transaction_count INT NOT NULL DEFAULT 0,
+            avg_daily_expense DECIMAL(15,2),
+            top_expense_category VARCHAR(100),
+            created_at TIMESTAMP,
+            updated_at TIMESTAMP,
+            CONSTRAINT uk_monthly_user_month UNIQUE (user_id, `year_month`))
+        """,
+        """
+        CREATE TABLE category_summaries (
+            id BIGINT AUTO_INCREMENT PRIMARY KEY,
+            user_id BIGINT NOT NULL,
+            `year_month` VARCHAR(7) NOT NULL,
+            category_id BIGINT NOT NULL,
+            category_name VARCHAR(100) NOT NULL,
+            type VARCHAR(20) NOT NULL,
+            total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+            transaction_count INT NOT NULL DEFAULT 0,
+            percentage DECIMAL(5,2),
+            created_at TIMESTAMP,
+            updated_at TIMESTAMP,
+            CONSTRAINT uk_cat_summary UNIQUE (user_id, `year_month`, category_id, type))
+        """,
+        """
+        CREATE TABLE transaction_summaries (
+            id BIGINT AUTO_INCREMENT PRIMARY KEY,
+            user_id BIGINT,
+            period VARCHAR(7),
+            total_income DECIMAL(19,2),
+            total_expense DECIMAL(19,2),
+            CONSTRAINT uk_transaction_summary_user_period UNIQUE (user_id, period))
+        """
+    };
+
+    private SingleConnectionDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private SummaryAggregationEngine engine;
+    private SplittableRandom random;
+    private long nextTransactionId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+            "jdbc:h2:mem:summary-bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String ddl : SCHEMA) {
+            jdbcTemplate.execute(ddl);
+        }
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        engine = new SummaryAggregationEngine(new SummaryBatchWriter(jdbcTemplate));
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void perRecord() {
+        for (TransactionEvent event : nextPoll()) {
+            transactionTemplate.executeWithoutResult(
+                status -> engine.apply(event.type(), event.payload()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL_SIZE)
+    public void batched() {
+        List<TransactionEvent> poll = nextPoll();
+        transactionTemplate.executeWithoutResult(status -> engine.applyBatch(poll));
+    }
+
+    /**
+     * Một poll giả lập giờ cao điểm: nhiều user, phần lớn là chi tiêu, dồn vào tháng hiện tại.
+     */
+    private List<TransactionEvent> nextPoll() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionEvent> poll = new ArrayList<>(POLL_SIZE);
+        for (int i = 0; i < POLL_SIZE; i++) {
+            poll.add(new TransactionEvent(EventType.CREATED, TransactionEventDto.builder()
+                .id(++nextTransactionId)
+                .userId((long) random.nextInt(1, USERS + 1))
+                .categoryId((long) random.nextInt(1, CATEGORIES + 1))
+                .type(random.nextInt(10) < 8 ? "EXPENSE" : "INCOME")
+                .amount(BigDecimal.valueOf(random.nextInt(10_000, 5_000_000)))
+                .transactionDate(now.minusDays(random.nextInt(3)))
+                .updatedAt(now)
+                .build()));
+        }
+        return poll;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+            .include(SummaryAggregationBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
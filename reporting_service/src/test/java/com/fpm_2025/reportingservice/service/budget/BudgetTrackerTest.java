@@ -0,0 +1,171 @@
+package com.fpm_2025.reportingservice.service.budget;
+
+import com.fpm_2025.reportingservice.domain.model.Budget;
+import com.fpm_2025.reportingservice.domain.model.BudgetAlert;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.dto.BudgetAlertEvent;
+import com.fpm_2025.reportingservice.repository.BudgetAlertRepository;
+import com.fpm_2025.reportingservice.repository.BudgetRepository;
+import com.fpm_2025.reportingservice.repository.CategorySummaryRepository;
+import com.fpm_2025.reportingservice.service.aggregation.SummaryAggregationEngine.ExpenseDelta;
+import com.fpm_2025.reportingservice.service.cache.UserCacheVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho {@link BudgetTracker}.
+ *
+ * <p>Xác nhận:
+ * <ul>
+ *   <li>Chỉ khi mức dùng vượt lên một ngưỡng (80/95/100%) mới ghi budget_alerts và publish budget.alerts</li>
+ *   <li>Vượt nhiều ngưỡng trong một batch chỉ cảnh báo ngưỡng cao nhất</li>
+ *   <li>amount_used được ghi theo lô khi flush, không ghi lại nếu không đổi</li>
+ *   <li>Key không có budget chỉ query một lần</li>
+ * </ul>
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BudgetTracker — Unit Tests")
+class BudgetTrackerTest {
+
+    private static final Long USER_ID = 42L;
+    private static final Long CATEGORY_ID = 7L;
+    private static final String MONTH = YearMonth.now().toString();
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private BudgetAlertRepository budgetAlertRepository;
+
+    @Mock
+    private CategorySummaryRepository categorySummaryRepository;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private UserCacheVersions userCacheVersions;
+
+    private BudgetTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new BudgetTracker(budgetRepository, budgetAlertRepository, categorySummaryRepository,
+                kafkaTemplate, jdbcTemplate, userCacheVersions);
+        ReflectionTestUtils.setField(tracker, "idleTtl", Duration.ofMinutes(30));
+    }
+
+    private void givenBudget(String limit, String summaryTotal) {
+        Budget budget = Budget.builder()
+                .id(1L)
+                .userId(USER_ID)
+                .categoryId(CATEGORY_ID)
+                .categoryName("Ăn uống")
+                .amountLimit(new BigDecimal(limit))
+                .amountUsed(BigDecimal.ZERO)
+                .yearMonth(MONTH)
+                .build();
+        when(budgetRepository.findByUserIdAndCategoryIdAndYearMonth(USER_ID, CATEGORY_ID, MONTH))
+                .thenReturn(Optional.of(budget));
+        when(categorySummaryRepository.findByUserIdAndCategoryIdAndYearMonthAndType(
+                USER_ID, CATEGORY_ID, MONTH, CategorySummaryType.EXPENSE))
+                .thenReturn(Optional.of(CategorySummary.builder()
+                        .type(CategorySummaryType.EXPENSE)
+                        .totalAmount(new BigDecimal(summaryTotal))
+                        .build()));
+    }
+
+    private static ExpenseDelta delta(String amount) {
+        return new ExpenseDelta(USER_ID, MONTH, CATEGORY_ID, new BigDecimal(amount).movePointRight(2).longValueExact());
+    }
+
+    @Test
+    @DisplayName("Chỉ phát cảnh báo khi vượt ngưỡng, mỗi ngưỡng một lần")
+    void alertsOnlyOnCrossing() {
+        givenBudget("1000000", "700000");
+
+        tracker.onExpenseDeltas(List.of(delta("700000")));   // 0% → 70%
+        verifyNoInteractions(budgetAlertRepository, kafkaTemplate);
+
+        tracker.onExpenseDeltas(List.of(delta("150000")));   // 70% → 85%: vượt 80%
+        tracker.onExpenseDeltas(List.of(delta("10000")));    // 85% → 86%: không vượt
+
+        ArgumentCaptor<BudgetAlert> alert = ArgumentCaptor.forClass(BudgetAlert.class);
+        verify(budgetAlertRepository, times(1)).save(alert.capture());
+        assertThat(alert.getValue().getThresholdPercent()).isEqualTo(80);
+        assertThat(alert.getValue().getAmountUsed()).isEqualByComparingTo("850000");
+        verify(kafkaTemplate, times(1)).send(eq("budget.alerts"), eq("42"), any(BudgetAlertEvent.class));
+    }
+
+    @Test
+    @DisplayName("Vượt nhiều ngưỡng trong một batch chỉ cảnh báo ngưỡng cao nhất")
+    void multipleCrossingsReportHighest() {
+        givenBudget("1000000", "900000");
+
+        tracker.onExpenseDeltas(List.of(delta("200000")));   // 70% → 90%: vượt 80%
+        tracker.onExpenseDeltas(List.of(delta("150000")));   // 90% → 105%: vượt 95% và 100%
+
+        ArgumentCaptor<BudgetAlert> alert = ArgumentCaptor.forClass(BudgetAlert.class);
+        verify(budgetAlertRepository, times(2)).save(alert.capture());
+        assertThat(alert.getAllValues()).extracting(BudgetAlert::getThresholdPercent).containsExactly(80, 100);
+    }
+
+    @Test
+    @DisplayName("Giảm mức dùng (xóa giao dịch) không phát cảnh báo")
+    void decreaseDoesNotAlert() {
+        givenBudget("1000000", "500000");
+
+        tracker.onExpenseDeltas(List.of(delta("-400000")));  // 90% → 50%
+
+        verifyNoInteractions(budgetAlertRepository, kafkaTemplate);
+    }
+
+    @Test
+    @DisplayName("Flush ghi amount_used theo lô, lần sau không ghi lại nếu không đổi")
+    void flushWritesDirtyBudgetsOnce() {
+        givenBudget("1000000", "100000");
+        tracker.onExpenseDeltas(List.of(delta("100000")));
+
+        tracker.flush();
+        tracker.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        verify(userCacheVersions, times(1)).bumpAll(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Key không có budget chỉ query một lần, không ghi gì")
+    void missingBudgetIsRemembered() {
+        when(budgetRepository.findByUserIdAndCategoryIdAndYearMonth(USER_ID, CATEGORY_ID, MONTH))
+                .thenReturn(Optional.empty());
+
+        tracker.onExpenseDeltas(List.of(delta("100000")));
+        tracker.onExpenseDeltas(List.of(delta("100000")));
+        tracker.flush();
+
+        verify(budgetRepository, times(1)).findByUserIdAndCategoryIdAndYearMonth(USER_ID, CATEGORY_ID, MONTH);
+        verifyNoInteractions(categorySummaryRepository, budgetAlertRepository, kafkaTemplate, jdbcTemplate);
+    }
+}
@@ -0,0 +1,123 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import com.fpm_2025.reportingservice.domain.DashboardSummary;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests cho {@link TwoLevelCache}.
+ *
+ * <p>Xác nhận:
+ * <ul>
+ *   <li>Miss đồng thời cho cùng key chỉ gọi loader một lần, mọi caller nhận cùng kết quả</li>
+ *   <li>Kết quả thiếu nguồn ({@link PartialResult}) không được ghi cache</li>
+ *   <li>Stale-while-revalidate trả entry cũ ngay và làm mới ở nền</li>
+ * </ul>
+ */
+@DisplayName("TwoLevelCache — Unit Tests")
+class TwoLevelCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final ConcurrentMapCache l2 = new ConcurrentMapCache("test");
+
+    private TwoLevelCache cache(Duration l1Ttl, Duration staleWindow) {
+        return new TwoLevelCache("test",
+            Caffeine.newBuilder().expireAfterWrite(l1Ttl.plus(staleWindow)).build(),
+            l1Ttl, staleWindow,
+            l2,
+            mock(CacheInvalidationBus.class),
+            refreshes::add,
+            meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Miss đồng thời cùng key — loader chạy một lần")
+    void coalescesConcurrentMisses() throws Exception {
+        TwoLevelCache cache = cache(Duration.ofMinutes(1), Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> cache.get("42:v1:2025-09", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    return "stats";
+                })));
+            }
+            // Chờ mọi caller còn lại đã xếp hàng sau lần load đang chạy
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (coalesced() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("stats");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(calls).hasValue(1);
+        assertThat(coalesced()).isEqualTo(callers - 1);
+    }
+
+    @Test
+    @DisplayName("Kết quả thiếu nguồn không được cache")
+    void doesNotCachePartialResults() {
+        TwoLevelCache cache = cache(Duration.ofMinutes(1), Duration.ZERO);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            cache.get("42:v1", () -> {
+                calls.incrementAndGet();
+                return DashboardSummary.builder().unavailableSources(List.of("wallets")).build();
+            });
+        }
+
+        assertThat(calls).hasValue(2);
+        assertThat(cache.get("42:v1")).isNull();
+    }
+
+    @Test
+    @DisplayName("Stale-while-revalidate — trả giá trị cũ, refresh ở nền")
+    void servesStaleAndRefreshes() {
+        TwoLevelCache cache = cache(Duration.ofNanos(1), Duration.ofMinutes(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThat(cache.get("42:v1", () -> "v" + calls.incrementAndGet())).isEqualTo("v1");
+        l2.clear(); // L2 cũng đã hết hạn — refresh phải gọi loader
+
+        assertThat(cache.get("42:v1", () -> "v" + calls.incrementAndGet())).isEqualTo("v1");
+        assertThat(refreshes).hasSize(1);
+        assertThat(calls).hasValue(1);
+
+        refreshes.get(0).run();
+        assertThat(calls).hasValue(2);
+    }
+
+    private double coalesced() {
+        return meterRegistry.counter("reporting.cache.loads", "cache", "test", "role", "coalesced").count();
+    }
+}
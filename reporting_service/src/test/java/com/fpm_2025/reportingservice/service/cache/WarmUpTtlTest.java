@@ -0,0 +1,61 @@
+package com.fpm_2025.reportingservice.service.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests cho {@link WarmUpTtl}: entry ghi trong lượt làm nóng dùng TTL của lượt, còn lại dùng TTL của cache.
+ */
+@DisplayName("WarmUpTtl — Unit Tests")
+class WarmUpTtlTest {
+
+    private static final Duration CACHE_TTL = Duration.ofMinutes(30);
+    private static final Duration WARM_TTL = Duration.ofHours(14);
+
+    private final RedisCacheWriter.TtlFunction ttl = WarmUpTtl.orDefault(CACHE_TTL);
+
+    @Test
+    @DisplayName("Ngoài lượt làm nóng: TTL của cache")
+    void defaultTtl() {
+        assertThat(ttl.getTimeToLive("k", "v")).isEqualTo(CACHE_TTL);
+    }
+
+    @Test
+    @DisplayName("Trong lượt làm nóng: TTL của lượt, hết lượt thì trở lại TTL của cache")
+    void warmUpTtl() {
+        AtomicReference<Duration> inside = new AtomicReference<>();
+
+        WarmUpTtl.apply(WARM_TTL, () -> inside.set(ttl.getTimeToLive("k", "v")));
+
+        assertThat(inside.get()).isEqualTo(WARM_TTL);
+        assertThat(ttl.getTimeToLive("k", "v")).isEqualTo(CACHE_TTL);
+    }
+
+    @Test
+    @DisplayName("Thread khác (request thường chạy song song) không bị ảnh hưởng")
+    void otherThreads() {
+        AtomicReference<Duration> other = new AtomicReference<>();
+
+        WarmUpTtl.apply(WARM_TTL, () -> other.set(
+            CompletableFuture.supplyAsync(() -> ttl.getTimeToLive("k", "v")).join()));
+
+        assertThat(other.get()).isEqualTo(CACHE_TTL);
+    }
+
+    @Test
+    @DisplayName("Task ném lỗi: TTL của lượt vẫn được gỡ khỏi thread")
+    void clearedOnFailure() {
+        assertThatThrownBy(() -> WarmUpTtl.apply(WARM_TTL, () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(ttl.getTimeToLive("k", "v")).isEqualTo(CACHE_TTL);
+    }
+}
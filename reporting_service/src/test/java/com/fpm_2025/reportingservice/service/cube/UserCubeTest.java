@@ -0,0 +1,83 @@
+package com.fpm_2025.reportingservice.service.cube;
+
+import com.fpm_2025.reportingservice.domain.TransactionAggregate;
+import com.fpm_2025.reportingservice.domain.valueobject.CubeDimension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests cho {@link UserCube}.
+ *
+ * <p>Xác nhận:
+ * <ul>
+ *   <li>Lọc và group-by theo nhiều chiều cùng lúc, bucket tuần bắt đầu thứ Hai</li>
+ *   <li>Patch từ event: update thay dòng cũ, delete để lại tombstone chặn event cũ đến trễ</li>
+ * </ul>
+ */
+@DisplayName("UserCube — Unit Tests")
+class UserCubeTest {
+
+    private static final LocalDate FROM = LocalDate.of(2025, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2025, 12, 31);
+
+    private UserCube cube;
+
+    @BeforeEach
+    void setUp() {
+        cube = new UserCube(42L, FROM, TO, 1L);
+        cube.append(1L, LocalDate.of(2025, 3, 3), 7L, 100L, "EXPENSE", 50_000);    // thứ Hai
+        cube.append(2L, LocalDate.of(2025, 3, 9), 7L, 200L, "EXPENSE", 30_000);    // Chủ nhật cùng tuần
+        cube.append(3L, LocalDate.of(2025, 3, 10), 8L, 100L, "EXPENSE", 20_000);   // tuần sau
+        cube.append(4L, LocalDate.of(2025, 3, 10), 9L, 100L, "INCOME", 1_000_000);
+    }
+
+    @Test
+    @DisplayName("Group-by tuần × danh mục, chỉ chi tiêu")
+    void slicesByWeekAndCategory() {
+        List<TransactionAggregate> cells = cube.slice(CubeQuery.builder()
+                .from(LocalDate.of(2025, 3, 1)).to(LocalDate.of(2025, 3, 31))
+                .type("EXPENSE")
+                .groupBy(CubeDimension.WEEK).groupBy(CubeDimension.CATEGORY)
+                .build());
+
+        assertThat(cells).hasSize(2);
+        assertThat(cells).filteredOn(c -> c.getCategoryId() == 7L).singleElement().satisfies(c -> {
+            assertThat(c.getDay()).isEqualTo(LocalDate.of(2025, 3, 3));
+            assertThat(c.getTotalMinor()).isEqualTo(80_000);
+            assertThat(c.getCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    @DisplayName("Lọc theo ví, không group-by cho ra một dòng tổng")
+    void filtersByWallet() {
+        List<TransactionAggregate> cells = cube.slice(CubeQuery.builder()
+                .from(FROM).to(TO).type("EXPENSE").walletId(100L)
+                .build());
+
+        assertThat(cells).singleElement()
+                .extracting(TransactionAggregate::getTotalMinor).isEqualTo(70_000L);
+    }
+
+    @Test
+    @DisplayName("Delete để lại tombstone — update cũ đến sau không thêm lại giao dịch")
+    void deleteIsFinal() {
+        cube.upsert(1L, LocalDate.of(2025, 3, 3), 7L, 100L, "EXPENSE", 60_000, 1_000L);
+        cube.remove(1L, Long.MAX_VALUE);
+        boolean applied = cube.upsert(1L, LocalDate.of(2025, 3, 3), 7L, 100L, "EXPENSE", 60_000, 2_000L);
+
+        List<TransactionAggregate> cells = cube.slice(CubeQuery.builder()
+                .from(FROM).to(TO).categoryId(7L)
+                .build());
+
+        assertThat(applied).isFalse();
+        assertThat(cells).singleElement()
+                .extracting(TransactionAggregate::getTotalMinor).isEqualTo(30_000L);
+    }
+}
@@ -0,0 +1,100 @@
+package com.fpm_2025.reportingservice.service.export;
+
+import com.fpm_2025.reportingservice.domain.model.ExportJob;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportFormat;
+import com.fpm_2025.reportingservice.domain.valueobject.ExportStatus;
+import com.fpm_2025.reportingservice.repository.ExportJobRepository;
+import com.fpm_2025.reportingservice.service.ReportingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho lease của {@link ExportJobScheduler}: job đang chạy được gia hạn, chỉ job hết lease mới bị thu hồi.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ExportJobScheduler — Unit Tests")
+class ExportJobSchedulerTest {
+
+    @Mock
+    private ExportJobRepository exportJobRepository;
+
+    @Mock
+    private ReportingService reportingService;
+
+    @Mock
+    private ExecutorService exportExecutor;
+
+    private ExportJobScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new ExportJobScheduler(exportJobRepository, reportingService, exportExecutor, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(scheduler, "maxPerUser", 1);
+        ReflectionTestUtils.setField(scheduler, "scanSize", 200);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 3);
+        ReflectionTestUtils.setField(scheduler, "maxBatchConcurrent", 1);
+        ReflectionTestUtils.setField(scheduler, "leaseTimeout", Duration.ofMinutes(2));
+    }
+
+    @Test
+    @DisplayName("Job đang chạy được gia hạn lease; chạy xong thì không gia hạn nữa")
+    @SuppressWarnings("unchecked")
+    void runningJobIsHeartbeated() {
+        ExportJob job = ExportJob.builder().id(42L).userId(1L).format(ExportFormat.PDF).period("2026-09")
+                .createdAt(LocalDateTime.now()).build();
+        when(exportJobRepository.countByStatus(ExportStatus.PENDING)).thenReturn(1L);
+        when(exportJobRepository.findByStatusOrderByPriorityDescCreatedAtAscIdAsc(eq(ExportStatus.PENDING), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(exportJobRepository.countProcessingByUser()).thenReturn(List.of());
+        when(exportJobRepository.claim(eq(42L), any())).thenReturn(1);
+        when(exportJobRepository.heartbeat(anyCollection(), any())).thenReturn(1);
+        when(reportingService.processExportJob(42L)).thenReturn(ExportStatus.DONE);
+
+        scheduler.dispatch();
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(exportExecutor).execute(task.capture());
+
+        scheduler.heartbeat();
+        ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(exportJobRepository).heartbeat(ids.capture(), any());
+        assertThat(ids.getValue()).containsExactly(42L);
+
+        scheduler.shutdown();
+        task.getValue().run();
+        scheduler.heartbeat();
+        verify(exportJobRepository, times(1)).heartbeat(anyCollection(), any());
+    }
+
+    @Test
+    @DisplayName("Thu hồi theo lease: cutoff = now - lease-timeout, không theo thời gian đã chạy")
+    void recoveryUsesLeaseCutoff() {
+        LocalDateTime before = LocalDateTime.now();
+
+        scheduler.recoverStale();
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(exportJobRepository).requeueStale(cutoff.capture(), eq(3));
+        assertThat(cutoff.getValue())
+                .isAfterOrEqualTo(before.minusMinutes(2))
+                .isBeforeOrEqualTo(LocalDateTime.now().minusMinutes(2));
+    }
+}
@@ -0,0 +1,128 @@
+package com.fpm_2025.reportingservice.service.statistics;
+
+import com.fpm_2025.reportingservice.domain.model.Budget;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary;
+import com.fpm_2025.reportingservice.domain.model.CategorySummary.CategorySummaryType;
+import com.fpm_2025.reportingservice.domain.model.MonthlySummary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests cho {@link StatisticsEngine}.
+ *
+ * <p>Xác nhận:
+ * <ul>
+ *   <li>Growth rate tính từ tháng cũ nhất đến mới nhất, bất kể thứ tự query trả về</li>
+ *   <li>Danh mục gộp qua các tháng, chỉ tính chi tiêu; top-N và Herfindahl đúng</li>
+ *   <li>Expense consistency và budget adherence được tính từ dữ liệu thật</li>
+ * </ul>
+ */
+@DisplayName("StatisticsEngine — Unit Tests")
+class StatisticsEngineTest {
+
+    private static MonthlySummary month(String yearMonth, String income, String expense) {
+        return MonthlySummary.builder()
+                .yearMonth(yearMonth)
+                .totalIncome(new BigDecimal(income))
+                .totalExpense(new BigDecimal(expense))
+                .transactionCount(10)
+                .build();
+    }
+
+    private static CategorySummary category(long id, String month, CategorySummaryType type, String amount) {
+        return CategorySummary.builder()
+                .categoryId(id)
+                .categoryName("Category #" + id)
+                .yearMonth(month)
+                .type(type)
+                .totalAmount(new BigDecimal(amount))
+                .transactionCount(2)
+                .build();
+    }
+
+    private static Budget budget(String limit, String used) {
+        return Budget.builder()
+                .amountLimit(new BigDecimal(limit))
+                .amountUsed(new BigDecimal(used))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Growth rate đi từ tháng cũ → mới dù input sắp xếp DESC")
+    @SuppressWarnings("unchecked")
+    void growthUsesChronologicalOrder() {
+        Map<String, Object> stats = new StatisticsEngine(5)
+                .monthlySummaries(List.of(
+                        month("2025-03", "2000", "1000"),
+                        month("2025-02", "1500", "1000"),
+                        month("2025-01", "1000", "1000")))
+                .categorySummaries(List.of())
+                .budgets(List.of())
+                .result();
+
+        Map<String, Object> trends = (Map<String, Object>) stats.get("trends");
+        assertThat((BigDecimal) trends.get("incomeGrowthRate")).isEqualByComparingTo("100");
+        assertThat(trends.get("incomeTrend")).isEqualTo("INCREASING");
+        assertThat((List<Map<String, Object>>) trends.get("monthlyData"))
+                .extracting(m -> m.get("month"))
+                .containsExactly("2025-01", "2025-02", "2025-03");
+
+        Map<String, Object> basic = (Map<String, Object>) stats.get("basicStats");
+        assertThat((BigDecimal) basic.get("totalIncome")).isEqualByComparingTo("4500");
+        assertThat(basic.get("totalTransactions")).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("Danh mục gộp qua tháng, bỏ qua thu nhập, top-N theo tổng chi")
+    @SuppressWarnings("unchecked")
+    void categoryInsightsAggregateExpenses() {
+        Map<String, Object> stats = new StatisticsEngine(2)
+                .monthlySummaries(List.of())
+                .categorySummaries(List.of(
+                        category(1, "2025-01", CategorySummaryType.EXPENSE, "300"),
+                        category(1, "2025-02", CategorySummaryType.EXPENSE, "300"),
+                        category(2, "2025-01", CategorySummaryType.EXPENSE, "200"),
+                        category(3, "2025-01", CategorySummaryType.EXPENSE, "200"),
+                        category(9, "2025-01", CategorySummaryType.INCOME, "5000")))
+                .budgets(List.of())
+                .result();
+
+        Map<String, Object> insights = (Map<String, Object>) stats.get("categoryInsights");
+        List<Map<String, Object>> top = (List<Map<String, Object>>) insights.get("topCategories");
+        assertThat(top).hasSize(2);
+        assertThat(top.get(0).get("categoryId")).isEqualTo(1L);
+        assertThat((BigDecimal) top.get(0).get("totalAmount")).isEqualByComparingTo("600");
+        assertThat((BigDecimal) top.get(0).get("percentage")).isEqualByComparingTo("60");
+        assertThat(insights.get("categoryCount")).isEqualTo(3);
+        // 0.6² + 0.2² + 0.2² = 0.44
+        assertThat((BigDecimal) insights.get("concentration")).isEqualByComparingTo("0.44");
+    }
+
+    @Test
+    @DisplayName("Health score dùng consistency và budget adherence thật")
+    @SuppressWarnings("unchecked")
+    void healthScoreComponents() {
+        Map<String, Object> stats = new StatisticsEngine(5)
+                .monthlySummaries(List.of(
+                        month("2025-01", "1000", "500"),
+                        month("2025-02", "1000", "500")))
+                .categorySummaries(List.of())
+                .budgets(List.of(
+                        budget("100", "80"),     // trong hạn mức → 1.0
+                        budget("100", "150")))   // vượt 50% → 0.5
+                .result();
+
+        Map<String, Object> health = (Map<String, Object>) stats.get("healthScore");
+        assertThat(health.get("savingsRateScore")).isEqualTo(40);         // savings rate 50%
+        assertThat(health.get("expenseConsistencyScore")).isEqualTo(30);  // chi tiêu không đổi
+        assertThat(health.get("budgetAdherenceScore")).isEqualTo(23);     // 30 × 0.75 = 22.5
+        assertThat(health.get("score")).isEqualTo(93);
+        assertThat(health.get("rating")).isEqualTo("EXCELLENT");
+    }
+}
@@ -9,7 +9,11 @@
 public class KafkaConfig {
 
     public static final String TRANSACTION_CREATED_TOPIC = "transaction.created";
-    
+    public static final String TRANSACTIONS_IMPORTED_TOPIC = "transactions.imported";
+
+    /** Header của transaction.created sinh ra từ bulk import (giá trị: importId). */
+    public static final String IMPORT_ID_HEADER = "x-import-id";
+
     @Bean
     public NewTopic transactionCreatedTopic() {
         return TopicBuilder.name(TRANSACTION_CREATED_TOPIC)
@@ -17,4 +21,12 @@ public NewTopic transactionCreatedTopic() {
                 .replicas(1)
                 .build();
     }
+
+    @Bean
+    public NewTopic transactionsImportedTopic() {
+        return TopicBuilder.name(TRANSACTIONS_IMPORTED_TOPIC)
+                .partitions(3)
+                .replicas(1)
+                .build();
+    }
 }
@@ -7,20 +7,32 @@
 import com.fpm2025.domain.dto.response.TransactionResponse;
 import com.fpm2025.domain.enums.CategoryType;
 import com.fpm2025.transaction_service.service.TransactionService;
+import com.fpm2025.transaction_service.service.archive.ArchivedTransactionException;
+import com.fpm2025.transaction_service.service.imports.ImportFormatException;
+import com.fpm2025.transaction_service.service.imports.ImportResult;
+import com.fpm2025.transaction_service.service.imports.TransactionImportService;
+import com.fpm2025.transaction_service.service.paging.CursorPage;
+import com.fpm2025.transaction_service.service.paging.InvalidCursorException;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 
 @RestController
@@ -30,6 +42,7 @@
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final TransactionImportService transactionImportService;
 
     @PostMapping
     @Operation(summary = "Create a new transaction")
@@ -42,6 +55,58 @@ public ResponseEntity<BaseResponse<TransactionResponse>> createTransaction(
                 .body(BaseResponse.success(response, "Transaction created successfully"));
     }
 
+    @PostMapping(value = "/bulk", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    @Operation(summary = "Bulk import transactions from a CSV or JSON body")
+    public ResponseEntity<BaseResponse<ImportResult>> importTransactions(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            HttpServletRequest request,
+            @AuthenticationPrincipal Long userId) throws IOException {
+
+        ImportResult result = MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                ? transactionImportService.importJson(userId, request.getInputStream())
+                : transactionImportService.importCsv(userId, request.getInputStream());
+        return importResponse(result);
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Bulk import transactions from an uploaded .csv or .json file")
+    public ResponseEntity<BaseResponse<ImportResult>> importTransactionsFile(
+            @RequestParam("file") MultipartFile file,
+            @AuthenticationPrincipal Long userId) throws IOException {
+
+        String name = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+        try (InputStream in = file.getInputStream()) {
+            ImportResult result = name.endsWith(".json")
+                    ? transactionImportService.importJson(userId, in)
+                    : transactionImportService.importCsv(userId, in);
+            return importResponse(result);
+        }
+    }
+
+    private ResponseEntity<BaseResponse<ImportResult>> importResponse(ImportResult result) {
+        if (result.isRejected()) {
+            return ResponseEntity.badRequest()
+                    .body(BaseResponse.error(result, result.errors().size() + " invalid rows, nothing imported"));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(BaseResponse.success(result, result.importedRows() + " transactions imported"));
+    }
+
+    @ExceptionHandler(ImportFormatException.class)
+    public ResponseEntity<BaseResponse<Void>> handleMalformedImport(ImportFormatException e) {
+        return ResponseEntity.badRequest().body(BaseResponse.error(null, e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<BaseResponse<Void>> handleInvalidCursor(InvalidCursorException e) {
+        return ResponseEntity.badRequest().body(BaseResponse.error(null, e.getMessage()));
+    }
+
+    @ExceptionHandler(ArchivedTransactionException.class)
+    public ResponseEntity<BaseResponse<Void>> handleArchived(ArchivedTransactionException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(BaseResponse.error(null, e.getMessage()));
+    }
+
     @PostMapping("/notification")
     @Operation(summary = "Process bank notification")
     public ResponseEntity<BaseResponse<TransactionResponse>> processNotification(
@@ -53,7 +118,10 @@ public ResponseEntity<BaseResponse<TransactionResponse>> processNotification(
     }
 
     @GetMapping
-    @Operation(summary = "List transactions")
+    @Operation(summary = "List transactions",
+               description = "Offset pagination, size is capped at transaction.list.max-page-size (100). "
+                       + "Deep pages get slower; prefer GET /api/v1/transactions/cursor. "
+                       + "Includes archived transactions (older than transaction.archive.horizon-months).")
     public ResponseEntity<BaseResponse<Page<TransactionResponse>>> listTransactions(
             @AuthenticationPrincipal Long userId,
             @RequestParam(required = false) Long walletId,
@@ -69,8 +137,29 @@ public ResponseEntity<BaseResponse<Page<TransactionResponse>>> listTransactions(
         return ResponseEntity.ok(BaseResponse.success(result, "Transactions retrieved successfully"));
     }
 
+    @GetMapping("/cursor")
+    @Operation(summary = "List transactions by cursor",
+               description = "Keyset pagination: pass nextCursor from the previous page as cursor. "
+                       + "size is capped at transaction.list.max-page-size (100). Includes archived transactions.")
+    public ResponseEntity<BaseResponse<CursorPage<TransactionResponse>>> listTransactionsByCursor(
+            @AuthenticationPrincipal Long userId,
+            @RequestParam(required = false) Long walletId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) CategoryType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Skip the COUNT(*) total (totalElements is null)")
+            @RequestParam(defaultValue = "false") boolean skipCount) {
+
+        CursorPage<TransactionResponse> result = transactionService.listTransactions(
+                userId, walletId, categoryId, type, startDate, endDate, cursor, 0, size, skipCount);
+        return ResponseEntity.ok(BaseResponse.success(result, "Transactions retrieved successfully"));
+    }
+
     @GetMapping("/{id}")
-    @Operation(summary = "Get transaction by ID")
+    @Operation(summary = "Get transaction by ID", description = "Also returns archived transactions.")
     public ResponseEntity<BaseResponse<TransactionResponse>> getTransaction(
             @PathVariable Long id,
             @AuthenticationPrincipal Long userId) {
@@ -79,7 +168,8 @@ public ResponseEntity<BaseResponse<TransactionResponse>> getTransaction(
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update transaction")
+    @Operation(summary = "Update transaction",
+               description = "Archived transactions are read-only: returns 409 Conflict.")
     public ResponseEntity<BaseResponse<TransactionResponse>> updateTransaction(
             @PathVariable Long id,
             @Valid @RequestBody UpdateTransactionRequest request,
@@ -89,7 +179,8 @@ public ResponseEntity<BaseResponse<TransactionResponse>> updateTransaction(
     }
 
     @DeleteMapping("/{id}")
-    @Operation(summary = "Delete transaction")
+    @Operation(summary = "Delete transaction",
+               description = "Archived transactions are read-only: returns 409 Conflict.")
     public ResponseEntity<BaseResponse<Void>> deleteTransaction(
             @PathVariable Long id,
             @AuthenticationPrincipal Long userId) {
@@ -4,9 +4,8 @@
 import com.fpm2025.domain.enums.CategoryType;
 import com.fpm2025.domain.event.ParsedNotificationEvent;
 import com.fpm2025.transaction_service.service.TransactionService;
-import com.fpm2025.grpc.protocol.UserWalletsRequest;
-import com.fpm2025.grpc.protocol.WalletGrpcServiceGrpc;
 import com.fpm2025.grpc.protocol.WalletsResponse;
+import com.fpm2025.transaction_service.grpc.WalletGrpcClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
@@ -22,17 +21,11 @@
 public class ParsedNotificationConsumer {
 
     private final TransactionService transactionService;
-    private final WalletGrpcServiceGrpc.WalletGrpcServiceBlockingStub walletStub;
+    private final WalletGrpcClient walletClient;
 
-    public ParsedNotificationConsumer(
-            TransactionService transactionService,
-            @org.springframework.beans.factory.annotation.Value("${grpc.client.wallet-service.address:localhost:9092}") String address) {
+    public ParsedNotificationConsumer(TransactionService transactionService, WalletGrpcClient walletClient) {
         this.transactionService = transactionService;
-        this.walletStub = WalletGrpcServiceGrpc.newBlockingStub(
-                io.grpc.ManagedChannelBuilder.forTarget(address)
-                        .usePlaintext()
-                        .build()
-        );
+        this.walletClient = walletClient;
     }
 
     @KafkaListener(topics = "notification.parsed", groupId = "transaction-group")
@@ -74,11 +67,7 @@ public void handleNotificationParsed(ParsedNotificationEvent event) {
 
     private Long resolveWalletId(Long userId, String account, String bankName) {
         try {
-            UserWalletsRequest request = UserWalletsRequest.newBuilder()
-                    .setUserId(userId)
-                    .setActiveOnly(true)
-                    .build();
-            WalletsResponse response = walletStub.getWalletsByUserId(request);
+            WalletsResponse response = walletClient.getWalletsByUserId(userId, true);
 
             if (response.getWalletsCount() == 0) return null;
 
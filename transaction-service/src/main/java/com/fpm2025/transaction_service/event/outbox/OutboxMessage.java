@@ -0,0 +1,60 @@
+package com.fpm2025.transaction_service.event.outbox;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Một message chờ publish qua outbox.
+ *
+ * @param topic   Kafka topic, hoặc exchange khi {@code destination} là RABBIT
+ *                ({@value #WALLET_BALANCE} với WALLET)
+ * @param key     Kafka key, hoặc routing key khi {@code destination} là RABBIT (wallet id với WALLET)
+ * @param headers Kafka header (chỉ dùng cho KAFKA)
+ * @param payload object được serialize JSON khi ghi outbox
+ */
+public record OutboxMessage(Destination destination, String topic, String key,
+                            Map<String, String> headers, Object payload) {
+
+    /** WALLET: gọi UpdateBalance của wallet-service với payload {@link WalletOperation}. */
+    public enum Destination { KAFKA, RABBIT, WALLET }
+
+    public static final String WALLET_BALANCE = "wallet.update-balance";
+
+    /**
+     * Payload của message WALLET, idempotent theo {@code operationKey}: APPLY cộng {@code delta} (âm = trừ) một lần,
+     * REVERT hoàn tác lần APPLY cùng khóa nếu nó đã được áp dụng ({@code delta}/{@code currency} bỏ trống).
+     */
+    public record WalletOperation(Long walletId, String operationKey, Action action,
+                                  BigDecimal delta, String currency, String description) {
+
+        public enum Action { APPLY, REVERT }
+    }
+
+    public static OutboxMessage kafka(String topic, String key, Object payload) {
+        return new OutboxMessage(Destination.KAFKA, topic, key, Map.of(), payload);
+    }
+
+    public static OutboxMessage kafka(String topic, String key, Object payload, Map<String, String> headers) {
+        return new OutboxMessage(Destination.KAFKA, topic, key, headers, payload);
+    }
+
+    public static OutboxMessage rabbit(String exchange, String routingKey, Object payload) {
+        return new OutboxMessage(Destination.RABBIT, exchange, routingKey, Map.of(), payload);
+    }
+
+    public static OutboxMessage walletApply(Long walletId, String operationKey, BigDecimal delta,
+                                            String currency, String description) {
+        return wallet(new WalletOperation(walletId, operationKey, WalletOperation.Action.APPLY,
+                delta, currency, description));
+    }
+
+    public static OutboxMessage walletRevert(Long walletId, String operationKey, String description) {
+        return wallet(new WalletOperation(walletId, operationKey, WalletOperation.Action.REVERT,
+                null, null, description));
+    }
+
+    private static OutboxMessage wallet(WalletOperation operation) {
+        return new OutboxMessage(Destination.WALLET, WALLET_BALANCE, String.valueOf(operation.walletId()),
+                Map.of(), operation);
+    }
+}
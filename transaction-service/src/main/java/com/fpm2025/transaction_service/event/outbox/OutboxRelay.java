@@ -0,0 +1,334 @@
+package com.fpm2025.transaction_service.event.outbox;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fpm2025.transaction_service.grpc.WalletGrpcClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publish các event trong outbox_events sang Kafka/RabbitMQ.
+ *
+ * Mỗi lượt poll lặp lại tới khi hết việc (tối đa {@code transaction.outbox.max-batches-per-poll} lô):
+ * - Claim tối đa {@code transaction.outbox.batch-size} dòng chưa gửi trong một transaction ngắn:
+ *   {@code FOR UPDATE SKIP LOCKED} rồi đặt lease — next_attempt_at = now + {@code transaction.outbox.lease}
+ *   và claim_token của lượt này — và commit ngay. Nhiều instance cùng chạy chia nhau các dòng; dòng đang
+ *   trong lease không bị instance khác lấy. Publish chạy ngoài transaction nên không giữ row lock hay
+ *   connection trong lúc chờ broker. Instance chết giữa chừng: hết lease thì dòng được claim lại.
+ * - Kafka: gửi bất đồng bộ cả lô rồi chờ ack một lần; producer riêng của relay gom message bằng
+ *   linger.ms/batch.size và nén ({@code transaction.outbox.kafka.*}), nên throughput tăng theo kích thước lô.
+ *   Payload đã là JSON nên producer dùng StringSerializer — byte gửi đi giống JsonSerializer
+ *   không kèm type header, consumer hiện tại đọc được như cũ.
+ * - RabbitMQ: convertAndSend tuần tự (chỉ notification, số lượng nhỏ).
+ * - WALLET: UpdateBalance tới wallet-service qua {@link WalletGrpcClient}, chờ ack cùng các message Kafka —
+ *   dòng chỉ được đánh dấu khi wallet-service xác nhận, lỗi thì thử lại như mọi destination khác.
+ *   Mỗi dòng mang operationKey cố định và wallet-service áp dụng mỗi khóa một lần (bảng balance_operations),
+ *   nên giao lại không cộng hai lần. {@code transaction.outbox.wallet-enabled=false} giữ các dòng WALLET trong
+ *   outbox (không claim) — dùng khi wallet-service đang chạy bản chưa dedupe theo khóa; bật lại thì relay gửi tiếp.
+ * - Dòng gửi được đánh dấu sent_at; dòng lỗi tăng attempts và lùi next_attempt_at (backoff mũ, tối đa
+ *   {@code transaction.outbox.max-backoff}). Cả hai chỉ cập nhật dòng còn mang claim_token của lượt này —
+ *   lease đã hết và dòng đã được instance khác claim lại thì kết quả của lượt cũ bị bỏ qua.
+ * Dòng đã gửi quá {@code transaction.outbox.retention} bị xóa theo lô bởi {@link #prune()}.
+ *
+ * Đảm bảo at-least-once: crash sau khi gửi nhưng trước khi ghi sent_at, hoặc publish lâu hơn lease,
+ * sẽ gửi lại dòng đó. Lease phải dài hơn {@code transaction.outbox.send-timeout}.
+ * Thứ tự giữ theo id trong một lô; dòng phải thử lại có thể đến sau các event mới hơn.
+ * Producer không khai báo thành bean để không thay thế KafkaTemplate mặc định của Spring Boot.
+ */
+@Slf4j
+@Component
+public class OutboxRelay {
+
+    private static final String CLAIM = """
+        SELECT id, destination, topic, message_key, headers, payload, attempts
+        FROM outbox_events
+        WHERE sent_at IS NULL AND next_attempt_at <= ? AND (? OR destination <> 'WALLET')
+        ORDER BY id
+        LIMIT ?
+        FOR UPDATE SKIP LOCKED
+        """;
+
+    private static final String LEASE = """
+        UPDATE outbox_events SET next_attempt_at = :leaseUntil, claim_token = :token
+        WHERE id IN (:ids)
+        """;
+
+    private static final String MARK_SENT = """
+        UPDATE outbox_events SET sent_at = :now, claim_token = NULL
+        WHERE id IN (:ids) AND claim_token = :token
+        """;
+
+    private static final String MARK_FAILED = """
+        UPDATE outbox_events SET attempts = attempts + 1, next_attempt_at = ?, last_error = ?, claim_token = NULL
+        WHERE id = ? AND claim_token = ?
+        """;
+
+    private static final String PRUNE = "DELETE FROM outbox_events WHERE sent_at < ? LIMIT ?";
+
+    private static final TypeReference<Map<String, String>> HEADERS = new TypeReference<>() {};
+
+    private record Row(long id, OutboxMessage.Destination destination, String topic, String key,
+                       String headers, String payload, int attempts) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final WalletGrpcClient walletClient;
+    private DefaultKafkaProducerFactory<String, String> producerFactory;
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${transaction.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transaction.outbox.wallet-enabled:true}")
+    private boolean walletEnabled;
+
+    @Value("${transaction.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${transaction.outbox.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+
+    @Value("${transaction.outbox.send-timeout:PT30S}")
+    private Duration sendTimeout;
+
+    @Value("${transaction.outbox.lease:PT2M}")
+    private Duration lease;
+
+    @Value("${transaction.outbox.max-backoff:PT5M}")
+    private Duration maxBackoff;
+
+    @Value("${transaction.outbox.retention:P1D}")
+    private Duration retention;
+
+    @Value("${transaction.outbox.kafka.linger-ms:20}")
+    private int lingerMs;
+
+    @Value("${transaction.outbox.kafka.batch-bytes:131072}")
+    private int batchBytes;
+
+    @Value("${transaction.outbox.kafka.compression:lz4}")
+    private String compression;
+
+    public OutboxRelay(JdbcTemplate jdbcTemplate,
+                       NamedParameterJdbcTemplate namedJdbcTemplate,
+                       TransactionTemplate transactionTemplate,
+                       RabbitTemplate rabbitTemplate,
+                       ObjectMapper objectMapper,
+                       WalletGrpcClient walletClient) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.walletClient = walletClient;
+    }
+
+    @PostConstruct
+    void init() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchBytes);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        producerFactory = new DefaultKafkaProducerFactory<>(props);
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        if (lease.compareTo(sendTimeout) <= 0) {
+            throw new IllegalStateException("transaction.outbox.lease (" + lease
+                    + ") must be longer than transaction.outbox.send-timeout (" + sendTimeout + ")");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        producerFactory.destroy();
+    }
+
+    @Scheduled(initialDelayString = "${transaction.outbox.initial-delay-ms:5000}",
+               fixedDelayString = "${transaction.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (int round = 0; round < maxBatchesPerPoll; round++) {
+                int claimed = relayBatch();
+                if (claimed < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Outbox relay failed", e);
+        }
+    }
+
+    /** Một lô: claim (transaction ngắn) → publish ngoài transaction → đánh dấu. Trả về số dòng đã claim. */
+    int relayBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        String token = UUID.randomUUID().toString();
+        List<Row> rows = transactionTemplate.execute(status -> claim(now, token));
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<Row, CompletableFuture<?>> pending = new HashMap<>();
+        List<Long> sent = new ArrayList<>(rows.size());
+        Map<Row, String> failed = new HashMap<>();
+        for (Row row : rows) {
+            try {
+                switch (row.destination()) {
+                    case KAFKA -> pending.put(row, kafkaTemplate.send(toRecord(row)));
+                    case WALLET -> pending.put(row, sendWallet(row));
+                    case RABBIT -> {
+                        rabbitTemplate.convertAndSend(row.topic(), row.key(), objectMapper.readValue(row.payload(), Object.class));
+                        sent.add(row.id());
+                    }
+                }
+            } catch (Exception e) {
+                failed.put(row, e.getMessage());
+            }
+        }
+
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        for (Map.Entry<Row, CompletableFuture<?>> entry : pending.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sent.add(entry.getKey().id());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.put(entry.getKey(), "interrupted");
+            } catch (ExecutionException | TimeoutException e) {
+                failed.put(entry.getKey(), e.getCause() != null ? e.getCause().getMessage() : e.toString());
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            int marked = namedJdbcTemplate.update(MARK_SENT, new MapSqlParameterSource()
+                    .addValue("now", Timestamp.valueOf(LocalDateTime.now()))
+                    .addValue("ids", sent)
+                    .addValue("token", token));
+            if (marked < sent.size()) {
+                log.warn("Outbox: lease expired for {} of {} published events, they may be delivered twice",
+                        sent.size() - marked, sent.size());
+            }
+        }
+        if (!failed.isEmpty()) {
+            LocalDateTime failedAt = LocalDateTime.now();
+            List<Object[]> args = new ArrayList<>(failed.size());
+            failed.forEach((row, error) -> args.add(new Object[] {
+                    Timestamp.valueOf(failedAt.plus(backoff(row.attempts() + 1))),
+                    error != null && error.length() > 500 ? error.substring(0, 500) : error,
+                    row.id(),
+                    token}));
+            jdbcTemplate.batchUpdate(MARK_FAILED, args);
+            log.warn("Outbox: {} of {} events failed to publish, will retry", failed.size(), rows.size());
+        }
+        log.debug("Outbox: published {} events", sent.size());
+        return rows.size();
+    }
+
+    /** Dòng WALLET không có operationKey (ghi trước khi có khóa idempotency) không được gửi — gửi lại có thể cộng hai lần. */
+    private CompletableFuture<?> sendWallet(Row row) throws Exception {
+        OutboxMessage.WalletOperation op = objectMapper.readValue(row.payload(), OutboxMessage.WalletOperation.class);
+        if (op.operationKey() == null || op.action() == null) {
+            throw new IllegalStateException("Wallet outbox event " + row.id() + " has no operation key");
+        }
+        return switch (op.action()) {
+            case APPLY -> walletClient.updateBalanceAsync(op.walletId(), op.delta(), op.currency(),
+                    op.description(), op.operationKey());
+            case REVERT -> walletClient.revertBalanceAsync(op.walletId(), op.operationKey(), op.description());
+        };
+    }
+
+    /** Chạy trong transaction ngắn: lock các dòng sẵn sàng, đặt lease, commit ngay khi trả về. */
+    private List<Row> claim(LocalDateTime now, String token) {
+        List<Row> rows = jdbcTemplate.query(CLAIM, (rs, i) -> new Row(
+                rs.getLong("id"),
+                OutboxMessage.Destination.valueOf(rs.getString("destination")),
+                rs.getString("topic"),
+                rs.getString("message_key"),
+                rs.getString("headers"),
+                rs.getString("payload"),
+                rs.getInt("attempts")), Timestamp.valueOf(now), walletEnabled, batchSize);
+        if (!rows.isEmpty()) {
+            namedJdbcTemplate.update(LEASE, new MapSqlParameterSource()
+                    .addValue("leaseUntil", Timestamp.valueOf(now.plus(lease)))
+                    .addValue("token", token)
+                    .addValue("ids", rows.stream().map(Row::id).toList()));
+        }
+        return rows;
+    }
+
+    private ProducerRecord<String, String> toRecord(Row row) throws Exception {
+        ProducerRecord<String, String> record = new ProducerRecord<>(row.topic(), row.key(), row.payload());
+        if (row.headers() != null) {
+            objectMapper.readValue(row.headers(), HEADERS).forEach((name, value) ->
+                    record.headers().add(name, value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return record;
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = Duration.ofSeconds(1L << Math.min(attempts, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    @Scheduled(initialDelayString = "${transaction.outbox.prune-initial-delay-ms:60000}",
+               fixedDelayString = "${transaction.outbox.prune-interval-ms:600000}")
+    public void prune() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+            int total = 0;
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(PRUNE, cutoff, batchSize);
+                total += deleted;
+            } while (deleted == batchSize);
+            if (total > 0) {
+                log.info("Outbox: pruned {} sent events older than {}", total, retention);
+            }
+        } catch (Exception e) {
+            log.error("Outbox prune failed", e);
+        }
+    }
+}
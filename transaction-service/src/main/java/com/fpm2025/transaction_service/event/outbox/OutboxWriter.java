@@ -0,0 +1,122 @@
+package com.fpm2025.transaction_service.event.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ghi event vào bảng outbox_events trong transaction DB của caller.
+ *
+ * Event chỉ tồn tại khi transaction nghiệp vụ commit — rollback thì event cũng mất — và request không
+ * còn chờ broker: {@link OutboxRelay} publish ở nền. Bắt buộc có transaction sẵn (MANDATORY).
+ *
+ * Ngoại lệ là event dự phòng ({@link #appendDeferred}): ghi và commit ngay trong transaction riêng để
+ * sống sót cả khi transaction nghiệp vụ rollback hay process chết, rồi được hủy cùng commit của
+ * transaction nghiệp vụ ({@link #cancel}). Dùng cho bù trừ số dư ví.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private static final String INSERT = """
+        INSERT INTO outbox_events (destination, topic, message_key, headers, payload)
+        VALUES (?, ?, ?, ?, ?)
+        """;
+
+    private static final String INSERT_DEFERRED = """
+        INSERT INTO outbox_events (destination, topic, message_key, headers, payload, next_attempt_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String CANCEL = """
+        UPDATE outbox_events SET sent_at = CURRENT_TIMESTAMP(3), last_error = 'cancelled'
+        WHERE id = ? AND sent_at IS NULL
+        """;
+
+    private static final String RELEASE = """
+        UPDATE outbox_events SET next_attempt_at = CURRENT_TIMESTAMP(3)
+        WHERE id = ? AND sent_at IS NULL AND claim_token IS NULL
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OutboxMessage message) {
+        jdbcTemplate.update(INSERT, args(message));
+    }
+
+    /** Ghi nhiều event bằng JDBC batch (bulk import). */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<OutboxMessage> messages, int batchSize) {
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            List<Object[]> batch = messages.subList(from, Math.min(from + batchSize, messages.size())).stream()
+                    .map(this::args)
+                    .toList();
+            jdbcTemplate.batchUpdate(INSERT, batch);
+        }
+    }
+
+    /**
+     * Ghi event trong transaction riêng (commit ngay), chỉ đến hạn gửi sau {@code delay}.
+     * Trả về id để {@link #cancel} hoặc {@link #release}.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long appendDeferred(OutboxMessage message, Duration delay) {
+        Object[] args = args(message);
+        Timestamp due = Timestamp.valueOf(LocalDateTime.now().plus(delay));
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_DEFERRED, Statement.RETURN_GENERATED_KEYS);
+            for (int i = 0; i < args.length; i++) {
+                ps.setObject(i + 1, args[i]);
+            }
+            ps.setTimestamp(args.length + 1, due);
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    /**
+     * Hủy event của {@link #appendDeferred} trong transaction của caller: commit thì event không bao giờ
+     * được gửi, rollback thì event còn nguyên. Dòng bị lock tới khi transaction kết thúc nên relay không claim được.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancel(long id) {
+        jdbcTemplate.update(CANCEL, id);
+    }
+
+    /** Cho event của {@link #appendDeferred} đến hạn ngay thay vì chờ hết {@code delay}. */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(long id) {
+        jdbcTemplate.update(RELEASE, id);
+    }
+
+    private Object[] args(OutboxMessage message) {
+        try {
+            return new Object[] {
+                    message.destination().name(),
+                    message.topic(),
+                    message.key(),
+                    message.headers() == null || message.headers().isEmpty()
+                            ? null : objectMapper.writeValueAsString(message.headers()),
+                    objectMapper.writeValueAsString(message.payload())
+            };
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize outbox payload for " + message.topic(), e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.fpm2025.transaction_service.grpc;
+
+import com.fpm2025.grpc.protocol.TransactionResponse;
+import com.fpm2025.grpc.protocol.TransactionsResponse;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.time.Duration;
+
+/**
+ * Gom bản ghi thành từng chunk {@link TransactionsResponse} và chỉ gửi khi transport sẵn sàng.
+ *
+ * Thread gọi {@link #add} bị chặn khi buffer phía client đầy, nhờ đó cursor DB phía sau
+ * cũng dừng đọc theo — bộ nhớ server chỉ phụ thuộc kích thước chunk, không phụ thuộc số dòng.
+ *
+ * Lưu ý: handler của RPC chạy trên serializing executor của call, nên onReadyHandler
+ * có thể không được gọi cho tới khi handler trả về. Vì vậy ở đây poll {@code isReady()}
+ * (trạng thái lấy trực tiếp từ transport) với timeout ngắn thay vì chỉ chờ callback.
+ *
+ * Trong lúc chờ, thread vẫn giữ transaction đọc và cursor streaming của MySQL (một connection của pool).
+ * Client không nhận tiếp quá {@code readyTimeout} thì {@link #add} ném DEADLINE_EXCEEDED: transaction
+ * rollback, cursor đóng và caller kết thúc stream bằng lỗi đó — client treo không giữ connection mãi.
+ */
+final class FlowControlledChunkWriter {
+
+    private static final long READY_POLL_MS = 50;
+
+    private final ServerCallStreamObserver<TransactionsResponse> observer;
+    private final int chunkSize;
+    private final Duration readyTimeout;
+    private final Object readyLock = new Object();
+
+    private TransactionsResponse.Builder current = TransactionsResponse.newBuilder();
+    private long sentCount;
+
+    FlowControlledChunkWriter(ServerCallStreamObserver<TransactionsResponse> observer, int chunkSize,
+                              Duration readyTimeout) {
+        this.observer = observer;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.readyTimeout = readyTimeout;
+        Runnable wakeUp = () -> {
+            synchronized (readyLock) {
+                readyLock.notifyAll();
+            }
+        };
+        observer.setOnReadyHandler(wakeUp);
+        observer.setOnCancelHandler(wakeUp);
+    }
+
+    void add(TransactionResponse transaction) {
+        current.addTransactions(transaction);
+        if (current.getTransactionsCount() >= chunkSize) {
+            flush();
+        }
+    }
+
+    /** Gửi phần còn lại và đóng stream. */
+    void complete() {
+        if (current.getTransactionsCount() > 0) {
+            flush();
+        }
+        observer.onCompleted();
+    }
+
+    long getSentCount() {
+        return sentCount;
+    }
+
+    private void flush() {
+        awaitReady();
+        int size = current.getTransactionsCount();
+        observer.onNext(current.build());
+        sentCount += size;
+        current = TransactionsResponse.newBuilder();
+    }
+
+    private void awaitReady() {
+        long deadline = System.nanoTime() + readyTimeout.toNanos();
+        synchronized (readyLock) {
+            while (!observer.isReady()) {
+                throwIfCancelled();
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMs <= 0) {
+                    throw Status.DEADLINE_EXCEEDED
+                            .withDescription("Client did not read the stream within " + readyTimeout)
+                            .asRuntimeException();
+                }
+                try {
+                    readyLock.wait(Math.min(READY_POLL_MS, remainingMs));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw Status.CANCELLED.withDescription("Stream interrupted").asRuntimeException();
+                }
+            }
+        }
+        throwIfCancelled();
+    }
+
+    private void throwIfCancelled() {
+        if (observer.isCancelled()) {
+            throw Status.CANCELLED.withDescription("Client cancelled stream").asRuntimeException();
+        }
+    }
+}
@@ -1,23 +1,30 @@
 package com.fpm2025.transaction_service.grpc;
 
-import com.fpm2025.grpc.protocol.Money;
 import com.fpm2025.grpc.protocol.PageResponse;
 import com.fpm2025.grpc.protocol.*;
 import com.fpm2025.domain.dto.request.TransactionRequest;
 import com.fpm2025.domain.dto.response.TransactionResponse;
 import com.fpm2025.domain.enums.CategoryType;
 import com.fpm2025.transaction_service.entity.TransactionEntity;
+import com.fpm2025.transaction_service.repository.TransactionAggregateRepository;
 import com.fpm2025.transaction_service.service.TransactionService;
+import com.fpm2025.transaction_service.service.paging.CursorPage;
+import com.fpm2025.transaction_service.service.paging.InvalidCursorException;
 
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.grpc.server.service.GrpcService;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
 @GrpcService
@@ -29,6 +36,13 @@ public class TransactionServiceGrpcImpl extends TransactionGrpcServiceGrpc.Trans
 
     private static final DateTimeFormatter ISO_FORMATTER = DateTimeFormatter.ISO_DATE_TIME;
 
+    @Value("${grpc.server.stream.chunk-size:500}")
+    private int streamChunkSize;
+
+    /** Thời gian tối đa chờ client đọc tiếp một chunk trước khi hủy stream (đang giữ connection DB). */
+    @Value("${grpc.server.stream.ready-timeout:PT30S}")
+    private Duration streamReadyTimeout;
+
     @Override
     public void getTransactionById(TransactionIdRequest request,
                                    StreamObserver<com.fpm2025.grpc.protocol.TransactionResponse> responseObserver) {
@@ -54,21 +68,20 @@ public void getTransactionsByWallet(WalletTransactionsRequest request,
             int page = Math.max(0, request.getPage());
             int size = request.getSize() > 0 ? request.getSize() : 20;
 
-            var pagedResult = transactionService.findByWalletIdRaw(request.getWalletId(), page, size);
+            var pagedResult = transactionService.findByWalletIdRaw(
+                    request.getWalletId(), request.getCursor(), page, size, request.getSkipCount());
 
             TransactionsResponse.Builder builder = TransactionsResponse.newBuilder();
-            for (TransactionEntity e : pagedResult.getContent()) {
+            for (TransactionEntity e : pagedResult.content()) {
                 builder.addTransactions(toProto(e));
             }
 
-            builder.setPageInfo(PageResponse.newBuilder()
-                    .setCurrentPage(page)
-                    .setTotalPages(pagedResult.getTotalPages())
-                    .setTotalElements((int) pagedResult.getTotalElements())
-                    .build());
+            builder.setPageInfo(pageInfo(pagedResult, page));
 
             responseObserver.onNext(builder.build());
             responseObserver.onCompleted();
+        } catch (InvalidCursorException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
         } catch (Exception e) {
             log.error("gRPC: getTransactionsByWallet failed", e);
             responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
@@ -100,6 +113,100 @@ public void getTransactionsByDateRange(DateRangeRequest request,
         }
     }
 
+    /**
+     * Server-streaming: trả giao dịch theo từng chunk thay vì một TransactionsResponse khổng lồ.
+     * Đọc DB bằng cursor và tôn trọng flow control của gRPC, dừng ngay khi client huỷ.
+     */
+    @Override
+    public void streamTransactionsByDateRange(DateRangeRequest request,
+                                              StreamObserver<TransactionsResponse> responseObserver) {
+        log.info("gRPC: streamTransactionsByDateRange called for userId: {} [{} → {}]",
+                request.getUserId(), request.getStartDate(), request.getEndDate());
+        FlowControlledChunkWriter writer = new FlowControlledChunkWriter(
+                (ServerCallStreamObserver<TransactionsResponse>) responseObserver, streamChunkSize, streamReadyTimeout);
+        try {
+            LocalDateTime start = LocalDateTime.parse(request.getStartDate(), ISO_FORMATTER);
+            LocalDateTime end   = LocalDateTime.parse(request.getEndDate(), ISO_FORMATTER);
+            List<Long> walletIds = request.getWalletIdsList().isEmpty() ? null : request.getWalletIdsList();
+
+            transactionService.streamByUserAndDateRange(
+                    request.getUserId(), start, end, walletIds, e -> writer.add(toProto(e)));
+            writer.complete();
+            log.info("gRPC: streamTransactionsByDateRange sent {} transactions", writer.getSentCount());
+        } catch (StatusRuntimeException e) {
+            if (e.getStatus().getCode() == Status.Code.CANCELLED) {
+                log.info("gRPC: streamTransactionsByDateRange cancelled by client after {} transactions",
+                        writer.getSentCount());
+                return;
+            }
+            if (e.getStatus().getCode() == Status.Code.DEADLINE_EXCEEDED) {
+                log.warn("gRPC: streamTransactionsByDateRange aborted, client stalled after {} transactions",
+                        writer.getSentCount());
+            } else {
+                log.error("gRPC: streamTransactionsByDateRange failed", e);
+            }
+            responseObserver.onError(e);
+        } catch (Exception e) {
+            log.error("gRPC: streamTransactionsByDateRange failed", e);
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
+    /**
+     * Tổng hợp theo SQL GROUP BY — chỉ trả các bucket (tổng + số lượng), không trả từng giao dịch.
+     */
+    @Override
+    public void aggregateTransactions(AggregateTransactionsRequest request,
+                                      StreamObserver<AggregateTransactionsResponse> responseObserver) {
+        log.info("gRPC: aggregateTransactions called for userId: {} [{} → {}] groupBy={}",
+                request.getUserId(), request.getStartDate(), request.getEndDate(), request.getGroupByList());
+        try {
+            LocalDateTime start = LocalDateTime.parse(request.getStartDate(), ISO_FORMATTER);
+            LocalDateTime end   = LocalDateTime.parse(request.getEndDate(), ISO_FORMATTER);
+            CategoryType type = request.getType().isEmpty() ? null : CategoryType.valueOf(request.getType().toUpperCase());
+
+            List<TransactionAggregateRepository.Dimension> groupBy = new ArrayList<>();
+            for (AggregationDimension d : request.getGroupByList()) {
+                switch (d) {
+                    case MONTH -> groupBy.add(TransactionAggregateRepository.Dimension.MONTH);
+                    case DAY -> groupBy.add(TransactionAggregateRepository.Dimension.DAY);
+                    case CATEGORY -> groupBy.add(TransactionAggregateRepository.Dimension.CATEGORY);
+                    case TYPE -> groupBy.add(TransactionAggregateRepository.Dimension.TYPE);
+                    case WALLET -> groupBy.add(TransactionAggregateRepository.Dimension.WALLET);
+                    default -> throw Status.INVALID_ARGUMENT
+                            .withDescription("Unsupported group-by dimension: " + d)
+                            .asRuntimeException();
+                }
+            }
+
+            List<TransactionAggregateRepository.Bucket> buckets = transactionService.aggregate(
+                    request.getUserId(), start, end,
+                    request.getWalletIdsList(), request.getCategoryIdsList(), type, groupBy);
+
+            AggregateTransactionsResponse.Builder builder = AggregateTransactionsResponse.newBuilder();
+            for (TransactionAggregateRepository.Bucket b : buckets) {
+                AggregateBucket.Builder bucket = AggregateBucket.newBuilder()
+                        .setTotal(MoneyUnits.toProto(b.total(), "VND"))
+                        .setCount(b.count());
+                if (b.month() != null) bucket.setMonth(b.month());
+                if (b.day() != null) bucket.setDay(b.day().toString());
+                if (b.categoryId() != null) bucket.setCategoryId(b.categoryId());
+                if (b.type() != null) bucket.setType(b.type());
+                if (b.walletId() != null) bucket.setWalletId(b.walletId());
+                builder.addBuckets(bucket.build());
+            }
+            responseObserver.onNext(builder.build());
+            responseObserver.onCompleted();
+        } catch (StatusRuntimeException e) {
+            responseObserver.onError(e);
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
+        } catch (Exception e) {
+            log.error("gRPC: aggregateTransactions failed", e);
+            responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
+        }
+    }
+
     @Override
     public void getTransactionsByUser(UserTransactionsRequest request,
                                       StreamObserver<TransactionsResponse> responseObserver) {
@@ -109,22 +216,21 @@ public void getTransactionsByUser(UserTransactionsRequest request,
             int size = request.getSize() > 0 ? request.getSize() : 20;
 
             var pagedResult = transactionService.listTransactions(
-                    request.getUserId(), null, null, null, null, null, page, size);
+                    request.getUserId(), null, null, null, null, null,
+                    request.getCursor(), page, size, request.getSkipCount());
 
             TransactionsResponse.Builder builder = TransactionsResponse.newBuilder();
 
-            for (TransactionResponse r : pagedResult.getContent()) {
+            for (TransactionResponse r : pagedResult.content()) {
                 builder.addTransactions(dtoToProto(r));
             }
 
-            builder.setPageInfo(PageResponse.newBuilder()
-                    .setCurrentPage(page)
-                    .setTotalPages(pagedResult.getTotalPages())
-                    .setTotalElements((int) pagedResult.getTotalElements())
-                    .build());
+            builder.setPageInfo(pageInfo(pagedResult, page));
 
             responseObserver.onNext(builder.build());
             responseObserver.onCompleted();
+        } catch (InvalidCursorException e) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException());
         } catch (Exception e) {
             log.error("gRPC: getTransactionsByUser failed", e);
             responseObserver.onError(Status.INTERNAL.withDescription(e.getMessage()).asRuntimeException());
@@ -138,7 +244,7 @@ public void createTransaction(com.fpm2025.grpc.protocol.CreateTransactionRequest
         try {
             TransactionRequest dto = new TransactionRequest();
             dto.setWalletId(request.getWalletId());
-            dto.setAmount(BigDecimal.valueOf(request.getAmount().getAmount()));
+            dto.setAmount(MoneyUnits.fromProto(request.getAmount()));
             dto.setCurrency(request.getAmount().getCurrency());
             dto.setType(CategoryType.valueOf(request.getType().toUpperCase()));
             dto.setDescription(request.getDescription());
@@ -181,10 +287,7 @@ public void getTotalSpending(SpendingRequest request,
                     .count();
 
             SpendingResponse response = SpendingResponse.newBuilder()
-                    .setTotalAmount(Money.newBuilder()
-                            .setAmount(total.doubleValue())
-                            .setCurrency("VND")
-                    .build())
+                    .setTotalAmount(MoneyUnits.toProto(total, "VND"))
                     .setTransactionCount((int) expenseCount)
                     .build();
 
@@ -196,15 +299,25 @@ public void getTotalSpending(SpendingRequest request,
         }
     }
 
+    /** totalPages/totalElements để 0 khi client bỏ qua COUNT (skip_count). */
+    private static PageResponse pageInfo(CursorPage<?> page, int currentPage) {
+        PageResponse.Builder info = PageResponse.newBuilder()
+                .setCurrentPage(currentPage)
+                .setHasNext(page.hasNext())
+                .setNextCursor(page.nextCursor() != null ? page.nextCursor() : "");
+        if (page.totalElements() != null) {
+            info.setTotalElements(page.totalElements().intValue())
+                .setTotalPages((int) ((page.totalElements() + page.size() - 1) / page.size()));
+        }
+        return info.build();
+    }
+
     private com.fpm2025.grpc.protocol.TransactionResponse toProto(TransactionEntity e) {
         return com.fpm2025.grpc.protocol.TransactionResponse.newBuilder()
                 .setId(e.getId() != null ? e.getId() : 0L)
                 .setWalletId(e.getWalletId() != null ? e.getWalletId() : 0L)
                 .setUserId(e.getUserId() != null ? e.getUserId() : 0L)
-                .setAmount(Money.newBuilder()
-                        .setAmount(e.getAmount() != null ? e.getAmount().doubleValue() : 0.0)
-                        .setCurrency(e.getCurrency() != null ? e.getCurrency() : "VND")
-                        .build())
+                .setAmount(MoneyUnits.toProto(e.getAmount(), e.getCurrency()))
                 .setType(e.getType() != null ? e.getType().name() : "")
                 .setDescription(e.getDescription() != null ? e.getDescription() : "")
                 .setCategoryId(e.getCategoryId() != null ? e.getCategoryId() : 0L)
@@ -221,10 +334,7 @@ private com.fpm2025.grpc.protocol.TransactionResponse dtoToProto(TransactionResp
                 .setId(r.getId() != null ? r.getId() : 0L)
                 .setWalletId(r.getWalletId() != null ? r.getWalletId() : 0L)
                 .setUserId(r.getUserId() != null ? r.getUserId() : 0L)
-                .setAmount(Money.newBuilder()
-                        .setAmount(r.getAmount() != null ? r.getAmount().doubleValue() : 0.0)
-                        .setCurrency(r.getCurrency() != null ? r.getCurrency() : "VND")
-                        .build())
+                .setAmount(MoneyUnits.toProto(r.getAmount(), r.getCurrency()))
                 .setType(r.getType() != null ? r.getType().name() : "")
                 .setDescription(r.getDescription() != null ? r.getDescription() : "")
                 .setCategoryId(r.getCategoryId() != null ? r.getCategoryId() : 0L)
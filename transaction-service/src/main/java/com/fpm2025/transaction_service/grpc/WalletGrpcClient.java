@@ -0,0 +1,180 @@
+package com.fpm2025.transaction_service.grpc;
+
+import com.fpm2025.grpc.protocol.UpdateBalanceRequest;
+import com.fpm2025.grpc.protocol.UserWalletsRequest;
+import com.fpm2025.grpc.protocol.WalletAccessRequest;
+import com.fpm2025.grpc.protocol.WalletGrpcServiceGrpc;
+import com.fpm2025.grpc.protocol.WalletResponse;
+import com.fpm2025.grpc.protocol.WalletsResponse;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.stub.MetadataUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * gRPC client dùng chung tới wallet-service — một {@link ManagedChannel} cho cả service, đóng khi shutdown.
+ *
+ * Cấu hình ({@code grpc.client.wallet-service.*}):
+ * - address: target của channel, ví dụ {@code dns:///wallet-service:9092} — resolver DNS trả mọi instance,
+ *   load-balancing-policy (mặc định round_robin) chia call cho các instance đó.
+ * - deadline: deadline của mỗi call (mặc định 3s) — không còn call treo vô hạn giữ thread.
+ * - keepalive-time / keepalive-timeout: ping HTTP/2 để phát hiện kết nối chết khi không có traffic.
+ * - max-retry-attempts: retry UNAVAILABLE cho các RPC chỉ đọc (GetWalletsByUserId, ValidateWalletAccess).
+ *   UpdateBalance không có retry policy ở channel — gửi lại được làm bền vững qua outbox (WalletBalanceUpdater).
+ *
+ * Cập nhật số dư đi qua future stub ({@link #updateBalanceAsync}) để caller chạy song song với ghi DB.
+ * Mỗi cập nhật mang khóa idempotency (header {@value #OPERATION_KEY_HEADER}): wallet-service áp dụng mỗi khóa
+ * một lần, nên gửi lại sau timeout hay relay giao lại đều an toàn; {@link #revertBalanceAsync} hoàn tác
+ * lần cập nhật mang khóa đó chỉ khi nó đã được áp dụng.
+ */
+@Slf4j
+@Component
+public class WalletGrpcClient {
+
+    /** Header do BalanceOperationHeaders của wallet-service đọc. */
+    static final String OPERATION_KEY_HEADER = "balance-operation-key";
+    static final String OPERATION_ACTION_HEADER = "balance-operation-action";
+
+    private static final Metadata.Key<String> OPERATION_KEY =
+            Metadata.Key.of(OPERATION_KEY_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Metadata.Key<String> OPERATION_ACTION =
+            Metadata.Key.of(OPERATION_ACTION_HEADER, Metadata.ASCII_STRING_MARSHALLER);
+
+    private final ManagedChannel channel;
+    private final WalletGrpcServiceGrpc.WalletGrpcServiceBlockingStub blockingStub;
+    private final WalletGrpcServiceGrpc.WalletGrpcServiceFutureStub futureStub;
+    private final Duration deadline;
+
+    public WalletGrpcClient(
+            @Value("${grpc.client.wallet-service.address:localhost:9092}") String address,
+            @Value("${grpc.client.wallet-service.deadline:PT3S}") Duration deadline,
+            @Value("${grpc.client.wallet-service.keepalive-time:PT30S}") Duration keepAliveTime,
+            @Value("${grpc.client.wallet-service.keepalive-timeout:PT10S}") Duration keepAliveTimeout,
+            @Value("${grpc.client.wallet-service.max-retry-attempts:3}") int maxRetryAttempts,
+            @Value("${grpc.client.wallet-service.load-balancing-policy:round_robin}") String loadBalancingPolicy) {
+        log.info("[gRPC] Initializing WalletGrpcClient for address: {}", address);
+        this.deadline = deadline;
+        this.channel = ManagedChannelBuilder.forTarget(address)
+                .usePlaintext()
+                .defaultLoadBalancingPolicy(loadBalancingPolicy)
+                .keepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+                .keepAliveTimeout(keepAliveTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .defaultServiceConfig(serviceConfig(maxRetryAttempts))
+                .enableRetry()
+                .build();
+        this.blockingStub = WalletGrpcServiceGrpc.newBlockingStub(channel);
+        this.futureStub = WalletGrpcServiceGrpc.newFutureStub(channel);
+    }
+
+    /** Retry policy cho các RPC chỉ đọc; số trong service config phải là Double. */
+    private static Map<String, Object> serviceConfig(int maxRetryAttempts) {
+        List<Map<String, Object>> readMethods = List.of(
+                Map.of("service", WalletGrpcServiceGrpc.SERVICE_NAME,
+                        "method", WalletGrpcServiceGrpc.getGetWalletsByUserIdMethod().getBareMethodName()),
+                Map.of("service", WalletGrpcServiceGrpc.SERVICE_NAME,
+                        "method", WalletGrpcServiceGrpc.getValidateWalletAccessMethod().getBareMethodName()));
+        Map<String, Object> retryPolicy = Map.of(
+                "maxAttempts", (double) maxRetryAttempts,
+                "initialBackoff", "0.1s",
+                "maxBackoff", "1s",
+                "backoffMultiplier", 2.0,
+                "retryableStatusCodes", List.of("UNAVAILABLE"));
+        return Map.of("methodConfig", List.of(Map.of("name", readMethods, "retryPolicy", retryPolicy)));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        channel.shutdown();
+        if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+            channel.shutdownNow();
+        }
+    }
+
+    public WalletsResponse getWalletsByUserId(Long userId, boolean activeOnly) {
+        return blocking().getWalletsByUserId(UserWalletsRequest.newBuilder()
+                .setUserId(userId)
+                .setActiveOnly(activeOnly)
+                .build());
+    }
+
+    public boolean hasWalletAccess(Long userId, Long walletId) {
+        return blocking().validateWalletAccess(WalletAccessRequest.newBuilder()
+                .setUserId(userId)
+                .setWalletId(walletId)
+                .build()).getHasAccess();
+    }
+
+    /**
+     * Cộng {@code delta} (âm = trừ) vào số dư ví một lần duy nhất cho {@code operationKey}, không chặn thread gọi.
+     * delta = 0 trả về future đã hoàn tất với null.
+     */
+    public CompletableFuture<WalletResponse> updateBalanceAsync(Long walletId, BigDecimal delta, String currency,
+                                                                String description, String operationKey) {
+        if (delta.signum() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        UpdateBalanceRequest request = UpdateBalanceRequest.newBuilder()
+                .setWalletId(walletId)
+                .setAmount(MoneyUnits.toProto(delta.abs(), currency))
+                .setOperation(delta.signum() < 0 ? "SUBTRACT" : "ADD")
+                .setDescription(description != null ? description : "")
+                .build();
+        return toCompletable(keyed(operationKey, "APPLY").updateBalance(request));
+    }
+
+    /**
+     * Hoàn tác lần cập nhật mang {@code operationKey} nếu wallet-service đã áp dụng nó; chưa áp dụng thì
+     * wallet-service ghi nhận khóa là đã hủy để lần cập nhật đến muộn bị bỏ qua. Gọi lại nhiều lần an toàn.
+     */
+    public CompletableFuture<WalletResponse> revertBalanceAsync(Long walletId, String operationKey, String description) {
+        UpdateBalanceRequest request = UpdateBalanceRequest.newBuilder()
+                .setWalletId(walletId)
+                .setOperation("REVERT")
+                .setDescription(description != null ? description : "")
+                .build();
+        return toCompletable(keyed(operationKey, "REVERT").updateBalance(request));
+    }
+
+    private WalletGrpcServiceGrpc.WalletGrpcServiceFutureStub keyed(String operationKey, String action) {
+        Metadata headers = new Metadata();
+        headers.put(OPERATION_KEY, operationKey);
+        headers.put(OPERATION_ACTION, action);
+        return futureStub.withInterceptors(MetadataUtils.newAttachHeadersInterceptor(headers))
+                .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private WalletGrpcServiceGrpc.WalletGrpcServiceBlockingStub blocking() {
+        return blockingStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> CompletableFuture<T> toCompletable(ListenableFuture<T> listenable) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Futures.addCallback(listenable, new FutureCallback<>() {
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+}
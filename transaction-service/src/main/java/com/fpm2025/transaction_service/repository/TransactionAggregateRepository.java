@@ -0,0 +1,144 @@
+package com.fpm2025.transaction_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tổng hợp giao dịch bằng SQL GROUP BY — trả về O(số bucket) dòng thay vì O(số giao dịch).
+ *
+ * Câu SQL được ghép từ {@link Dimension} (whitelist cố định), mọi giá trị do client gửi lên
+ * đều đi qua named parameter.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionAggregateRepository {
+
+    public enum Dimension {
+        MONTH("DATE_FORMAT(transaction_date, '%Y-%m')", "bucket_month"),
+        DAY("DATE(transaction_date)", "bucket_day"),
+        CATEGORY("category_id", "category_id"),
+        TYPE("type", "type"),
+        WALLET("wallet_id", "wallet_id");
+
+        private final String expression;
+        private final String alias;
+
+        Dimension(String expression, String alias) {
+            this.expression = expression;
+            this.alias = alias;
+        }
+    }
+
+    /** Một bucket: các chiều không group-by là null. */
+    public record Bucket(String month, LocalDate day, Long categoryId, String type, Long walletId,
+                         BigDecimal total, long count) {}
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<Bucket> aggregate(Long userId, LocalDateTime start, LocalDateTime end,
+                                  Collection<Long> walletIds, Collection<Long> categoryIds, String type,
+                                  Collection<Dimension> groupBy) {
+        StringBuilder select = new StringBuilder("SELECT ");
+        StringBuilder groupClause = new StringBuilder();
+        for (Dimension d : groupBy) {
+            select.append(d.expression).append(" AS ").append(d.alias).append(", ");
+            groupClause.append(groupClause.isEmpty() ? " GROUP BY " : ", ").append(d.expression);
+        }
+        select.append("SUM(amount) AS total, COUNT(*) AS cnt FROM transactions");
+
+        StringBuilder where = new StringBuilder(
+            " WHERE user_id = :userId AND transaction_date BETWEEN :start AND :end");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("userId", userId)
+            .addValue("start", start)
+            .addValue("end", end);
+        if (walletIds != null && !walletIds.isEmpty()) {
+            where.append(" AND wallet_id IN (:walletIds)");
+            params.addValue("walletIds", walletIds);
+        }
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            where.append(" AND category_id IN (:categoryIds)");
+            params.addValue("categoryIds", categoryIds);
+        }
+        if (type != null) {
+            where.append(" AND type = :type");
+            params.addValue("type", type);
+        }
+
+        String sql = select.append(where).append(groupClause).toString();
+        return jdbcTemplate.query(sql, params, (rs, rowNum) -> toBucket(rs, groupBy));
+    }
+
+    private Bucket toBucket(ResultSet rs, Collection<Dimension> groupBy) throws SQLException {
+        String month = null;
+        LocalDate day = null;
+        Long categoryId = null;
+        String type = null;
+        Long walletId = null;
+        for (Dimension d : groupBy) {
+            switch (d) {
+                case MONTH -> month = rs.getString(d.alias);
+                case DAY -> {
+                    Date date = rs.getDate(d.alias);
+                    day = date != null ? date.toLocalDate() : null;
+                }
+                case CATEGORY -> categoryId = rs.getObject(d.alias, Long.class);
+                case TYPE -> type = rs.getString(d.alias);
+                case WALLET -> walletId = rs.getObject(d.alias, Long.class);
+            }
+        }
+        BigDecimal total = rs.getBigDecimal("total");
+        return new Bucket(month, day, categoryId, type, walletId,
+            total != null ? total : BigDecimal.ZERO, rs.getLong("cnt"));
+    }
+
+    /** Bucket của một giao dịch đơn lẻ (dòng đọc từ archive), cùng quy ước chiều với câu SQL. */
+    public static Bucket bucketOf(LocalDateTime transactionDate, Long categoryId, String type, Long walletId,
+                                  BigDecimal amount, Collection<Dimension> groupBy) {
+        return new Bucket(
+            groupBy.contains(Dimension.MONTH) ? YearMonth.from(transactionDate).toString() : null,
+            groupBy.contains(Dimension.DAY) ? transactionDate.toLocalDate() : null,
+            groupBy.contains(Dimension.CATEGORY) ? categoryId : null,
+            groupBy.contains(Dimension.TYPE) ? type : null,
+            groupBy.contains(Dimension.WALLET) ? walletId : null,
+            amount, 1);
+    }
+
+    /** Gộp các bucket cùng khóa chiều: cộng total và count, giữ thứ tự xuất hiện đầu tiên. */
+    public static List<Bucket> merge(Collection<Bucket> buckets) {
+        Map<List<Object>, Bucket> merged = new LinkedHashMap<>();
+        for (Bucket b : buckets) {
+            merged.merge(Arrays.asList(b.month(), b.day(), b.categoryId(), b.type(), b.walletId()), b,
+                (x, y) -> new Bucket(x.month(), x.day(), x.categoryId(), x.type(), x.walletId(),
+                    x.total().add(y.total()), x.count() + y.count()));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /** Bỏ trùng, giữ thứ tự — tránh GROUP BY lặp cột. */
+    public static List<Dimension> distinct(Collection<Dimension> dimensions) {
+        List<Dimension> result = new ArrayList<>();
+        for (Dimension d : dimensions) {
+            if (!result.contains(d)) {
+                result.add(d);
+            }
+        }
+        return result;
+    }
+}
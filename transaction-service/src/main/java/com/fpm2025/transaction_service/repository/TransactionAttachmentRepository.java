@@ -9,4 +9,5 @@
 @Repository
 public interface TransactionAttachmentRepository extends JpaRepository<TransactionAttachmentEntity, Long> {
     List<TransactionAttachmentEntity> findByTransactionId(Long transactionId);
+    void deleteByTransactionId(Long transactionId);
 }
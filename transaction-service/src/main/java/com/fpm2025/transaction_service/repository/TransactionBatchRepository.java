@@ -0,0 +1,85 @@
+package com.fpm2025.transaction_service.repository;
+
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Ghi nhiều giao dịch bằng JDBC batch thay vì {@code save()} từng entity (IDENTITY buộc Hibernate
+ * INSERT từng dòng để lấy id).
+ *
+ * Với {@code rewriteBatchedStatements=true} trên JDBC URL, Connector/J gộp mỗi batch thành một câu
+ * INSERT nhiều VALUES; id sinh ra vẫn được đọc lại qua {@code getGeneratedKeys()} theo đúng thứ tự dòng.
+ * Phải gọi trong transaction của caller.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionBatchRepository {
+
+    private static final String INSERT = """
+        INSERT INTO transactions
+            (user_id, wallet_id, category_id, amount, currency, type, transaction_date,
+             description, note, location, is_recurring, status, created_at, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * INSERT {@code entities} theo lô {@code batchSize} dòng và gán id sinh ra vào từng entity.
+     */
+    public void insertAll(List<TransactionEntity> entities, int batchSize) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < entities.size(); from += batchSize) {
+                    List<TransactionEntity> chunk = entities.subList(from, Math.min(from + batchSize, entities.size()));
+                    for (TransactionEntity e : chunk) {
+                        bind(ps, e);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (TransactionEntity e : chunk) {
+                            if (!keys.next()) {
+                                throw new IllegalStateException("Missing generated key for batch insert");
+                            }
+                            e.setId(keys.getLong(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void bind(PreparedStatement ps, TransactionEntity e) throws SQLException {
+        ps.setLong(1, e.getUserId());
+        ps.setLong(2, e.getWalletId());
+        if (e.getCategoryId() != null) {
+            ps.setLong(3, e.getCategoryId());
+        } else {
+            ps.setNull(3, Types.BIGINT);
+        }
+        ps.setBigDecimal(4, e.getAmount());
+        ps.setString(5, e.getCurrency());
+        ps.setString(6, e.getType().name());
+        ps.setTimestamp(7, Timestamp.valueOf(e.getTransactionDate()));
+        ps.setString(8, e.getDescription());
+        ps.setString(9, e.getNote());
+        ps.setString(10, e.getLocation());
+        ps.setBoolean(11, Boolean.TRUE.equals(e.getIsRecurring()));
+        ps.setString(12, e.getStatus().name());
+        ps.setTimestamp(13, Timestamp.valueOf(e.getCreatedAt()));
+        ps.setTimestamp(14, Timestamp.valueOf(e.getUpdatedAt()));
+    }
+}
@@ -0,0 +1,359 @@
+package com.fpm2025.transaction_service.repository;
+
+import com.fpm2025.domain.enums.CategoryType;
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import com.fpm2025.transaction_service.entity.enums.TransactionStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * DDL và metadata partition của bảng transactions, bảng staging {@value #STAGING_TABLE}, cùng manifest
+ * transaction_archives và index đoạn transaction_archive_segments.
+ *
+ * Partition: {@code p_history} (mọi thứ trước tháng đầu), {@code pYYYYMM} theo tháng, {@code p_max} (MAXVALUE).
+ * Tên partition chỉ đến từ information_schema hoặc {@link #partitionName(YearMonth)} và được kiểm tra
+ * bằng regex trước khi ghép vào DDL.
+ */
+@Repository
+public class TransactionPartitionRepository {
+
+    public static final String MAX_PARTITION = "p_max";
+    public static final String STAGING_TABLE = "transaction_archive_staging";
+
+    private static final int SEGMENT_BATCH = 500;
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("p_history|p_max|p\\d{6}");
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final String PARTITIONS = """
+        SELECT PARTITION_NAME, PARTITION_DESCRIPTION
+        FROM information_schema.PARTITIONS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'transactions' AND PARTITION_NAME IS NOT NULL
+        ORDER BY PARTITION_ORDINAL_POSITION
+        """;
+
+    private static final String COLUMNS = """
+        id, user_id, wallet_id, category_id, amount, currency, type, transaction_date, description, note,
+        location, is_recurring, recurring_transaction_id, status, created_at, updated_at
+        """;
+
+    private static final String INSERT_STAGED = """
+        INSERT INTO transaction_archives (partition_name, upper_bound, status) VALUES (?, ?, 'STAGED')
+        """;
+
+    private static final String MARK_ARCHIVED = """
+        UPDATE transaction_archives
+        SET min_date = ?, max_date = ?, row_count = ?, file_path = ?, status = 'ARCHIVED',
+            archived_at = CURRENT_TIMESTAMP(3)
+        WHERE id = ?
+        """;
+
+    private static final String INSERT_SEGMENT = """
+        INSERT INTO transaction_archive_segments
+            (archive_id, user_id, wallet_id, byte_offset, byte_length, row_count, min_date, max_date, min_id, max_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+
+    private static final String ARCHIVE_COLUMNS = """
+        id, partition_name, upper_bound, min_date, max_date, row_count, file_path, status
+        """;
+
+    private static final String SEGMENT_COLUMNS = """
+        s.archive_id, s.user_id, s.wallet_id, s.byte_offset, s.byte_length, s.row_count,
+        s.min_date, s.max_date, s.min_id, s.max_id, a.file_path
+        """;
+
+    /** @param upperBound cận trên (exclusive); null với p_max */
+    public record Partition(String name, LocalDateTime upperBound) {}
+
+    /** Một lượt archive; min/max_date, rowCount, filePath null khi còn STAGED. */
+    public record Archive(long id, String partitionName, LocalDateTime upperBound, LocalDateTime minDate,
+                          LocalDateTime maxDate, Long rowCount, String filePath, String status) {}
+
+    /**
+     * Các dòng của một cặp (user, ví) trong file archive: một gzip member tại [offset, offset + length).
+     * filePath chỉ có khi đọc từ DB.
+     */
+    public record Segment(long archiveId, long userId, long walletId, long offset, long length, int rowCount,
+                          LocalDateTime minDate, LocalDateTime maxDate, long minId, long maxId, String filePath) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public TransactionPartitionRepository(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Connector/J chỉ stream từng dòng khi fetch size = Integer.MIN_VALUE
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public static String partitionName(YearMonth month) {
+        return "p" + month.format(MONTH_SUFFIX);
+    }
+
+    /** Các partition theo thứ tự cận trên tăng dần; rỗng nếu bảng chưa được partition. */
+    public List<Partition> partitions() {
+        return jdbcTemplate.query(PARTITIONS, (rs, i) -> {
+            String description = rs.getString("PARTITION_DESCRIPTION");
+            return new Partition(rs.getString("PARTITION_NAME"),
+                    description == null || "MAXVALUE".equals(description) ? null
+                            : LocalDateTime.parse(description.replace("'", "").replace(' ', 'T')));
+        });
+    }
+
+    /** Tách p_max thành các partition tháng {@code months} (liên tiếp, tăng dần) + p_max mới. */
+    public void splitMaxPartition(List<YearMonth> months) {
+        String definitions = months.stream()
+                .map(m -> "PARTITION " + partitionName(m) + " VALUES LESS THAN ('" + m.plusMonths(1).atDay(1) + "')")
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE transactions REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+                + definitions + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    /** Đổi chỗ partition với bảng staging (đang rỗng): mọi dòng của partition sang staging trong một thao tác. */
+    public void exchangeIntoStaging(String name) {
+        jdbcTemplate.execute("ALTER TABLE transactions EXCHANGE PARTITION " + checked(name)
+                + " WITH TABLE " + STAGING_TABLE);
+    }
+
+    /**
+     * DROP partition nếu nó rỗng. Kiểm tra và DROP chạy dưới {@code LOCK TABLES transactions WRITE} trên cùng
+     * connection nên không INSERT nào chen vào giữa. Trả về false (không DROP) nếu partition còn dòng.
+     */
+    public boolean dropPartitionIfEmpty(String name) {
+        String partition = checked(name);
+        Boolean dropped = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            try (Statement statement = con.createStatement()) {
+                statement.execute("LOCK TABLES transactions WRITE");
+                try {
+                    try (ResultSet rs = statement.executeQuery(
+                            "SELECT COUNT(*) FROM transactions PARTITION (" + partition + ")")) {
+                        if (!rs.next() || rs.getLong(1) != 0) {
+                            return false;
+                        }
+                    }
+                    statement.execute("ALTER TABLE transactions DROP PARTITION " + partition);
+                    return true;
+                } finally {
+                    statement.execute("UNLOCK TABLES");
+                }
+            }
+        });
+        return Boolean.TRUE.equals(dropped);
+    }
+
+    public long countStaging() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + STAGING_TABLE, Long.class);
+        return count != null ? count : 0;
+    }
+
+    public void truncateStaging() {
+        jdbcTemplate.execute("TRUNCATE TABLE " + STAGING_TABLE);
+    }
+
+    /**
+     * Đọc tuần tự mọi dòng trong staging theo (user_id, wallet_id, transaction_date DESC, id DESC)
+     * bằng cursor của DB, không giữ cả partition trong bộ nhớ.
+     */
+    public void streamStaging(Consumer<TransactionEntity> sink) {
+        streamingJdbcTemplate.query("SELECT " + COLUMNS + " FROM " + STAGING_TABLE
+                        + " ORDER BY user_id, wallet_id, transaction_date DESC, id DESC",
+                (ResultSet rs) -> sink.accept(toEntity(rs)));
+    }
+
+    /**
+     * Dòng trong staging của user và/hoặc ví trong [start, end] (start/end null = không giới hạn),
+     * theo (transaction_date DESC, id DESC).
+     */
+    public List<TransactionEntity> stagedRows(Long userId, Long walletId, LocalDateTime start, LocalDateTime end) {
+        List<Object> args = new ArrayList<>();
+        String where = scope(userId, walletId, "", args) + range("transaction_date", "transaction_date", start, end, args);
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + STAGING_TABLE + " WHERE " + where
+                        + " ORDER BY transaction_date DESC, id DESC",
+                (rs, i) -> toEntity(rs), args.toArray());
+    }
+
+    public Optional<TransactionEntity> stagedRow(long id) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM " + STAGING_TABLE + " WHERE id = ?",
+                (rs, i) -> toEntity(rs), id).stream().findFirst();
+    }
+
+    /** Ghi manifest STAGED trước khi EXCHANGE; trả về id lượt archive. */
+    public long insertStaged(Partition partition) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_STAGED, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, partition.name());
+            ps.setTimestamp(2, Timestamp.valueOf(partition.upperBound()));
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    /** Ghi index các đoạn và chuyển manifest sang ARCHIVED trong cùng một transaction. */
+    @Transactional
+    public void markArchived(long archiveId, LocalDateTime minDate, LocalDateTime maxDate, long rowCount,
+                             String filePath, List<Segment> segments) {
+        for (int from = 0; from < segments.size(); from += SEGMENT_BATCH) {
+            List<Object[]> batch = segments.subList(from, Math.min(from + SEGMENT_BATCH, segments.size())).stream()
+                    .map(s -> new Object[] {archiveId, s.userId(), s.walletId(), s.offset(), s.length(), s.rowCount(),
+                            Timestamp.valueOf(s.minDate()), Timestamp.valueOf(s.maxDate()), s.minId(), s.maxId()})
+                    .toList();
+            jdbcTemplate.batchUpdate(INSERT_SEGMENT, batch);
+        }
+        jdbcTemplate.update(MARK_ARCHIVED, Timestamp.valueOf(minDate), Timestamp.valueOf(maxDate), rowCount,
+                filePath, archiveId);
+    }
+
+    @Transactional
+    public void deleteArchive(long archiveId) {
+        jdbcTemplate.update("DELETE FROM transaction_archive_segments WHERE archive_id = ?", archiveId);
+        jdbcTemplate.update("DELETE FROM transaction_archives WHERE id = ?", archiveId);
+    }
+
+    public List<Archive> archivesWithStatus(String status) {
+        return jdbcTemplate.query("SELECT " + ARCHIVE_COLUMNS + " FROM transaction_archives WHERE status = ?",
+                (rs, i) -> toArchive(rs), status);
+    }
+
+    /** Trạng thái hiện tại của lượt archive; rỗng nếu đã bị xóa. */
+    public Optional<String> archiveStatus(long archiveId) {
+        return jdbcTemplate.queryForList("SELECT status FROM transaction_archives WHERE id = ?", String.class, archiveId)
+                .stream().findFirst();
+    }
+
+    /**
+     * Các đoạn đã ARCHIVED của user và/hoặc ví có dòng trong [start, end] (start/end null = không giới hạn),
+     * đoạn mới nhất (max_date) trước.
+     */
+    public List<Segment> segments(Long userId, Long walletId, LocalDateTime start, LocalDateTime end) {
+        List<Object> args = new ArrayList<>();
+        String where = scope(userId, walletId, "s.", args) + range("s.max_date", "s.min_date", start, end, args);
+        return jdbcTemplate.query("SELECT " + SEGMENT_COLUMNS
+                        + " FROM transaction_archive_segments s JOIN transaction_archives a ON a.id = s.archive_id"
+                        + " WHERE " + where + " AND a.status = 'ARCHIVED'"
+                        + " ORDER BY s.max_date DESC",
+                (rs, i) -> toSegment(rs), args.toArray());
+    }
+
+    /** Các đoạn đã ARCHIVED có khoảng id chứa {@code id} (lọc thêm theo user nếu có). */
+    public List<Segment> segmentsContaining(long id, Long userId) {
+        List<Object> args = new ArrayList<>(List.of(id, id));
+        String sql = "SELECT " + SEGMENT_COLUMNS
+                + " FROM transaction_archive_segments s JOIN transaction_archives a ON a.id = s.archive_id"
+                + " WHERE s.min_id <= ? AND s.max_id >= ? AND a.status = 'ARCHIVED'";
+        if (userId != null) {
+            sql += " AND s.user_id = ?";
+            args.add(userId);
+        }
+        return jdbcTemplate.query(sql, (rs, i) -> toSegment(rs), args.toArray());
+    }
+
+    private static String scope(Long userId, Long walletId, String alias, List<Object> args) {
+        if (userId == null && walletId == null) {
+            throw new IllegalArgumentException("userId or walletId is required");
+        }
+        List<String> conditions = new ArrayList<>(2);
+        if (userId != null) {
+            conditions.add(alias + "user_id = ?");
+            args.add(userId);
+        }
+        if (walletId != null) {
+            conditions.add(alias + "wallet_id = ?");
+            args.add(walletId);
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    /** Điều kiện {@code upper >= start AND lower <= end}, bỏ vế nào có cận null. */
+    private static String range(String upper, String lower, LocalDateTime start, LocalDateTime end, List<Object> args) {
+        StringBuilder sql = new StringBuilder();
+        if (start != null) {
+            sql.append(" AND ").append(upper).append(" >= ?");
+            args.add(Timestamp.valueOf(start));
+        }
+        if (end != null) {
+            sql.append(" AND ").append(lower).append(" <= ?");
+            args.add(Timestamp.valueOf(end));
+        }
+        return sql.toString();
+    }
+
+    private static String checked(String name) {
+        if (!PARTITION_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Unexpected partition name: " + name);
+        }
+        return name;
+    }
+
+    private static Archive toArchive(ResultSet rs) throws SQLException {
+        return new Archive(rs.getLong("id"),
+                rs.getString("partition_name"),
+                rs.getTimestamp("upper_bound").toLocalDateTime(),
+                toLocalDateTime(rs.getTimestamp("min_date")),
+                toLocalDateTime(rs.getTimestamp("max_date")),
+                rs.getObject("row_count", Long.class),
+                rs.getString("file_path"),
+                rs.getString("status"));
+    }
+
+    private static Segment toSegment(ResultSet rs) throws SQLException {
+        return new Segment(rs.getLong("archive_id"),
+                rs.getLong("user_id"),
+                rs.getLong("wallet_id"),
+                rs.getLong("byte_offset"),
+                rs.getLong("byte_length"),
+                rs.getInt("row_count"),
+                rs.getTimestamp("min_date").toLocalDateTime(),
+                rs.getTimestamp("max_date").toLocalDateTime(),
+                rs.getLong("min_id"),
+                rs.getLong("max_id"),
+                rs.getString("file_path"));
+    }
+
+    private static TransactionEntity toEntity(ResultSet rs) throws SQLException {
+        String status = rs.getString("status");
+        return TransactionEntity.builder()
+                .id(rs.getLong("id"))
+                .userId(rs.getLong("user_id"))
+                .walletId(rs.getLong("wallet_id"))
+                .categoryId(rs.getObject("category_id", Long.class))
+                .amount(rs.getBigDecimal("amount"))
+                .currency(rs.getString("currency"))
+                .type(CategoryType.valueOf(rs.getString("type")))
+                .transactionDate(rs.getTimestamp("transaction_date").toLocalDateTime())
+                .description(rs.getString("description"))
+                .note(rs.getString("note"))
+                .location(rs.getString("location"))
+                .isRecurring(rs.getBoolean("is_recurring"))
+                .recurringTransactionId(rs.getObject("recurring_transaction_id", Long.class))
+                .status(status != null ? TransactionStatus.valueOf(status) : null)
+                .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                .build();
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -7,20 +7,24 @@
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<TransactionEntity, Long>,
         JpaSpecificationExecutor<TransactionEntity> {
 
     // Basic finders
-    Page<TransactionEntity> findByWalletId(Long walletId, Pageable pageable);
     Page<TransactionEntity> findByUserId(Long userId, Pageable pageable);
 
     // Date range
@@ -32,7 +36,11 @@ List<TransactionEntity> findByWalletIdAndTransactionDateBetween(
     // Find by userId and ID (ownership check)
     Optional<TransactionEntity> findByIdAndUserId(Long id, Long userId);
 
-    // Dynamic filter query — supports optional params (null = no filter)
+    // Dynamic filter query — supports optional params (null = no filter).
+    // Keyset pagination: trang sau bắt đầu ngay sau (cursorDate, cursorId) của dòng cuối trang trước
+    // (cursorDate null = trang đầu), nên mọi trang đều là một range scan ngắn trên
+    // idx_txn_user_date_id, không phụ thuộc độ sâu. Pageable chỉ mang LIMIT (offset > 0 chỉ cho client
+    // cũ còn gửi page), không kèm COUNT — tổng số dòng lấy riêng bằng countByFilters khi cần.
     @Query("""
         SELECT t FROM TransactionEntity t
         WHERE t.userId = :userId
@@ -41,24 +49,61 @@ List<TransactionEntity> findByWalletIdAndTransactionDateBetween(
           AND (:type IS NULL OR t.type = :type)
           AND (:startDate IS NULL OR t.transactionDate >= :startDate)
           AND (:endDate IS NULL OR t.transactionDate <= :endDate)
-        ORDER BY t.transactionDate DESC
+          AND (:cursorDate IS NULL OR t.transactionDate < :cursorDate
+               OR (t.transactionDate = :cursorDate AND t.id < :cursorId))
+        ORDER BY t.transactionDate DESC, t.id DESC
         """)
-    Page<TransactionEntity> findByFilters(
+    List<TransactionEntity> findByFilters(
             @Param("userId") Long userId,
             @Param("walletId") Long walletId,
             @Param("categoryId") Long categoryId,
             @Param("type") CategoryType type,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
+            @Param("cursorDate") LocalDateTime cursorDate,
+            @Param("cursorId") Long cursorId,
             Pageable pageable);
 
+    @Query("""
+        SELECT COUNT(t) FROM TransactionEntity t
+        WHERE t.userId = :userId
+          AND (:walletId IS NULL OR t.walletId = :walletId)
+          AND (:categoryId IS NULL OR t.categoryId = :categoryId)
+          AND (:type IS NULL OR t.type = :type)
+          AND (:startDate IS NULL OR t.transactionDate >= :startDate)
+          AND (:endDate IS NULL OR t.transactionDate <= :endDate)
+        """)
+    long countByFilters(
+            @Param("userId") Long userId,
+            @Param("walletId") Long walletId,
+            @Param("categoryId") Long categoryId,
+            @Param("type") CategoryType type,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+
+    // Keyset pagination theo ví — cùng quy ước cursor với findByFilters, dùng idx_txn_wallet_date_id
+    @Query("""
+        SELECT t FROM TransactionEntity t
+        WHERE t.walletId = :walletId
+          AND (:cursorDate IS NULL OR t.transactionDate < :cursorDate
+               OR (t.transactionDate = :cursorDate AND t.id < :cursorId))
+        ORDER BY t.transactionDate DESC, t.id DESC
+        """)
+    List<TransactionEntity> findPageByWalletId(
+            @Param("walletId") Long walletId,
+            @Param("cursorDate") LocalDateTime cursorDate,
+            @Param("cursorId") Long cursorId,
+            Pageable pageable);
+
+    long countByWalletId(Long walletId);
+
     // For gRPC: date range by walletIds
     @Query("""
         SELECT t FROM TransactionEntity t
         WHERE t.userId = :userId
           AND t.transactionDate BETWEEN :startDate AND :endDate
           AND (:#{#walletIds == null || #walletIds.isEmpty()} = true OR t.walletId IN :walletIds)
-        ORDER BY t.transactionDate DESC
+        ORDER BY t.transactionDate DESC, t.id DESC
         """)
     List<TransactionEntity> findByUserIdAndDateRangeAndWallets(
             @Param("userId") Long userId,
@@ -66,6 +111,28 @@ List<TransactionEntity> findByUserIdAndDateRangeAndWallets(
             @Param("endDate") LocalDateTime endDate,
             @Param("walletIds") List<Long> walletIds);
 
+    // For gRPC streaming: forward-only cursor over a date range, same order as the keyset pages
+    // so archived rows can be merged in (see TransactionService.streamByUserAndDateRange).
+    // MySQL Connector/J only streams row-by-row when fetch size = Integer.MIN_VALUE,
+    // otherwise it buffers the whole result set on the client.
+    // Must be consumed inside a transaction and closed (try-with-resources).
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+        SELECT t FROM TransactionEntity t
+        WHERE t.userId = :userId
+          AND t.transactionDate BETWEEN :startDate AND :endDate
+          AND (:#{#walletIds == null || #walletIds.isEmpty()} = true OR t.walletId IN :walletIds)
+        ORDER BY t.transactionDate DESC, t.id DESC
+        """)
+    Stream<TransactionEntity> streamByUserIdAndDateRange(
+            @Param("userId") Long userId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("walletIds") List<Long> walletIds);
+
     // For gRPC: total spending
     @Query("""
         SELECT COALESCE(SUM(t.amount), 0)
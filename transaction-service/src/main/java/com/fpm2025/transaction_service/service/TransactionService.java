@@ -7,77 +7,78 @@
 import com.fpm2025.domain.enums.CategoryType;
 import com.fpm2025.transaction_service.entity.TransactionEntity;
 import com.fpm2025.transaction_service.entity.enums.TransactionStatus;
+import com.fpm2025.transaction_service.event.outbox.OutboxMessage;
+import com.fpm2025.transaction_service.event.outbox.OutboxWriter;
+import com.fpm2025.transaction_service.repository.TransactionAggregateRepository;
 import com.fpm2025.transaction_service.repository.TransactionRepository;
-import lombok.RequiredArgsConstructor;
+import com.fpm2025.transaction_service.service.archive.ArchivedTransactionException;
+import com.fpm2025.transaction_service.service.archive.TransactionArchive;
+import com.fpm2025.transaction_service.service.paging.CursorPage;
+import com.fpm2025.transaction_service.service.paging.TransactionCursor;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.kafka.core.KafkaTemplate;
-import com.fpm2025.grpc.protocol.WalletGrpcServiceGrpc;
-import com.fpm2025.grpc.protocol.UpdateBalanceRequest;
-import com.fpm2025.grpc.protocol.WalletResponse;
-import com.fpm2025.grpc.protocol.Money;
-
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final RabbitTemplate rabbitTemplate;
+    private final OutboxWriter outboxWriter;
     private final com.fpm2025.transaction_service.repository.TransactionAttachmentRepository attachmentRepository;
-    private final WalletGrpcServiceGrpc.WalletGrpcServiceBlockingStub walletGrpcStub;
+    private final WalletBalanceUpdater balanceUpdater;
+    private final EntityManager entityManager;
+    private final TransactionAggregateRepository aggregateRepository;
+    private final TransactionArchive archive;
+
+    @Value("${transaction.list.max-page-size:100}")
+    private int maxPageSize;
 
     public TransactionService(
             TransactionRepository transactionRepository,
-            KafkaTemplate<String, Object> kafkaTemplate,
-            RabbitTemplate rabbitTemplate,
+            EntityManager entityManager,
+            TransactionAggregateRepository aggregateRepository,
+            OutboxWriter outboxWriter,
             com.fpm2025.transaction_service.repository.TransactionAttachmentRepository attachmentRepository,
-            @org.springframework.beans.factory.annotation.Value("${grpc.client.wallet-service.address:localhost:9092}") String address) {
+            WalletBalanceUpdater balanceUpdater,
+            TransactionArchive archive) {
         this.transactionRepository = transactionRepository;
-        this.kafkaTemplate = kafkaTemplate;
-        this.rabbitTemplate = rabbitTemplate;
+        this.entityManager = entityManager;
+        this.aggregateRepository = aggregateRepository;
+        this.outboxWriter = outboxWriter;
         this.attachmentRepository = attachmentRepository;
-        this.walletGrpcStub = WalletGrpcServiceGrpc.newBlockingStub(
-                io.grpc.ManagedChannelBuilder.forTarget(address)
-                        .usePlaintext()
-                        .build()
-        );
+        this.balanceUpdater = balanceUpdater;
+        this.archive = archive;
     }
 
     @Transactional
     public TransactionResponse createTransaction(Long userId, TransactionRequest request) {
         log.info("Creating transaction for user {} in wallet {}", userId, request.getWalletId());
 
-        try {
-            Money money = Money.newBuilder()
-                    .setAmount(request.getAmount().doubleValue())
-                    .setCurrency(request.getCurrency())
-                    .build();
-
-            UpdateBalanceRequest balanceRequest = UpdateBalanceRequest.newBuilder()
-                    .setWalletId(request.getWalletId())
-                    .setAmount(money)
-                    .setOperation(request.getType() == CategoryType.EXPENSE ? "SUBTRACT" : "ADD")
-                    .setDescription(request.getDescription() != null ? request.getDescription() : "")
-                    .build();
-
-            WalletResponse walletResponse = walletGrpcStub.updateBalance(balanceRequest);
-            log.info("gRPC: Balance updated successfully for wallet: {}", walletResponse.getId());
-        } catch (Exception e) {
-            log.error("gRPC: Failed to update balance in Wallet Service", e);
-            throw new RuntimeException("Failed to update wallet balance: " + e.getMessage());
-        }
+        // Gửi cập nhật số dư trước, INSERT chạy trong lúc chờ wallet-service phản hồi
+        WalletBalanceUpdater.BalanceUpdate balanceUpdate = balanceUpdater.send(request.getWalletId(),
+                signedAmount(request.getAmount(), request.getType()), request.getCurrency(),
+                request.getDescription(), "Revert failed transaction");
 
         TransactionEntity entity = TransactionEntity.builder()
                 .userId(userId)
@@ -99,42 +100,123 @@ public TransactionResponse createTransaction(Long userId, TransactionRequest req
         publishKafkaEvent("transaction.created", userId, saved);
         sendNotification(userId, request.getType(), request.getAmount(), request.getCurrency());
 
+        // Lỗi ở đây (kể cả timeout) rollback cả INSERT lẫn outbox; lệnh REVERT cùng khóa hoàn tác nếu đã áp dụng
+        try {
+            balanceUpdate.result().join();
+            log.info("gRPC: Balance updated successfully for wallet: {}", request.getWalletId());
+        } catch (CompletionException e) {
+            log.error("gRPC: Failed to update balance in Wallet Service", e.getCause());
+            throw new RuntimeException("Failed to update wallet balance: " + e.getCause().getMessage());
+        }
+
         return mapToResponse(saved);
     }
 
+    /** Giao dịch theo id, kể cả giao dịch đã archive. */
     public TransactionResponse getTransaction(Long userId, Long transactionId) {
         TransactionEntity entity = transactionRepository.findByIdAndUserId(transactionId, userId)
+                .or(() -> archive.findById(transactionId, userId))
                 .orElseThrow(() -> new RuntimeException("Transaction not found or access denied"));
         return mapToResponse(entity);
     }
 
-    public Page<TransactionResponse> getTransactionsByWallet(Long userId, Long walletId, int page, int size) {
-        Page<TransactionEntity> transactions = transactionRepository.findByWalletId(
-                walletId, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "transactionDate")));
-        return transactions.map(this::mapToResponse);
+    public CursorPage<TransactionResponse> getTransactionsByWallet(Long userId, Long walletId, String cursor,
+                                                                   int size, boolean skipCount) {
+        return findByWalletIdRaw(walletId, cursor, 0, size, skipCount).map(this::mapToResponse);
     }
 
-    public Page<TransactionEntity> findByWalletIdRaw(Long walletId, int page, int size) {
-        return transactionRepository.findByWalletId(
-                walletId, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "transactionDate")));
+    public CursorPage<TransactionEntity> findByWalletIdRaw(Long walletId, String cursor, int page, int size,
+                                                           boolean skipCount) {
+        return keysetPage(cursor, page, size, skipCount,
+                (after, pageable) -> transactionRepository.findPageByWalletId(walletId,
+                        after != null ? after.transactionDate() : null, after != null ? after.id() : null, pageable),
+                (after, floor, limit) -> archive.find(null, walletId, floor, null, null, after, limit),
+                () -> transactionRepository.countByWalletId(walletId) + archive.count(null, walletId, null, null, null));
     }
 
+    /** Giao dịch theo id, kể cả giao dịch đã archive (không kiểm tra chủ sở hữu — dùng cho gRPC nội bộ). */
     public TransactionEntity findById(Long transactionId) {
         return transactionRepository.findById(transactionId)
+                .or(() -> archive.findById(transactionId, null))
                 .orElseThrow(() -> new RuntimeException("Transaction not found with id: " + transactionId));
     }
 
+    /** Giao dịch trong khoảng thời gian, gồm cả partition đã archive (read-through). */
     public List<TransactionEntity> findByUserAndDateRange(Long userId, LocalDateTime start, LocalDateTime end, List<Long> walletIds) {
-        if (walletIds == null || walletIds.isEmpty()) {
-            return transactionRepository.findByUserIdAndTransactionDateBetween(userId, start, end);
+        List<TransactionEntity> rows = new ArrayList<>(walletIds == null || walletIds.isEmpty()
+                ? transactionRepository.findByUserIdAndTransactionDateBetween(userId, start, end)
+                : transactionRepository.findByUserIdAndDateRangeAndWallets(userId, start, end, walletIds));
+        int live = rows.size();
+        archive.forEach(userId, start, end, inWallets(walletIds), rows::add);
+        if (rows.size() > live) {
+            rows.sort(TransactionCursor.ORDER);
         }
-        return transactionRepository.findByUserIdAndDateRangeAndWallets(userId, start, end, walletIds);
+        return rows;
+    }
+
+    /**
+     * Duyệt giao dịch trong khoảng thời gian bằng cursor của DB, đẩy từng entity vào {@code sink}.
+     * Entity được detach ngay sau khi xử lý để persistence context không phình theo số dòng.
+     * Dòng đã archive của user trong khoảng (đọc trước vào bộ nhớ) được trộn vào đúng vị trí theo
+     * {@link TransactionCursor#ORDER}, nên cả luồng giữ thứ tự (transaction_date DESC, id DESC).
+     */
+    @Transactional(readOnly = true)
+    public void streamByUserAndDateRange(Long userId, LocalDateTime start, LocalDateTime end,
+                                         List<Long> walletIds, Consumer<TransactionEntity> sink) {
+        List<TransactionEntity> archived = archive.find(userId, null, start, end, inWallets(walletIds), null,
+                Integer.MAX_VALUE);
+        int[] next = { 0 };
+        try (Stream<TransactionEntity> rows = transactionRepository.streamByUserIdAndDateRange(
+                userId, start, end, walletIds != null ? walletIds : List.of())) {
+            rows.forEach(entity -> {
+                while (next[0] < archived.size() && TransactionCursor.ORDER.compare(archived.get(next[0]), entity) < 0) {
+                    sink.accept(archived.get(next[0]++));
+                }
+                sink.accept(entity);
+                entityManager.detach(entity);
+            });
+        }
+        archived.subList(next[0], archived.size()).forEach(sink);
+    }
+
+    /**
+     * Tổng hợp tổng tiền/số giao dịch theo các chiều group-by ngay trong DB.
+     * Khoảng thời gian chạm partition đã archive thì cộng thêm bucket tính từ file archive.
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionAggregateRepository.Bucket> aggregate(
+            Long userId, LocalDateTime start, LocalDateTime end,
+            Collection<Long> walletIds, Collection<Long> categoryIds, CategoryType type,
+            Collection<TransactionAggregateRepository.Dimension> groupBy) {
+        List<TransactionAggregateRepository.Dimension> dimensions = TransactionAggregateRepository.distinct(groupBy);
+        List<TransactionAggregateRepository.Bucket> buckets = new ArrayList<>(aggregateRepository.aggregate(
+                userId, start, end, walletIds, categoryIds, type != null ? type.name() : null, dimensions));
+        int live = buckets.size();
+        archive.forEach(userId, start, end,
+                inWallets(walletIds)
+                        .and(t -> categoryIds == null || categoryIds.isEmpty() || categoryIds.contains(t.getCategoryId()))
+                        .and(t -> type == null || t.getType() == type),
+                t -> buckets.add(TransactionAggregateRepository.bucketOf(t.getTransactionDate(), t.getCategoryId(),
+                        t.getType().name(), t.getWalletId(), t.getAmount(), dimensions)));
+        return buckets.size() > live ? TransactionAggregateRepository.merge(buckets) : buckets;
     }
 
     public BigDecimal sumExpense(Long userId, LocalDateTime start, LocalDateTime end, Long categoryId) {
-        return transactionRepository.sumExpenseByUserAndDateRange(userId, start, end, categoryId);
+        BigDecimal[] total = { transactionRepository.sumExpenseByUserAndDateRange(userId, start, end, categoryId) };
+        archive.forEach(userId, start, end,
+                t -> t.getType() == CategoryType.EXPENSE && (categoryId == null || categoryId.equals(t.getCategoryId())),
+                t -> total[0] = total[0].add(t.getAmount()));
+        return total[0];
     }
 
+    private static Predicate<TransactionEntity> inWallets(Collection<Long> walletIds) {
+        return t -> walletIds == null || walletIds.isEmpty() || walletIds.contains(t.getWalletId());
+    }
+
+    /**
+     * Phân trang offset — dạng {@link Page} của REST v1, chi phí tăng theo page.
+     * Gồm cả giao dịch đã archive; totalElements cộng thêm số dòng đã archive khớp bộ lọc.
+     */
     public Page<TransactionResponse> listTransactions(
             Long userId,
             Long walletId,
@@ -144,31 +226,163 @@ public Page<TransactionResponse> listTransactions(
             LocalDateTime endDate,
             int page, int size) {
 
-        Page<TransactionEntity> result = transactionRepository.findByFilters(
-                userId, walletId, categoryId, type, startDate, endDate,
-                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "transactionDate")));
+        Pageable pageable = PageRequest.of(Math.max(page, 0), clampSize(size));
+        Predicate<TransactionEntity> filter = matching(categoryId, type);
+        List<TransactionResponse> rows = offsetPage(pageable.getPageNumber(), pageable.getPageSize(),
+                (after, p) -> transactionRepository.findByFilters(
+                        userId, walletId, categoryId, type, startDate, endDate, null, null, p),
+                (after, floor, limit) -> archive.find(userId, walletId, later(startDate, floor), endDate, filter,
+                        after, limit)).stream()
+                .map(this::mapToResponse)
+                .toList();
+        return new PageImpl<>(rows, pageable,
+                transactionRepository.countByFilters(userId, walletId, categoryId, type, startDate, endDate)
+                        + archive.count(userId, walletId, startDate, endDate, filter));
+    }
 
-        return result.map(this::mapToResponse);
+    public CursorPage<TransactionResponse> listTransactions(
+            Long userId,
+            Long walletId,
+            Long categoryId,
+            CategoryType type,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            String cursor, int page, int size, boolean skipCount) {
+
+        Predicate<TransactionEntity> filter = matching(categoryId, type);
+        return keysetPage(cursor, page, size, skipCount,
+                (after, pageable) -> transactionRepository.findByFilters(
+                        userId, walletId, categoryId, type, startDate, endDate,
+                        after != null ? after.transactionDate() : null, after != null ? after.id() : null, pageable),
+                (after, floor, limit) -> archive.find(userId, walletId, later(startDate, floor), endDate, filter,
+                        after, limit),
+                () -> transactionRepository.countByFilters(userId, walletId, categoryId, type, startDate, endDate)
+                        + archive.count(userId, walletId, startDate, endDate, filter))
+                .map(this::mapToResponse);
+    }
+
+    /** Bộ lọc danh mục/loại cho dòng đã archive; null khi không lọc (archive đếm nhanh bằng row_count). */
+    private static Predicate<TransactionEntity> matching(Long categoryId, CategoryType type) {
+        if (categoryId == null && type == null) {
+            return null;
+        }
+        return t -> (categoryId == null || categoryId.equals(t.getCategoryId())) && (type == null || t.getType() == type);
+    }
+
+    private static LocalDateTime later(LocalDateTime a, LocalDateTime b) {
+        return a == null || b != null && b.isAfter(a) ? b : a;
+    }
+
+    /**
+     * Lấy một trang theo (transaction_date DESC, id DESC).
+     *
+     * Có cursor (hoặc trang đầu): đọc size + 1 dòng sau cursor — dòng thừa chỉ để biết còn trang sau.
+     * Không cursor nhưng page > 0: client cũ phân trang bằng offset, vẫn chạy được nhưng chi phí tăng theo
+     * page; trang trả về kèm nextCursor để client chuyển sang cursor từ đó.
+     * COUNT chỉ chạy khi client không bỏ qua ({@code skipCount = false}).
+     * size bị giới hạn trong [1, {@code transaction.list.max-page-size}].
+     *
+     * Dòng đã archive ({@code archived}) được trộn theo {@link TransactionCursor#ORDER}. Khi DB đã đủ size + 1
+     * dòng, archive chỉ cần các dòng không cũ hơn dòng thứ size + 1 — thường không phải giải nén đoạn nào.
+     */
+    private CursorPage<TransactionEntity> keysetPage(
+            String cursorToken, int page, int requestedSize, boolean skipCount,
+            BiFunction<TransactionCursor, Pageable, List<TransactionEntity>> query,
+            ArchivedQuery archived,
+            LongSupplier count) {
+        int size = clampSize(requestedSize);
+        TransactionCursor cursor = TransactionCursor.decode(cursorToken);
+        boolean offsetPaging = cursor == null && page > 0;
+
+        List<TransactionEntity> rows;
+        if (offsetPaging) {
+            rows = offsetPage(page, size, query, archived);
+        } else {
+            List<TransactionEntity> live = query.apply(cursor, PageRequest.of(0, size + 1));
+            LocalDateTime floor = live.size() > size ? live.get(size).getTransactionDate() : null;
+            rows = merge(live, archived.find(cursor, floor, size + 1), size + 1);
+        }
+        boolean hasNext = offsetPaging ? rows.size() == size : rows.size() > size;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+        }
+
+        String nextCursor = hasNext ? TransactionCursor.of(rows.get(rows.size() - 1)).encode() : null;
+        Long total = skipCount ? null : count.getAsLong();
+        return new CursorPage<>(rows, size, nextCursor, hasNext, total);
+    }
+
+    /**
+     * Trang thứ {@code page} theo offset. Không có dòng đã archive thì giữ nguyên truy vấn OFFSET; có thì lấy
+     * (page + 1) * size dòng đầu từ cả hai nguồn, trộn rồi cắt trang.
+     */
+    private static List<TransactionEntity> offsetPage(
+            int page, int size,
+            BiFunction<TransactionCursor, Pageable, List<TransactionEntity>> query,
+            ArchivedQuery archived) {
+        if (archived.find(null, null, 1).isEmpty()) {
+            return query.apply(null, PageRequest.of(page, size));
+        }
+        int window = (page + 1) * size;
+        List<TransactionEntity> live = query.apply(null, PageRequest.of(0, window));
+        LocalDateTime floor = live.size() == window ? live.get(window - 1).getTransactionDate() : null;
+        List<TransactionEntity> rows = merge(live, archived.find(null, floor, window), window);
+        return rows.subList(Math.min(page * size, rows.size()), rows.size());
+    }
+
+    /** Trộn hai danh sách đã sắp theo {@link TransactionCursor#ORDER}, giữ tối đa {@code limit} dòng đầu. */
+    private static List<TransactionEntity> merge(List<TransactionEntity> live, List<TransactionEntity> archived,
+                                                 int limit) {
+        List<TransactionEntity> rows = new ArrayList<>(live.size() + archived.size());
+        int i = 0;
+        int j = 0;
+        while (rows.size() < limit && (i < live.size() || j < archived.size())) {
+            boolean takeLive = j == archived.size()
+                    || i < live.size() && TransactionCursor.ORDER.compare(live.get(i), archived.get(j)) <= 0;
+            rows.add(takeLive ? live.get(i++) : archived.get(j++));
+        }
+        return rows;
+    }
+
+    /** Dòng đã archive sau {@code after}, không cũ hơn {@code floor} (null = không giới hạn), tối đa {@code limit}. */
+    @FunctionalInterface
+    private interface ArchivedQuery {
+        List<TransactionEntity> find(TransactionCursor after, LocalDateTime floor, int limit);
+    }
+
+    private int clampSize(int size) {
+        return Math.min(Math.max(size, 1), maxPageSize);
     }
 
     @Transactional
     public TransactionResponse updateTransaction(Long userId, Long transactionId, UpdateTransactionRequest request) {
         log.info("Updating transaction {} for user {}", transactionId, userId);
 
-        TransactionEntity entity = transactionRepository.findByIdAndUserId(transactionId, userId)
-                .orElseThrow(() -> new RuntimeException("Transaction not found or access denied"));
+        TransactionEntity entity = findLive(userId, transactionId);
 
         boolean balanceChanged = (request.getAmount() != null && !request.getAmount().equals(entity.getAmount()))
                 || (request.getType() != null && request.getType() != entity.getType());
 
+        List<WalletBalanceUpdater.BalanceUpdate> balanceUpdates = List.of();
         if (balanceChanged) {
-            revertWalletBalance(entity);
-            applyWalletBalance(
-                    entity.getWalletId(),
+            BigDecimal oldSigned = signedAmount(entity.getAmount(), entity.getType());
+            BigDecimal newSigned = signedAmount(
                     request.getAmount() != null ? request.getAmount() : entity.getAmount(),
-                    request.getType() != null ? request.getType() : entity.getType(),
-                    request.getCurrency() != null ? request.getCurrency() : entity.getCurrency(),
-                    "Update transaction #" + transactionId);
+                    request.getType() != null ? request.getType() : entity.getType());
+            String newCurrency = request.getCurrency() != null ? request.getCurrency() : entity.getCurrency();
+            String desc = "Update transaction #" + transactionId;
+            if (Objects.equals(newCurrency, entity.getCurrency())) {
+                // Revert + apply trên cùng ví gộp thành một delta ròng
+                balanceUpdates = List.of(balanceUpdater.send(entity.getWalletId(), newSigned.subtract(oldSigned),
+                        newCurrency, desc, "Revert update of transaction #" + transactionId));
+            } else {
+                // Khác tiền tệ: hai call độc lập, gửi song song
+                balanceUpdates = List.of(
+                        balanceUpdater.send(entity.getWalletId(), oldSigned.negate(), entity.getCurrency(),
+                                "Revert transaction #" + transactionId, "Re-apply transaction #" + transactionId),
+                        balanceUpdater.send(entity.getWalletId(), newSigned, newCurrency,
+                                desc, "Revert update of transaction #" + transactionId));
+            }
         }
 
         if (request.getAmount() != null)          entity.setAmount(request.getAmount());
@@ -183,6 +397,7 @@ public TransactionResponse updateTransaction(Long userId, Long transactionId, Up
 
         TransactionEntity updated = transactionRepository.save(entity);
         publishKafkaEvent("transaction.updated", userId, updated);
+        balanceUpdater.awaitOrRetry(balanceUpdates);
 
         return mapToResponse(updated);
     }
@@ -191,26 +406,25 @@ public TransactionResponse updateTransaction(Long userId, Long transactionId, Up
     public void deleteTransaction(Long userId, Long transactionId) {
         log.info("Deleting transaction {} for user {}", transactionId, userId);
 
-        TransactionEntity entity = transactionRepository.findByIdAndUserId(transactionId, userId)
-                .orElseThrow(() -> new RuntimeException("Transaction not found or access denied"));
+        TransactionEntity entity = findLive(userId, transactionId);
 
-        revertWalletBalance(entity);
+        WalletBalanceUpdater.BalanceUpdate revert = balanceUpdater.send(entity.getWalletId(),
+                signedAmount(entity.getAmount(), entity.getType()).negate(), entity.getCurrency(),
+                "Revert transaction #" + entity.getId(), "Re-apply transaction #" + entity.getId());
+        // Bảng partition không có FK nên không còn ON DELETE CASCADE
+        attachmentRepository.deleteByTransactionId(entity.getId());
         transactionRepository.delete(entity);
 
-        try {
-            kafkaTemplate.send("transaction.deleted", String.valueOf(userId),
-                    Map.of("transactionId", transactionId, "userId", userId));
-        } catch (Exception e) {
-            log.error("Kafka: Failed to publish transaction.deleted event", e);
-        }
+        outboxWriter.append(OutboxMessage.kafka("transaction.deleted", String.valueOf(userId),
+                Map.of("transactionId", transactionId, "userId", userId)));
+        balanceUpdater.awaitOrRetry(List.of(revert));
     }
 
     @Transactional
     public com.fpm2025.transaction_service.entity.TransactionAttachmentEntity uploadAttachment(
             Long userId, Long transactionId, org.springframework.web.multipart.MultipartFile file) {
         
-        transactionRepository.findByIdAndUserId(transactionId, userId)
-                .orElseThrow(() -> new RuntimeException("Transaction not found or access denied"));
+        findLive(userId, transactionId);
 
         String fileUrl = "https://fpm-storage.local/uploads/" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
         
@@ -228,65 +442,30 @@ public com.fpm2025.transaction_service.entity.TransactionAttachmentEntity upload
 
     @Transactional
     public void deleteAttachment(Long userId, Long transactionId, Long attachmentId) {
-        transactionRepository.findByIdAndUserId(transactionId, userId)
-                .orElseThrow(() -> new RuntimeException("Transaction not found or access denied"));
+        findLive(userId, transactionId);
         attachmentRepository.deleteById(attachmentId);
     }
 
-    private void revertWalletBalance(TransactionEntity entity) {
-        String revertOp = entity.getType() == CategoryType.EXPENSE ? "ADD" : "SUBTRACT";
-        try {
-            Money money = Money.newBuilder()
-                    .setAmount(entity.getAmount().doubleValue())
-                    .setCurrency(entity.getCurrency())
-                    .build();
-            UpdateBalanceRequest req = UpdateBalanceRequest.newBuilder()
-                    .setWalletId(entity.getWalletId())
-                    .setAmount(money)
-                    .setOperation(revertOp)
-                    .setDescription("Revert transaction #" + entity.getId())
-                    .build();
-            walletGrpcStub.updateBalance(req);
-        } catch (Exception e) {
-            log.error("gRPC: Failed to revert wallet balance", e);
-        }
+    /** Giao dịch còn trong DB để sửa/xóa; giao dịch đã archive chỉ đọc được nên báo lỗi riêng thay vì "not found". */
+    private TransactionEntity findLive(Long userId, Long transactionId) {
+        return transactionRepository.findByIdAndUserId(transactionId, userId)
+                .orElseThrow(() -> archive.findById(transactionId, userId).isPresent()
+                        ? new ArchivedTransactionException(transactionId)
+                        : new RuntimeException("Transaction not found or access denied"));
     }
 
-    private void applyWalletBalance(Long walletId, java.math.BigDecimal amount,
-                                     CategoryType type, String currency, String desc) {
-        String op = type == CategoryType.EXPENSE ? "SUBTRACT" : "ADD";
-        try {
-            Money money = Money.newBuilder()
-                    .setAmount(amount.doubleValue())
-                    .setCurrency(currency)
-                    .build();
-            UpdateBalanceRequest req = UpdateBalanceRequest.newBuilder()
-                    .setWalletId(walletId)
-                    .setAmount(money)
-                    .setOperation(op)
-                    .setDescription(desc)
-                    .build();
-            walletGrpcStub.updateBalance(req);
-        } catch (Exception e) {
-            log.error("gRPC: Failed to apply wallet balance", e);
-        }
+    private static BigDecimal signedAmount(BigDecimal amount, CategoryType type) {
+        return type == CategoryType.EXPENSE ? amount.negate() : amount;
     }
 
+    /** Ghi event vào outbox trong transaction hiện tại; OutboxRelay publish sau khi commit. */
     private void publishKafkaEvent(String topic, Long userId, TransactionEntity saved) {
-        try {
-            kafkaTemplate.send(topic, String.valueOf(userId), mapToResponse(saved));
-        } catch (Exception e) {
-            log.error("Kafka: Failed to publish {} event", topic, e);
-        }
+        outboxWriter.append(OutboxMessage.kafka(topic, String.valueOf(userId), mapToResponse(saved)));
     }
 
     private void sendNotification(Long userId, CategoryType type, java.math.BigDecimal amount, String currency) {
-        try {
-            String msg = String.format("User %d has a new %s transaction of %s %s", userId, type, amount, currency);
-            rabbitTemplate.convertAndSend("notification.exchange", "notification.routing.key", msg);
-        } catch (Exception e) {
-            log.error("RabbitMQ: Failed to send notification task", e);
-        }
+        String msg = String.format("User %d has a new %s transaction of %s %s", userId, type, amount, currency);
+        outboxWriter.append(OutboxMessage.rabbit("notification.exchange", "notification.routing.key", msg));
     }
 
     public TransactionResponse mapToResponse(TransactionEntity entity) {
@@ -0,0 +1,111 @@
+package com.fpm2025.transaction_service.service;
+
+import com.fpm2025.grpc.protocol.WalletResponse;
+import com.fpm2025.transaction_service.event.outbox.OutboxMessage;
+import com.fpm2025.transaction_service.event.outbox.OutboxWriter;
+import com.fpm2025.transaction_service.grpc.WalletGrpcClient;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Cập nhật số dư ví gắn với transaction DB của caller, có bù trừ bền vững và idempotent.
+ *
+ * Mỗi cập nhật có một operationKey mới; wallet-service áp dụng mỗi khóa một lần và chỉ hoàn tác khóa đã áp dụng.
+ * Trước khi gửi, lệnh REVERT của khóa đó được ghi vào outbox trong transaction riêng, chỉ đến hạn sau
+ * {@code transaction.wallet.compensation-delay}, rồi được hủy trong transaction hiện tại:
+ * - commit: lệnh hủy commit cùng dữ liệu nghiệp vụ, REVERT không bao giờ chạy;
+ * - rollback: REVERT đến hạn ngay bất kể kết quả RPC — cập nhật bị timeout nhưng thực ra đã áp dụng được
+ *   hoàn tác, cập nhật chưa áp dụng chỉ để lại tombstone (lần gửi đến muộn bị bỏ qua);
+ * - process chết trước khi kết thúc: REVERT đến hạn sau delay và được gửi như trên.
+ * Relay gửi REVERT tới khi wallet-service xác nhận; giao lại nhiều lần không có tác dụng thêm.
+ */
+@Slf4j
+@Component
+public class WalletBalanceUpdater {
+
+    /** Lỗi mà RPC có thể đã được áp dụng, hoặc chưa tới được wallet-service — gửi lại cùng khóa là an toàn. */
+    private static final Set<Status.Code> OUTCOME_UNKNOWN =
+            EnumSet.of(Status.Code.DEADLINE_EXCEEDED, Status.Code.UNAVAILABLE, Status.Code.CANCELLED);
+
+    /** Một cập nhật đã gửi; {@code result} hoàn tất khi wallet-service phản hồi. */
+    public record BalanceUpdate(Long walletId, BigDecimal delta, String currency, String description,
+                                String operationKey, CompletableFuture<WalletResponse> result) {}
+
+    private final OutboxWriter outboxWriter;
+    private final WalletGrpcClient walletClient;
+
+    @Value("${transaction.wallet.compensation-delay:PT1M}")
+    private Duration compensationDelay;
+
+    public WalletBalanceUpdater(OutboxWriter outboxWriter, WalletGrpcClient walletClient) {
+        this.outboxWriter = outboxWriter;
+        this.walletClient = walletClient;
+    }
+
+    /** Gửi cập nhật số dư bất đồng bộ; {@code revertDesc} là mô tả của lệnh hoàn tác nếu transaction không commit. */
+    public BalanceUpdate send(Long walletId, BigDecimal delta, String currency, String desc, String revertDesc) {
+        String operationKey = UUID.randomUUID().toString();
+        if (delta.signum() == 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new BalanceUpdate(walletId, delta, currency, desc, operationKey,
+                    walletClient.updateBalanceAsync(walletId, delta, currency, desc, operationKey));
+        }
+        long compensation = outboxWriter.appendDeferred(
+                OutboxMessage.walletRevert(walletId, operationKey, revertDesc), compensationDelay);
+        outboxWriter.cancel(compensation);
+
+        CompletableFuture<WalletResponse> update =
+                walletClient.updateBalanceAsync(walletId, delta, currency, desc, operationKey);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    outboxWriter.release(compensation);
+                    log.info("Scheduled revert of balance operation {} on wallet {} after rollback", operationKey, walletId);
+                } catch (Exception e) {
+                    // REVERT vẫn nằm trong outbox, relay gửi khi hết delay
+                    log.error("Failed to release revert of balance operation {} on wallet {}", operationKey, walletId, e);
+                }
+            }
+        });
+        return new BalanceUpdate(walletId, delta, currency, desc, operationKey, update);
+    }
+
+    /**
+     * Chờ các cập nhật đã gửi mà không làm fail transaction (update/delete không fail vì wallet-service).
+     * Lỗi chưa rõ kết quả (timeout, UNAVAILABLE) được gửi lại qua outbox cùng khóa, commit cùng transaction
+     * hiện tại; lỗi wallet-service đã từ chối (ví dụ không đủ số dư) chỉ được log như trước.
+     */
+    public void awaitOrRetry(Collection<BalanceUpdate> updates) {
+        for (BalanceUpdate update : updates) {
+            try {
+                update.result().join();
+            } catch (CompletionException e) {
+                Status.Code code = Status.fromThrowable(e.getCause()).getCode();
+                if (OUTCOME_UNKNOWN.contains(code) && TransactionSynchronizationManager.isActualTransactionActive()) {
+                    outboxWriter.append(OutboxMessage.walletApply(update.walletId(), update.operationKey(),
+                            update.delta(), update.currency(), update.description()));
+                    log.warn("gRPC: balance operation {} on wallet {} ended with {}, retrying through the outbox",
+                            update.operationKey(), update.walletId(), code);
+                } else {
+                    log.error("gRPC: Failed to update wallet balance", e.getCause());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.fpm2025.transaction_service.service.archive;
+
+/**
+ * Giao dịch đã được archive ra file (quá {@code transaction.archive.horizon-months}) chỉ đọc được — sửa, xóa
+ * hay đính kèm file trả 409 cho client.
+ */
+public class ArchivedTransactionException extends RuntimeException {
+
+    public ArchivedTransactionException(Long transactionId) {
+        super("Transaction " + transactionId + " is archived and read-only");
+    }
+}
@@ -0,0 +1,393 @@
+package com.fpm2025.transaction_service.service.archive;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import com.fpm2025.transaction_service.repository.TransactionPartitionRepository;
+import com.fpm2025.transaction_service.repository.TransactionPartitionRepository.Archive;
+import com.fpm2025.transaction_service.repository.TransactionPartitionRepository.Partition;
+import com.fpm2025.transaction_service.repository.TransactionPartitionRepository.Segment;
+import com.fpm2025.transaction_service.service.paging.TransactionCursor;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Lưu trữ lạnh cho partition giao dịch đã quá {@code transaction.archive.horizon-months}.
+ *
+ * Mỗi lượt archive thành một file JSON Lines nén gzip ({@code transaction.archive.dir}/transactions-pYYYYMM-{id}.jsonl.gz),
+ * mỗi dòng một {@link TransactionEntity}, sắp theo (user_id, wallet_id, transaction_date DESC, id DESC).
+ * Mỗi cặp (user, ví) là một gzip member riêng, vị trí ghi trong transaction_archive_segments — đọc lịch sử
+ * một user chỉ giải nén các đoạn của user đó. Thư mục phải là volume dùng chung nếu chạy nhiều instance.
+ *
+ * Archive một partition ({@link #archive}):
+ * 1. Ghi manifest STAGED, rồi {@code EXCHANGE PARTITION} sang bảng staging — partition rỗng ngay lập tức,
+ *    giao dịch lùi ngày chen vào sau đó nằm lại trong partition chứ không bị mất.
+ * 2. Export staging (bảng tĩnh) ra file {@code .part}, kiểm tra số dòng với COUNT của staging, rename atomic;
+ *    ghi index đoạn và manifest → ARCHIVED trong một transaction.
+ * 3. TRUNCATE staging, rồi DROP partition nếu nó vẫn rỗng (kiểm tra và DROP dưới LOCK TABLES). Còn dòng thì
+ *    giữ partition, lượt sau archive tiếp phần còn lại thành một file mới.
+ * Crash ở bước nào thì {@link #recover} làm tiếp từ trạng thái manifest + staging.
+ *
+ * Đọc ({@link #forEach}, {@link #find}, {@link #count}, {@link #findById}): đoạn của archive ARCHIVED lấy từ
+ * file; archive đang STAGED lấy thẳng từ staging — một dòng không bao giờ vừa ở DB vừa ở file, cũng không
+ * biến mất trong lúc export. Dòng đã archive chỉ đọc được: sửa/xóa trả {@link ArchivedTransactionException}.
+ */
+@Slf4j
+@Component
+public class TransactionArchive {
+
+    static final String STAGED = "STAGED";
+    static final String ARCHIVED = "ARCHIVED";
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final Path root;
+
+    public TransactionArchive(TransactionPartitionRepository partitionRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${transaction.archive.dir:/var/lib/fpm/transaction-archive}") String dir) {
+        this.partitionRepository = partitionRepository;
+        this.writer = objectMapper.writerFor(TransactionEntity.class);
+        this.reader = objectMapper.readerFor(TransactionEntity.class);
+        this.root = Paths.get(dir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Hoàn tất lượt archive bị gián đoạn:
+     * - STAGED, staging rỗng: crash trước/ngay sau EXCHANGE một partition rỗng — bỏ manifest.
+     * - STAGED, staging có dòng: export tiếp rồi dọn như lượt bình thường.
+     * - Không STAGED nhưng staging có dòng: đã ARCHIVED, chỉ chưa TRUNCATE.
+     */
+    void recover() throws IOException {
+        for (Archive staged : partitionRepository.archivesWithStatus(STAGED)) {
+            if (partitionRepository.countStaging() == 0) {
+                partitionRepository.deleteArchive(staged.id());
+                continue;
+            }
+            log.info("Archive: resuming export of {} (archive {})", staged.partitionName(), staged.id());
+            exportStaging(staged.id(), staged.partitionName());
+            partitionRepository.truncateStaging();
+            partitionRepository.dropPartitionIfEmpty(staged.partitionName());
+        }
+        if (partitionRepository.countStaging() != 0) {
+            partitionRepository.truncateStaging();
+        }
+    }
+
+    /** Archive partition. Trả về false nếu partition chưa DROP được (có dòng mới chen vào trong lúc export). */
+    boolean archive(Partition partition) throws IOException {
+        long archiveId = partitionRepository.insertStaged(partition);
+        partitionRepository.exchangeIntoStaging(partition.name());
+
+        exportStaging(archiveId, partition.name());
+        partitionRepository.truncateStaging();
+
+        if (!partitionRepository.dropPartitionIfEmpty(partition.name())) {
+            log.warn("Archive: {} received rows during export, keeping it for the next run", partition.name());
+            return false;
+        }
+        return true;
+    }
+
+    /** Ghi staging ra file và đánh dấu ARCHIVED; staging rỗng thì bỏ manifest. */
+    private void exportStaging(long archiveId, String partitionName) throws IOException {
+        Path target = root.resolve("transactions-" + partitionName + "-" + archiveId + ".jsonl.gz");
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        SegmentWriter segments;
+
+        Files.createDirectories(root);
+        try {
+            try (CountingOutputStream out = new CountingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial), 64 * 1024))) {
+                segments = new SegmentWriter(out);
+                try {
+                    partitionRepository.streamStaging(segments::write);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                segments.finish();
+            }
+
+            long staged = partitionRepository.countStaging();
+            if (segments.rows != staged) {
+                throw new IllegalStateException("Archive " + archiveId + ": exported " + segments.rows
+                        + " rows but staging holds " + staged);
+            }
+            if (segments.rows == 0) {
+                partitionRepository.deleteArchive(archiveId);
+                log.info("Archive: {} was empty", partitionName);
+                return;
+            }
+
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            partitionRepository.markArchived(archiveId, segments.minDate, segments.maxDate, segments.rows,
+                    target.toString(), segments.done);
+            log.info("Archive: {} → {} ({} rows, {} segments, {} bytes)", partitionName, target, segments.rows,
+                    segments.done.size(), Files.size(target));
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /**
+     * Duyệt các giao dịch đã archive của {@code userId} trong [start, end] thỏa {@code filter}.
+     * Không có đoạn nào của user giao với khoảng thời gian thì chỉ tốn hai truy vấn manifest.
+     */
+    public void forEach(Long userId, LocalDateTime start, LocalDateTime end,
+                        Predicate<TransactionEntity> filter, Consumer<TransactionEntity> sink) {
+        Predicate<TransactionEntity> matches = inRange(start, end).and(filter);
+        for (Segment segment : partitionRepository.segments(userId, null, start, end)) {
+            read(segment, row -> {
+                if (matches.test(row)) {
+                    sink.accept(row);
+                }
+            });
+        }
+        stagedRows(userId, null, start, end).stream().filter(filter).forEach(sink);
+    }
+
+    /**
+     * Tối đa {@code limit} giao dịch đã archive của user và/hoặc ví trong [start, end] (null = không giới hạn),
+     * thỏa {@code filter} (null = mọi dòng) và nằm sau {@code after}, theo {@link TransactionCursor#ORDER}.
+     * Đoạn được đọc từ mới đến cũ; dừng khi đã đủ {@code limit} dòng mới hơn mọi dòng của đoạn kế tiếp.
+     */
+    public List<TransactionEntity> find(Long userId, Long walletId, LocalDateTime start, LocalDateTime end,
+                                        Predicate<TransactionEntity> filter, TransactionCursor after, int limit) {
+        LocalDateTime upper = after == null || end != null && end.isBefore(after.transactionDate())
+                ? end : after.transactionDate();
+        Predicate<TransactionEntity> matches = inRange(start, upper)
+                .and(filter != null ? filter : row -> true)
+                .and(after != null ? after::precedes : row -> true);
+
+        List<TransactionEntity> rows = new ArrayList<>();
+        stagedRows(userId, walletId, start, upper).stream().filter(matches).forEach(rows::add);
+        for (Segment segment : partitionRepository.segments(userId, walletId, start, upper)) {
+            if (rows.size() >= limit) {
+                truncate(rows, limit);
+                if (segment.maxDate().isBefore(rows.get(limit - 1).getTransactionDate())) {
+                    break;
+                }
+            }
+            read(segment, row -> {
+                if (matches.test(row)) {
+                    rows.add(row);
+                }
+            });
+        }
+        truncate(rows, limit);
+        return rows;
+    }
+
+    /** Số giao dịch đã archive khớp điều kiện; không filter thì đoạn nằm trọn trong khoảng chỉ cộng row_count. */
+    public long count(Long userId, Long walletId, LocalDateTime start, LocalDateTime end,
+                      Predicate<TransactionEntity> filter) {
+        Predicate<TransactionEntity> matches = inRange(start, end).and(filter != null ? filter : row -> true);
+        long[] total = { stagedRows(userId, walletId, start, end).stream().filter(matches).count() };
+        for (Segment segment : partitionRepository.segments(userId, walletId, start, end)) {
+            if (filter == null && (start == null || !segment.minDate().isBefore(start))
+                    && (end == null || !segment.maxDate().isAfter(end))) {
+                total[0] += segment.rowCount();
+            } else {
+                read(segment, row -> {
+                    if (matches.test(row)) {
+                        total[0]++;
+                    }
+                });
+            }
+        }
+        return total[0];
+    }
+
+    /** Có giao dịch đã archive nào của user và/hoặc ví trong khoảng không — chỉ đọc manifest. */
+    public boolean covers(Long userId, Long walletId, LocalDateTime start, LocalDateTime end) {
+        return !partitionRepository.segments(userId, walletId, start, end).isEmpty()
+                || !stagedRows(userId, walletId, start, end).isEmpty();
+    }
+
+    /**
+     * Giao dịch đã archive theo id ({@code userId} null = không kiểm tra chủ sở hữu). Staging được xem trước
+     * các đoạn: dòng bị chuyển từ staging sang file giữa hai bước vẫn được thấy ở bước sau.
+     */
+    public Optional<TransactionEntity> findById(long id, Long userId) {
+        Predicate<TransactionEntity> owned = row -> userId == null || userId.equals(row.getUserId());
+        if (!partitionRepository.archivesWithStatus(STAGED).isEmpty()) {
+            Optional<TransactionEntity> staged = partitionRepository.stagedRow(id).filter(owned);
+            if (staged.isPresent()) {
+                return staged;
+            }
+        }
+        TransactionEntity[] found = new TransactionEntity[1];
+        for (Segment segment : partitionRepository.segmentsContaining(id, userId)) {
+            read(segment, row -> {
+                if (row.getId() == id) {
+                    found[0] = row;
+                }
+            });
+            if (found[0] != null) {
+                break;
+            }
+        }
+        return Optional.ofNullable(found[0]);
+    }
+
+    private static void truncate(List<TransactionEntity> rows, int limit) {
+        rows.sort(TransactionCursor.ORDER);
+        if (rows.size() > limit) {
+            rows.subList(limit, rows.size()).clear();
+        }
+    }
+
+    /**
+     * Dòng của lượt archive đang STAGED (đang export). Nếu lượt đó chuyển ARCHIVED trong lúc đọc thì
+     * staging có thể đã bị TRUNCATE — đọc lại các đoạn vừa ghi của nó thay vì trả kết quả thiếu.
+     */
+    private List<TransactionEntity> stagedRows(Long userId, Long walletId, LocalDateTime start, LocalDateTime end) {
+        List<Archive> staged = partitionRepository.archivesWithStatus(STAGED).stream()
+                .filter(a -> start == null || a.upperBound().isAfter(start))
+                .toList();
+        if (staged.isEmpty()) {
+            return List.of();
+        }
+        List<TransactionEntity> rows = partitionRepository.stagedRows(userId, walletId, start, end);
+        for (Archive archive : staged) {
+            if (!partitionRepository.archiveStatus(archive.id()).map(STAGED::equals).orElse(false)) {
+                List<TransactionEntity> archived = new ArrayList<>();
+                Predicate<TransactionEntity> matches = inRange(start, end);
+                partitionRepository.segments(userId, walletId, start, end).stream()
+                        .filter(s -> s.archiveId() == archive.id())
+                        .forEach(s -> read(s, row -> {
+                            if (matches.test(row)) {
+                                archived.add(row);
+                            }
+                        }));
+                return archived;
+            }
+        }
+        return rows;
+    }
+
+    /** Giải nén đúng một đoạn (một gzip member) của file archive. */
+    void read(Segment segment, Consumer<TransactionEntity> sink) {
+        Path file = Paths.get(segment.filePath());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(segment.offset());
+            InputStream in = new GZIPInputStream(new BufferedInputStream(
+                    ByteStreams.limit(Channels.newInputStream(channel), segment.length()), 16 * 1024));
+            try (MappingIterator<TransactionEntity> rows = reader.readValues(in)) {
+                while (rows.hasNextValue()) {
+                    sink.accept(rows.nextValue());
+                }
+            }
+        } catch (IOException e) {
+            // Thiếu file archive nghĩa là thiếu dữ liệu — báo lỗi thay vì trả kết quả sai
+            throw new IllegalStateException("Cannot read transaction archive " + file + " at " + segment.offset(), e);
+        }
+    }
+
+    /** start/end null = không giới hạn phía đó. */
+    private static Predicate<TransactionEntity> inRange(LocalDateTime start, LocalDateTime end) {
+        return row -> (start == null || !row.getTransactionDate().isBefore(start))
+                && (end == null || !row.getTransactionDate().isAfter(end));
+    }
+
+    /**
+     * Ghi dòng đã sắp theo (user, ví) thành các gzip member nối tiếp, ghi nhận vị trí và thống kê từng đoạn.
+     */
+    private final class SegmentWriter {
+
+        private final CountingOutputStream file;
+        private final List<Segment> done = new ArrayList<>();
+        private OutputStream gzip;
+        private Segment current;
+        long rows;
+        LocalDateTime minDate;
+        LocalDateTime maxDate;
+
+        SegmentWriter(CountingOutputStream file) {
+            this.file = file;
+        }
+
+        void write(TransactionEntity row) {
+            try {
+                if (current == null || current.userId() != row.getUserId() || current.walletId() != row.getWalletId()) {
+                    closeSegment();
+                    gzip = new GZIPOutputStream(new FilterOutputStream(file) {
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException {
+                            out.write(b, off, len);
+                        }
+
+                        @Override
+                        public void close() throws IOException {
+                            flush(); // giữ file mở cho đoạn kế tiếp
+                        }
+                    }, 8 * 1024);
+                    current = new Segment(0, row.getUserId(), row.getWalletId(), file.getCount(), 0, 0,
+                            row.getTransactionDate(), row.getTransactionDate(), row.getId(), row.getId(), null);
+                }
+                gzip.write(writer.writeValueAsBytes(row));
+                gzip.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = new Segment(0, current.userId(), current.walletId(), current.offset(), 0, current.rowCount() + 1,
+                    min(current.minDate(), row.getTransactionDate()), max(current.maxDate(), row.getTransactionDate()),
+                    Math.min(current.minId(), row.getId()), Math.max(current.maxId(), row.getId()), null);
+            rows++;
+            minDate = min(minDate, row.getTransactionDate());
+            maxDate = max(maxDate, row.getTransactionDate());
+        }
+
+        void finish() throws IOException {
+            closeSegment();
+        }
+
+        private void closeSegment() throws IOException {
+            if (gzip == null) {
+                return;
+            }
+            gzip.close();
+            done.add(new Segment(0, current.userId(), current.walletId(), current.offset(),
+                    file.getCount() - current.offset(), current.rowCount(), current.minDate(), current.maxDate(),
+                    current.minId(), current.maxId(), null));
+            gzip = null;
+        }
+
+        private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+            return a == null || b.isBefore(a) ? b : a;
+        }
+
+        private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+            return a == null || b.isAfter(a) ? b : a;
+        }
+    }
+}
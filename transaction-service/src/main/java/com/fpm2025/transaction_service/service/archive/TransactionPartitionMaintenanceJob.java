@@ -0,0 +1,150 @@
+package com.fpm2025.transaction_service.service.archive;
+
+import com.fpm2025.transaction_service.repository.TransactionPartitionRepository;
+import com.fpm2025.transaction_service.repository.TransactionPartitionRepository.Partition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Bảo trì partition theo tháng của bảng transactions (xem V4__partition_transactions_by_month.sql).
+ *
+ * Mỗi lượt ({@code transaction.partition.maintenance.cron}, mặc định 03:30 hằng ngày):
+ * - Tạo trước partition cho tháng hiện tại và {@code transaction.partition.months-ahead} tháng tới bằng cách
+ *   tách p_max — p_max gần như luôn rỗng nên REORGANIZE chỉ là thao tác metadata.
+ * - Archive lần lượt từ partition cũ nhất những partition có cận trên không muộn hơn đầu tháng
+ *   (hiện tại − {@code transaction.archive.horizon-months}), qua {@link TransactionArchive}.
+ *
+ * Chỉ một instance chạy tại một thời điểm: lượt bảo trì giữ MySQL named lock {@value #LOCK_NAME}
+ * trên một connection riêng; instance không lấy được lock bỏ qua lượt đó.
+ */
+@Slf4j
+@Component
+public class TransactionPartitionMaintenanceJob {
+
+    static final String LOCK_NAME = "transaction_partition_maintenance";
+
+    private final TransactionPartitionRepository partitionRepository;
+    private final TransactionArchive archive;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${transaction.partition.maintenance.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transaction.partition.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${transaction.archive.enabled:true}")
+    private boolean archiveEnabled;
+
+    @Value("${transaction.archive.horizon-months:24}")
+    private int horizonMonths;
+
+    public TransactionPartitionMaintenanceJob(TransactionPartitionRepository partitionRepository,
+                                              TransactionArchive archive,
+                                              JdbcTemplate jdbcTemplate) {
+        this.partitionRepository = partitionRepository;
+        this.archive = archive;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "${transaction.partition.maintenance.cron:0 30 3 * * *}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                try (PreparedStatement lock = con.prepareStatement("SELECT GET_LOCK(?, 0)")) {
+                    lock.setString(1, LOCK_NAME);
+                    try (ResultSet rs = lock.executeQuery()) {
+                        if (!rs.next() || rs.getInt(1) != 1) {
+                            log.info("Partition maintenance: another instance holds the lock, skipping");
+                            return null;
+                        }
+                    }
+                }
+                try {
+                    maintain();
+                } finally {
+                    try (PreparedStatement release = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                        release.setString(1, LOCK_NAME);
+                        release.execute();
+                    }
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            log.error("Partition maintenance failed", e);
+        }
+    }
+
+    void maintain() {
+        List<Partition> partitions = partitionRepository.partitions();
+        if (partitions.isEmpty()) {
+            log.warn("Partition maintenance: transactions is not partitioned, skipping");
+            return;
+        }
+        createFuturePartitions(partitions);
+        if (archiveEnabled) {
+            try {
+                archive.recover();
+            } catch (Exception e) {
+                // Staging còn dòng của lượt trước thì EXCHANGE sẽ thất bại — bỏ qua archive lượt này
+                log.error("Partition maintenance: failed to recover interrupted archive", e);
+                return;
+            }
+            archiveColdPartitions(partitionRepository.partitions());
+        }
+    }
+
+    private void createFuturePartitions(List<Partition> partitions) {
+        LocalDateTime highest = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+        if (highest == null || partitions.stream().noneMatch(p -> TransactionPartitionRepository.MAX_PARTITION.equals(p.name()))) {
+            log.warn("Partition maintenance: unexpected partition layout {}, not creating partitions", partitions);
+            return;
+        }
+
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        List<YearMonth> missing = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(highest); !month.isAfter(last); month = month.plusMonths(1)) {
+            missing.add(month);
+        }
+        if (!missing.isEmpty()) {
+            partitionRepository.splitMaxPartition(missing);
+            log.info("Partition maintenance: created partitions {} .. {}", missing.get(0), missing.get(missing.size() - 1));
+        }
+    }
+
+    private void archiveColdPartitions(List<Partition> partitions) {
+        LocalDateTime horizon = YearMonth.now().minusMonths(horizonMonths).atDay(1).atStartOfDay();
+        for (Partition partition : partitions) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(horizon)) {
+                break;
+            }
+            try {
+                if (!archive.archive(partition)) {
+                    break;
+                }
+            } catch (Exception e) {
+                log.error("Partition maintenance: failed to archive {}", partition.name(), e);
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.fpm2025.transaction_service.service.imports;
+
+/**
+ * File import sai định dạng ở cấp file (không phải lỗi của một dòng) — trả 400 cho client.
+ */
+public class ImportFormatException extends RuntimeException {
+
+    public ImportFormatException(String message) {
+        super(message);
+    }
+}
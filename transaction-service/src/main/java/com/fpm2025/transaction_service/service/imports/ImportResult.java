@@ -0,0 +1,24 @@
+package com.fpm2025.transaction_service.service.imports;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Kết quả import: hoặc mọi dòng hợp lệ được ghi ({@code errors} rỗng), hoặc không dòng nào được ghi
+ * và {@code errors} liệt kê từng dòng lỗi.
+ */
+public record ImportResult(String importId,
+                           int totalRows,
+                           int importedRows,
+                           List<WalletDelta> walletDeltas,
+                           List<RowError> errors) {
+
+    /** Thay đổi số dư ròng đã áp dụng cho một ví (âm = giảm). */
+    public record WalletDelta(Long walletId, String currency, BigDecimal delta) {}
+
+    public record RowError(int row, String message) {}
+
+    public boolean isRejected() {
+        return !errors.isEmpty();
+    }
+}
@@ -0,0 +1,18 @@
+package com.fpm2025.transaction_service.service.imports;
+
+import com.fpm2025.domain.dto.request.TransactionRequest;
+
+/**
+ * Một dòng của file import: {@code row} đánh số từ 1 (không tính header CSV).
+ * {@code request} null khi dòng không đọc được, khi đó {@code error} mô tả lỗi.
+ */
+public record ImportRow(int row, TransactionRequest request, String error) {
+
+    static ImportRow ok(int row, TransactionRequest request) {
+        return new ImportRow(row, request, null);
+    }
+
+    static ImportRow failed(int row, String error) {
+        return new ImportRow(row, null, error);
+    }
+}
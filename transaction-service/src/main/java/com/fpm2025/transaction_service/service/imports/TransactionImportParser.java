@@ -0,0 +1,215 @@
+package com.fpm2025.transaction_service.service.imports;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fpm2025.domain.dto.request.TransactionRequest;
+import com.fpm2025.domain.enums.CategoryType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Đọc file import giao dịch thành các {@link ImportRow}.
+ *
+ * - CSV: dòng đầu là header (tên cột không phân biệt hoa thường, chấp nhận cả snake_case):
+ *   walletId, amount, type bắt buộc; categoryId, currency, transactionDate (ISO date hoặc date-time),
+ *   description, note, location, isRecurring tùy chọn. Trường có dấu phẩy/xuống dòng đặt trong "...".
+ * - JSON: mảng các object cùng dạng body của {@code POST /api/v1/transactions}; đọc từng phần tử
+ *   bằng streaming parser.
+ *
+ * Dòng không đọc được vẫn được trả về kèm lỗi, để caller báo đủ mọi dòng lỗi trong một lần;
+ * lỗi ở cấp file (thiếu cột, quá số dòng, JSON không phải mảng) ném {@link ImportFormatException}.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionImportParser {
+
+    private final ObjectMapper objectMapper;
+
+    public List<ImportRow> parseJson(InputStream in, int maxRows) throws IOException {
+        List<ImportRow> rows = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ImportFormatException("JSON import must be an array of transactions");
+            }
+            int index = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                index++;
+                checkLimit(index, maxRows);
+                // Đọc cả object thành cây trước: phần tử sai kiểu dữ liệu không làm lệch vị trí parser
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    rows.add(ImportRow.ok(index, objectMapper.treeToValue(node, TransactionRequest.class)));
+                } catch (JsonProcessingException e) {
+                    rows.add(ImportRow.failed(index, e.getOriginalMessage()));
+                }
+            }
+        } catch (JsonParseException e) {
+            throw new ImportFormatException("Malformed JSON at line " + e.getLocation().getLineNr()
+                    + ": " + e.getOriginalMessage());
+        }
+        return rows;
+    }
+
+    public List<ImportRow> parseCsv(Reader reader, int maxRows) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return List.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(normalize(header.get(i)), i);
+        }
+        for (String required : List.of("walletid", "amount", "type")) {
+            if (!columns.containsKey(required)) {
+                throw new ImportFormatException("CSV header is missing column: " + required);
+            }
+        }
+
+        List<ImportRow> rows = new ArrayList<>();
+        int index = 0;
+        List<String> fields;
+        while ((fields = csv.next()) != null) {
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            index++;
+            checkLimit(index, maxRows);
+            try {
+                rows.add(ImportRow.ok(index, toRequest(fields, columns)));
+            } catch (RuntimeException e) {
+                rows.add(ImportRow.failed(index, e.getMessage()));
+            }
+        }
+        return rows;
+    }
+
+    private TransactionRequest toRequest(List<String> fields, Map<String, Integer> columns) {
+        String walletId = field(fields, columns, "walletid");
+        String categoryId = field(fields, columns, "categoryid");
+        String amount = field(fields, columns, "amount");
+        String type = field(fields, columns, "type");
+        String date = field(fields, columns, "transactiondate");
+        String recurring = field(fields, columns, "isrecurring");
+        return TransactionRequest.builder()
+                .walletId(walletId != null ? Long.valueOf(walletId) : null)
+                .categoryId(categoryId != null ? Long.valueOf(categoryId) : null)
+                .amount(amount != null ? new BigDecimal(amount) : null)
+                .currency(field(fields, columns, "currency"))
+                .type(type != null ? CategoryType.valueOf(type.toUpperCase(Locale.ROOT)) : null)
+                .transactionDate(date != null ? parseDate(date) : null)
+                .description(field(fields, columns, "description"))
+                .note(field(fields, columns, "note"))
+                .location(field(fields, columns, "location"))
+                .isRecurring(recurring != null ? Boolean.valueOf(recurring) : null)
+                .build();
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        return value.length() <= 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer i = columns.get(name);
+        if (i == null || i >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(i).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static String normalize(String column) {
+        // BOM của file xuất từ Excel dính vào tên cột đầu tiên
+        return column.replace("\uFEFF", "").trim().replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static void checkLimit(int index, int maxRows) {
+        if (index > maxRows) {
+            throw new ImportFormatException("Import exceeds the limit of " + maxRows + " rows");
+        }
+    }
+
+    /** CSV theo RFC 4180: trường trong "..." được chứa dấu phẩy, xuống dòng và "" (dấu nháy). */
+    private static final class CsvReader {
+
+        private final Reader reader;
+        private int peeked = -2;
+
+        CsvReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new ImportFormatException("Unterminated quoted CSV field");
+                    }
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            read();
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r' && peek() == '\n') {
+                        read();
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (peeked != -2) {
+                int c = peeked;
+                peeked = -2;
+                return c;
+            }
+            return reader.read();
+        }
+
+        private int peek() throws IOException {
+            if (peeked == -2) {
+                peeked = reader.read();
+            }
+            return peeked;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.fpm2025.transaction_service.service.imports;
+
+import com.fpm2025.domain.dto.request.TransactionRequest;
+import com.fpm2025.domain.enums.CategoryType;
+import com.fpm2025.transaction_service.config.KafkaConfig;
+import com.fpm2025.transaction_service.config.RabbitMQConfig;
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import com.fpm2025.transaction_service.entity.enums.TransactionStatus;
+import com.fpm2025.transaction_service.event.outbox.OutboxMessage;
+import com.fpm2025.transaction_service.event.outbox.OutboxWriter;
+import com.fpm2025.transaction_service.grpc.WalletGrpcClient;
+import com.fpm2025.transaction_service.repository.TransactionBatchRepository;
+import com.fpm2025.transaction_service.service.TransactionService;
+import com.fpm2025.transaction_service.service.WalletBalanceUpdater;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Import hàng loạt giao dịch (CSV/JSON) cho user chuyển từ ứng dụng khác.
+ *
+ * Khác {@link TransactionService#createTransaction} (mỗi dòng: một gRPC updateBalance, một INSERT,
+ * một Kafka + một RabbitMQ message), pipeline xử lý cả file:
+ * 1. Parse rồi validate song song (Bean Validation trên {@link TransactionRequest}); quyền ghi ví được
+ *    kiểm tra một lần cho mỗi ví khác nhau. Có dòng lỗi → trả toàn bộ lỗi, không ghi gì.
+ * 2. Gộp ảnh hưởng số dư thành một delta ròng cho mỗi (ví, tiền tệ); các updateBalance được gửi
+ *    song song qua {@link WalletBalanceUpdater} và chạy chồng với bước 3.
+ * 3. INSERT bằng JDBC batch ({@code transaction.import.batch-size} dòng/lô) trong một transaction DB,
+ *    cùng transaction đó ghi outbox: transaction.created từng dòng (có header
+ *    {@link KafkaConfig#IMPORT_ID_HEADER} để consumer bỏ qua push từng dòng), một event tổng
+ *    {@link KafkaConfig#TRANSACTIONS_IMPORTED_TOPIC} và một notification RabbitMQ thay vì mỗi dòng một cái.
+ *    Bước 2 chạy trong cùng transaction: mỗi delta có khóa idempotency và lệnh REVERT dự phòng trong outbox,
+ *    nên khi một ví lỗi, bước 3 rollback hay process chết, relay hoàn tác đúng các delta đã được áp dụng.
+ */
+@Slf4j
+@Service
+public class TransactionImportService {
+
+    private final TransactionImportParser parser;
+    private final Validator validator;
+    private final TransactionService transactionService;
+    private final WalletGrpcClient walletClient;
+    private final WalletBalanceUpdater balanceUpdater;
+    private final TransactionBatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxWriter outboxWriter;
+
+    @Value("${transaction.import.max-rows:20000}")
+    private int maxRows;
+
+    @Value("${transaction.import.batch-size:1000}")
+    private int batchSize;
+
+    public TransactionImportService(TransactionImportParser parser,
+                                    Validator validator,
+                                    TransactionService transactionService,
+                                    WalletGrpcClient walletClient,
+                                    WalletBalanceUpdater balanceUpdater,
+                                    TransactionBatchRepository batchRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    OutboxWriter outboxWriter) {
+        this.parser = parser;
+        this.validator = validator;
+        this.transactionService = transactionService;
+        this.walletClient = walletClient;
+        this.balanceUpdater = balanceUpdater;
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.outboxWriter = outboxWriter;
+    }
+
+    public ImportResult importCsv(Long userId, InputStream in) throws IOException {
+        return importRows(userId, parser.parseCsv(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), maxRows));
+    }
+
+    public ImportResult importJson(Long userId, InputStream in) throws IOException {
+        return importRows(userId, parser.parseJson(in, maxRows));
+    }
+
+    ImportResult importRows(Long userId, List<ImportRow> rows) {
+        String importId = UUID.randomUUID().toString();
+        long startedAt = System.nanoTime();
+
+        List<ImportResult.RowError> errors = validate(userId, rows);
+        if (!errors.isEmpty()) {
+            log.info("Import {} for user {} rejected: {} of {} rows invalid", importId, userId, errors.size(), rows.size());
+            return new ImportResult(importId, rows.size(), 0, List.of(), errors);
+        }
+        if (rows.isEmpty()) {
+            return new ImportResult(importId, 0, 0, List.of(), List.of());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TransactionEntity> entities = rows.stream()
+                .map(row -> toEntity(userId, row.request(), now))
+                .toList();
+        List<ImportResult.WalletDelta> deltas = netDeltas(entities);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Các ví độc lập với nhau: gửi mọi delta cùng lúc, INSERT chạy trong lúc chờ phản hồi
+                List<WalletBalanceUpdater.BalanceUpdate> updates = deltas.stream()
+                        .map(d -> balanceUpdater.send(d.walletId(), d.delta(), d.currency(),
+                                "Import " + importId, "Revert import " + importId))
+                        .toList();
+                batchRepository.insertAll(entities, batchSize);
+                outboxWriter.appendAll(events(importId, userId, entities), batchSize);
+                // Chỉ commit khi mọi ví đã cập nhật xong; một ví lỗi (kể cả timeout) → rollback
+                CompletableFuture.allOf(updates.stream().map(WalletBalanceUpdater.BalanceUpdate::result)
+                        .toArray(CompletableFuture[]::new)).join();
+            });
+        } catch (RuntimeException e) {
+            log.error("Import {} for user {} failed, {} wallet updates are reverted through the outbox",
+                    importId, userId, deltas.size(), e);
+            throw new RuntimeException("Failed to import transactions: " + e.getMessage(), e);
+        }
+
+        log.info("Import {} for user {}: {} rows, {} wallet updates in {} ms", importId, userId, entities.size(),
+                deltas.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        return new ImportResult(importId, rows.size(), entities.size(), deltas, List.of());
+    }
+
+    // ==================== Validate ====================
+
+    private List<ImportResult.RowError> validate(Long userId, List<ImportRow> rows) {
+        // Bean Validation thuần CPU, không phụ thuộc thứ tự — chạy song song trên common pool
+        List<ImportResult.RowError> errors = rows.parallelStream()
+                .map(this::validateRow)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        Set<Long> walletIds = rows.stream()
+                .map(ImportRow::request)
+                .filter(r -> r != null && r.getWalletId() != null)
+                .map(TransactionRequest::getWalletId)
+                .collect(Collectors.toSet());
+        Map<Long, Boolean> access = new HashMap<>();
+        for (Long walletId : walletIds) {
+            access.put(walletId, walletClient.hasWalletAccess(userId, walletId));
+        }
+        for (ImportRow row : rows) {
+            if (row.request() != null && row.request().getWalletId() != null
+                    && !access.get(row.request().getWalletId())) {
+                errors.add(new ImportResult.RowError(row.row(), "No access to wallet " + row.request().getWalletId()));
+            }
+        }
+        errors.sort(Comparator.comparingInt(ImportResult.RowError::row));
+        return errors;
+    }
+
+    private ImportResult.RowError validateRow(ImportRow row) {
+        if (row.request() == null) {
+            return new ImportResult.RowError(row.row(), row.error());
+        }
+        TransactionRequest request = row.request();
+        Set<ConstraintViolation<TransactionRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return new ImportResult.RowError(row.row(), message);
+        }
+        // Các trường mà bước ghi batch và tính delta dựa vào
+        if (request.getWalletId() == null || request.getType() == null) {
+            return new ImportResult.RowError(row.row(), "walletId and type are required");
+        }
+        if (request.getAmount() == null || request.getAmount().signum() <= 0) {
+            return new ImportResult.RowError(row.row(), "amount must be greater than 0");
+        }
+        return null;
+    }
+
+    // ==================== Balance ====================
+
+    /** Tổng INCOME − EXPENSE theo (ví, tiền tệ), cùng quy ước ADD/SUBTRACT với createTransaction. */
+    static List<ImportResult.WalletDelta> netDeltas(List<TransactionEntity> entities) {
+        Map<List<Object>, BigDecimal> sums = new LinkedHashMap<>();
+        for (TransactionEntity e : entities) {
+            BigDecimal signed = e.getType() == CategoryType.EXPENSE ? e.getAmount().negate() : e.getAmount();
+            sums.merge(List.of(e.getWalletId(), e.getCurrency()), signed, BigDecimal::add);
+        }
+        List<ImportResult.WalletDelta> deltas = new ArrayList<>(sums.size());
+        sums.forEach((key, delta) -> deltas.add(
+                new ImportResult.WalletDelta((Long) key.get(0), (String) key.get(1), delta)));
+        return deltas;
+    }
+
+    // ==================== Events ====================
+
+    /** Event của cả lần import, ghi vào outbox cùng transaction với các dòng giao dịch. */
+    private List<OutboxMessage> events(String importId, Long userId, List<TransactionEntity> entities) {
+        String key = String.valueOf(userId);
+        Map<String, String> headers = Map.of(KafkaConfig.IMPORT_ID_HEADER, importId);
+        List<OutboxMessage> messages = new ArrayList<>(entities.size() + 2);
+        for (TransactionEntity e : entities) {
+            messages.add(OutboxMessage.kafka(KafkaConfig.TRANSACTION_CREATED_TOPIC, key,
+                    transactionService.mapToResponse(e), headers));
+        }
+        LocalDateTime from = entities.stream().map(TransactionEntity::getTransactionDate)
+                .min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime to = entities.stream().map(TransactionEntity::getTransactionDate)
+                .max(Comparator.naturalOrder()).orElseThrow();
+        messages.add(OutboxMessage.kafka(KafkaConfig.TRANSACTIONS_IMPORTED_TOPIC, key, Map.of(
+                "importId", importId,
+                "userId", userId,
+                "count", entities.size(),
+                "walletIds", entities.stream().map(TransactionEntity::getWalletId).distinct().toList(),
+                "from", from,
+                "to", to)));
+        messages.add(OutboxMessage.rabbit(RabbitMQConfig.NOTIFICATION_EXCHANGE, RabbitMQConfig.NOTIFICATION_ROUTING_KEY,
+                String.format("User %d imported %d transactions", userId, entities.size())));
+        return messages;
+    }
+
+    private static TransactionEntity toEntity(Long userId, TransactionRequest request, LocalDateTime now) {
+        return TransactionEntity.builder()
+                .userId(userId)
+                .walletId(request.getWalletId())
+                .categoryId(request.getCategoryId())
+                .amount(request.getAmount())
+                .currency(request.getCurrency() != null ? request.getCurrency() : "VND")
+                .type(request.getType())
+                .transactionDate(request.getTransactionDate() != null ? request.getTransactionDate() : now)
+                .description(request.getDescription())
+                .note(request.getNote())
+                .location(request.getLocation())
+                .isRecurring(request.getIsRecurring() != null ? request.getIsRecurring() : false)
+                .status(TransactionStatus.COMPLETED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+}
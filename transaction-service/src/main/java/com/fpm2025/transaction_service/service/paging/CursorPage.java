@@ -0,0 +1,17 @@
+package com.fpm2025.transaction_service.service.paging;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Một trang theo cursor.
+ *
+ * @param nextCursor    token truyền vào request kế tiếp; null khi đã hết dữ liệu
+ * @param totalElements tổng số dòng khớp filter; null khi client bỏ qua COUNT ({@code skipCount})
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor, boolean hasNext, Long totalElements) {
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return new CursorPage<>(content.stream().<R>map(mapper).toList(), size, nextCursor, hasNext, totalElements);
+    }
+}
@@ -0,0 +1,11 @@
+package com.fpm2025.transaction_service.service.paging;
+
+/**
+ * Cursor phân trang không giải mã được (client tự tạo hoặc sửa token) — trả 400 cho client.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String token) {
+        super("Invalid pagination cursor: " + token);
+    }
+}
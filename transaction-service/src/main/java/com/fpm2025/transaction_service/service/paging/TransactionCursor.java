@@ -0,0 +1,57 @@
+package com.fpm2025.transaction_service.service.paging;
+
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Vị trí trong danh sách giao dịch sắp theo (transaction_date DESC, id DESC) — dòng cuối của trang trước.
+ *
+ * Client chỉ thấy token base64url mờ; nội dung token không phải hợp đồng API và có thể đổi.
+ * id phá thế hòa khi nhiều giao dịch cùng transaction_date nên không dòng nào bị lặp hay bỏ sót.
+ */
+public record TransactionCursor(LocalDateTime transactionDate, long id) {
+
+    /** Thứ tự danh sách: (transaction_date DESC, id DESC) — dùng khi trộn dòng từ DB và từ archive. */
+    public static final Comparator<TransactionEntity> ORDER = Comparator
+            .comparing(TransactionEntity::getTransactionDate)
+            .thenComparing(TransactionEntity::getId)
+            .reversed();
+
+    public static TransactionCursor of(TransactionEntity last) {
+        return new TransactionCursor(last.getTransactionDate(), last.getId());
+    }
+
+    /** true nếu {@code row} nằm sau cursor trong danh sách (thuộc các trang sau). */
+    public boolean precedes(TransactionEntity row) {
+        int byDate = row.getTransactionDate().compareTo(transactionDate);
+        return byDate < 0 || byDate == 0 && row.getId() < id;
+    }
+
+    public String encode() {
+        String raw = transactionDate + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** null/rỗng = trang đầu. */
+    public static TransactionCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            if (sep < 0) {
+                throw new InvalidCursorException(token);
+            }
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, sep)),
+                    Long.parseLong(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
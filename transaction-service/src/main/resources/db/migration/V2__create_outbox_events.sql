@@ -0,0 +1,17 @@
+-- Transactional outbox: event được ghi cùng transaction với thay đổi nghiệp vụ,
+-- OutboxRelay đọc bằng FOR UPDATE SKIP LOCKED rồi publish sang Kafka/RabbitMQ.
+CREATE TABLE outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    destination VARCHAR(10) NOT NULL, -- KAFKA, RABBIT
+    topic VARCHAR(255) NOT NULL, -- Kafka topic hoặc RabbitMQ exchange
+    message_key VARCHAR(255), -- Kafka key hoặc RabbitMQ routing key
+    headers JSON,
+    payload MEDIUMTEXT NOT NULL, -- JSON
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    last_error VARCHAR(500),
+    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    sent_at DATETIME(3),
+
+    INDEX idx_outbox_sent (sent_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,8 @@
+-- Keyset pagination: danh sách giao dịch sắp theo (transaction_date DESC, id DESC).
+-- Index khớp đúng thứ tự đó nên mỗi trang là một range scan ngắn, không filesort, không quét offset.
+-- Hai index đơn cột cũ là tiền tố của index mới nên bỏ đi.
+ALTER TABLE transactions
+    ADD INDEX idx_txn_user_date_id (user_id, transaction_date DESC, id DESC),
+    ADD INDEX idx_txn_wallet_date_id (wallet_id, transaction_date DESC, id DESC),
+    DROP INDEX idx_user_id,
+    DROP INDEX idx_wallet_id;
@@ -0,0 +1,64 @@
+-- Partition transactions theo tháng trên transaction_date (RANGE COLUMNS).
+-- Truy vấn có điều kiện transaction_date chỉ đọc các partition liên quan (partition pruning);
+-- index (user_id, transaction_date, id) từ V3 là index cục bộ của từng partition.
+--
+-- Ràng buộc của MySQL với bảng partition:
+-- - Mọi unique key (kể cả PK) phải chứa cột partition → PK thành (id, transaction_date);
+--   id vẫn duy nhất nhờ AUTO_INCREMENT.
+-- - InnoDB partition không hỗ trợ foreign key → bỏ FK tới/từ transactions.
+--   ON DELETE CASCADE của transaction_attachments do TransactionService.deleteTransaction đảm nhận.
+--
+-- Partition tháng tương lai được TransactionPartitionMaintenanceJob tách dần từ p_max;
+-- partition cũ hơn transaction.archive.horizon-months được ghi ra file và DROP (xem transaction_archives).
+ALTER TABLE transaction_attachments DROP FOREIGN KEY transaction_attachments_ibfk_1;
+ALTER TABLE transactions DROP FOREIGN KEY fk_trans_recurring;
+
+ALTER TABLE transactions
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, transaction_date);
+
+ALTER TABLE transactions
+    PARTITION BY RANGE COLUMNS (transaction_date) (
+        PARTITION p_history VALUES LESS THAN ('2025-01-01'),
+        PARTITION p202501   VALUES LESS THAN ('2025-02-01'),
+        PARTITION p202502   VALUES LESS THAN ('2025-03-01'),
+        PARTITION p202503   VALUES LESS THAN ('2025-04-01'),
+        PARTITION p202504   VALUES LESS THAN ('2025-05-01'),
+        PARTITION p202505   VALUES LESS THAN ('2025-06-01'),
+        PARTITION p202506   VALUES LESS THAN ('2025-07-01'),
+        PARTITION p202507   VALUES LESS THAN ('2025-08-01'),
+        PARTITION p202508   VALUES LESS THAN ('2025-09-01'),
+        PARTITION p202509   VALUES LESS THAN ('2025-10-01'),
+        PARTITION p202510   VALUES LESS THAN ('2025-11-01'),
+        PARTITION p202511   VALUES LESS THAN ('2025-12-01'),
+        PARTITION p202512   VALUES LESS THAN ('2026-01-01'),
+        PARTITION p202601   VALUES LESS THAN ('2026-02-01'),
+        PARTITION p202602   VALUES LESS THAN ('2026-03-01'),
+        PARTITION p202603   VALUES LESS THAN ('2026-04-01'),
+        PARTITION p202604   VALUES LESS THAN ('2026-05-01'),
+        PARTITION p202605   VALUES LESS THAN ('2026-06-01'),
+        PARTITION p202606   VALUES LESS THAN ('2026-07-01'),
+        PARTITION p202607   VALUES LESS THAN ('2026-08-01'),
+        PARTITION p202608   VALUES LESS THAN ('2026-09-01'),
+        PARTITION p202609   VALUES LESS THAN ('2026-10-01'),
+        PARTITION p202610   VALUES LESS THAN ('2026-11-01'),
+        PARTITION p202611   VALUES LESS THAN ('2026-12-01'),
+        PARTITION p202612   VALUES LESS THAN ('2027-01-01'),
+        PARTITION p_max     VALUES LESS THAN (MAXVALUE)
+    );
+
+-- Partition đã archive: file nén, số dòng và khoảng transaction_date thực tế trong file
+-- (partition đầu tiên chứa mọi dòng cũ hơn cận trên nên min_date không suy ra từ tên partition).
+-- status: EXPORTED = đã ghi file, partition chưa DROP; ARCHIVED = partition đã DROP, đọc qua file.
+CREATE TABLE transaction_archives (
+    partition_name  VARCHAR(64) PRIMARY KEY,
+    upper_bound     DATETIME NOT NULL,
+    min_date        DATETIME NOT NULL,
+    max_date        DATETIME NOT NULL,
+    row_count       BIGINT NOT NULL,
+    file_path       VARCHAR(1000) NOT NULL,
+    status          VARCHAR(20) NOT NULL,
+    archived_at     DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+
+    INDEX idx_archives_range (status, min_date, max_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,6 @@
+-- OutboxRelay claim dòng bằng lease thay vì giữ row lock suốt lúc publish:
+-- transaction claim ngắn đặt next_attempt_at = hết hạn lease và claim_token của lượt relay,
+-- publish chạy ngoài transaction, rồi chỉ đánh dấu sent/failed những dòng còn mang đúng token.
+-- Instance chết giữa chừng: lease hết hạn thì dòng tự được claim lại.
+ALTER TABLE outbox_events
+    ADD COLUMN claim_token CHAR(36) NULL AFTER next_attempt_at;
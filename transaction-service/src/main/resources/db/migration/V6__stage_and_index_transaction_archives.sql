@@ -0,0 +1,40 @@
+-- Archive partition qua bảng staging và index theo user/ví (xem TransactionArchive).
+--
+-- transaction_archive_staging: bản không partition của transactions. Partition cần archive được chuyển
+-- nguyên khối sang đây bằng ALTER TABLE ... EXCHANGE PARTITION (atomic, chỉ đổi metadata), rồi export
+-- từ bảng tĩnh này — giao dịch lùi ngày chen vào trong lúc export rơi vào partition (đã rỗng), không bị mất.
+-- EXCHANGE đòi cấu trúc giống hệt: migration nào đổi bảng transactions phải đổi cả bảng này.
+CREATE TABLE transaction_archive_staging LIKE transactions;
+ALTER TABLE transaction_archive_staging REMOVE PARTITIONING;
+
+-- Mỗi lượt archive một dòng manifest (một partition có thể cần nhiều lượt nếu có dòng lùi ngày chen vào
+-- trong lúc export). status: STAGED = dòng đang nằm trong staging; ARCHIVED = đã ghi file, đọc qua file.
+ALTER TABLE transaction_archives
+    DROP PRIMARY KEY,
+    ADD COLUMN id BIGINT AUTO_INCREMENT PRIMARY KEY FIRST,
+    MODIFY min_date DATETIME NULL,
+    MODIFY max_date DATETIME NULL,
+    MODIFY row_count BIGINT NULL,
+    MODIFY file_path VARCHAR(1000) NULL,
+    ADD INDEX idx_archives_partition (partition_name);
+
+-- File archive sắp theo (user_id, wallet_id, transaction_date DESC, id DESC); mỗi cặp (user, ví) là một
+-- gzip member độc lập tại [byte_offset, byte_offset + byte_length) — đọc lịch sử của một user/ví chỉ
+-- giải nén đúng các đoạn đó. min/max_date và min/max_id để bỏ qua đoạn không liên quan.
+CREATE TABLE transaction_archive_segments (
+    archive_id   BIGINT NOT NULL,
+    user_id      BIGINT NOT NULL,
+    wallet_id    BIGINT NOT NULL,
+    byte_offset  BIGINT NOT NULL,
+    byte_length  BIGINT NOT NULL,
+    row_count    INT NOT NULL,
+    min_date     DATETIME NOT NULL,
+    max_date     DATETIME NOT NULL,
+    min_id       BIGINT NOT NULL,
+    max_id       BIGINT NOT NULL,
+
+    PRIMARY KEY (archive_id, user_id, wallet_id),
+    INDEX idx_segments_user (user_id, max_date),
+    INDEX idx_segments_wallet (wallet_id, max_date),
+    INDEX idx_segments_id (min_id, max_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,177 @@
+package com.fpm2025.transaction_service.event.outbox;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fpm2025.grpc.protocol.WalletResponse;
+import com.fpm2025.transaction_service.grpc.WalletGrpcClient;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho một lượt {@link OutboxRelay#relayBatch()}: claim → lease có token → gửi ngoài transaction →
+ * đánh dấu sent/failed chỉ trên dòng còn mang token đó.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboxRelay — Unit Tests")
+class OutboxRelayTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private WalletGrpcClient walletClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        relay = new OutboxRelay(jdbcTemplate, namedJdbcTemplate, transactionTemplate, rabbitTemplate,
+                objectMapper, walletClient);
+        ReflectionTestUtils.setField(relay, "walletEnabled", true);
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        ReflectionTestUtils.setField(relay, "sendTimeout", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "lease", Duration.ofMinutes(2));
+        ReflectionTestUtils.setField(relay, "maxBackoff", Duration.ofMinutes(5));
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    @DisplayName("Dòng được lease với token của lượt, gửi xong thì MARK_SENT với đúng token đó")
+    void claimLeaseAndMarkSent() throws Exception {
+        claimReturns(1L, walletPayload("op-1"));
+        when(walletClient.updateBalanceAsync(7L, new BigDecimal("-50"), "VND", "Lunch", "op-1"))
+                .thenReturn(CompletableFuture.completedFuture(WalletResponse.getDefaultInstance()));
+        when(namedJdbcTemplate.update(anyString(), any(SqlParameterSource.class))).thenReturn(1);
+
+        assertThat(relay.relayBatch()).isEqualTo(1);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(namedJdbcTemplate, times(2)).update(sql.capture(), params.capture());
+
+        assertThat(sql.getAllValues().get(0)).contains("next_attempt_at = :leaseUntil");
+        MapSqlParameterSource lease = (MapSqlParameterSource) params.getAllValues().get(0);
+        assertThat(lease.getValue("ids")).isEqualTo(List.of(1L));
+        String token = (String) lease.getValue("token");
+        assertThat(token).isNotBlank();
+
+        assertThat(sql.getAllValues().get(1)).contains("sent_at = :now").contains("claim_token = :token");
+        MapSqlParameterSource sent = (MapSqlParameterSource) params.getAllValues().get(1);
+        assertThat(sent.getValue("ids")).isEqualTo(List.of(1L));
+        assertThat(sent.getValue("token")).isEqualTo(token);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    @DisplayName("Gửi lỗi: MARK_FAILED với token của lượt, không MARK_SENT")
+    @SuppressWarnings("unchecked")
+    void failureIsMarkedWithToken() throws Exception {
+        claimReturns(2L, walletPayload("op-2"));
+        when(walletClient.updateBalanceAsync(any(), any(), any(), any(), eq("op-2")))
+                .thenReturn(CompletableFuture.failedFuture(Status.UNAVAILABLE.asRuntimeException()));
+
+        relay.relayBatch();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(namedJdbcTemplate, times(1)).update(sql.capture(), params.capture());
+        String token = (String) ((MapSqlParameterSource) params.getValue()).getValue("token");
+
+        ArgumentCaptor<List<Object[]>> failed = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("attempts = attempts + 1"), failed.capture());
+        Object[] args = failed.getValue().get(0);
+        assertThat(args[2]).isEqualTo(2L);
+        assertThat(args[3]).isEqualTo(token);
+    }
+
+    @Test
+    @DisplayName("Dòng WALLET không có operationKey không được gửi")
+    @SuppressWarnings("unchecked")
+    void walletRowWithoutKeyIsNotSent() throws Exception {
+        claimReturns(3L, walletPayload(null));
+
+        relay.relayBatch();
+
+        verifyNoInteractions(walletClient);
+        ArgumentCaptor<List<Object[]>> failed = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("attempts = attempts + 1"), failed.capture());
+        assertThat(failed.getValue().get(0)[2]).isEqualTo(3L);
+    }
+
+    @Test
+    @DisplayName("wallet-enabled=false: CLAIM loại các dòng WALLET")
+    @SuppressWarnings("unchecked")
+    void walletRowsHeldWhenDisabled() {
+        ReflectionTestUtils.setField(relay, "walletEnabled", false);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any())).thenReturn(List.of());
+
+        assertThat(relay.relayBatch()).isZero();
+
+        verify(jdbcTemplate).query(contains("destination <> 'WALLET'"), any(RowMapper.class), any(), eq(false), eq(500));
+        verifyNoInteractions(namedJdbcTemplate, walletClient);
+    }
+
+    // ==================== Helpers ====================
+
+    private String walletPayload(String operationKey) throws Exception {
+        OutboxMessage message = operationKey != null
+                ? OutboxMessage.walletApply(7L, operationKey, new BigDecimal("-50"), "VND", "Lunch")
+                : new OutboxMessage(OutboxMessage.Destination.WALLET, OutboxMessage.WALLET_BALANCE, "7", null,
+                        Map.of("walletId", 7, "delta", -50, "currency", "VND"));
+        return objectMapper.writeValueAsString(message.payload());
+    }
+
+    /** CLAIM trả về một dòng WALLET. */
+    @SuppressWarnings("unchecked")
+    private void claimReturns(long id, String payload) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(id);
+        when(rs.getString("destination")).thenReturn("WALLET");
+        when(rs.getString("topic")).thenReturn(OutboxMessage.WALLET_BALANCE);
+        when(rs.getString("message_key")).thenReturn("7");
+        when(rs.getString("headers")).thenReturn(null);
+        when(rs.getString("payload")).thenReturn(payload);
+        when(rs.getInt("attempts")).thenReturn(0);
+        when(jdbcTemplate.query(contains("FOR UPDATE SKIP LOCKED"), any(RowMapper.class), any(), eq(true), eq(500)))
+                .thenAnswer(inv -> List.of(inv.<RowMapper<?>>getArgument(1).mapRow(rs, 0)));
+    }
+}
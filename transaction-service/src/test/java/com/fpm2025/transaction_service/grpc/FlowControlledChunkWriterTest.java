@@ -0,0 +1,75 @@
+package com.fpm2025.transaction_service.grpc;
+
+import com.fpm2025.grpc.protocol.TransactionResponse;
+import com.fpm2025.grpc.protocol.TransactionsResponse;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho {@link FlowControlledChunkWriter}: gửi theo chunk và chờ client có giới hạn thời gian.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FlowControlledChunkWriter — Unit Tests")
+class FlowControlledChunkWriterTest {
+
+    @Mock
+    private ServerCallStreamObserver<TransactionsResponse> observer;
+
+    @Test
+    @DisplayName("Transport sẵn sàng: gửi mỗi chunk đủ kích thước, phần còn lại khi complete")
+    void sendsChunks() {
+        when(observer.isReady()).thenReturn(true);
+        FlowControlledChunkWriter writer = new FlowControlledChunkWriter(observer, 2, Duration.ofSeconds(1));
+
+        for (long id = 1; id <= 3; id++) {
+            writer.add(TransactionResponse.newBuilder().setId(id).build());
+        }
+        writer.complete();
+
+        verify(observer, times(2)).onNext(any(TransactionsResponse.class));
+        verify(observer).onCompleted();
+        assertThat(writer.getSentCount()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Client không đọc quá ready-timeout: DEADLINE_EXCEEDED, không gửi thêm")
+    void stalledClientTimesOut() {
+        when(observer.isReady()).thenReturn(false);
+        FlowControlledChunkWriter writer = new FlowControlledChunkWriter(observer, 1, Duration.ofMillis(120));
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> writer.add(TransactionResponse.newBuilder().setId(1L).build()))
+                .isInstanceOf(StatusRuntimeException.class)
+                .extracting(e -> ((StatusRuntimeException) e).getStatus().getCode())
+                .isEqualTo(Status.Code.DEADLINE_EXCEEDED);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+        verify(observer, never()).onNext(any());
+        assertThat(writer.getSentCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Client huỷ trong lúc chờ: CANCELLED")
+    void cancelledWhileWaiting() {
+        when(observer.isReady()).thenReturn(false);
+        when(observer.isCancelled()).thenReturn(true);
+        FlowControlledChunkWriter writer = new FlowControlledChunkWriter(observer, 1, Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> writer.add(TransactionResponse.newBuilder().setId(1L).build()))
+                .isInstanceOf(StatusRuntimeException.class)
+                .extracting(e -> ((StatusRuntimeException) e).getStatus().getCode())
+                .isEqualTo(Status.Code.CANCELLED);
+    }
+}
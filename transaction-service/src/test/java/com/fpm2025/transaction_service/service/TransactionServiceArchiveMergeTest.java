@@ -0,0 +1,161 @@
+package com.fpm2025.transaction_service.service;
+
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import com.fpm2025.transaction_service.event.outbox.OutboxWriter;
+import com.fpm2025.transaction_service.repository.TransactionAggregateRepository;
+import com.fpm2025.transaction_service.repository.TransactionAttachmentRepository;
+import com.fpm2025.transaction_service.repository.TransactionRepository;
+import com.fpm2025.transaction_service.service.archive.TransactionArchive;
+import com.fpm2025.transaction_service.service.paging.CursorPage;
+import com.fpm2025.transaction_service.service.paging.TransactionCursor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho việc trộn dòng DB và dòng đã archive trong {@link TransactionService}.
+ *
+ * <p>DB và archive được giả lập bằng hai danh sách đã sắp theo {@link TransactionCursor#ORDER}; mock áp dụng
+ * cursor, floor và limit như truy vấn thật, để kiểm tra cả chuỗi trang chứ không chỉ một lần trộn.
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TransactionService — trộn dòng archive")
+class TransactionServiceArchiveMergeTest {
+
+    private static final Long WALLET_ID = 7L;
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 3, 31, 9, 0);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private TransactionAggregateRepository aggregateRepository;
+    @Mock
+    private OutboxWriter outboxWriter;
+    @Mock
+    private TransactionAttachmentRepository attachmentRepository;
+    @Mock
+    private WalletBalanceUpdater balanceUpdater;
+    @Mock
+    private TransactionArchive archive;
+
+    private TransactionService service;
+
+    /** DB: id 10, 8, 6, 4 — archive: 9, 7 (cùng ngày với 8), 3, 1. Thứ tự đúng: 10 9 8 7 6 4 3 1. */
+    private final List<TransactionEntity> live = List.of(
+            row(10L, DAY), row(8L, DAY.minusDays(2)), row(6L, DAY.minusDays(4)), row(4L, DAY.minusDays(6)));
+    private final List<TransactionEntity> archived = List.of(
+            row(9L, DAY.minusDays(1)), row(7L, DAY.minusDays(2)), row(3L, DAY.minusDays(7)), row(1L, DAY.minusDays(9)));
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionService(transactionRepository, entityManager, aggregateRepository, outboxWriter,
+                attachmentRepository, balanceUpdater, archive);
+        ReflectionTestUtils.setField(service, "maxPageSize", 100);
+    }
+
+    @Test
+    @DisplayName("Đi hết các trang theo cursor: đúng thứ tự, không lặp, không sót")
+    void cursorPagesInterleaveArchive() {
+        stubWalletSources();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<TransactionEntity> page = service.findByWalletIdRaw(WALLET_ID, cursor, 0, 3, true);
+            page.content().forEach(t -> seen.add(t.getId()));
+            cursor = page.nextCursor();
+            assertThat(page.hasNext()).isEqualTo(cursor != null);
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertThat(seen).containsExactly(10L, 9L, 8L, 7L, 6L, 4L, 3L, 1L);
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Trang offset (client cũ) cũng trộn archive trước khi cắt trang")
+    void offsetPageInterleavesArchive() {
+        stubWalletSources();
+
+        CursorPage<TransactionEntity> page = service.findByWalletIdRaw(WALLET_ID, null, 1, 3, true);
+
+        assertThat(page.content()).extracting(TransactionEntity::getId).containsExactly(7L, 6L, 4L);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(TransactionCursor.decode(page.nextCursor())).isEqualTo(new TransactionCursor(DAY.minusDays(6), 4L));
+    }
+
+    @Test
+    @DisplayName("totalElements cộng số dòng DB và số dòng archive")
+    void totalIncludesArchive() {
+        stubWalletSources();
+        when(transactionRepository.countByWalletId(WALLET_ID)).thenReturn(4L);
+        when(archive.count(null, WALLET_ID, null, null, null)).thenReturn(4L);
+
+        CursorPage<TransactionEntity> page = service.findByWalletIdRaw(WALLET_ID, null, 0, 3, false);
+
+        assertThat(page.totalElements()).isEqualTo(8L);
+    }
+
+    @Test
+    @DisplayName("Stream theo khoảng ngày: dòng archive được chèn đúng vị trí giữa các dòng từ cursor DB")
+    void streamInterleavesArchive() {
+        LocalDateTime start = DAY.minusDays(30);
+        when(archive.find(eq(1L), isNull(), eq(start), eq(DAY), any(), isNull(), eq(Integer.MAX_VALUE)))
+                .thenReturn(archived);
+        when(transactionRepository.streamByUserIdAndDateRange(1L, start, DAY, List.of()))
+                .thenReturn(live.stream());
+
+        List<Long> seen = new ArrayList<>();
+        service.streamByUserAndDateRange(1L, start, DAY, null, t -> seen.add(t.getId()));
+
+        assertThat(seen).containsExactly(10L, 9L, 8L, 7L, 6L, 4L, 3L, 1L);
+        verify(entityManager, times(live.size())).detach(any());
+    }
+
+    // ==================== Helpers ====================
+
+    /** DB và archive trả các dòng sau cursor, không cũ hơn floor, tối đa limit — như truy vấn thật. */
+    private void stubWalletSources() {
+        when(transactionRepository.findPageByWalletId(eq(WALLET_ID), any(), any(), any(Pageable.class)))
+                .thenAnswer(inv -> {
+                    LocalDateTime date = inv.getArgument(1);
+                    Long id = inv.getArgument(2);
+                    Pageable pageable = inv.getArgument(3);
+                    List<TransactionEntity> after = date == null ? live
+                            : live.stream().filter(new TransactionCursor(date, id)::precedes).toList();
+                    return after.stream().skip(pageable.getOffset()).limit(pageable.getPageSize()).toList();
+                });
+        when(archive.find(isNull(), eq(WALLET_ID), any(), isNull(), isNull(), any(), anyInt()))
+                .thenAnswer(inv -> {
+                    LocalDateTime floor = inv.getArgument(2);
+                    TransactionCursor after = inv.getArgument(5);
+                    int limit = inv.getArgument(6);
+                    return archived.stream()
+                            .filter(t -> after == null || after.precedes(t))
+                            .filter(t -> floor == null || !t.getTransactionDate().isBefore(floor))
+                            .limit(limit)
+                            .toList();
+                });
+    }
+
+    private static TransactionEntity row(Long id, LocalDateTime date) {
+        return TransactionEntity.builder().id(id).walletId(WALLET_ID).userId(1L).transactionDate(date).build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.fpm2025.transaction_service.service.imports;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fpm2025.domain.dto.request.TransactionRequest;
+import com.fpm2025.domain.enums.CategoryType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests cho {@link TransactionImportParser}: CSV (header, trường trong "...", dòng lỗi) và JSON streaming.
+ */
+@DisplayName("TransactionImportParser — Unit Tests")
+class TransactionImportParserTest {
+
+    private final TransactionImportParser parser =
+            new TransactionImportParser(JsonMapper.builder().findAndAddModules().build());
+
+    private List<ImportRow> csv(String content, int maxRows) throws IOException {
+        return parser.parseCsv(new StringReader(content), maxRows);
+    }
+
+    private List<ImportRow> json(String content, int maxRows) throws IOException {
+        return parser.parseJson(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), maxRows);
+    }
+
+    @Nested
+    @DisplayName("parseCsv")
+    class CsvTest {
+
+        @Test
+        @DisplayName("Header snake_case có BOM, trường trong \"...\" chứa dấu phẩy, \"\" và xuống dòng")
+        void parsesQuotedFields() throws IOException {
+            List<ImportRow> rows = csv("""
+                    ﻿wallet_id,Amount,TYPE,transaction_date,description,is_recurring\r
+                    1,50000,expense,2024-03-01,"Ăn trưa, ""quán"" cũ
+                    dòng 2",true\r
+                    2,120.5,INCOME,2024-03-02T08:30:00,,\r
+                    """, 100);
+
+            assertThat(rows).hasSize(2);
+            TransactionRequest first = rows.get(0).request();
+            assertThat(rows.get(0).row()).isEqualTo(1);
+            assertThat(first.getWalletId()).isEqualTo(1L);
+            assertThat(first.getAmount()).isEqualByComparingTo("50000");
+            assertThat(first.getType()).isEqualTo(CategoryType.EXPENSE);
+            assertThat(first.getTransactionDate()).isEqualTo(LocalDateTime.of(2024, 3, 1, 0, 0));
+            assertThat(first.getDescription()).isEqualTo("Ăn trưa, \"quán\" cũ\ndòng 2");
+            assertThat(first.getIsRecurring()).isTrue();
+
+            TransactionRequest second = rows.get(1).request();
+            assertThat(second.getType()).isEqualTo(CategoryType.INCOME);
+            assertThat(second.getTransactionDate()).isEqualTo(LocalDateTime.of(2024, 3, 2, 8, 30));
+            assertThat(second.getDescription()).isNull();
+            assertThat(second.getIsRecurring()).isNull();
+        }
+
+        @Test
+        @DisplayName("Dòng lỗi được trả kèm lỗi, dòng trống bị bỏ qua và không tính số thứ tự")
+        void keepsRowErrors() throws IOException {
+            List<ImportRow> rows = csv("walletId,amount,type\n1,abc,EXPENSE\n\n1,10,REFUND\n1,10,INCOME\n", 100);
+
+            assertThat(rows).extracting(ImportRow::row).containsExactly(1, 2, 3);
+            assertThat(rows.get(0).request()).isNull();
+            assertThat(rows.get(0).error()).isNotBlank();
+            assertThat(rows.get(1).request()).isNull();
+            assertThat(rows.get(2).request()).isNotNull();
+        }
+
+        @Test
+        @DisplayName("File rỗng: không có dòng")
+        void emptyFile() throws IOException {
+            assertThat(csv("", 100)).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Thiếu cột bắt buộc: lỗi cấp file")
+        void missingColumn() {
+            assertThatThrownBy(() -> csv("walletId,amount\n1,10\n", 100))
+                    .isInstanceOf(ImportFormatException.class)
+                    .hasMessageContaining("type");
+        }
+
+        @Test
+        @DisplayName("Vượt số dòng tối đa: lỗi cấp file")
+        void exceedsLimit() {
+            assertThatThrownBy(() -> csv("walletId,amount,type\n1,1,INCOME\n1,2,INCOME\n", 1))
+                    .isInstanceOf(ImportFormatException.class);
+        }
+
+        @Test
+        @DisplayName("Trường trong \"...\" không đóng: lỗi cấp file")
+        void unterminatedQuote() {
+            assertThatThrownBy(() -> csv("walletId,amount,type\n1,10,\"INCOME\n", 100))
+                    .isInstanceOf(ImportFormatException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("parseJson")
+    class JsonTest {
+
+        @Test
+        @DisplayName("Phần tử sai kiểu dữ liệu thành dòng lỗi, các phần tử sau vẫn được đọc")
+        void parsesArray() throws IOException {
+            List<ImportRow> rows = json("""
+                    [
+                      {"walletId": 1, "amount": 50000, "type": "EXPENSE", "transactionDate": "2024-03-01T10:00:00"},
+                      {"walletId": "abc", "amount": 10, "type": "INCOME"},
+                      {"walletId": 2, "amount": 10, "type": "INCOME", "currency": "USD"}
+                    ]
+                    """, 100);
+
+            assertThat(rows).extracting(ImportRow::row).containsExactly(1, 2, 3);
+            assertThat(rows.get(0).request().getTransactionDate()).isEqualTo(LocalDateTime.of(2024, 3, 1, 10, 0));
+            assertThat(rows.get(1).request()).isNull();
+            assertThat(rows.get(1).error()).isNotBlank();
+            assertThat(rows.get(2).request().getCurrency()).isEqualTo("USD");
+        }
+
+        @Test
+        @DisplayName("Không phải mảng: lỗi cấp file")
+        void notAnArray() {
+            assertThatThrownBy(() -> json("{\"walletId\": 1}", 100)).isInstanceOf(ImportFormatException.class);
+        }
+
+        @Test
+        @DisplayName("JSON hỏng: lỗi cấp file kèm số dòng")
+        void malformed() {
+            assertThatThrownBy(() -> json("[\n{\"walletId\": 1,,}\n]", 100))
+                    .isInstanceOf(ImportFormatException.class)
+                    .hasMessageContaining("line 2");
+        }
+
+        @Test
+        @DisplayName("Vượt số dòng tối đa: lỗi cấp file")
+        void exceedsLimit() {
+            assertThatThrownBy(() -> json("[{\"walletId\": 1}, {\"walletId\": 2}]", 1))
+                    .isInstanceOf(ImportFormatException.class);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.fpm2025.transaction_service.service.imports;
+
+import com.fpm2025.domain.enums.CategoryType;
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests cho {@link TransactionImportService#netDeltas}: mỗi (ví, tiền tệ) một delta ròng INCOME − EXPENSE.
+ */
+@DisplayName("TransactionImportService — netDeltas")
+class TransactionImportServiceTest {
+
+    private static TransactionEntity tx(long walletId, String currency, CategoryType type, String amount) {
+        return TransactionEntity.builder()
+                .walletId(walletId)
+                .currency(currency)
+                .type(type)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Gộp theo (ví, tiền tệ), giữ thứ tự xuất hiện đầu tiên")
+    void groupsByWalletAndCurrency() {
+        List<ImportResult.WalletDelta> deltas = TransactionImportService.netDeltas(List.of(
+                tx(1, "VND", CategoryType.EXPENSE, "50000"),
+                tx(2, "VND", CategoryType.INCOME, "100"),
+                tx(1, "VND", CategoryType.INCOME, "20000"),
+                tx(1, "USD", CategoryType.EXPENSE, "1.25")));
+
+        assertThat(deltas).extracting(ImportResult.WalletDelta::walletId, ImportResult.WalletDelta::currency)
+                .containsExactly(tuple(1L, "VND"), tuple(2L, "VND"), tuple(1L, "USD"));
+        assertThat(deltas.get(0).delta()).isEqualByComparingTo("-30000");
+        assertThat(deltas.get(1).delta()).isEqualByComparingTo("100");
+        assertThat(deltas.get(2).delta()).isEqualByComparingTo("-1.25");
+    }
+
+    @Test
+    @DisplayName("Thu chi bù trừ hết vẫn trả delta 0 (updateBalance bỏ qua delta 0)")
+    void keepsZeroNet() {
+        List<ImportResult.WalletDelta> deltas = TransactionImportService.netDeltas(List.of(
+                tx(1, "VND", CategoryType.EXPENSE, "500"),
+                tx(1, "VND", CategoryType.INCOME, "500")));
+
+        assertThat(deltas).singleElement().satisfies(d -> assertThat(d.delta()).isEqualByComparingTo("0"));
+    }
+
+    @Test
+    @DisplayName("Không có giao dịch: không có delta")
+    void empty() {
+        assertThat(TransactionImportService.netDeltas(List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,94 @@
+package com.fpm2025.transaction_service.service.paging;
+
+import com.fpm2025.transaction_service.entity.TransactionEntity;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit tests cho {@link TransactionCursor}: token mã hóa/giải mã khứ hồi và thứ tự (transaction_date DESC, id DESC).
+ */
+@DisplayName("TransactionCursor — Unit Tests")
+class TransactionCursorTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2026, 3, 15, 12, 0);
+
+    @Test
+    @DisplayName("encode → decode trả lại đúng cursor, kể cả giây lẻ")
+    void roundTrip() {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2026, 3, 15, 12, 30, 45, 123_000_000), 987654321L);
+
+        String token = cursor.encode();
+
+        assertThat(token).doesNotContain("=", "+", "/");
+        assertThat(TransactionCursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    @DisplayName("Thời điểm tròn phút (LocalDateTime.toString bỏ giây) vẫn khứ hồi")
+    void roundTripWholeMinute() {
+        TransactionCursor cursor = new TransactionCursor(NOON, 1L);
+
+        assertThat(TransactionCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    @DisplayName("Token rỗng/null là trang đầu")
+    void blankIsFirstPage() {
+        assertThat(TransactionCursor.decode(null)).isNull();
+        assertThat(TransactionCursor.decode(" ")).isNull();
+    }
+
+    @Test
+    @DisplayName("Token hỏng: InvalidCursorException")
+    void invalidTokens() {
+        assertThatThrownBy(() -> TransactionCursor.decode("not base64!"))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode(encodeRaw("2026-03-15T12:00")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode(encodeRaw("yesterday|5")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> TransactionCursor.decode(encodeRaw("2026-03-15T12:00|five")))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    @DisplayName("ORDER: mới trước, cùng transaction_date thì id lớn trước")
+    void order() {
+        TransactionEntity older = row(1L, NOON.minusDays(1));
+        TransactionEntity tieLow = row(2L, NOON);
+        TransactionEntity tieHigh = row(3L, NOON);
+        List<TransactionEntity> rows = new ArrayList<>(List.of(older, tieLow, tieHigh));
+
+        rows.sort(TransactionCursor.ORDER);
+
+        assertThat(rows).containsExactly(tieHigh, tieLow, older);
+    }
+
+    @Test
+    @DisplayName("precedes: chỉ dòng đứng sau cursor theo ORDER thuộc các trang sau")
+    void precedes() {
+        TransactionCursor cursor = TransactionCursor.of(row(5L, NOON));
+
+        assertThat(cursor.precedes(row(4L, NOON))).isTrue();
+        assertThat(cursor.precedes(row(9L, NOON.minusSeconds(1)))).isTrue();
+        assertThat(cursor.precedes(row(5L, NOON))).isFalse();
+        assertThat(cursor.precedes(row(6L, NOON))).isFalse();
+        assertThat(cursor.precedes(row(1L, NOON.plusSeconds(1)))).isFalse();
+    }
+
+    private static TransactionEntity row(Long id, LocalDateTime date) {
+        return TransactionEntity.builder().id(id).transactionDate(date).build();
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,10 +1,20 @@
 package com.fpm_2025.wallet_service.config;
 
 import com.fpm2025.grpc.protocol.UserGrpcServiceGrpc;
+import com.fpm_2025.wallet_service.grpc.BalanceOperationHeaders;
+import io.grpc.ServerInterceptor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.grpc.client.GrpcClientFactory;
+import org.springframework.grpc.server.GlobalServerInterceptor;
 
 @Configuration
 public class GrpcConfig {
     // Standard gRPC configuration for Spring gRPC server
-}
\ No newline at end of file
+
+    @Bean
+    @GlobalServerInterceptor
+    public ServerInterceptor balanceOperationHeadersInterceptor() {
+        return BalanceOperationHeaders.interceptor();
+    }
+}
@@ -0,0 +1,55 @@
+package com.fpm_2025.wallet_service.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Sổ cái các lần cập nhật số dư có khóa idempotency (header {@code balance-operation-key} của UpdateBalance).
+ *
+ * Mỗi khóa một dòng: gửi lại cùng khóa không cộng lần hai; revert chỉ trừ đúng phần đã cộng và chỉ một lần.
+ * Revert đến trước (hoặc thay cho) lần áp dụng thì ghi tombstone VOIDED — lần áp dụng đến sau bị bỏ qua.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "balance_operations", indexes = {
+        @Index(name = "idx_balance_ops_wallet_id", columnList = "wallet_id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_balance_ops_key", columnNames = {"operation_key"})
+})
+public class BalanceOperationEntity {
+
+    public enum Status { APPLIED, REVERTED, VOIDED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "operation_key", nullable = false, length = 64)
+    private String operationKey;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    /** Delta đã cộng vào số dư (âm = trừ); 0 với tombstone VOIDED. */
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "reverted_at")
+    private LocalDateTime revertedAt;
+}
@@ -0,0 +1,50 @@
+package com.fpm_2025.wallet_service.grpc;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+/**
+ * Header gRPC của UpdateBalance có khóa idempotency (transaction-service gửi, xem BalanceOperationService):
+ * - {@value #KEY_NAME}: khóa của lần cập nhật — gửi lại cùng khóa không cộng hai lần;
+ * - {@value #ACTION_NAME}: {@value #APPLY} (mặc định) hoặc {@value #REVERT} — hoàn tác lần cập nhật mang
+ *   khóa đó nếu nó đã được áp dụng (amount của request bị bỏ qua).
+ * Không có {@value #KEY_NAME} thì UpdateBalance chạy như cũ. {@link #interceptor()} chép header vào
+ * {@link Context} để service implementation đọc được.
+ */
+public final class BalanceOperationHeaders {
+
+    public static final String KEY_NAME = "balance-operation-key";
+    public static final String ACTION_NAME = "balance-operation-action";
+    public static final String APPLY = "APPLY";
+    public static final String REVERT = "REVERT";
+
+    private static final Metadata.Key<String> KEY_HEADER = Metadata.Key.of(KEY_NAME, Metadata.ASCII_STRING_MARSHALLER);
+    private static final Metadata.Key<String> ACTION_HEADER = Metadata.Key.of(ACTION_NAME, Metadata.ASCII_STRING_MARSHALLER);
+
+    static final Context.Key<String> OPERATION_KEY = Context.key(KEY_NAME);
+    static final Context.Key<String> ACTION = Context.key(ACTION_NAME);
+
+    private BalanceOperationHeaders() {
+    }
+
+    public static ServerInterceptor interceptor() {
+        return new ServerInterceptor() {
+            @Override
+            public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                         ServerCallHandler<ReqT, RespT> next) {
+                String key = headers.get(KEY_HEADER);
+                if (key == null) {
+                    return next.startCall(call, headers);
+                }
+                Context context = Context.current()
+                        .withValue(OPERATION_KEY, key)
+                        .withValue(ACTION, headers.get(ACTION_HEADER));
+                return Contexts.interceptCall(context, call, headers, next);
+            }
+        };
+    }
+}
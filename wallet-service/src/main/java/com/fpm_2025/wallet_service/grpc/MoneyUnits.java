@@ -0,0 +1,69 @@
+package com.fpm_2025.wallet_service.grpc;
+
+import com.fpm2025.grpc.protocol.Money;
+import com.google.protobuf.Descriptors;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Quy đổi giữa {@link BigDecimal} (DB, DECIMAL(15,2)), đơn vị nhỏ nhất dạng {@code long}
+ * (1/100 đơn vị tiền tệ) và {@code Money} của gRPC.
+ *
+ * {@code amount_minor} (int64) là trường chính xác; {@code amount} (double) vẫn được set để service chưa
+ * nâng cấp đọc được, và chỉ dùng khi đọc từ sender cũ. {@code amount_minor} được truy cập qua descriptor
+ * nên class chạy được cả với bản fpm-proto chưa có trường này (khi đó chỉ dùng {@code amount}).
+ */
+public final class MoneyUnits {
+
+    public static final int SCALE = 2;
+
+    /** {@code Money.amount_minor}, null nếu fpm-proto đang dùng chưa có trường int64 này. */
+    private static final Descriptors.FieldDescriptor AMOUNT_MINOR = amountMinorField();
+
+    private MoneyUnits() {
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinor(long minor) {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    public static Money toProto(BigDecimal amount, String currency) {
+        long minor = toMinor(amount);
+        Money.Builder money = Money.newBuilder()
+                .setAmount(minor / 100d)
+                .setCurrency(currency != null ? currency : "VND");
+        if (AMOUNT_MINOR != null) {
+            money.setField(AMOUNT_MINOR, minor);
+        }
+        return money.build();
+    }
+
+    /**
+     * Ưu tiên {@code amount_minor}; sender cũ chỉ set {@code amount} thì quy đổi qua chuỗi thập phân
+     * ngắn nhất của double ({@link BigDecimal#valueOf(double)}) để không kéo theo sai số nhị phân.
+     */
+    public static long minorFromProto(Money money) {
+        long minor = AMOUNT_MINOR != null ? (Long) money.getField(AMOUNT_MINOR) : 0L;
+        if (minor != 0 || money.getAmount() == 0d) {
+            return minor;
+        }
+        return toMinor(BigDecimal.valueOf(money.getAmount()));
+    }
+
+    public static BigDecimal fromProto(Money money) {
+        return fromMinor(minorFromProto(money));
+    }
+
+    private static Descriptors.FieldDescriptor amountMinorField() {
+        Descriptors.FieldDescriptor field = Money.getDescriptor().findFieldByName("amount_minor");
+        return field != null && field.getJavaType() == Descriptors.FieldDescriptor.JavaType.LONG ? field : null;
+    }
+}
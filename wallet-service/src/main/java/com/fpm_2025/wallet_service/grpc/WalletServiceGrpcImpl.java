@@ -1,9 +1,9 @@
 package com.fpm_2025.wallet_service.grpc;
 
-import com.fpm2025.grpc.protocol.Money;
 import com.fpm2025.grpc.protocol.*;
 import com.fpm_2025.wallet_service.entity.WalletEntity;
 import com.fpm_2025.wallet_service.repository.WalletRepository;
+import com.fpm_2025.wallet_service.service.BalanceOperationService;
 import io.grpc.stub.StreamObserver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +20,7 @@ public class WalletServiceGrpcImpl extends WalletGrpcServiceGrpc.WalletGrpcServi
 
     private final WalletRepository walletRepository;
     private final com.fpm_2025.wallet_service.repository.WalletPermissionRepository walletPermissionRepository;
+    private final BalanceOperationService balanceOperationService;
 
     @Override
     public void getWalletById(WalletIdRequest request, StreamObserver<WalletResponse> responseObserver) {
@@ -62,15 +63,36 @@ public void getWalletsByUserId(UserWalletsRequest request, StreamObserver<Wallet
         }
     }
 
+    /**
+     * Có header {@value BalanceOperationHeaders#KEY_NAME}: cập nhật idempotent qua {@link BalanceOperationService}
+     * (ADD/SUBTRACT, hoặc REVERT lần cập nhật mang khóa đó). Không có header: cập nhật trực tiếp như cũ.
+     */
     @Override
     public void updateBalance(UpdateBalanceRequest request, StreamObserver<WalletResponse> responseObserver) {
         log.info("gRPC: updateBalance called for walletId: {} with operation: {}", request.getWalletId(), request.getOperation());
         try {
+            String operationKey = BalanceOperationHeaders.OPERATION_KEY.get();
+            if (operationKey != null) {
+                WalletEntity updatedWallet;
+                if (BalanceOperationHeaders.REVERT.equalsIgnoreCase(BalanceOperationHeaders.ACTION.get())) {
+                    updatedWallet = balanceOperationService.revert(request.getWalletId(), operationKey);
+                } else if ("ADD".equalsIgnoreCase(request.getOperation()) || "SUBTRACT".equalsIgnoreCase(request.getOperation())) {
+                    BigDecimal change = MoneyUnits.fromProto(request.getAmount());
+                    updatedWallet = balanceOperationService.apply(request.getWalletId(),
+                            "SUBTRACT".equalsIgnoreCase(request.getOperation()) ? change.negate() : change, operationKey);
+                } else {
+                    throw new IllegalArgumentException("Operation " + request.getOperation() + " cannot carry "
+                            + BalanceOperationHeaders.KEY_NAME);
+                }
+                responseObserver.onNext(mapToGrpcWallet(updatedWallet));
+                responseObserver.onCompleted();
+                return;
+            }
+
             WalletEntity wallet = walletRepository.findById(request.getWalletId())
                     .orElseThrow(() -> new RuntimeException("Wallet not found"));
 
-            double amountToChange = request.getAmount().getAmount();
-            BigDecimal change = BigDecimal.valueOf(amountToChange);
+            BigDecimal change = MoneyUnits.fromProto(request.getAmount());
 
             if ("SUBTRACT".equalsIgnoreCase(request.getOperation())) {
                 if (wallet.getBalance().compareTo(change) < 0) {
@@ -138,14 +160,13 @@ public void checkSufficientBalance(BalanceCheckRequest request, StreamObserver<B
             WalletEntity wallet = walletRepository.findById(request.getWalletId())
                     .orElseThrow(() -> new RuntimeException("Wallet not found"));
 
-            double requiredAmount = request.getAmount().getAmount();
-            BigDecimal required = BigDecimal.valueOf(requiredAmount);
+            BigDecimal required = MoneyUnits.fromProto(request.getAmount());
             
             boolean sufficient = wallet.getBalance().compareTo(required) >= 0;
 
             BalanceCheckResponse response = BalanceCheckResponse.newBuilder()
                     .setSufficient(sufficient)
-                    .setCurrentBalance(Money.newBuilder().setAmount(wallet.getBalance().doubleValue()).setCurrency(wallet.getCurrency() != null ? wallet.getCurrency() : "VND").build())
+                    .setCurrentBalance(MoneyUnits.toProto(wallet.getBalance(), wallet.getCurrency()))
                     .setRequiredAmount(request.getAmount())
                     .build();
 
@@ -163,7 +184,7 @@ private WalletResponse mapToGrpcWallet(WalletEntity entity) {
                 .setUserId(entity.getUserId() != null ? entity.getUserId() : 0)
                 .setName(entity.getName() == null ? "" : entity.getName())
                 .setType(entity.getType() != null ? entity.getType().name() : "")
-                .setBalance(Money.newBuilder().setAmount(entity.getBalance() != null ? entity.getBalance().doubleValue() : 0.0).setCurrency(entity.getCurrency() != null ? entity.getCurrency() : "VND").build())
+                .setBalance(MoneyUnits.toProto(entity.getBalance(), entity.getCurrency()))
                 .setIcon(entity.getIcon() != null ? entity.getIcon() : "")
                 .setIsActive(entity.getIsActive() != null ? entity.getIsActive() : false)
                 .build();
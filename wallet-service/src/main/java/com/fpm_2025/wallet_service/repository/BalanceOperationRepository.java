@@ -0,0 +1,10 @@
+package com.fpm_2025.wallet_service.repository;
+
+import com.fpm_2025.wallet_service.entity.BalanceOperationEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface BalanceOperationRepository extends JpaRepository<BalanceOperationEntity, Long> {
+    Optional<BalanceOperationEntity> findByOperationKey(String operationKey);
+}
@@ -4,10 +4,15 @@
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.fpm_2025.wallet_service.entity.WalletEntity;
 import com.fpm2025.domain.enums.WalletType;
 import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
+
 public interface WalletRepository extends JpaRepository<WalletEntity, Long>{
 	Optional<WalletEntity> findByUserIdAndId(Long userId, Long id);
     List<WalletEntity> findByUserId(Long userId);
@@ -19,4 +24,9 @@ public interface WalletRepository extends JpaRepository<WalletEntity, Long>{
     BigDecimal getTotalBalanceByUserId(Long userId);
     long countByUserId(Long userId);
     List<WalletEntity> findByFamilyId(Long familyId);
+
+    // SELECT ... FOR UPDATE: tuần tự hóa các lần cập nhật số dư của cùng một ví
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WalletEntity w WHERE w.id = :id")
+    Optional<WalletEntity> findByIdForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,97 @@
+package com.fpm_2025.wallet_service.service;
+
+import com.fpm_2025.wallet_service.entity.BalanceOperationEntity;
+import com.fpm_2025.wallet_service.entity.BalanceOperationEntity.Status;
+import com.fpm_2025.wallet_service.entity.WalletEntity;
+import com.fpm_2025.wallet_service.exception.InsufficientBalanceException;
+import com.fpm_2025.wallet_service.repository.BalanceOperationRepository;
+import com.fpm_2025.wallet_service.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Cập nhật số dư idempotent theo khóa của caller (xem {@link BalanceOperationEntity}).
+ *
+ * Ví bị lock (SELECT ... FOR UPDATE) trước khi đọc sổ cái, nên hai request cùng khóa — cùng ví — chạy tuần tự:
+ * request sau luôn thấy dòng của request trước. Số dư và dòng sổ cái commit cùng một transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceOperationService {
+
+    private final WalletRepository walletRepository;
+    private final BalanceOperationRepository operationRepository;
+
+    /**
+     * Cộng {@code delta} (âm = trừ) một lần duy nhất cho {@code operationKey}. Khóa đã áp dụng, đã revert hay
+     * đã bị hủy trước (VOIDED) thì trả về ví không đổi.
+     */
+    @Transactional
+    public WalletEntity apply(Long walletId, BigDecimal delta, String operationKey) {
+        WalletEntity wallet = lockWallet(walletId);
+        Optional<BalanceOperationEntity> existing = operationRepository.findByOperationKey(operationKey);
+        if (existing.isPresent()) {
+            log.info("Balance operation {} already {}, skipping", operationKey, existing.get().getStatus());
+            return wallet;
+        }
+        if (delta.signum() < 0 && wallet.getBalance().compareTo(delta.negate()) < 0) {
+            throw new InsufficientBalanceException("Insufficient balance");
+        }
+        wallet.setBalance(wallet.getBalance().add(delta));
+        operationRepository.save(BalanceOperationEntity.builder()
+                .operationKey(operationKey)
+                .walletId(walletId)
+                .amount(delta)
+                .status(Status.APPLIED)
+                .build());
+        return walletRepository.save(wallet);
+    }
+
+    /**
+     * Hoàn tác lần áp dụng {@code operationKey} nếu nó đã được áp dụng — trừ đúng delta đã ghi, không phụ thuộc
+     * số dư hiện tại. Chưa áp dụng thì ghi tombstone để lần áp dụng đến muộn bị bỏ qua. Gọi lại nhiều lần
+     * không có tác dụng thêm.
+     */
+    @Transactional
+    public WalletEntity revert(Long walletId, String operationKey) {
+        WalletEntity wallet = lockWallet(walletId);
+        Optional<BalanceOperationEntity> existing = operationRepository.findByOperationKey(operationKey);
+        if (existing.isEmpty()) {
+            operationRepository.save(BalanceOperationEntity.builder()
+                    .operationKey(operationKey)
+                    .walletId(walletId)
+                    .amount(BigDecimal.ZERO)
+                    .status(Status.VOIDED)
+                    .build());
+            log.info("Balance operation {} voided before it was applied", operationKey);
+            return wallet;
+        }
+
+        BalanceOperationEntity operation = existing.get();
+        if (!operation.getWalletId().equals(walletId)) {
+            throw new IllegalArgumentException("Balance operation " + operationKey + " belongs to wallet "
+                    + operation.getWalletId() + ", not " + walletId);
+        }
+        if (operation.getStatus() != Status.APPLIED) {
+            return wallet;
+        }
+        wallet.setBalance(wallet.getBalance().subtract(operation.getAmount()));
+        operation.setStatus(Status.REVERTED);
+        operation.setRevertedAt(LocalDateTime.now());
+        operationRepository.save(operation);
+        log.info("Reverted balance operation {} ({}) on wallet {}", operationKey, operation.getAmount(), walletId);
+        return walletRepository.save(wallet);
+    }
+
+    private WalletEntity lockWallet(Long walletId) {
+        return walletRepository.findByIdForUpdate(walletId)
+                .orElseThrow(() -> new RuntimeException("Wallet not found"));
+    }
+}
@@ -0,0 +1,155 @@
+package com.fpm_2025.wallet_service.service;
+
+import com.fpm_2025.wallet_service.entity.BalanceOperationEntity;
+import com.fpm_2025.wallet_service.entity.BalanceOperationEntity.Status;
+import com.fpm_2025.wallet_service.entity.WalletEntity;
+import com.fpm_2025.wallet_service.exception.InsufficientBalanceException;
+import com.fpm_2025.wallet_service.repository.BalanceOperationRepository;
+import com.fpm_2025.wallet_service.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests cho {@link BalanceOperationService}: cập nhật số dư idempotent theo khóa và revert có điều kiện.
+ *
+ * <p>Sổ cái được giả lập bằng một Map theo operation_key để kiểm tra cả chuỗi gọi (áp dụng → gửi lại → revert).
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BalanceOperationService — Unit Tests")
+class BalanceOperationServiceTest {
+
+    private static final Long WALLET_ID = 7L;
+    private static final String KEY = "op-1";
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private BalanceOperationRepository operationRepository;
+
+    @InjectMocks
+    private BalanceOperationService service;
+
+    private WalletEntity wallet;
+    private final Map<String, BalanceOperationEntity> ledger = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        wallet = WalletEntity.builder().id(WALLET_ID).userId(1L).name("Ví").balance(new BigDecimal("100.00")).build();
+        lenient().when(walletRepository.findByIdForUpdate(WALLET_ID)).thenReturn(Optional.of(wallet));
+        lenient().when(walletRepository.save(any(WalletEntity.class))).thenAnswer(inv -> inv.getArgument(0));
+        lenient().when(operationRepository.findByOperationKey(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(ledger.get(inv.<String>getArgument(0))));
+        lenient().when(operationRepository.save(any(BalanceOperationEntity.class))).thenAnswer(inv -> {
+            BalanceOperationEntity op = inv.getArgument(0);
+            ledger.put(op.getOperationKey(), op);
+            return op;
+        });
+    }
+
+    @Nested
+    @DisplayName("apply — áp dụng đúng một lần")
+    class ApplyTest {
+
+        @Test
+        @DisplayName("Khóa mới: cộng delta và ghi sổ cái APPLIED")
+        void appliesOnce() {
+            service.apply(WALLET_ID, new BigDecimal("-30.00"), KEY);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("70.00");
+            assertThat(ledger.get(KEY).getStatus()).isEqualTo(Status.APPLIED);
+            assertThat(ledger.get(KEY).getAmount()).isEqualByComparingTo("-30.00");
+        }
+
+        @Test
+        @DisplayName("Gửi lại cùng khóa (relay at-least-once, retry sau timeout): không cộng lần hai")
+        void duplicateIsIgnored() {
+            service.apply(WALLET_ID, new BigDecimal("25.00"), KEY);
+            service.apply(WALLET_ID, new BigDecimal("25.00"), KEY);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("125.00");
+        }
+
+        @Test
+        @DisplayName("Không đủ số dư: lỗi, không ghi sổ cái")
+        void insufficientBalance() {
+            assertThatThrownBy(() -> service.apply(WALLET_ID, new BigDecimal("-500.00"), KEY))
+                    .isInstanceOf(InsufficientBalanceException.class);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("100.00");
+            assertThat(ledger).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("revert — chỉ hoàn tác phần đã áp dụng")
+    class RevertTest {
+
+        @Test
+        @DisplayName("Đã áp dụng: trừ đúng delta đã ghi, revert lặp lại không có tác dụng")
+        void revertsAppliedOnce() {
+            service.apply(WALLET_ID, new BigDecimal("40.00"), KEY);
+
+            service.revert(WALLET_ID, KEY);
+            service.revert(WALLET_ID, KEY);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("100.00");
+            assertThat(ledger.get(KEY).getStatus()).isEqualTo(Status.REVERTED);
+        }
+
+        @Test
+        @DisplayName("Revert được phép đưa số dư xuống âm — tiền đã cộng nhầm phải được trừ lại")
+        void revertIgnoresBalance() {
+            service.apply(WALLET_ID, new BigDecimal("40.00"), KEY);
+            wallet.setBalance(new BigDecimal("10.00"));
+
+            service.revert(WALLET_ID, KEY);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("-30.00");
+        }
+
+        @Test
+        @DisplayName("Chưa áp dụng (process chết trước khi gửi): ghi tombstone, số dư không đổi")
+        void revertBeforeApplyVoids() {
+            service.revert(WALLET_ID, KEY);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("100.00");
+            assertThat(ledger.get(KEY).getStatus()).isEqualTo(Status.VOIDED);
+        }
+
+        @Test
+        @DisplayName("Lần áp dụng đến sau tombstone bị bỏ qua")
+        void applyAfterVoidIsIgnored() {
+            service.revert(WALLET_ID, KEY);
+            service.apply(WALLET_ID, new BigDecimal("40.00"), KEY);
+
+            assertThat(wallet.getBalance()).isEqualByComparingTo("100.00");
+            assertThat(ledger.get(KEY).getStatus()).isEqualTo(Status.VOIDED);
+        }
+
+        @Test
+        @DisplayName("Khóa thuộc ví khác: từ chối")
+        void wrongWallet() {
+            ledger.put(KEY, BalanceOperationEntity.builder().operationKey(KEY).walletId(99L)
+                    .amount(BigDecimal.ONE).status(Status.APPLIED).build());
+
+            assertThatThrownBy(() -> service.revert(WALLET_ID, KEY)).isInstanceOf(IllegalArgumentException.class);
+            assertThat(wallet.getBalance()).isEqualByComparingTo("100.00");
+        }
+    }
+}